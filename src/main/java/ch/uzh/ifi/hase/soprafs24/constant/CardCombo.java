@@ -0,0 +1,18 @@
+package ch.uzh.ifi.hase.soprafs24.constant;
+
+/**
+ * Pattern of the cards played in a single move, all of the same type
+ */
+public enum CardCombo {
+    SINGLE, PAIR, TRIPLE;
+
+    private static final CardCombo[] BY_SIZE = {null, SINGLE, PAIR, TRIPLE};
+
+    /**
+     * @param size number of cards played
+     * @return the combo of that many cards, null if no combo consists of that many cards
+     */
+    public static CardCombo ofSize(int size) {
+        return size >= 0 && size < BY_SIZE.length ? BY_SIZE[size] : null;
+    }
+}
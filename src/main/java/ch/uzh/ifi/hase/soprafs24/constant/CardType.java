@@ -0,0 +1,99 @@
+package ch.uzh.ifi.hase.soprafs24.constant;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Game meaning of a card. The type only depends on the rank of the card code (e.g. "K" of "KS"),
+ * the jokers "X1" and "X2" act as defuse cards.
+ */
+public enum CardType {
+    DEFUSE("defuse"),
+    EXPLOSION("explosion"),
+    ATTACK("attack"),
+    SKIP("skip"),
+    FUTURE("future"),
+    FAVOR("favor"),
+    SHUFFLE("shuffle"),
+    TACOCAT("tacocat"),
+    CATTERMELON("cattermelon"),
+    HAIRYPOTATOCAT("hairypotatocat"),
+    BEARDCAT("beardcat"),
+    LUCKY("lucky"),
+    UNKNOWN("unknown");
+
+    private static final String SUITS = "SDCH";
+
+    private static final Map<String, CardType> BY_INTERNAL_CODE = new HashMap<>();
+
+    static {
+        for (CardType type : values()) {
+            BY_INTERNAL_CODE.put(type.internalCode, type);
+        }
+    }
+
+    private final String internalCode;
+
+    CardType(String internalCode) {
+        this.internalCode = internalCode;
+    }
+
+    public String getInternalCode() {
+        return internalCode;
+    }
+
+    /**
+     * Maps a card code of the deckofcards api to its type
+     * @param code of the card, e.g. "KS" or "X1"
+     * @return the type of the card, UNKNOWN if the code is not part of a deck
+     */
+    public static CardType fromCode(String code) {
+        if (code == null || code.length() != 2) {
+            return UNKNOWN;
+        }
+        if (code.equals("X1") || code.equals("X2")) {
+            return DEFUSE;
+        }
+        if (SUITS.indexOf(code.charAt(1)) < 0) {
+            return UNKNOWN;
+        }
+        switch (code.charAt(0)) {
+            case 'K':
+                return DEFUSE;
+            case 'A':
+                return EXPLOSION;
+            case 'J':
+                return ATTACK;
+            case '0':
+                return SKIP;
+            case '9':
+            case '6':
+                return FUTURE;
+            case '8':
+                return FAVOR;
+            case '7':
+                return SHUFFLE;
+            case '5':
+                return TACOCAT;
+            case '4':
+                return CATTERMELON;
+            case '3':
+                return HAIRYPOTATOCAT;
+            case '2':
+                return BEARDCAT;
+            case 'Q':
+                return LUCKY;
+            default:
+                return UNKNOWN;
+        }
+    }
+
+    /**
+     * Maps the internal code of a card back to its type
+     * @param internalCode of the card, e.g. "defuse"
+     * @return the type of the card, UNKNOWN if no type has that internal code
+     */
+    public static CardType fromInternalCode(String internalCode) {
+        return BY_INTERNAL_CODE.getOrDefault(internalCode, UNKNOWN);
+    }
+}
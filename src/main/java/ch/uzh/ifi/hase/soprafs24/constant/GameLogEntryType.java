@@ -0,0 +1,5 @@
+package ch.uzh.ifi.hase.soprafs24.constant;
+
+public enum GameLogEntryType {
+    COMMAND, REJECTED, EVENT, PILE_ADD, PILE_INSERT, PILE_REMOVE, PILE_REPLACE, SNAPSHOT;
+}
@@ -1,10 +1,14 @@
 package ch.uzh.ifi.hase.soprafs24.controller;
+import ch.uzh.ifi.hase.soprafs24.engine.OptimisticRetry;
 import ch.uzh.ifi.hase.soprafs24.entity.Game;
+import ch.uzh.ifi.hase.soprafs24.entity.GameLogEntry;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.GameGetDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.GameLogEntryGetDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.GamePostDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.mapper.GameDTOMapper;
 import ch.uzh.ifi.hase.soprafs24.service.GameService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,7 +21,13 @@ public class GameController {
 
     private final GameService gameService;
 
-    GameController(GameService gameService) {this.gameService = gameService;}
+    // Concurrent joins and leaves of the same lobby conflict on the version of the game, the loser is executed again
+    private final OptimisticRetry lobbyRetry;
+
+    GameController(GameService gameService, @Qualifier("lobbyRetry") OptimisticRetry lobbyRetry) {
+        this.gameService = gameService;
+        this.lobbyRetry = lobbyRetry;
+    }
 
     /**
      * @param token of the user wanting to initiate a new game
@@ -43,7 +53,7 @@ public class GameController {
     @ResponseBody
     public GameGetDTO joinGame(@RequestHeader("token") String token,
                                @PathVariable Long gameId) {
-        Game updatedGame = gameService.joinGame(token, gameId);
+        Game updatedGame = lobbyRetry.call(() -> gameService.joinGame(token, gameId));
         return GameDTOMapper.INSTANCE.convertEntityToGameGetDTO(updatedGame);
     }
 
@@ -58,7 +68,7 @@ public class GameController {
     @ResponseBody
     public GameGetDTO leaveGame(@RequestHeader("token") String token,
                                 @PathVariable Long gameId) {
-        Game updatedGame = gameService.leaveGame(token, gameId);
+        Game updatedGame = lobbyRetry.call(() -> gameService.leaveGame(token, gameId));
         return GameDTOMapper.INSTANCE.convertEntityToGameGetDTO(updatedGame);
     }
 
@@ -78,4 +88,23 @@ public class GameController {
         }
         return gameGetDTOs;
     }
+
+    /**
+     * API endpoint to fetch the log of a finished game (commands, events and pile changes in the order they happened)
+     * @param token of a user who played the game
+     * @param gameId of the finished game
+     * @return a list of GameLogEntryGetDTO instances.
+     */
+    @GetMapping("/dashboard/games/{gameId}/log")
+    @ResponseStatus(HttpStatus.OK)
+    @ResponseBody
+    public List<GameLogEntryGetDTO> getGameLog(@RequestHeader("token") String token,
+                                               @PathVariable Long gameId) {
+        List<GameLogEntry> entries = gameService.getGameLog(token, gameId);
+        List<GameLogEntryGetDTO> gameLogEntryGetDTOs = new ArrayList<>();
+        for (GameLogEntry entry : entries) {
+            gameLogEntryGetDTOs.add(GameDTOMapper.INSTANCE.convertEntityToGameLogEntryGetDTO(entry));
+        }
+        return gameLogEntryGetDTOs;
+    }
 }
@@ -1,13 +1,17 @@
 package ch.uzh.ifi.hase.soprafs24.controller;
 
+import ch.uzh.ifi.hase.soprafs24.deck.DeckProvider;
+import ch.uzh.ifi.hase.soprafs24.engine.GameCommandExecutor;
 import ch.uzh.ifi.hase.soprafs24.entity.Card;
 import ch.uzh.ifi.hase.soprafs24.entity.Game;
 import ch.uzh.ifi.hase.soprafs24.entity.GameDeck;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
 import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.GamePostDTO;
+import ch.uzh.ifi.hase.soprafs24.service.CardEffectService;
 import ch.uzh.ifi.hase.soprafs24.service.GameDeckService;
 import ch.uzh.ifi.hase.soprafs24.service.GameEngineService;
+import ch.uzh.ifi.hase.soprafs24.service.GameLogService;
 import ch.uzh.ifi.hase.soprafs24.service.UserService;
 import ch.uzh.ifi.hase.soprafs24.service.WebSocketService;
 import ch.uzh.ifi.hase.soprafs24.websocket.dto.CardMoveRequest;
@@ -42,6 +46,9 @@ public class GameEngineController {
     @Autowired
     private GameEngineService gameEngineService;
 
+    @Autowired
+    private CardEffectService cardEffectService;
+
     @Autowired
     private WebSocketService webSocketService;
 
@@ -49,6 +56,12 @@ public class GameEngineController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private GameCommandExecutor gameCommandExecutor;
+
+    @Autowired
+    private GameLogService gameLogService;
+
 
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity<Object> handleResponseStatusException(ResponseStatusException e) {
@@ -59,6 +72,41 @@ public class GameEngineController {
         return new ResponseEntity<>(response, e.getStatus());
     }
 
+    /**
+     * Queues a command behind the pending commands of its game and records it in the log of the game,
+     * followed by its rejection if it fails
+     * @param gameId of the game the command alters
+     * @param userId of the user issuing the command, null if not issued by a player
+     * @param description of the command, used for logging
+     * @param command to be executed
+     */
+    private void submitCommand(Long gameId, Long userId, String description, GameCommandExecutor.GameCommand command) {
+        gameCommandExecutor.submit(gameId, description, () -> {
+            gameLogService.recordCommand(gameId, userId, description);
+            try {
+                command.execute();
+            } catch (IOException | RuntimeException e) {
+                gameLogService.recordRejected(gameId, userId, description, e.getMessage());
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Queues a move behind the pending commands of its game. Piles listed several times during the move are only read once.
+     * @param gameId of the game the move alters
+     * @param userId of the user making the move
+     * @param description of the move, used for logging
+     * @param move to be executed
+     */
+    private void submitMove(Long gameId, Long userId, String description, GameCommandExecutor.GameCommand move) {
+        submitCommand(gameId, userId, description, () -> {
+            try (DeckProvider.ReadScope moveScope = gameDeckService.openMoveScope()) {
+                move.execute();
+            }
+        });
+    }
+
     /**
      * Handles the request of an user to play a card
      * @param gameId of the game the user is currently playing
@@ -71,58 +119,27 @@ public class GameEngineController {
             @DestinationVariable Long userId,
             @Payload CardMoveRequest cardMoveRequest) throws IOException, InterruptedException {
 
-        String targetUsername = cardMoveRequest.getTargetUsername();
+        submitMove(gameId, userId, "card move", () -> {
+            String targetUsername = cardMoveRequest.getTargetUsername();
 
-        log.info(String.format("Move for game %s by user %s: card(s) played (%s)" , gameId, userId, cardMoveRequest.getCardIds()));
-        log.info(targetUsername);
+            log.info(String.format("Move for game %s by user %s: card(s) played (%s)" , gameId, userId, cardMoveRequest.getCardIds()));
+            log.info(targetUsername);
 
-        // Transformation to internal representation
-        List<Card> transformedCards = gameEngineService.transformCardsToInternalRepresentation(cardMoveRequest.getCardIds());
-        Game game = gameEngineService.findGameById(gameId);
+            // Transformation to internal representation
+            List<Card> transformedCards = gameEngineService.transformCardsToInternalRepresentation(cardMoveRequest.getCardIds());
+            Game game = gameEngineService.findGameById(gameId);
 
-        gameDeckService.removeCardsFromPlayerPile(game, userId, String.join(",", cardMoveRequest.getCardIds()));
+            gameDeckService.removeCardsFromPlayerPile(game, userId, String.join(",", cardMoveRequest.getCardIds()));
 
-        // Add cards to the play pile (i.e. game stack)
-        gameDeckService.placeCardsToPlayPile(game, userId ,transformedCards, String.join(",", cardMoveRequest.getCardIds()));
+            // Add cards to the play pile (i.e. game stack)
+            gameDeckService.placeCardsToPlayPile(game, userId ,transformedCards, String.join(",", cardMoveRequest.getCardIds()));
 
-        // Game Logic
-        if(transformedCards.size() == 1) {
-            if (Objects.equals(transformedCards.get(0).getInternalCode(), "shuffle")) {
-                gameEngineService.handleShuffleCard(game, userId);
-            }
-            else if (Objects.equals(transformedCards.get(0).getInternalCode(), "future")) {
-                gameEngineService.handleFutureCard(game, userId);
-            }
-            else if (Objects.equals(transformedCards.get(0).getInternalCode(), "skip")) {
-                gameEngineService.handleSkipCard(game, userId);
-            }
-            else if (Objects.equals(transformedCards.get(0).getInternalCode(), "favor")) {
-                gameEngineService.handleFavorCard(game, userId, targetUsername);
-            }
-            else if (Objects.equals(transformedCards.get(0).getInternalCode(), "attack")) {
-                gameEngineService.handleAttackCard(game, userId);
-            }
-            else if (Objects.equals(transformedCards.get(0).getInternalCode(), "lucky")) {
-                gameEngineService.handleLuckyCard(game, userId);
-            }
-        }
-        else if(transformedCards.size()==2) {
-            if (Objects.equals(transformedCards.get(0).getInternalCode(), (transformedCards.get(1).getInternalCode())) && (Objects.equals(transformedCards.get(0).getInternalCode(), "tacocat"))) {
-                gameEngineService.handleFutureCard(game, userId);
-            }
-            else if (Objects.equals(transformedCards.get(0).getInternalCode(), (transformedCards.get(1).getInternalCode())) && (Objects.equals(transformedCards.get(0).getInternalCode(), "cattermelon"))) {
-                gameEngineService.handleAttackCard(game, userId);
-            }
-            else if (Objects.equals(transformedCards.get(0).getInternalCode(), (transformedCards.get(1).getInternalCode())) && (Objects.equals(transformedCards.get(0).getInternalCode(), "hairypotatocat"))) {
-                gameEngineService.handleSkipCard(game, userId);
-            }
-            else if (Objects.equals(transformedCards.get(0).getInternalCode(), (transformedCards.get(1).getInternalCode())) && (Objects.equals(transformedCards.get(0).getInternalCode(), "beardcat"))) {
-                gameEngineService.handleShuffleCard(game, userId);
-            }
-        }
+            // Game Logic
+            cardEffectService.play(game, userId, transformedCards, targetUsername);
 
-        // Dispatch Stats
-        gameEngineService.dispatchGameState(gameId,userId);
+            // Dispatch Stats
+            gameEngineService.dispatchGameState(gameId,userId);
+        });
     }
 
     /**
@@ -134,8 +151,10 @@ public class GameEngineController {
             @DestinationVariable("gameId") Long gameId) throws IOException, InterruptedException {
 
         GameEngineController.log.info(String.format("Game: %s, started" , gameId));
-        Game initializedGame = gameEngineService.startGame(gameId);
-        gameEngineService.dispatchGameState(gameId, initializedGame.getCurrentTurn().getId());
+        submitCommand(gameId, null, "start", () -> {
+            Game initializedGame = gameEngineService.startGame(gameId);
+            gameEngineService.dispatchGameState(gameId, initializedGame.getCurrentTurn().getId());
+        });
     }
 
     /**
@@ -152,20 +171,22 @@ public class GameEngineController {
 
         GameEngineController.log.info(String.format("Game: %s, user: %s terminated his turn" , gameId, userId));
 
-        // Handle termination of move draw
-        String explosionCard = gameEngineService.drawCardMoveTermination(gameId, userId, false);
+        submitMove(gameId, userId, "terminate move", () -> {
+            // Handle termination of move draw
+            String explosionCard = gameEngineService.drawCardMoveTermination(gameId, userId, false);
 
-        if (explosionCard != null) {
-            // Handle explosion
-            gameEngineService.handleExplosionCard(gameId, userId, explosionCard);
+            if (explosionCard != null) {
+                // Handle explosion
+                gameEngineService.handleExplosionCard(gameId, userId, explosionCard);
 
-        } else {
-            // Handle turnValidation (finding next player and communicating through websocket)
-            gameEngineService.turnValidation(gameId, userId);
+            } else {
+                // Handle turnValidation (finding next player and communicating through websocket)
+                gameEngineService.turnValidation(gameId, userId);
 
-            // Dispatch gameState
-            gameEngineService.dispatchGameState(gameId, userId);
-        }
+                // Dispatch gameState
+                gameEngineService.dispatchGameState(gameId, userId);
+            }
+        });
     }
 
     /**
@@ -184,7 +205,9 @@ public class GameEngineController {
     ) throws IOException, InterruptedException {
         log.info("Placement Request for Explosion Card received");
         log.info(String.format("Game: %s, user: %s returned explosion card", gameId, userId));
-        gameEngineService.handleExplosionPlacement(gameId, userId, Integer.parseInt(placementPosition));
+        submitMove(gameId, userId, "explosion placement", () -> {
+            gameEngineService.handleExplosionPlacement(gameId, userId, Integer.parseInt(placementPosition));
+        });
     }
 
     /**
@@ -200,7 +223,7 @@ public class GameEngineController {
         log.info(String.format("User %s left game %s" , userId, gameId));
 
         // Handle user leaving an ongoing game session
-        gameEngineService.removeUserFromGame(gameId, userId);
+        submitCommand(gameId, userId, "leave", () -> gameEngineService.removeUserFromGame(gameId, userId));
     }
 
     /**
@@ -218,6 +241,22 @@ public class GameEngineController {
         log.info(String.format("User %s rejoined game %s", userId, gameId));
 
         // Handle user rejoining a game session
-        gameEngineService.reloadGameState(gameId,userId);
+        gameCommandExecutor.submit(gameId, "reload", () -> gameEngineService.reloadGameState(gameId,userId));
+    }
+
+    /**
+     * Resends the full state of a game to a player whose client missed a version of the game state
+     * @param gameId of the game the player is playing
+     * @param userId of the player
+     */
+    @MessageMapping("gameState/{gameId}/{userId}")
+    public void resendGameState(
+            @DestinationVariable("gameId") Long gameId,
+            @DestinationVariable("userId") Long userId) {
+
+        log.info(String.format("User %s missed a game state of game %s", userId, gameId));
+
+        // Queued behind the pending commands, such that the snapshot isn't overtaken by the changes of a running move
+        gameCommandExecutor.submit(gameId, "game state", () -> webSocketService.sendFullGameState(gameId, userId));
     }
 }
@@ -0,0 +1,193 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deck provider that remembers pile listings within a read scope (see {@link #openReadScope()}), such that
+ * the same pile listed several times during a move is only read once from the wrapped provider.
+ * Every pile carries a version that is increased by each write to it, on any thread; a cached listing is
+ * only returned while the version of its pile is the one read before the listing was requested.
+ * Peeks and masks within a scope are derived from the (cached) listing as well.
+ */
+public class CachingDeckProvider implements DeckProvider {
+
+    private record PileKey(String deckId, String pileName) {
+    }
+
+    private record Listing(long version, List<Card> cards) {
+    }
+
+    private final DeckProvider delegate;
+
+    private final Map<PileKey, Long> versions = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Map<PileKey, Listing>> scope = new ThreadLocal<>();
+
+    public CachingDeckProvider(DeckProvider delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ReadScope openReadScope() {
+        if (scope.get() != null) {
+            return () -> {
+            };
+        }
+        scope.set(new HashMap<>());
+        return scope::remove;
+    }
+
+    private long version(String deckId, String pileName) {
+        return versions.getOrDefault(new PileKey(deckId, pileName), 0L);
+    }
+
+    // Called once a write completed (or failed), such that a listing read concurrently with the write is not kept
+    private void invalidate(String deckId, String pileName) {
+        versions.merge(new PileKey(deckId, pileName), 1L, Long::sum);
+    }
+
+    @Override
+    public String newDeck() throws IOException, InterruptedException {
+        return delegate.newDeck();
+    }
+
+    @Override
+    public List<Card> drawFromDeck(String deckId, int count) throws IOException, InterruptedException {
+        return delegate.drawFromDeck(deckId, count);
+    }
+
+    @Override
+    public void addToPile(String deckId, String pileName, List<String> cardCodes) throws IOException, InterruptedException {
+        try {
+            delegate.addToPile(deckId, pileName, cardCodes);
+        } finally {
+            invalidate(deckId, pileName);
+        }
+    }
+
+    @Override
+    public void insertIntoPile(String deckId, String pileName, String cardCode, int depth) throws IOException, InterruptedException {
+        try {
+            delegate.insertIntoPile(deckId, pileName, cardCode, depth);
+        } finally {
+            invalidate(deckId, pileName);
+        }
+    }
+
+    @Override
+    public List<Card> drawFromPile(String deckId, String pileName, int count) throws IOException, InterruptedException {
+        try {
+            return delegate.drawFromPile(deckId, pileName, count);
+        } finally {
+            invalidate(deckId, pileName);
+        }
+    }
+
+    @Override
+    public List<Card> drawRandomFromPile(String deckId, String pileName) throws IOException, InterruptedException {
+        try {
+            return delegate.drawRandomFromPile(deckId, pileName);
+        } finally {
+            invalidate(deckId, pileName);
+        }
+    }
+
+    @Override
+    public List<Card> drawSpecificFromPile(String deckId, String pileName, List<String> cardCodes) throws IOException, InterruptedException {
+        try {
+            return delegate.drawSpecificFromPile(deckId, pileName, cardCodes);
+        } finally {
+            invalidate(deckId, pileName);
+        }
+    }
+
+    @Override
+    public void shufflePile(String deckId, String pileName) throws IOException, InterruptedException {
+        try {
+            delegate.shufflePile(deckId, pileName);
+        } finally {
+            invalidate(deckId, pileName);
+        }
+    }
+
+    @Override
+    public Card moveRandomCard(String deckId, String fromPile, String toPile) throws IOException, InterruptedException {
+        try {
+            return delegate.moveRandomCard(deckId, fromPile, toPile);
+        } finally {
+            invalidate(deckId, fromPile);
+            invalidate(deckId, toPile);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<Card>> drawFromPileAsync(String deckId, String pileName, int count) {
+        return delegate.drawFromPileAsync(deckId, pileName, count).whenComplete((cards, failure) -> invalidate(deckId, pileName));
+    }
+
+    @Override
+    public CompletableFuture<Void> addToPileAsync(String deckId, String pileName, List<String> cardCodes) {
+        return delegate.addToPileAsync(deckId, pileName, cardCodes).whenComplete((result, failure) -> invalidate(deckId, pileName));
+    }
+
+    @Override
+    public CompletableFuture<List<Card>> drawSpecificFromPileAsync(String deckId, String pileName, List<String> cardCodes) {
+        return delegate.drawSpecificFromPileAsync(deckId, pileName, cardCodes).whenComplete((cards, failure) -> invalidate(deckId, pileName));
+    }
+
+    @Override
+    public List<Card> listPile(String deckId, String pileName) throws IOException, InterruptedException {
+        Map<PileKey, Listing> listings = scope.get();
+        if (listings == null) {
+            return delegate.listPile(deckId, pileName);
+        }
+        PileKey key = new PileKey(deckId, pileName);
+        long version = version(deckId, pileName);
+        Listing listing = listings.get(key);
+        if (listing == null || listing.version() != version) {
+            listing = new Listing(version, List.copyOf(delegate.listPile(deckId, pileName)));
+            listings.put(key, listing);
+        }
+        return new ArrayList<>(listing.cards());
+    }
+
+    @Override
+    public List<Card> peekPile(String deckId, String pileName, int count) throws IOException, InterruptedException {
+        if (scope.get() == null) {
+            return delegate.peekPile(deckId, pileName, count);
+        }
+        return DeckProvider.super.peekPile(deckId, pileName, count);
+    }
+
+    @Override
+    public long pileMask(String deckId, String pileName) throws IOException, InterruptedException {
+        if (scope.get() == null) {
+            return delegate.pileMask(deckId, pileName);
+        }
+        return DeckProvider.super.pileMask(deckId, pileName);
+    }
+
+    @Override
+    public Map<String, Integer> countPiles(String deckId) throws IOException, InterruptedException {
+        return delegate.countPiles(deckId);
+    }
+
+    @Override
+    public Map<String, Integer> reconcilePiles(String deckId) throws IOException, InterruptedException {
+        return delegate.reconcilePiles(deckId);
+    }
+
+    @Override
+    public void discardDeck(String deckId) {
+        versions.keySet().removeIf(key -> key.deckId().equals(deckId));
+        delegate.discardDeck(deckId);
+    }
+}
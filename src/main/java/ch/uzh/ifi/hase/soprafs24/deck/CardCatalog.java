@@ -0,0 +1,75 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.constant.CardType;
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable catalog of the 54 cards of a deck. Every card code is represented by exactly one Card
+ * instance (flyweight) with its internal representation already resolved, such that card codes can be
+ * translated without any database access. The instances are shared, hence they must not be modified.
+ */
+public final class CardCatalog {
+
+    private static final Card[] CARDS = new Card[CardCodes.DECK_SIZE];
+
+    private static final CardType[] TYPES = new CardType[CardCodes.DECK_SIZE];
+
+    static {
+        for (int index = 0; index < CardCodes.DECK_SIZE; index++) {
+            String code = CardCodes.code(index);
+            TYPES[index] = CardType.fromCode(code);
+
+            Card card = new Card();
+            card.setCode(code);
+            card.setSuit(CardCodes.suit(index));
+            card.setImage(CardCodes.image(index));
+            card.setInternalCode(TYPES[index].getInternalCode());
+            CARDS[index] = card;
+        }
+    }
+
+    private CardCatalog() {
+    }
+
+    public static Card get(int index) {
+        return CARDS[index];
+    }
+
+    /**
+     * @param code of the card, e.g. "KS"
+     * @return the card of the catalog, null if the code is not part of a deck
+     */
+    public static Card get(String code) {
+        return CardCodes.isValid(code) ? CARDS[CardCodes.indexOf(code)] : null;
+    }
+
+    public static CardType type(int index) {
+        return TYPES[index];
+    }
+
+    /**
+     * Resolves a list of card codes
+     * @param codes of the cards
+     * @return the cards of the catalog in the same order
+     * @throws IllegalArgumentException if a code is not part of a deck
+     */
+    public static List<Card> resolve(List<String> codes) {
+        List<Card> cards = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            cards.add(CARDS[CardCodes.indexOf(code)]);
+        }
+        return cards;
+    }
+
+    /**
+     * @return all 54 cards, e.g. to initialize the card table
+     */
+    public static List<Card> all() {
+        return Collections.unmodifiableList(Arrays.asList(CARDS));
+    }
+}
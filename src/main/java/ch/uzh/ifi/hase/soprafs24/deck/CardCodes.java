@@ -0,0 +1,80 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fixed numbering of the 54 cards of a deck (52 cards + 2 jokers) as used by the deckofcards api.
+ * Every card code maps to a stable index in [0, 54), which allows piles to be stored as compact arrays of indices.
+ */
+public final class CardCodes {
+
+    public static final int DECK_SIZE = 54;
+
+    private static final String RANKS = "A234567890JQK";
+
+    private static final String SUITS = "SDCH";
+
+    private static final String[] SUIT_NAMES = {"SPADES", "DIAMONDS", "CLUBS", "HEARTS"};
+
+    private static final String IMAGE_URL = "https://deckofcardsapi.com/static/img/%s.png";
+
+    private static final String[] CODES = new String[DECK_SIZE];
+
+    private static final Map<String, Integer> INDICES = new HashMap<>();
+
+    static {
+        for (int suit = 0; suit < SUITS.length(); suit++) {
+            for (int rank = 0; rank < RANKS.length(); rank++) {
+                CODES[suit * RANKS.length() + rank] = "" + RANKS.charAt(rank) + SUITS.charAt(suit);
+            }
+        }
+        CODES[52] = "X1";
+        CODES[53] = "X2";
+
+        for (int i = 0; i < DECK_SIZE; i++) {
+            INDICES.put(CODES[i], i);
+        }
+    }
+
+    private CardCodes() {
+    }
+
+    /**
+     * Returns the card code (e.g. "AS", "0H", "X1") for an index
+     * @param index of the card
+     * @return card code
+     */
+    public static String code(int index) {
+        return CODES[index];
+    }
+
+    /**
+     * Returns the index of a card code
+     * @param code of the card, e.g. "KS"
+     * @return index in [0, 54)
+     * @throws IllegalArgumentException if the code is not part of a deck
+     */
+    public static int indexOf(String code) {
+        Integer index = INDICES.get(code);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown card code: " + code);
+        }
+        return index;
+    }
+
+    public static boolean isValid(String code) {
+        return INDICES.containsKey(code);
+    }
+
+    public static String suit(int index) {
+        if (index >= 52) {
+            return index == 52 ? "BLACK" : "RED";
+        }
+        return SUIT_NAMES[index / RANKS.length()];
+    }
+
+    public static String image(int index) {
+        return String.format(IMAGE_URL, CODES[index]);
+    }
+}
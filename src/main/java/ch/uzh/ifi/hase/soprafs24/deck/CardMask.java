@@ -0,0 +1,148 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.constant.CardType;
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Set of cards represented as a single long: bit i is set if the card with index i (see {@link CardCodes})
+ * is part of the set. Since a deck holds 54 cards, every pile (a hand, the dealer or the play pile) fits
+ * into one mask and membership checks, counting and transfers between piles are plain bit operations.
+ * Masks carry no order; piles whose order matters keep it separately (see {@link CardStack}).
+ */
+public final class CardMask {
+
+    public static final long EMPTY = 0L;
+
+    public static final long FULL_DECK = (1L << CardCodes.DECK_SIZE) - 1;
+
+    private static final Map<CardType, Long> TYPE_MASKS = new EnumMap<>(CardType.class);
+
+    static {
+        for (CardType type : CardType.values()) {
+            TYPE_MASKS.put(type, EMPTY);
+        }
+        for (int index = 0; index < CardCodes.DECK_SIZE; index++) {
+            TYPE_MASKS.merge(CardCatalog.type(index), bit(index), (a, b) -> a | b);
+        }
+    }
+
+    private CardMask() {
+    }
+
+    public static long bit(int index) {
+        return 1L << index;
+    }
+
+    /**
+     * @param codes of the cards, e.g. ["KS", "X1"]
+     * @return mask of the cards
+     * @throws IllegalArgumentException if a code is not part of a deck
+     */
+    public static long of(Collection<String> codes) {
+        long mask = EMPTY;
+        for (String code : codes) {
+            mask |= bit(CardCodes.indexOf(code));
+        }
+        return mask;
+    }
+
+    public static long ofCards(Collection<Card> cards) {
+        long mask = EMPTY;
+        for (Card card : cards) {
+            mask |= bit(CardCodes.indexOf(card.getCode()));
+        }
+        return mask;
+    }
+
+    /**
+     * @param type of the cards
+     * @return mask of all cards of a deck with the given type, e.g. the 6 defuse cards
+     */
+    public static long ofType(CardType type) {
+        return TYPE_MASKS.get(type);
+    }
+
+    public static boolean contains(long mask, int index) {
+        return (mask & bit(index)) != 0;
+    }
+
+    public static boolean containsAll(long mask, long cards) {
+        return (mask & cards) == cards;
+    }
+
+    public static int count(long mask) {
+        return Long.bitCount(mask);
+    }
+
+    /**
+     * @return index of the lowest card in the mask, -1 if the mask is empty
+     */
+    public static int first(long mask) {
+        return mask == EMPTY ? -1 : Long.numberOfTrailingZeros(mask);
+    }
+
+    /**
+     * Returns the n-th card of a mask in ascending index order
+     * @param mask of the cards
+     * @param n position in [0, count(mask))
+     * @return index of the card
+     */
+    public static int select(long mask, int n) {
+        if (n < 0 || n >= count(mask)) {
+            throw new IndexOutOfBoundsException("Position " + n + " in mask of " + count(mask));
+        }
+        for (int i = 0; i < n; i++) {
+            mask &= mask - 1;
+        }
+        return Long.numberOfTrailingZeros(mask);
+    }
+
+    /**
+     * @return index of a uniformly chosen card of a non-empty mask
+     */
+    public static int random(long mask, Random random) {
+        return select(mask, random.nextInt(count(mask)));
+    }
+
+    public static List<String> codes(long mask) {
+        List<String> codes = new ArrayList<>(count(mask));
+        for (long rest = mask; rest != EMPTY; rest &= rest - 1) {
+            codes.add(CardCodes.code(Long.numberOfTrailingZeros(rest)));
+        }
+        return codes;
+    }
+
+    public static List<Card> cards(long mask) {
+        List<Card> cards = new ArrayList<>(count(mask));
+        for (long rest = mask; rest != EMPTY; rest &= rest - 1) {
+            cards.add(CardCatalog.get(Long.numberOfTrailingZeros(rest)));
+        }
+        return cards;
+    }
+
+    /**
+     * Deals cards to several hands in turns, the way cards are dealt at a table
+     * @param cardsTopFirst indices of the cards to be dealt, the first card is dealt first
+     * @param hands number of hands
+     * @param cardsPerHand number of cards every hand receives
+     * @return one mask per hand
+     * @throws IllegalArgumentException if there are not enough cards
+     */
+    public static long[] deal(int[] cardsTopFirst, int hands, int cardsPerHand) {
+        if (hands * cardsPerHand > cardsTopFirst.length) {
+            throw new IllegalArgumentException("Not enough cards to deal " + cardsPerHand + " cards to " + hands + " hands");
+        }
+        long[] dealt = new long[hands];
+        for (int i = 0; i < hands * cardsPerHand; i++) {
+            dealt[i % hands] |= bit(cardsTopFirst[i]);
+        }
+        return dealt;
+    }
+}
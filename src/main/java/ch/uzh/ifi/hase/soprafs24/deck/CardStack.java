@@ -0,0 +1,99 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import java.util.Random;
+
+/**
+ * Compact stack of card indices (see {@link CardCodes}). Position 0 is the bottom, position size-1 the top.
+ * Since a deck holds at most 54 cards, a single byte array suffices and no boxing takes place.
+ * The members are additionally tracked as a {@link CardMask}, hence membership checks take constant time.
+ */
+class CardStack {
+
+    private final byte[] cards = new byte[CardCodes.DECK_SIZE];
+
+    private int size;
+
+    private long mask = CardMask.EMPTY;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " in pile of " + size);
+        }
+        return cards[position];
+    }
+
+    long mask() {
+        return mask;
+    }
+
+    void push(int card) {
+        cards[size++] = (byte) card;
+        mask |= CardMask.bit(card);
+    }
+
+    /**
+     * Inserts a card at a position, shifting the cards above it up by one.
+     * With at most 54 cards the shift is a copy of a few bytes, hence the cost does not depend on the position.
+     * @param position in [0, size], 0 places the card at the bottom and size on top
+     */
+    void insertAt(int position, int card) {
+        if (position < 0 || position > size) {
+            throw new IndexOutOfBoundsException("Position " + position + " in pile of " + size);
+        }
+        System.arraycopy(cards, position, cards, position + 1, size - position);
+        cards[position] = (byte) card;
+        size++;
+        mask |= CardMask.bit(card);
+    }
+
+    int pop() {
+        int card = cards[--size];
+        mask &= ~CardMask.bit(card);
+        return card;
+    }
+
+    int removeAt(int position) {
+        int card = get(position);
+        System.arraycopy(cards, position + 1, cards, position, size - position - 1);
+        size--;
+        mask &= ~CardMask.bit(card);
+        return card;
+    }
+
+    void remove(int card) {
+        removeAt(positionOf(card));
+    }
+
+    int positionOf(int card) {
+        if (!contains(card)) {
+            return -1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (cards[i] == card) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    boolean contains(int card) {
+        return CardMask.contains(mask, card);
+    }
+
+    void shuffle(Random random) {
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            byte tmp = cards[i];
+            cards[i] = cards[j];
+            cards[j] = tmp;
+        }
+    }
+}
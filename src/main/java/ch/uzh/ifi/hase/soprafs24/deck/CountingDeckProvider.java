@@ -0,0 +1,319 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Deck provider that tracks the number of cards in every pile from the operations passing through it,
+ * such that {@link #countPiles(String)} is answered without a request to the wrapped provider.
+ * The tracked counts are authoritative as long as all operations on a deck go through this provider.
+ * {@link #reconcilePiles(String)} re-reads the counts of a deck from the wrapped provider on demand;
+ * optionally all tracked decks are reconciled periodically.
+ * Besides the counts, the top cards of every pile are tracked as far as they are known (e.g. the cards last
+ * played), such that {@link #peekPile(String, String, int)} doesn't need to list the whole pile.
+ */
+@Slf4j
+public class CountingDeckProvider implements DeckProvider, AutoCloseable {
+
+    /**
+     * Maximum number of top cards tracked per pile
+     */
+    static final int TOP_WINDOW = 8;
+
+    private final DeckProvider delegate;
+
+    private final Map<String, TrackedDeck> decks = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService reconciler;
+
+    public CountingDeckProvider(DeckProvider delegate) {
+        this(delegate, 0);
+    }
+
+    /**
+     * @param delegate provider holding the decks
+     * @param reconcileIntervalMillis interval in which the counts of all tracked decks are re-read, 0 to reconcile on demand only
+     */
+    public CountingDeckProvider(DeckProvider delegate, long reconcileIntervalMillis) {
+        this.delegate = delegate;
+        if (reconcileIntervalMillis > 0) {
+            reconciler = Executors.newSingleThreadScheduledExecutor();
+            reconciler.scheduleWithFixedDelay(this::reconcileAll, reconcileIntervalMillis, reconcileIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            reconciler = null;
+        }
+    }
+
+    /**
+     * Stops the periodic reconciliation
+     */
+    @Override
+    public void close() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+    }
+
+    /**
+     * Tracked state of a deck: the number of cards per pile and the known top cards per pile, top card first.
+     * The known cards of a pile are a contiguous run from its top; the run is shorter than the pile (or empty)
+     * if the cards below were never seen through this provider.
+     */
+    private static class TrackedDeck {
+
+        private final Map<String, Integer> counts = new HashMap<>();
+
+        private final Map<String, Deque<Card>> tops = new HashMap<>();
+
+        private Deque<Card> top(String pileName) {
+            return tops.computeIfAbsent(pileName, name -> new ArrayDeque<>());
+        }
+
+        private void added(String pileName, List<String> cardCodes) {
+            counts.merge(pileName, cardCodes.size(), Integer::sum);
+            Deque<Card> top = top(pileName);
+            for (String code : cardCodes) {
+                top.addFirst(CardCatalog.get(code));
+            }
+            while (top.size() > TOP_WINDOW) {
+                top.removeLast();
+            }
+        }
+
+        private void inserted(String pileName, String cardCode, int depth) {
+            counts.merge(pileName, 1, Integer::sum);
+            Deque<Card> top = top(pileName);
+            // A card placed below the known cards leaves them untouched
+            if (Math.max(0, depth) <= top.size()) {
+                List<Card> cards = new ArrayList<>(top);
+                cards.add(Math.max(0, depth), CardCatalog.get(cardCode));
+                replaceTop(pileName, cards);
+            }
+        }
+
+        private void drawnFromTop(String pileName, List<Card> cards) {
+            counts.merge(pileName, -cards.size(), Integer::sum);
+            Deque<Card> top = top(pileName);
+            for (int i = 0; i < cards.size() && !top.isEmpty(); i++) {
+                top.removeFirst();
+            }
+        }
+
+        // Cards drawn below the known cards don't affect them, known cards are cut out keeping the run contiguous
+        private void drawn(String pileName, List<Card> cards) {
+            counts.merge(pileName, -cards.size(), Integer::sum);
+            Deque<Card> top = top(pileName);
+            for (Card card : cards) {
+                top.removeIf(known -> known.getCode().equals(card.getCode()));
+            }
+        }
+
+        private void shuffled(String pileName) {
+            top(pileName).clear();
+        }
+
+        private void replaceTop(String pileName, List<Card> topFirst) {
+            Deque<Card> top = top(pileName);
+            top.clear();
+            top.addAll(topFirst.subList(0, Math.min(topFirst.size(), TOP_WINDOW)));
+        }
+    }
+
+    private void track(String deckId, Consumer<TrackedDeck> update) {
+        TrackedDeck deck = decks.get(deckId);
+        if (deck != null) {
+            synchronized (deck) {
+                update.accept(deck);
+            }
+        }
+    }
+
+    @Override
+    public String newDeck() throws IOException, InterruptedException {
+        String deckId = delegate.newDeck();
+        decks.put(deckId, new TrackedDeck());
+        return deckId;
+    }
+
+    @Override
+    public List<Card> drawFromDeck(String deckId, int count) throws IOException, InterruptedException {
+        return delegate.drawFromDeck(deckId, count);
+    }
+
+    @Override
+    public void addToPile(String deckId, String pileName, List<String> cardCodes) throws IOException, InterruptedException {
+        delegate.addToPile(deckId, pileName, cardCodes);
+        track(deckId, deck -> deck.added(pileName, cardCodes));
+    }
+
+    @Override
+    public void insertIntoPile(String deckId, String pileName, String cardCode, int depth) throws IOException, InterruptedException {
+        delegate.insertIntoPile(deckId, pileName, cardCode, depth);
+        track(deckId, deck -> deck.inserted(pileName, cardCode, depth));
+    }
+
+    @Override
+    public List<Card> drawFromPile(String deckId, String pileName, int count) throws IOException, InterruptedException {
+        List<Card> cards = delegate.drawFromPile(deckId, pileName, count);
+        track(deckId, deck -> deck.drawnFromTop(pileName, cards));
+        return cards;
+    }
+
+    @Override
+    public List<Card> drawRandomFromPile(String deckId, String pileName) throws IOException, InterruptedException {
+        List<Card> cards = delegate.drawRandomFromPile(deckId, pileName);
+        track(deckId, deck -> deck.drawn(pileName, cards));
+        return cards;
+    }
+
+    @Override
+    public List<Card> drawSpecificFromPile(String deckId, String pileName, List<String> cardCodes) throws IOException, InterruptedException {
+        List<Card> cards = delegate.drawSpecificFromPile(deckId, pileName, cardCodes);
+        track(deckId, deck -> deck.drawn(pileName, cards));
+        return cards;
+    }
+
+    @Override
+    public void shufflePile(String deckId, String pileName) throws IOException, InterruptedException {
+        delegate.shufflePile(deckId, pileName);
+        track(deckId, deck -> deck.shuffled(pileName));
+    }
+
+    @Override
+    public List<Card> listPile(String deckId, String pileName) throws IOException, InterruptedException {
+        List<Card> cards = delegate.listPile(deckId, pileName);
+        // A listing reveals the whole pile, bottom card first
+        List<Card> topFirst = new ArrayList<>(cards.subList(Math.max(0, cards.size() - TOP_WINDOW), cards.size()));
+        Collections.reverse(topFirst);
+        track(deckId, deck -> deck.replaceTop(pileName, topFirst));
+        return cards;
+    }
+
+    /**
+     * Answers from the tracked top cards if they cover the requested cards (or the whole pile),
+     * otherwise the top cards are read from the wrapped provider and tracked from then on
+     */
+    @Override
+    public List<Card> peekPile(String deckId, String pileName, int count) throws IOException, InterruptedException {
+        TrackedDeck deck = decks.get(deckId);
+        if (deck != null) {
+            synchronized (deck) {
+                Deque<Card> top = deck.top(pileName);
+                if (count <= top.size() || top.size() == deck.counts.getOrDefault(pileName, 0)) {
+                    return new ArrayList<>(top).subList(0, Math.min(count, top.size()));
+                }
+            }
+        }
+        List<Card> cards = delegate.peekPile(deckId, pileName, count);
+        if (count <= TOP_WINDOW) {
+            track(deckId, tracked -> tracked.replaceTop(pileName, cards));
+        }
+        return cards;
+    }
+
+    @Override
+    public long pileMask(String deckId, String pileName) throws IOException, InterruptedException {
+        return delegate.pileMask(deckId, pileName);
+    }
+
+    @Override
+    public Card moveRandomCard(String deckId, String fromPile, String toPile) throws IOException, InterruptedException {
+        Card card = delegate.moveRandomCard(deckId, fromPile, toPile);
+        track(deckId, deck -> {
+            deck.drawn(fromPile, List.of(card));
+            deck.added(toPile, List.of(card.getCode()));
+        });
+        return card;
+    }
+
+    @Override
+    public CompletableFuture<List<Card>> drawFromPileAsync(String deckId, String pileName, int count) {
+        return delegate.drawFromPileAsync(deckId, pileName, count).thenApply(cards -> {
+            track(deckId, deck -> deck.drawnFromTop(pileName, cards));
+            return cards;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> addToPileAsync(String deckId, String pileName, List<String> cardCodes) {
+        return delegate.addToPileAsync(deckId, pileName, cardCodes).thenRun(() -> track(deckId, deck -> deck.added(pileName, cardCodes)));
+    }
+
+    @Override
+    public CompletableFuture<List<Card>> drawSpecificFromPileAsync(String deckId, String pileName, List<String> cardCodes) {
+        return delegate.drawSpecificFromPileAsync(deckId, pileName, cardCodes).thenApply(cards -> {
+            track(deckId, deck -> deck.drawn(pileName, cards));
+            return cards;
+        });
+    }
+
+    /**
+     * Returns the tracked counts of a deck. Decks not created through this provider (e.g. before a restart)
+     * are read from the wrapped provider once and tracked from then on.
+     */
+    @Override
+    public Map<String, Integer> countPiles(String deckId) throws IOException, InterruptedException {
+        TrackedDeck deck = decks.get(deckId);
+        if (deck == null) {
+            return reconcilePiles(deckId);
+        }
+        synchronized (deck) {
+            return new HashMap<>(deck.counts);
+        }
+    }
+
+    @Override
+    public Map<String, Integer> reconcilePiles(String deckId) throws IOException, InterruptedException {
+        Map<String, Integer> actualCounts = delegate.countPiles(deckId);
+        TrackedDeck deck = decks.computeIfAbsent(deckId, id -> new TrackedDeck());
+        synchronized (deck) {
+            if (!deck.counts.isEmpty() && !deck.counts.equals(actualCounts)) {
+                log.warn("Pile counts of deck {} drifted: tracked {}, actual {}", deckId, deck.counts, actualCounts);
+                // The top cards of drifted piles can't be trusted either
+                deck.tops.keySet().removeIf(pileName -> !actualCounts.getOrDefault(pileName, 0).equals(deck.counts.getOrDefault(pileName, 0)));
+            }
+            deck.counts.clear();
+            deck.counts.putAll(actualCounts);
+        }
+        return new HashMap<>(actualCounts);
+    }
+
+    @Override
+    public ReadScope openReadScope() {
+        return delegate.openReadScope();
+    }
+
+    @Override
+    public void discardDeck(String deckId) {
+        decks.remove(deckId);
+        delegate.discardDeck(deckId);
+    }
+
+    private void reconcileAll() {
+        for (String deckId : decks.keySet()) {
+            try {
+                reconcilePiles(deckId);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to reconcile pile counts of deck {}: {}", deckId, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Embeddable stand-in for the deckofcards api, serving the endpoints used by {@link RemoteDeckProvider}
+ * from an {@link InMemoryDeckProvider}. Every request can be delayed (latency +/- jitter) or failed
+ * with a 500 response, such that the remote provider can be tested and benchmarked offline under
+ * realistic network conditions.
+ */
+@Slf4j
+public class DeckApiStubServer {
+
+    private static final String API_PREFIX = "/api/deck/";
+
+    private final InMemoryDeckProvider deckProvider = new InMemoryDeckProvider();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final int port;
+
+    private volatile long latencyMillis;
+
+    private volatile long jitterMillis;
+
+    private volatile double failureRate;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    /**
+     * @param port to listen on, 0 picks a free port
+     * @param latencyMillis delay added to every request
+     * @param jitterMillis maximal random deviation from the latency, in both directions
+     * @param failureRate probability in [0, 1] that a request is answered with a 500 response
+     */
+    public DeckApiStubServer(int port, long latencyMillis, long jitterMillis, double failureRate) {
+        this.port = port;
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.failureRate = failureRate;
+    }
+
+    public DeckApiStubServer() {
+        this(0, 0, 0, 0.0);
+    }
+
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        // Requests sleep for the injected latency, hence they must not block each other
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext(API_PREFIX, this::handle);
+        server.start();
+        log.info("Deck api stub listening on {}", getBaseUrl());
+    }
+
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+    }
+
+    /**
+     * @return the url to be configured as 'deck.api.base-url', e.g. http://localhost:54321
+     */
+    public String getBaseUrl() {
+        if (server == null) {
+            throw new IllegalStateException("Deck api stub is not running");
+        }
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public void setJitterMillis(long jitterMillis) {
+        this.jitterMillis = jitterMillis;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            injectLatency();
+
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                respond(exchange, 500, Map.of("success", false, "error", "Injected failure"));
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath().substring(API_PREFIX.length());
+            List<String> segments = new ArrayList<>();
+            for (String segment : path.split("/")) {
+                if (!segment.isEmpty()) {
+                    segments.add(segment);
+                }
+            }
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            respond(exchange, 200, route(segments, query));
+        }
+        catch (ResponseStatusException e) {
+            respond(exchange, e.getStatus().value(), Map.of("success", false, "error", String.valueOf(e.getReason())));
+        }
+        catch (IllegalArgumentException e) {
+            respond(exchange, 400, Map.of("success", false, "error", String.valueOf(e.getMessage())));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+        }
+    }
+
+    private Map<String, Object> route(List<String> segments, Map<String, String> query) {
+        // /api/deck/new/shuffle/
+        if (segments.size() == 2 && segments.get(0).equals("new") && segments.get(1).equals("shuffle")) {
+            String deckId = deckProvider.newDeck();
+            Map<String, Object> response = deckResponse(deckId);
+            response.put("shuffled", true);
+            return response;
+        }
+        if (segments.size() < 2) {
+            throw new IllegalArgumentException("Unknown endpoint");
+        }
+        String deckId = segments.get(0);
+
+        // /api/deck/<deck_id>/draw/?count=<n>
+        if (segments.size() == 2 && segments.get(1).equals("draw")) {
+            List<Card> cards = deckProvider.drawFromDeck(deckId, Integer.parseInt(query.getOrDefault("count", "1")));
+            Map<String, Object> response = deckResponse(deckId);
+            response.put("cards", renderCards(cards));
+            return response;
+        }
+
+        // /api/deck/<deck_id>/pile/<pile_name>/<action>/
+        if (segments.size() < 4 || !segments.get(1).equals("pile")) {
+            throw new IllegalArgumentException("Unknown endpoint");
+        }
+        String pileName = segments.get(2);
+        String action = segments.get(3);
+        List<Card> cards = null;
+
+        switch (action) {
+            case "add":
+                deckProvider.addToPile(deckId, pileName, splitCards(query.get("cards")));
+                break;
+            case "shuffle":
+                deckProvider.shufflePile(deckId, pileName);
+                break;
+            case "list":
+                break;
+            case "draw":
+                if (segments.size() > 4 && segments.get(4).equals("random")) {
+                    cards = deckProvider.drawRandomFromPile(deckId, pileName);
+                }
+                else if (query.containsKey("cards")) {
+                    cards = deckProvider.drawSpecificFromPile(deckId, pileName, splitCards(query.get("cards")));
+                }
+                else {
+                    cards = deckProvider.drawFromPile(deckId, pileName, Integer.parseInt(query.getOrDefault("count", "1")));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown endpoint");
+        }
+
+        Map<String, Object> response = deckResponse(deckId);
+        if (cards != null) {
+            response.put("cards", renderCards(cards));
+        }
+        response.put("piles", renderPiles(deckId, action.equals("list") ? pileName : null));
+        return response;
+    }
+
+    private Map<String, Object> deckResponse(String deckId) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("deck_id", deckId);
+        response.put("remaining", deckProvider.remainingInDeck(deckId));
+        return response;
+    }
+
+    private Map<String, Object> renderPiles(String deckId, String listedPile) {
+        Map<String, Object> piles = new LinkedHashMap<>();
+        deckProvider.countPiles(deckId).forEach((name, remaining) -> {
+            Map<String, Object> pile = new LinkedHashMap<>();
+            pile.put("remaining", remaining);
+            if (name.equals(listedPile)) {
+                pile.put("cards", renderCards(deckProvider.listPile(deckId, name)));
+            }
+            piles.put(name, pile);
+        });
+        return piles;
+    }
+
+    private List<Map<String, Object>> renderCards(List<Card> cards) {
+        List<Map<String, Object>> rendered = new ArrayList<>(cards.size());
+        for (Card card : cards) {
+            Map<String, Object> node = new LinkedHashMap<>();
+            node.put("code", card.getCode());
+            node.put("image", card.getImage());
+            node.put("suit", card.getSuit());
+            rendered.add(node);
+        }
+        return rendered;
+    }
+
+    private List<String> splitCards(String cards) {
+        if (cards == null || cards.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(cards.split(","));
+    }
+
+    private Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                parameters.put(parameter.substring(0, separator), parameter.substring(separator + 1));
+            }
+        }
+        return parameters;
+    }
+
+    private void injectLatency() throws InterruptedException {
+        long delay = latencyMillis;
+        if (jitterMillis > 0) {
+            delay += ThreadLocalRandom.current().nextLong(-jitterMillis, jitterMillis + 1);
+        }
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, Map<String, Object> body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
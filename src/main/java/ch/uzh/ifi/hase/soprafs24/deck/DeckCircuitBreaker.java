@@ -0,0 +1,94 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker guarding the requests to the deck api. After a number of consecutive failures the circuit opens
+ * and requests fail immediately instead of blocking a thread until the api times out. Once the open period has passed,
+ * a single trial request is let through: if it succeeds the circuit closes, otherwise it opens again. A trial whose
+ * outcome is not reported within another open period (e.g. its thread was interrupted) is given up, and the next
+ * request becomes the trial.
+ */
+@Slf4j
+public class DeckCircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    private long openedAt;
+
+    private long trialStartedAt;
+
+    /**
+     * @param failureThreshold consecutive failures after which the circuit opens
+     * @param openMillis duration in which requests fail immediately before a trial request is let through
+     */
+    public DeckCircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, System::currentTimeMillis);
+    }
+
+    DeckCircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Checks whether a request may be sent
+     * @throws ResponseStatusException with status SERVICE_UNAVAILABLE if the circuit is open
+     */
+    public synchronized void acquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openMillis) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Deck service unavailable, please retry shortly");
+            }
+            state = State.HALF_OPEN;
+            trialStartedAt = clock.getAsLong();
+        } else if (state == State.HALF_OPEN) {
+            // Only the single trial request is let through, unless it never reported its outcome
+            if (clock.getAsLong() - trialStartedAt < openMillis) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Deck service unavailable, please retry shortly");
+            }
+            log.warn("Trial request to the deck api reported no outcome within {}ms, letting another one through", openMillis);
+            trialStartedAt = clock.getAsLong();
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("Deck api recovered, closing circuit");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                log.warn("Deck api failed {} time(s) in a row, opening circuit for {}ms", consecutiveFailures, openMillis);
+            }
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,295 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Abstraction over the storage of a card deck and its piles (dealer, play and one pile per player).
+ * The operations mirror the endpoints of the deckofcards api: cards added to a pile are placed on top,
+ * draws take cards from the top and listings return the pile from bottom to top.
+ * The asynchronous variants allow issuing independent operations concurrently; by default they run the
+ * blocking operation on the calling thread and return a completed future.
+ */
+public interface DeckProvider {
+
+    String DEALER_PILE = "dealer";
+
+    String PLAY_PILE = "play";
+
+    /**
+     * Creates a new, shuffled deck of 54 cards (including the two jokers)
+     * @return the id of the created deck
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    String newDeck() throws IOException, InterruptedException;
+
+    /**
+     * Draws cards from the deck itself (i.e. cards that were not yet placed in any pile)
+     * @param deckId of the deck
+     * @param count number of cards to be drawn
+     * @return the drawn cards
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    List<Card> drawFromDeck(String deckId, int count) throws IOException, InterruptedException;
+
+    /**
+     * Places cards on top of a pile, creating the pile if it doesn't exist yet.
+     * The last card of the list ends up on top of the pile.
+     * @param deckId of the deck
+     * @param pileName e.g. 'dealer', 'play' or a userId
+     * @param cardCodes codes of the cards to be added
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    void addToPile(String deckId, String pileName, List<String> cardCodes) throws IOException, InterruptedException;
+
+    /**
+     * Places a single card inside a pile. The default implementation lifts the cards above the position and
+     * puts them back on top of the inserted card, hence its cost grows with the depth.
+     * @param deckId of the deck
+     * @param pileName of the pile
+     * @param cardCode code of the card to be inserted
+     * @param depth number of cards that remain above the inserted card: 0 places it on top,
+     *              the size of the pile (or more) at the bottom
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    default void insertIntoPile(String deckId, String pileName, String cardCode, int depth) throws IOException, InterruptedException {
+        List<Card> lifted = depth > 0 ? drawFromPile(deckId, pileName, Math.min(depth, countPiles(deckId).getOrDefault(pileName, 0))) : List.of();
+
+        // The lifted cards are drawn top first, hence they are put back in reverse order
+        List<String> cardCodes = new ArrayList<>(lifted.size() + 1);
+        cardCodes.add(cardCode);
+        for (int i = lifted.size() - 1; i >= 0; i--) {
+            cardCodes.add(lifted.get(i).getCode());
+        }
+        addToPile(deckId, pileName, cardCodes);
+    }
+
+    /**
+     * Draws cards from the top of a pile
+     * @param deckId of the deck
+     * @param pileName of the pile
+     * @param count number of cards to be drawn
+     * @return the drawn cards, top card first
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    List<Card> drawFromPile(String deckId, String pileName, int count) throws IOException, InterruptedException;
+
+    /**
+     * Draws a single card at a random position of a pile
+     * @param deckId of the deck
+     * @param pileName of the pile
+     * @return a list containing the drawn card
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    List<Card> drawRandomFromPile(String deckId, String pileName) throws IOException, InterruptedException;
+
+    /**
+     * Draws specific cards from a pile. Either all cards are drawn or none.
+     * @param deckId of the deck
+     * @param pileName of the pile
+     * @param cardCodes codes of the cards to be drawn
+     * @return the drawn cards
+     * @throws org.springframework.web.server.ResponseStatusException if the pile doesn't hold all requested cards
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    List<Card> drawSpecificFromPile(String deckId, String pileName, List<String> cardCodes) throws IOException, InterruptedException;
+
+    /**
+     * Shuffles the cards of a pile
+     * @param deckId of the deck
+     * @param pileName of the pile
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    void shufflePile(String deckId, String pileName) throws IOException, InterruptedException;
+
+    /**
+     * Lists the cards of a pile without altering it
+     * @param deckId of the deck
+     * @param pileName of the pile
+     * @return the cards of the pile, bottom card first
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    List<Card> listPile(String deckId, String pileName) throws IOException, InterruptedException;
+
+    /**
+     * Reads the top cards of a pile without altering it
+     * @param deckId of the deck
+     * @param pileName of the pile
+     * @param count maximum number of cards to be read
+     * @return the top cards of the pile, top card first (fewer than count if the pile is smaller)
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    default List<Card> peekPile(String deckId, String pileName, int count) throws IOException, InterruptedException {
+        List<Card> pile = listPile(deckId, pileName);
+        List<Card> topCards = new ArrayList<>(Math.min(count, pile.size()));
+        for (int i = pile.size() - 1; i >= 0 && topCards.size() < count; i--) {
+            topCards.add(pile.get(i));
+        }
+        return topCards;
+    }
+
+    /**
+     * Returns the cards of a pile as a {@link CardMask}, e.g. to check the possession of cards with bit operations
+     * @param deckId of the deck
+     * @param pileName of the pile
+     * @return mask of the cards in the pile, empty if the pile doesn't exist
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    default long pileMask(String deckId, String pileName) throws IOException, InterruptedException {
+        return CardMask.ofCards(listPile(deckId, pileName));
+    }
+
+    /**
+     * Moves a random card from one pile on top of another pile (e.g. stealing a card of another player)
+     * @param deckId of the deck
+     * @param fromPile pile the card is taken from
+     * @param toPile pile the card is placed on
+     * @return the moved card
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    default Card moveRandomCard(String deckId, String fromPile, String toPile) throws IOException, InterruptedException {
+        Card card = drawRandomFromPile(deckId, fromPile).get(0);
+        addToPile(deckId, toPile, List.of(card.getCode()));
+        return card;
+    }
+
+    /**
+     * Asynchronous variant of {@link #drawFromPile(String, String, int)}
+     */
+    default CompletableFuture<List<Card>> drawFromPileAsync(String deckId, String pileName, int count) {
+        return completed(() -> drawFromPile(deckId, pileName, count));
+    }
+
+    /**
+     * Asynchronous variant of {@link #addToPile(String, String, List)}
+     */
+    default CompletableFuture<Void> addToPileAsync(String deckId, String pileName, List<String> cardCodes) {
+        return completed(() -> {
+            addToPile(deckId, pileName, cardCodes);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #drawSpecificFromPile(String, String, List)}
+     */
+    default CompletableFuture<List<Card>> drawSpecificFromPileAsync(String deckId, String pileName, List<String> cardCodes) {
+        return completed(() -> drawSpecificFromPile(deckId, pileName, cardCodes));
+    }
+
+    /**
+     * Returns the number of cards in every pile of a deck
+     * @param deckId of the deck
+     * @return map from pile name to the number of cards in the pile
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    Map<String, Integer> countPiles(String deckId) throws IOException, InterruptedException;
+
+    /**
+     * Reads the number of cards in every pile from the storage of the deck itself, bypassing and correcting
+     * counts that are tracked locally (see {@link CountingDeckProvider})
+     * @param deckId of the deck
+     * @return map from pile name to the number of cards in the pile
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    default Map<String, Integer> reconcilePiles(String deckId) throws IOException, InterruptedException {
+        return countPiles(deckId);
+    }
+
+    /**
+     * Opens a scope on the calling thread in which repeated listings of an unchanged pile are answered without
+     * reading the pile again (e.g. for the duration of a move). Writes to a pile invalidate its cached listing.
+     * Nested scopes are part of the outermost one. By default nothing is cached.
+     * @return the scope, to be closed once the move is over
+     */
+    default ReadScope openReadScope() {
+        return () -> {
+        };
+    }
+
+    /**
+     * Recreates the piles of a deck the provider no longer holds, e.g. after a restart of a provider keeping its
+     * decks in memory. Cards that are in none of the piles remain in the deck. By default decks outlive the server,
+     * hence nothing is restored.
+     * @param deckId of the deck
+     * @param piles map from pile name to the codes of its cards, from bottom to top
+     * @return whether the deck was recreated, false if the provider still holds it
+     */
+    default boolean restoreDeck(String deckId, Map<String, List<String>> piles) {
+        return false;
+    }
+
+    /**
+     * Releases all resources held for a deck once its game is over
+     * @param deckId of the deck
+     */
+    default void discardDeck(String deckId) {
+    }
+
+    /**
+     * Waits for an asynchronous deck operation and rethrows its failure the way the blocking operation would
+     * @param future of the operation
+     * @return result of the operation
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    static <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static <T> CompletableFuture<T> completed(DeckCall<T> call) {
+        try {
+            return CompletableFuture.completedFuture(call.call());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @FunctionalInterface
+    interface ReadScope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    @FunctionalInterface
+    interface DeckCall<T> {
+        T call() throws IOException, InterruptedException;
+    }
+}
@@ -0,0 +1,64 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Selects the deck provider through the property 'deck.provider':
+ * 'local' (default) keeps the decks in memory, 'remote' uses the deckofcards api.
+ */
+@Configuration
+public class DeckProviderConfig {
+
+    /**
+     * Both providers report every change of a pile to the log of its game (see {@link RecordingDeckProvider})
+     */
+    @Bean
+    @ConditionalOnProperty(name = "deck.provider", havingValue = "local", matchIfMissing = true)
+    public DeckProvider inMemoryDeckProvider(PileRecorder pileRecorder) {
+        return new RecordingDeckProvider(new InMemoryDeckProvider(), pileRecorder);
+    }
+
+    /**
+     * The remote provider is wrapped such that pile counts are tracked locally instead of being requested from the api
+     * and pile listings are requested at most once per move (see {@link CachingDeckProvider}).
+     * 'deck.counts.reconcile-interval-ms' re-reads the counts of all decks periodically (0 disables it).
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "deck.provider", havingValue = "remote")
+    public DeckProvider remoteDeckProvider(HttpClient httpClient, @Value("${deck.api.base-url:https://deckofcardsapi.com}") String baseUrl,
+                                           @Value("${deck.api.request-timeout-ms:3000}") long requestTimeoutMillis,
+                                           @Value("${deck.api.read-attempts:3}") int readAttempts,
+                                           @Value("${deck.api.retry-backoff-ms:100}") long retryBackoffMillis,
+                                           @Value("${deck.api.circuit.failure-threshold:5}") int failureThreshold,
+                                           @Value("${deck.api.circuit.open-ms:10000}") long openMillis,
+                                           @Value("${deck.counts.reconcile-interval-ms:0}") long reconcileIntervalMillis,
+                                           ObjectProvider<DeckApiStubServer> stubServer, PileRecorder pileRecorder) {
+        DeckApiStubServer server = stubServer.getIfAvailable();
+        RemoteDeckProvider remoteDeckProvider = new RemoteDeckProvider(httpClient, server != null ? server.getBaseUrl() : baseUrl,
+                Duration.ofMillis(requestTimeoutMillis), readAttempts, retryBackoffMillis, new DeckCircuitBreaker(failureThreshold, openMillis));
+        return new RecordingDeckProvider(new CountingDeckProvider(new CachingDeckProvider(remoteDeckProvider), reconcileIntervalMillis), pileRecorder);
+    }
+
+    /**
+     * Local stand-in for the deckofcards api, used by the remote provider instead of 'deck.api.base-url'
+     * if 'deck.api.stub.enabled' is set (e.g. to measure throughput under remote latency offline)
+     */
+    @Bean(destroyMethod = "stop")
+    @ConditionalOnProperty(name = "deck.api.stub.enabled", havingValue = "true")
+    public DeckApiStubServer deckApiStubServer(@Value("${deck.api.stub.port:0}") int port,
+                                               @Value("${deck.api.stub.latency-ms:0}") long latencyMillis,
+                                               @Value("${deck.api.stub.jitter-ms:0}") long jitterMillis,
+                                               @Value("${deck.api.stub.failure-rate:0.0}") double failureRate) throws IOException {
+        DeckApiStubServer server = new DeckApiStubServer(port, latencyMillis, jitterMillis, failureRate);
+        server.start();
+        return server;
+    }
+}
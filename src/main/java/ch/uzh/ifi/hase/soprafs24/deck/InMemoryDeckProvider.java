@@ -0,0 +1,323 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deck provider that keeps all decks and piles in the memory of the server.
+ * Every operation is a local array manipulation, hence no network round trip is needed for a card move.
+ * Note: the state is not persisted, decks of ongoing games are lost on a restart of the server.
+ */
+@Slf4j
+public class InMemoryDeckProvider implements DeckProvider {
+
+    private static final String DECK_ID_ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789";
+
+    private static final int DECK_ID_LENGTH = 12;
+
+    private final Map<String, LocalDeck> decks = new ConcurrentHashMap<>();
+
+    private final Random random;
+
+    public InMemoryDeckProvider() {
+        this(new SecureRandom());
+    }
+
+    public InMemoryDeckProvider(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * State of a single deck: the cards not yet placed in any pile and the piles by name
+     */
+    private static class LocalDeck {
+
+        private final CardStack remaining = new CardStack();
+
+        private final Map<String, CardStack> piles = new LinkedHashMap<>();
+
+        // Cards that were drawn from the deck or a pile and not yet placed on another pile
+        private long drawn = CardMask.EMPTY;
+
+        private Card draw(int card) {
+            drawn |= CardMask.bit(card);
+            return CardCatalog.get(card);
+        }
+
+        private CardStack pile(String pileName) {
+            CardStack pile = piles.get(pileName);
+            if (pile == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Pile %s does not exist", pileName));
+            }
+            return pile;
+        }
+    }
+
+    @Override
+    public String newDeck() {
+        LocalDeck deck = new LocalDeck();
+        for (int card = 0; card < CardCodes.DECK_SIZE; card++) {
+            deck.remaining.push(card);
+        }
+        deck.remaining.shuffle(random);
+
+        String deckId;
+        do {
+            deckId = generateDeckId();
+        } while (decks.putIfAbsent(deckId, deck) != null);
+
+        log.info("Created local deck {}", deckId);
+        return deckId;
+    }
+
+    @Override
+    public List<Card> drawFromDeck(String deckId, int count) {
+        LocalDeck deck = getDeck(deckId);
+        synchronized (deck) {
+            ensureEnoughCards(deck.remaining, count);
+            List<Card> cards = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                cards.add(deck.draw(deck.remaining.pop()));
+            }
+            return cards;
+        }
+    }
+
+    @Override
+    public void addToPile(String deckId, String pileName, List<String> cardCodes) {
+        LocalDeck deck = getDeck(deckId);
+        synchronized (deck) {
+            // Validate first such that no pile is altered if a card can't be added
+            int[] cards = new int[cardCodes.size()];
+            long added = CardMask.EMPTY;
+            for (int i = 0; i < cards.length; i++) {
+                cards[i] = CardCodes.indexOf(cardCodes.get(i));
+                if (!CardMask.contains(deck.drawn & ~added, cards[i])) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Card %s has not been drawn", cardCodes.get(i)));
+                }
+                added |= CardMask.bit(cards[i]);
+            }
+            CardStack pile = deck.piles.computeIfAbsent(pileName, name -> new CardStack());
+            for (int card : cards) {
+                pile.push(card);
+            }
+            deck.drawn &= ~added;
+        }
+    }
+
+    @Override
+    public void insertIntoPile(String deckId, String pileName, String cardCode, int depth) {
+        LocalDeck deck = getDeck(deckId);
+        synchronized (deck) {
+            int card = CardCodes.indexOf(cardCode);
+            if (!CardMask.contains(deck.drawn, card)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Card %s has not been drawn", cardCode));
+            }
+            CardStack pile = deck.piles.computeIfAbsent(pileName, name -> new CardStack());
+            pile.insertAt(Math.max(0, pile.size() - Math.max(0, depth)), card);
+            deck.drawn &= ~CardMask.bit(card);
+        }
+    }
+
+    @Override
+    public List<Card> drawFromPile(String deckId, String pileName, int count) {
+        LocalDeck deck = getDeck(deckId);
+        synchronized (deck) {
+            CardStack pile = deck.pile(pileName);
+            ensureEnoughCards(pile, count);
+            List<Card> cards = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                cards.add(deck.draw(pile.pop()));
+            }
+            return cards;
+        }
+    }
+
+    @Override
+    public List<Card> drawRandomFromPile(String deckId, String pileName) {
+        LocalDeck deck = getDeck(deckId);
+        synchronized (deck) {
+            CardStack pile = deck.pile(pileName);
+            ensureEnoughCards(pile, 1);
+            int card = pile.removeAt(random.nextInt(pile.size()));
+            return new ArrayList<>(List.of(deck.draw(card)));
+        }
+    }
+
+    @Override
+    public List<Card> drawSpecificFromPile(String deckId, String pileName, List<String> cardCodes) {
+        LocalDeck deck = getDeck(deckId);
+        synchronized (deck) {
+            CardStack pile = deck.pile(pileName);
+
+            // Validate first such that the pile remains untouched if a card is missing or requested twice
+            long requested = CardMask.EMPTY;
+            for (String code : cardCodes) {
+                if (!CardCodes.isValid(code) || !pile.contains(CardCodes.indexOf(code))) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Card %s is not in pile %s", code, pileName));
+                }
+                long card = CardMask.bit(CardCodes.indexOf(code));
+                if ((requested & card) != 0) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Card %s is requested more than once", code));
+                }
+                requested |= card;
+            }
+            List<Card> cards = new ArrayList<>(cardCodes.size());
+            for (String code : cardCodes) {
+                int card = CardCodes.indexOf(code);
+                pile.remove(card);
+                cards.add(deck.draw(card));
+            }
+            return cards;
+        }
+    }
+
+    @Override
+    public void shufflePile(String deckId, String pileName) {
+        LocalDeck deck = getDeck(deckId);
+        synchronized (deck) {
+            deck.pile(pileName).shuffle(random);
+        }
+    }
+
+    @Override
+    public List<Card> listPile(String deckId, String pileName) {
+        LocalDeck deck = getDeck(deckId);
+        synchronized (deck) {
+            CardStack pile = deck.piles.get(pileName);
+            if (pile == null) {
+                return new ArrayList<>();
+            }
+            List<Card> cards = new ArrayList<>(pile.size());
+            for (int i = 0; i < pile.size(); i++) {
+                cards.add(CardCatalog.get(pile.get(i)));
+            }
+            return cards;
+        }
+    }
+
+    @Override
+    public List<Card> peekPile(String deckId, String pileName, int count) {
+        LocalDeck deck = getDeck(deckId);
+        synchronized (deck) {
+            CardStack pile = deck.piles.get(pileName);
+            if (pile == null) {
+                return new ArrayList<>();
+            }
+            int peeked = Math.min(count, pile.size());
+            List<Card> cards = new ArrayList<>(peeked);
+            for (int i = 1; i <= peeked; i++) {
+                cards.add(CardCatalog.get(pile.get(pile.size() - i)));
+            }
+            return cards;
+        }
+    }
+
+    @Override
+    public long pileMask(String deckId, String pileName) {
+        LocalDeck deck = getDeck(deckId);
+        synchronized (deck) {
+            CardStack pile = deck.piles.get(pileName);
+            return pile == null ? CardMask.EMPTY : pile.mask();
+        }
+    }
+
+    @Override
+    public Card moveRandomCard(String deckId, String fromPile, String toPile) {
+        LocalDeck deck = getDeck(deckId);
+        synchronized (deck) {
+            CardStack source = deck.pile(fromPile);
+            ensureEnoughCards(source, 1);
+            int card = CardMask.random(source.mask(), random);
+            source.remove(card);
+            deck.piles.computeIfAbsent(toPile, name -> new CardStack()).push(card);
+            return CardCatalog.get(card);
+        }
+    }
+
+    @Override
+    public Map<String, Integer> countPiles(String deckId) {
+        LocalDeck deck = getDeck(deckId);
+        synchronized (deck) {
+            Map<String, Integer> counts = new HashMap<>();
+            deck.piles.forEach((name, pile) -> counts.put(name, CardMask.count(pile.mask())));
+            return counts;
+        }
+    }
+
+    /**
+     * Returns the number of cards that were not yet drawn from the deck itself
+     * @param deckId of the deck
+     * @return remaining cards of the deck
+     */
+    public int remainingInDeck(String deckId) {
+        LocalDeck deck = getDeck(deckId);
+        synchronized (deck) {
+            return deck.remaining.size();
+        }
+    }
+
+    @Override
+    public boolean restoreDeck(String deckId, Map<String, List<String>> piles) {
+        LocalDeck deck = new LocalDeck();
+        long placed = CardMask.EMPTY;
+        for (Map.Entry<String, List<String>> pile : piles.entrySet()) {
+            CardStack stack = deck.piles.computeIfAbsent(pile.getKey(), name -> new CardStack());
+            for (String cardCode : pile.getValue()) {
+                int card = CardCodes.indexOf(cardCode);
+                if (CardMask.contains(placed, card)) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Card %s is in more than one pile", cardCode));
+                }
+                stack.push(card);
+                placed |= CardMask.bit(card);
+            }
+        }
+        for (int card = 0; card < CardCodes.DECK_SIZE; card++) {
+            if (!CardMask.contains(placed, card)) {
+                deck.remaining.push(card);
+            }
+        }
+        deck.remaining.shuffle(random);
+
+        if (decks.putIfAbsent(deckId, deck) != null) {
+            return false;
+        }
+        log.info("Restored local deck {}", deckId);
+        return true;
+    }
+
+    @Override
+    public void discardDeck(String deckId) {
+        if (decks.remove(deckId) != null) {
+            log.info("Discarded local deck {}", deckId);
+        }
+    }
+
+    private LocalDeck getDeck(String deckId) {
+        LocalDeck deck = decks.get(deckId);
+        if (deck == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, String.format("Deck %s not found", deckId));
+        }
+        return deck;
+    }
+
+    private void ensureEnoughCards(CardStack stack, int count) {
+        if (count < 0 || count > stack.size()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Not enough cards remaining to draw %s", count));
+        }
+    }
+
+    private String generateDeckId() {
+        StringBuilder deckId = new StringBuilder(DECK_ID_LENGTH);
+        for (int i = 0; i < DECK_ID_LENGTH; i++) {
+            deckId.append(DECK_ID_ALPHABET.charAt(random.nextInt(DECK_ID_ALPHABET.length())));
+        }
+        return deckId.toString();
+    }
+}
@@ -0,0 +1,35 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import java.util.List;
+
+/**
+ * Receives every change of a pile made through a {@link RecordingDeckProvider}, once the change succeeded.
+ * Cards are given by their codes; piles are ordered from bottom to top.
+ */
+public interface PileRecorder {
+
+    /**
+     * Cards were placed on top of a pile, the last one on top
+     */
+    void added(String deckId, String pileName, List<String> cardCodes);
+
+    /**
+     * A card was placed inside a pile with the given number of cards above it
+     */
+    void inserted(String deckId, String pileName, String cardCode, int depth);
+
+    /**
+     * Cards were taken from a pile
+     */
+    void removed(String deckId, String pileName, List<String> cardCodes);
+
+    /**
+     * A pile was reordered, e.g. shuffled
+     */
+    void replaced(String deckId, String pileName, List<String> cardCodes);
+
+    /**
+     * The deck was released since its game is over
+     */
+    void discarded(String deckId);
+}
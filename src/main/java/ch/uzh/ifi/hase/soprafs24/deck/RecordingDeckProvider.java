@@ -0,0 +1,159 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Deck provider that reports every change of a pile to a {@link PileRecorder}, such that the piles of a deck can be
+ * rebuilt without asking the wrapped provider. Draws report the cards actually drawn, hence random draws are
+ * recorded with their outcome; a shuffled pile is listed once to record its new order.
+ * Failed operations are not reported.
+ */
+public class RecordingDeckProvider implements DeckProvider, AutoCloseable {
+
+    private final DeckProvider delegate;
+
+    private final PileRecorder recorder;
+
+    public RecordingDeckProvider(DeckProvider delegate, PileRecorder recorder) {
+        this.delegate = delegate;
+        this.recorder = recorder;
+    }
+
+    private static List<String> codes(List<Card> cards) {
+        return cards.stream().map(Card::getCode).toList();
+    }
+
+    @Override
+    public String newDeck() throws IOException, InterruptedException {
+        return delegate.newDeck();
+    }
+
+    @Override
+    public List<Card> drawFromDeck(String deckId, int count) throws IOException, InterruptedException {
+        return delegate.drawFromDeck(deckId, count);
+    }
+
+    @Override
+    public void addToPile(String deckId, String pileName, List<String> cardCodes) throws IOException, InterruptedException {
+        delegate.addToPile(deckId, pileName, cardCodes);
+        recorder.added(deckId, pileName, cardCodes);
+    }
+
+    @Override
+    public void insertIntoPile(String deckId, String pileName, String cardCode, int depth) throws IOException, InterruptedException {
+        delegate.insertIntoPile(deckId, pileName, cardCode, depth);
+        recorder.inserted(deckId, pileName, cardCode, depth);
+    }
+
+    @Override
+    public List<Card> drawFromPile(String deckId, String pileName, int count) throws IOException, InterruptedException {
+        List<Card> cards = delegate.drawFromPile(deckId, pileName, count);
+        recorder.removed(deckId, pileName, codes(cards));
+        return cards;
+    }
+
+    @Override
+    public List<Card> drawRandomFromPile(String deckId, String pileName) throws IOException, InterruptedException {
+        List<Card> cards = delegate.drawRandomFromPile(deckId, pileName);
+        recorder.removed(deckId, pileName, codes(cards));
+        return cards;
+    }
+
+    @Override
+    public List<Card> drawSpecificFromPile(String deckId, String pileName, List<String> cardCodes) throws IOException, InterruptedException {
+        List<Card> cards = delegate.drawSpecificFromPile(deckId, pileName, cardCodes);
+        recorder.removed(deckId, pileName, codes(cards));
+        return cards;
+    }
+
+    @Override
+    public void shufflePile(String deckId, String pileName) throws IOException, InterruptedException {
+        delegate.shufflePile(deckId, pileName);
+        recorder.replaced(deckId, pileName, codes(delegate.listPile(deckId, pileName)));
+    }
+
+    @Override
+    public List<Card> listPile(String deckId, String pileName) throws IOException, InterruptedException {
+        return delegate.listPile(deckId, pileName);
+    }
+
+    @Override
+    public List<Card> peekPile(String deckId, String pileName, int count) throws IOException, InterruptedException {
+        return delegate.peekPile(deckId, pileName, count);
+    }
+
+    @Override
+    public long pileMask(String deckId, String pileName) throws IOException, InterruptedException {
+        return delegate.pileMask(deckId, pileName);
+    }
+
+    @Override
+    public Card moveRandomCard(String deckId, String fromPile, String toPile) throws IOException, InterruptedException {
+        Card card = delegate.moveRandomCard(deckId, fromPile, toPile);
+        recorder.removed(deckId, fromPile, List.of(card.getCode()));
+        recorder.added(deckId, toPile, List.of(card.getCode()));
+        return card;
+    }
+
+    @Override
+    public CompletableFuture<List<Card>> drawFromPileAsync(String deckId, String pileName, int count) {
+        return delegate.drawFromPileAsync(deckId, pileName, count).thenApply(cards -> {
+            recorder.removed(deckId, pileName, codes(cards));
+            return cards;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> addToPileAsync(String deckId, String pileName, List<String> cardCodes) {
+        return delegate.addToPileAsync(deckId, pileName, cardCodes).thenRun(() -> recorder.added(deckId, pileName, cardCodes));
+    }
+
+    @Override
+    public CompletableFuture<List<Card>> drawSpecificFromPileAsync(String deckId, String pileName, List<String> cardCodes) {
+        return delegate.drawSpecificFromPileAsync(deckId, pileName, cardCodes).thenApply(cards -> {
+            recorder.removed(deckId, pileName, codes(cards));
+            return cards;
+        });
+    }
+
+    @Override
+    public Map<String, Integer> countPiles(String deckId) throws IOException, InterruptedException {
+        return delegate.countPiles(deckId);
+    }
+
+    @Override
+    public Map<String, Integer> reconcilePiles(String deckId) throws IOException, InterruptedException {
+        return delegate.reconcilePiles(deckId);
+    }
+
+    @Override
+    public ReadScope openReadScope() {
+        return delegate.openReadScope();
+    }
+
+    @Override
+    public boolean restoreDeck(String deckId, Map<String, List<String>> piles) {
+        return delegate.restoreDeck(deckId, piles);
+    }
+
+    @Override
+    public void discardDeck(String deckId) {
+        delegate.discardDeck(deckId);
+        recorder.discarded(deckId);
+    }
+
+    /**
+     * Closes the wrapped provider if it holds resources (e.g. the reconciliation of {@link CountingDeckProvider})
+     */
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Deck provider backed by the external deckofcards api (https://deckofcardsapi.com).
+ * Every operation results in one http request to the api. The asynchronous variants use
+ * {@link HttpClient#sendAsync}, such that independent requests are in flight at the same time.
+ * Every request is bounded by a timeout and guarded by a {@link DeckCircuitBreaker}; read-only requests
+ * (pile listings) are retried with a jittered exponential backoff.
+ */
+@Slf4j
+public class RemoteDeckProvider implements DeckProvider {
+
+    private final HttpClient httpClient;
+
+    private final String baseUrl;
+
+    private final Duration requestTimeout;
+
+    private final int maxReadAttempts;
+
+    private final long retryBackoffMillis;
+
+    private final DeckCircuitBreaker circuitBreaker;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public RemoteDeckProvider(HttpClient httpClient, String baseUrl) {
+        this(httpClient, baseUrl, Duration.ofSeconds(5), 3, 100, new DeckCircuitBreaker(5, 10000));
+    }
+
+    /**
+     * @param httpClient used for the requests
+     * @param baseUrl of the api
+     * @param requestTimeout after which a request fails
+     * @param maxReadAttempts number of attempts for read-only requests
+     * @param retryBackoffMillis base of the exponential backoff between attempts
+     * @param circuitBreaker guarding all requests
+     */
+    public RemoteDeckProvider(HttpClient httpClient, String baseUrl, Duration requestTimeout, int maxReadAttempts,
+                              long retryBackoffMillis, DeckCircuitBreaker circuitBreaker) {
+        this.httpClient = httpClient;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestTimeout = requestTimeout;
+        this.maxReadAttempts = Math.max(1, maxReadAttempts);
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Helper method to build an http request given an input url
+     * @param url
+     * @return
+     */
+    public HttpRequest buildGetRequest(String url) {
+        return HttpRequest.newBuilder().GET().uri(URI.create(url)).timeout(requestTimeout).build();
+    }
+
+    /**
+     * Sends a request to the api
+     * @param path of the endpoint, including the query parameters
+     * @return Response body of api request
+     * @throws IOException if the request fails, times out or the api responds with a server error
+     * @throws InterruptedException
+     * @throws ResponseStatusException with status SERVICE_UNAVAILABLE if the circuit is open
+     */
+    private String send(String path) throws IOException, InterruptedException {
+        circuitBreaker.acquire();
+        // The outcome is reported however the request ends (e.g. interrupted), otherwise a trial request of the
+        // half open circuit would keep it from closing
+        boolean succeeded = false;
+        try {
+            HttpResponse<String> response = httpClient.send(buildGetRequest(baseUrl + path), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() >= 500) {
+                throw new IOException(String.format("Deck api responded with status %s to %s", response.statusCode(), path));
+            }
+            succeeded = true;
+            return response.body();
+        } finally {
+            if (succeeded) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+            }
+        }
+    }
+
+    /**
+     * Sends a read-only request to the api, retrying failed attempts after a randomized exponential backoff
+     * such that concurrent retries don't hit the api at the same time
+     * @param path of the endpoint, including the query parameters
+     * @return Response body of api request
+     * @throws IOException if the last attempt fails
+     * @throws InterruptedException
+     */
+    private String sendIdempotent(String path) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return send(path);
+            } catch (IOException e) {
+                if (attempt >= maxReadAttempts) {
+                    throw e;
+                }
+                long backoff = ThreadLocalRandom.current().nextLong((retryBackoffMillis << (attempt - 1)) + 1);
+                log.info("Deck api request {} failed ({}), retrying in {}ms", path, e.getMessage(), backoff);
+                Thread.sleep(backoff);
+            }
+        }
+    }
+
+    /**
+     * Sends a request to the api without blocking the calling thread
+     * @param path of the endpoint, including the query parameters
+     * @return future of the response body, failing with an IOException on a server error
+     */
+    private CompletableFuture<String> sendAsync(String path) {
+        try {
+            circuitBreaker.acquire();
+        } catch (ResponseStatusException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<HttpResponse<String>> request;
+        try {
+            request = httpClient.sendAsync(buildGetRequest(baseUrl + path), HttpResponse.BodyHandlers.ofString());
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            return CompletableFuture.failedFuture(e);
+        }
+        return request
+                .handle((response, failure) -> {
+                    if (failure != null) {
+                        circuitBreaker.onFailure();
+                        return CompletableFuture.<String>failedFuture(failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
+                    }
+                    if (response.statusCode() >= 500) {
+                        circuitBreaker.onFailure();
+                        return CompletableFuture.<String>failedFuture(new IOException(String.format("Deck api responded with status %s to %s", response.statusCode(), path)));
+                    }
+                    circuitBreaker.onSuccess();
+                    return CompletableFuture.completedFuture(response.body());
+                })
+                .thenCompose(result -> result);
+    }
+
+    private CompletableFuture<List<Card>> parseCardsAsync(CompletableFuture<String> response, List<String> cardsKeyPath) {
+        return response.thenCompose(body -> {
+            try {
+                return CompletableFuture.completedFuture(parseCards(body, cardsKeyPath));
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    /**
+     * Throws if the api reports that the requested operation was not successful, e.g. a card is missing in a pile
+     * @param response body of the api request
+     * @throws IOException
+     */
+    private void ensureSuccess(String response) throws IOException {
+        JsonNode rootNode = objectMapper.readTree(response);
+        if (rootNode.has("success") && !rootNode.get("success").asBoolean()) {
+            String errorMessage = rootNode.has("error") ? rootNode.get("error").asText() : "Unknown error";
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, errorMessage);
+        }
+    }
+
+    @Override
+    public String newDeck() throws IOException, InterruptedException {
+        String response = send("/api/deck/new/shuffle/?deck_count=1&jokers_enabled=true");
+        JsonNode rootNode = objectMapper.readTree(response);
+        return rootNode.get("deck_id").asText();
+    }
+
+    @Override
+    public List<Card> drawFromDeck(String deckId, int count) throws IOException, InterruptedException {
+        String response = send(String.format("/api/deck/%s/draw/?count=%s", deckId, count));
+        return parseCards(response, List.of("cards"));
+    }
+
+    @Override
+    public void addToPile(String deckId, String pileName, List<String> cardCodes) throws IOException, InterruptedException {
+        send(String.format("/api/deck/%s/pile/%s/add/?cards=%s", deckId, pileName, String.join(",", cardCodes)));
+    }
+
+    @Override
+    public List<Card> drawFromPile(String deckId, String pileName, int count) throws IOException, InterruptedException {
+        String response = send(String.format("/api/deck/%s/pile/%s/draw/?count=%s", deckId, pileName, count));
+        return parseCards(response, List.of("cards"));
+    }
+
+    @Override
+    public List<Card> drawRandomFromPile(String deckId, String pileName) throws IOException, InterruptedException {
+        String response = send(String.format("/api/deck/%s/pile/%s/draw/random/", deckId, pileName));
+        return parseCards(response, List.of("cards"));
+    }
+
+    @Override
+    public List<Card> drawSpecificFromPile(String deckId, String pileName, List<String> cardCodes) throws IOException, InterruptedException {
+        String response = send(String.format("/api/deck/%s/pile/%s/draw/?cards=%s", deckId, pileName, String.join(",", cardCodes)));
+        ensureSuccess(response);
+        return parseCards(response, List.of("cards"));
+    }
+
+    @Override
+    public CompletableFuture<List<Card>> drawFromPileAsync(String deckId, String pileName, int count) {
+        return parseCardsAsync(sendAsync(String.format("/api/deck/%s/pile/%s/draw/?count=%s", deckId, pileName, count)), List.of("cards"));
+    }
+
+    @Override
+    public CompletableFuture<Void> addToPileAsync(String deckId, String pileName, List<String> cardCodes) {
+        return sendAsync(String.format("/api/deck/%s/pile/%s/add/?cards=%s", deckId, pileName, String.join(",", cardCodes)))
+                .thenApply(response -> null);
+    }
+
+    @Override
+    public CompletableFuture<List<Card>> drawSpecificFromPileAsync(String deckId, String pileName, List<String> cardCodes) {
+        CompletableFuture<String> response = sendAsync(String.format("/api/deck/%s/pile/%s/draw/?cards=%s", deckId, pileName, String.join(",", cardCodes)))
+                .thenCompose(body -> {
+                    try {
+                        ensureSuccess(body);
+                        return CompletableFuture.completedFuture(body);
+                    } catch (IOException | ResponseStatusException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                });
+        return parseCardsAsync(response, List.of("cards"));
+    }
+
+    @Override
+    public void shufflePile(String deckId, String pileName) throws IOException, InterruptedException {
+        send(String.format("/api/deck/%s/pile/%s/shuffle/", deckId, pileName));
+    }
+
+    @Override
+    public List<Card> listPile(String deckId, String pileName) throws IOException, InterruptedException {
+        String response = sendIdempotent(String.format("/api/deck/%s/pile/%s/list/", deckId, pileName));
+        return parseCards(response, Arrays.asList("piles", pileName, "cards"));
+    }
+
+    @Override
+    public Map<String, Integer> countPiles(String deckId) throws IOException, InterruptedException {
+        // Every listing contains the number of remaining cards of all piles of the deck
+        String response = sendIdempotent(String.format("/api/deck/%s/pile/%s/list/", deckId, DEALER_PILE));
+        return parsePileCardCounts(response);
+    }
+
+    /**
+     * Helper method to obtain remaining cards of all piles
+     * @param jsonResponse response body of a request to the cards api
+     * @return map from pile name to remaining cards
+     * @throws IOException
+     */
+    public Map<String, Integer> parsePileCardCounts(String jsonResponse) throws IOException {
+        JsonNode rootNode = objectMapper.readTree(jsonResponse);
+
+        JsonNode pilesNode = rootNode.path("piles");
+        Map<String, Integer> pileCardCounts = new HashMap<>();
+
+        if (pilesNode.isMissingNode()) {
+            throw new IllegalStateException("The 'piles' node is missing");
+        }
+
+        pilesNode.fields().forEachRemaining(pile -> {
+            String pileName = pile.getKey();
+            JsonNode pileDetails = pile.getValue();
+            int remainingCards = pileDetails.path("remaining").asInt();
+            pileCardCounts.put(pileName, remainingCards);
+        });
+
+        return pileCardCounts;
+    }
+
+    /**
+     * General method to parse card data from different types of JSON responses.
+     * The codes are resolved against the {@link CardCatalog}, other card attributes of the response are ignored.
+     * @param jsonResponse the JSON response string.
+     * @param cardsKeyPath the JSON path to the cards array.
+     * @return List of Card objects.
+     * @throws IOException
+     */
+    public List<Card> parseCards(String jsonResponse, List<String> cardsKeyPath) throws IOException {
+        JsonNode rootNode = objectMapper.readTree(jsonResponse);
+
+        JsonNode cardsNode = rootNode;
+        for (String key : cardsKeyPath) {
+            cardsNode = cardsNode.path(key);
+        }
+        List<Card> cards = new ArrayList<>();
+
+        for (JsonNode cardNode : cardsNode) {
+            String code = cardNode.get("code").asText();
+            Card card = CardCatalog.get(code);
+            if (card == null) {
+                throw new IOException(String.format("Deck api returned unknown card %s", code));
+            }
+            cards.add(card);
+        }
+        return cards;
+    }
+}
@@ -0,0 +1,180 @@
+package ch.uzh.ifi.hase.soprafs24.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the commands of a game (card moves, terminating a move, placing an explosion, leaving, reloading)
+ * one after the other in the order they arrived, while commands of different games run in parallel.
+ * Every game has a mailbox that is drained by at most one worker at a time, hence a game is only ever
+ * altered by a single thread and no lock is shared between games. Idle mailboxes are removed.
+ *
+ * Writes outside of the commands (e.g. players joining or leaving the lobby, background flushes) are detected
+ * by the version columns of the rows. A command whose write conflicts with such a write fails and is not executed
+ * again: a command spans several transactions and has effects a rollback does not undo (deck operations, published
+ * events, log entries), hence executing it again could e.g. draw a second card.
+ *
+ * Every command runs within a command scope, if one is registered (e.g. the websocket service collecting the
+ * messages a command sends and flushing them once the command completed).
+ */
+@Slf4j
+@Component
+public class GameCommandExecutor {
+
+    /**
+     * Number of commands a worker processes for a game before it yields to the mailboxes of other games
+     */
+    private static final int BATCH_SIZE = 16;
+
+    @FunctionalInterface
+    public interface GameCommand {
+        void execute() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Opened on the worker before a command is executed and closed once it completed, whether it failed or not
+     */
+    @FunctionalInterface
+    public interface CommandScope {
+
+        Scope openCommandScope();
+
+        @FunctionalInterface
+        interface Scope extends AutoCloseable {
+            @Override
+            void close();
+        }
+    }
+
+    private static class Mailbox {
+
+        private final Queue<Runnable> commands = new ArrayDeque<>();
+
+        private boolean draining;
+    }
+
+    private final Executor workers;
+
+    private final Map<Long, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    private CommandScope commandScope = () -> () -> {
+    };
+
+    /**
+     * @param threads number of workers, 0 for one per available core
+     */
+    @Autowired
+    public GameCommandExecutor(@Value("${game.executor.threads:0}") int threads) {
+        this(newWorkerPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param workers executing the mailboxes, e.g. Runnable::run to process every command on the submitting thread
+     */
+    public GameCommandExecutor(Executor workers) {
+        this.workers = workers;
+    }
+
+    private static ExecutorService newWorkerPool(int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "game-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param commandScope opened around every command
+     */
+    @Autowired(required = false)
+    public void setCommandScope(CommandScope commandScope) {
+        this.commandScope = commandScope;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (workers instanceof ExecutorService) {
+            ((ExecutorService) workers).shutdown();
+        }
+    }
+
+    /**
+     * Appends a command to the mailbox of a game
+     * @param gameId of the game the command alters
+     * @param description of the command, used for logging failures
+     * @param command to be executed
+     * @return future completed once the command was executed, completed exceptionally if it failed
+     */
+    public CompletableFuture<Void> submit(Long gameId, String description, GameCommand command) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                // The scope is closed before the future completes, e.g. the messages of the command are sent by then
+                try (CommandScope.Scope scope = commandScope.openCommandScope()) {
+                    command.execute();
+                }
+                result.complete(null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Command '{}' of game {} failed: {}", description, gameId, e.getMessage());
+                result.completeExceptionally(e);
+            }
+        };
+
+        boolean[] startDraining = new boolean[1];
+        mailboxes.compute(gameId, (id, current) -> {
+            Mailbox target = current != null ? current : new Mailbox();
+            target.commands.add(task);
+            if (!target.draining) {
+                target.draining = true;
+                startDraining[0] = true;
+            }
+            return target;
+        });
+        if (startDraining[0]) {
+            workers.execute(() -> drain(gameId));
+        }
+        return result;
+    }
+
+    private void drain(Long gameId) {
+        for (int processed = 0; processed < BATCH_SIZE; processed++) {
+            Runnable[] next = new Runnable[1];
+            // The mailbox is removed within the same atomic step in which it is found empty, hence a command
+            // submitted concurrently either is seen here or creates a new mailbox with a new worker
+            mailboxes.computeIfPresent(gameId, (id, current) -> {
+                next[0] = current.commands.poll();
+                return next[0] != null ? current : null;
+            });
+            if (next[0] == null) {
+                return;
+            }
+            next[0].run();
+        }
+        workers.execute(() -> drain(gameId));
+    }
+
+    /**
+     * @return number of games with pending or running commands
+     */
+    int activeGames() {
+        return mailboxes.size();
+    }
+}
@@ -0,0 +1,171 @@
+package ch.uzh.ifi.hase.soprafs24.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timer for many pending deadlines, e.g. the turn of every ongoing game. Time is divided into ticks and the
+ * deadlines are hashed by their tick into a fixed number of buckets, each a doubly linked list. Scheduling and
+ * cancelling a timeout take constant time regardless of how many are pending; a deadline further ahead than one
+ * revolution of the wheel waits for the remaining rounds in its bucket.
+ *
+ * The wheel does not keep time itself: whoever drives it calls {@link #advance(long)} about once per tick, with times
+ * of a monotonic clock (e.g. derived from System.nanoTime()) such that corrections of the system clock don't shift
+ * the deadlines.
+ * Deadlines are rounded up to the next tick, hence a timeout expires at most one tick late.
+ */
+@Slf4j
+public class HashedTimingWheel {
+
+    /**
+     * Handle of a scheduled task
+     */
+    public final class Timeout {
+
+        private final Runnable task;
+
+        private long remainingRounds;
+
+        private int bucket = -1;
+
+        private Timeout prev;
+
+        private Timeout next;
+
+        private Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * @return whether the timeout was pending, i.e. neither expired nor cancelled before
+         */
+        public boolean cancel() {
+            synchronized (HashedTimingWheel.this) {
+                if (bucket < 0) {
+                    return false;
+                }
+                unlink(this);
+                return true;
+            }
+        }
+
+        public boolean isPending() {
+            synchronized (HashedTimingWheel.this) {
+                return bucket >= 0;
+            }
+        }
+    }
+
+    private final long tickMillis;
+
+    private final Timeout[] buckets;
+
+    private final int mask;
+
+    private long tick;
+
+    private long nextTickMillis;
+
+    private int pending;
+
+    /**
+     * @param tickMillis duration of a tick, i.e. the precision of the deadlines
+     * @param wheelSize number of buckets, rounded up to a power of two
+     * @param startMillis time at which the first tick starts
+     */
+    public HashedTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick and size of a timing wheel must be positive");
+        }
+        int size = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+        this.tickMillis = tickMillis;
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.nextTickMillis = startMillis + tickMillis;
+    }
+
+    /**
+     * Schedules a task to be run once the delay has passed
+     * @param task to be run by the thread advancing the wheel, should return quickly
+     * @param delayMillis from the current tick on
+     * @return handle to cancel the task
+     */
+    public synchronized Timeout schedule(Runnable task, long delayMillis) {
+        long ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+        Timeout timeout = new Timeout(task);
+        timeout.remainingRounds = (ticks - 1) / buckets.length;
+        timeout.bucket = (int) ((tick + ticks) & mask);
+
+        Timeout head = buckets[timeout.bucket];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[timeout.bucket] = timeout;
+        pending++;
+        return timeout;
+    }
+
+    /**
+     * Processes every tick that ended until the given time and runs the tasks that expired in it.
+     * The tasks are run after the wheel was released, such that they may schedule or cancel timeouts.
+     * @param nowMillis current time
+     * @return number of expired tasks
+     */
+    public int advance(long nowMillis) {
+        List<Runnable> expired = new ArrayList<>();
+        synchronized (this) {
+            while (nextTickMillis <= nowMillis) {
+                tick++;
+                nextTickMillis += tickMillis;
+                expire((int) (tick & mask), expired);
+            }
+        }
+        for (Runnable task : expired) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.warn("Expired timeout failed: {}", e.getMessage());
+            }
+        }
+        return expired.size();
+    }
+
+    /**
+     * @return number of pending timeouts
+     */
+    public synchronized int size() {
+        return pending;
+    }
+
+    private void expire(int bucket, List<Runnable> expired) {
+        Timeout timeout = buckets[bucket];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            } else {
+                unlink(timeout);
+                expired.add(timeout.task);
+            }
+            timeout = next;
+        }
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+        pending--;
+    }
+}
@@ -0,0 +1,93 @@
+package ch.uzh.ifi.hase.soprafs24.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Re-executes an action whose transaction was rolled back because it wrote a row (game, deck or user statistics)
+ * that another transaction changed since it was read, i.e. the version column of the row no longer matched.
+ * Only suited for an action that is a single transaction reading the rows it alters from the database, and has no
+ * effect besides that transaction (e.g. joining or leaving the lobby of a game). Commands of ongoing games do not
+ * qualify: they span several transactions, alter the deck and publish events. Once all attempts conflicted, the
+ * action fails with 409 CONFLICT.
+ *
+ * Counts the executions and conflicts, such that the conflict rate under load can be observed (logged
+ * periodically by ConflictMetricsService).
+ */
+@Slf4j
+public class OptimisticRetry {
+
+    /**
+     * Counters of a retry at one point in time
+     * @param executions actions executed, regardless of their number of attempts
+     * @param conflicts attempts rejected because of a version conflict
+     * @param exhausted actions that failed since all their attempts conflicted
+     */
+    public record Metrics(long executions, long conflicts, long exhausted) {
+
+        /**
+         * @return conflicts per execution
+         */
+        public double conflictRate() {
+            return executions > 0 ? (double) conflicts / executions : 0.0;
+        }
+    }
+
+    private final String name;
+
+    private final int maxAttempts;
+
+    private final LongAdder executions = new LongAdder();
+
+    private final LongAdder conflicts = new LongAdder();
+
+    private final LongAdder exhausted = new LongAdder();
+
+    /**
+     * @param name of the retried actions, used for logging
+     * @param maxAttempts number of times an action is executed at most
+     */
+    public OptimisticRetry(String name, int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("At least one attempt is required");
+        }
+        this.name = name;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Executes an action until it succeeds without a version conflict
+     * @param action to be executed
+     * @return the result of the action
+     */
+    public <T> T call(Supplier<T> action) {
+        executions.increment();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException e) {
+                conflicted(attempt, e);
+            }
+        }
+    }
+
+    public Metrics metrics() {
+        return new Metrics(executions.sum(), conflicts.sum(), exhausted.sum());
+    }
+
+    private void conflicted(int attempt, OptimisticLockingFailureException e) {
+        conflicts.increment();
+        if (attempt >= maxAttempts) {
+            exhausted.increment();
+            log.warn("Version conflict in {}, giving up after {} attempts (conflict rate {})",
+                    name, attempt, String.format("%.4f", metrics().conflictRate()));
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "The game was changed concurrently, please try again", e);
+        }
+        log.info("Version conflict in {}, attempt {} of {}: {}", name, attempt, maxAttempts, e.getMessage());
+    }
+}
@@ -0,0 +1,20 @@
+package ch.uzh.ifi.hase.soprafs24.engine;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Retries shared by all requests, such that their counters cover the whole server (see ConflictMetricsService)
+ */
+@Configuration
+public class OptimisticRetryConfig {
+
+    /**
+     * Concurrent joins and leaves of the same lobby conflict on the version of the game, the loser is executed again
+     */
+    @Bean
+    public OptimisticRetry lobbyRetry(@Value("${game.lobby.max-attempts:3}") int maxAttempts) {
+        return new OptimisticRetry("lobby", maxAttempts);
+    }
+}
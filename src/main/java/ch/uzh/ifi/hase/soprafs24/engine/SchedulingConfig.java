@@ -0,0 +1,37 @@
+package ch.uzh.ifi.hase.soprafs24.engine;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Pool running the @Scheduled jobs (flushes of the game sessions, the game log and the deck counters, aborting
+ * stale lobbies, logging the version conflicts). It is separate from the scheduler of the websocket heartbeats, such that a slow flush delays
+ * neither the heartbeats nor the other flushes. The turn timers tick on a thread of their own.
+ */
+@Configuration
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    private final int poolSize;
+
+    public SchedulingConfig(@Value("${game.scheduling.pool-size:4}") int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    @Bean
+    public ThreadPoolTaskScheduler scheduledJobsScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduled-");
+        scheduler.setDaemon(true);
+        return scheduler;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.setTaskScheduler(scheduledJobsScheduler());
+    }
+}
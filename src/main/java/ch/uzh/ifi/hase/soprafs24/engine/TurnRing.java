@@ -0,0 +1,156 @@
+package ch.uzh.ifi.hase.soprafs24.engine;
+
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turn order of an ongoing game: the players in seating order linked to a ring, with a cursor on the player whose
+ * turn it is. Passing the turn on and removing an eliminated player take constant time and compare player ids only.
+ * The players of a game are assigned to slots once; a removed player's slot is unlinked from the ring.
+ *
+ * The ring also holds the turn counters: an attacked player takes two turns in a row, i.e. once the attacker ends
+ * its turn the next player owes one extra turn. Attacking again passes the remaining turns on to the next player.
+ *
+ * Like the game it belongs to, a ring is only altered by the commands of its game and needs no locking.
+ */
+public class TurnRing {
+
+    private final User[] players;
+
+    private final int[] next;
+
+    private final int[] prev;
+
+    private final Map<Long, Integer> slots;
+
+    private int head;
+
+    private int size;
+
+    private User currentPlayer;
+
+    private boolean attacked;
+
+    private int extraTurns;
+
+    /**
+     * @param players of the game in seating order
+     * @param currentPlayer whose turn it is
+     * @param attacked whether the current player attacked the next one
+     * @param repeatTurn whether the current player takes another turn after this one
+     */
+    public TurnRing(List<User> players, User currentPlayer, boolean attacked, boolean repeatTurn) {
+        int count = players.size();
+        this.players = players.toArray(new User[0]);
+        this.next = new int[count];
+        this.prev = new int[count];
+        this.slots = new HashMap<>(count * 2);
+        for (int slot = 0; slot < count; slot++) {
+            next[slot] = (slot + 1) % count;
+            prev[slot] = (slot + count - 1) % count;
+            slots.put(this.players[slot].getId(), slot);
+        }
+        this.head = count > 0 ? 0 : -1;
+        this.size = count;
+        this.currentPlayer = currentPlayer;
+        this.attacked = attacked;
+        this.extraTurns = repeatTurn ? 1 : 0;
+    }
+
+    /**
+     * @return the player whose turn it is
+     */
+    public User currentPlayer() {
+        return currentPlayer;
+    }
+
+    /**
+     * @return the player seated after the current one, null if no other player is left. If the current player
+     * was removed, the first player in seating order.
+     */
+    public User nextPlayer() {
+        if (size == 0) {
+            return null;
+        }
+        Integer slot = currentPlayer != null ? slots.get(currentPlayer.getId()) : null;
+        if (slot == null) {
+            return players[head];
+        }
+        return next[slot] != slot ? players[next[slot]] : null;
+    }
+
+    /**
+     * Ends the turn of the current player and moves the cursor to the player whose turn it is next, which is the
+     * current player again if it owes an extra turn
+     * @return the player whose turn it is next, null if no other player is left
+     */
+    public User endTurn() {
+        User nextPlayer = nextPlayer();
+
+        if (extraTurns > 0) {
+            nextPlayer = currentPlayer;
+            extraTurns--;
+        }
+        if (attacked) {
+            extraTurns = 1;
+            attacked = false;
+        }
+        if (nextPlayer != null) {
+            currentPlayer = nextPlayer;
+        }
+        return nextPlayer;
+    }
+
+    /**
+     * The current player attacks: its turn ends without drawing and the next player takes two turns
+     */
+    public void attack() {
+        attacked = true;
+        extraTurns = 0;
+    }
+
+    /**
+     * Removes an eliminated player from the turn order
+     * @param playerId referencing a player of the game
+     * @return whether the player was part of the ring
+     */
+    public boolean remove(Long playerId) {
+        Integer slot = slots.remove(playerId);
+        if (slot == null) {
+            return false;
+        }
+        if (--size == 0) {
+            head = -1;
+            return true;
+        }
+        next[prev[slot]] = next[slot];
+        prev[next[slot]] = prev[slot];
+        if (head == slot) {
+            head = next[slot];
+        }
+        return true;
+    }
+
+    /**
+     * @param playerId referencing a user
+     * @return whether the user is still playing
+     */
+    public boolean contains(Long playerId) {
+        return slots.containsKey(playerId);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isAttacked() {
+        return attacked;
+    }
+
+    public boolean isRepeatTurn() {
+        return extraTurns > 0;
+    }
+}
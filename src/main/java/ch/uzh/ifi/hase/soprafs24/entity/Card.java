@@ -1,11 +1,17 @@
 package ch.uzh.ifi.hase.soprafs24.entity;
 
+import ch.uzh.ifi.hase.soprafs24.constant.CardType;
 import lombok.Getter;
 import lombok.Setter;
 
 import javax.persistence.*;
 import java.io.Serializable;
 
+/**
+ * One of the 54 cards of a deck. The rows of the card table are shared by all games and only written once
+ * (see {@link ch.uzh.ifi.hase.soprafs24.deck.CardCatalog}); which game holds a card in which pile is state
+ * of the deck provider, hence drawing or playing a card never writes to this table.
+ */
 @Setter
 @Getter
 @Entity
@@ -24,9 +30,6 @@ public class Card implements Serializable {
     @Column(nullable = false)
     private String image;
 
-    @Column
-    private String deckId;
-
     public Card() {
     }
 
@@ -38,91 +41,7 @@ public class Card implements Serializable {
 
     private void mapCodeToInternalRepresentation() {
         if (code != null) {
-            switch (code) {
-                case "KS":
-                case "KH":
-                case "KC":
-                case "KD":
-                case "X1":
-                case "X2":
-                    internalCode = "defuse";
-                    break;
-                case "AS":
-                case "AH":
-                case "AC":
-                case "AD":
-                    internalCode = "explosion";
-                    break;
-                case "JS":
-                case "JD":
-                case "JC":
-                case "JH":
-                    internalCode = "attack";
-                    break;
-                case "0S":
-                case "0D":
-                case "0C":
-                case "0H":
-                    internalCode = "skip";
-                    break;
-                case "9S":
-                case "9D":
-                case "9C":
-                case "9H":
-                    internalCode = "future";
-                    break;
-                case "8S":
-                case "8D":
-                case "8C":
-                case "8H":
-                    internalCode = "favor";
-                    break;
-                case "7S":
-                case "7D":
-                case "7C":
-                case "7H":
-                    internalCode = "shuffle";
-                    break;
-                case "6S":
-                case "6D":
-                case "6C":
-                case "6H":
-                    internalCode = "future";
-                    break;
-                case "5S":
-                case "5D":
-                case "5C":
-                case "5H":
-                    internalCode = "tacocat";
-                    break;
-                case "4S":
-                case "4D":
-                case "4C":
-                case "4H":
-                    internalCode = "cattermelon";
-                    break;
-                case "3S":
-                case "3D":
-                case "3C":
-                case "3H":
-                    internalCode = "hairypotatocat";
-                    break;
-                case "2S":
-                case "2D":
-                case "2C":
-                case "2H":
-                    internalCode = "beardcat";
-                    break;
-                case "QS":
-                case "QD":
-                case "QC":
-                case "QH":
-                    internalCode = "lucky";
-                    break;
-                default:
-                    internalCode = "unknown";
-                    break;
-            }
+            internalCode = CardType.fromCode(code).getInternalCode();
         }
     }
 }
\ No newline at end of file
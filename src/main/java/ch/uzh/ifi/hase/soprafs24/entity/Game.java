@@ -6,6 +6,7 @@ import java.util.*;
 
 import ch.uzh.ifi.hase.soprafs24.constant.GameMode;
 import ch.uzh.ifi.hase.soprafs24.constant.GameState;
+import ch.uzh.ifi.hase.soprafs24.engine.TurnRing;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -64,4 +65,13 @@ public class Game implements Serializable {
 
     @ElementCollection
     private List<String> leaderboard = new ArrayList<>();
+
+    // Incremented with every write, a write based on an outdated game is rejected instead of overwriting the row
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version;
+
+    // Turn order of an ongoing game, built from the players and the turn columns once the game is loaded
+    @Transient
+    private TurnRing turnRing;
 }
\ No newline at end of file
@@ -30,4 +30,9 @@ public class GameDeck implements Serializable {
     @Column
     private Integer remainingCardsDeck;
 
+    // Incremented with every write of the whole deck, the counters written in bulk by the counter flush leave it untouched
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version;
+
 }
@@ -0,0 +1,71 @@
+package ch.uzh.ifi.hase.soprafs24.entity;
+
+import ch.uzh.ifi.hase.soprafs24.constant.GameLogEntryType;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Entry of the append-only log of a game: a command of a player, an event raised by the engine,
+ * a change of a pile or a snapshot of all piles. Entries are never altered once written.
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "game_log", indexes = @Index(columnList = "gameId, sequence", unique = true))
+public class GameLogEntry implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long gameId;
+
+    @Column(nullable = false)
+    private Long sequence;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private GameLogEntryType type;
+
+    /**
+     * User who issued a command
+     */
+    @Column
+    private Long userId;
+
+    /**
+     * Description of a command, simple class name of an event
+     */
+    @Column
+    private String name;
+
+    @Column
+    private String pileName;
+
+    /**
+     * Codes of the cards added to or removed from a pile, comma separated
+     */
+    @Column(length = 1024)
+    private String cardCodes;
+
+    /**
+     * Depth a card was inserted at
+     */
+    @Column
+    private Integer position;
+
+    /**
+     * Event or snapshot as JSON, reason of a rejected command
+     */
+    @Column(length = 8192)
+    private String payload;
+
+    @Column(nullable = false)
+    private Date creationdate = new Date();
+
+}
@@ -39,6 +39,11 @@ public class UserStats implements Serializable {
     @Column()
     private Date lastPlayed;
 
+    // Incremented with every write, statistics based on an outdated read are rejected instead of overwriting the row
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version;
+
     @PrePersist
     @PreUpdate
     private void calculateWinLossRatio() {
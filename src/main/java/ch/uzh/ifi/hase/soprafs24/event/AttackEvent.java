@@ -6,7 +6,7 @@ import org.springframework.context.ApplicationEvent;
 
 @Setter
 @Getter
-public class AttackEvent extends ApplicationEvent {
+public class AttackEvent extends ApplicationEvent implements GameEvent {
     private Long gameId;
     private String invokingPlayerUserName;
     private String targetUsername;
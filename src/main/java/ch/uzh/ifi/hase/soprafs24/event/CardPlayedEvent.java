@@ -6,7 +6,7 @@ import org.springframework.context.ApplicationEvent;
 
 @Setter
 @Getter
-public class CardPlayedEvent extends ApplicationEvent {
+public class CardPlayedEvent extends ApplicationEvent implements GameEvent {
     private String internalCode;
     private Long gameId;
     private String invokingPlayerUserName;
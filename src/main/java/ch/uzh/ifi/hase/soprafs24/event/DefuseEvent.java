@@ -9,7 +9,7 @@ import java.util.List;
 
 @Setter
 @Getter
-public class DefuseEvent extends ApplicationEvent {
+public class DefuseEvent extends ApplicationEvent implements GameEvent {
     private Long userId;
     private Long gameId;
     private List<Card> playerCards;
@@ -6,7 +6,7 @@ import org.springframework.context.ApplicationEvent;
 
 @Setter
 @Getter
-public class DrawCardsEvent extends ApplicationEvent {
+public class DrawCardsEvent extends ApplicationEvent implements GameEvent {
     private Integer numberOfCards;
     private Long gameId;
     private String invokingPlayerUserName;
@@ -8,7 +8,7 @@ import java.util.List;
 
 @Setter
 @Getter
-public class EndGameEvent extends ApplicationEvent {
+public class EndGameEvent extends ApplicationEvent implements GameEvent {
 
     private String userName;
 
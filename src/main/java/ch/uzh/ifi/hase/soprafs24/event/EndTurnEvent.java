@@ -6,7 +6,7 @@ import org.springframework.context.ApplicationEvent;
 
 @Setter
 @Getter
-public class EndTurnEvent extends ApplicationEvent {
+public class EndTurnEvent extends ApplicationEvent implements GameEvent {
 
     private String userName;
 
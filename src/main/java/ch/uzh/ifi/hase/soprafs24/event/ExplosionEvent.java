@@ -6,7 +6,7 @@ import org.springframework.context.ApplicationEvent;
 
 @Setter
 @Getter
-public class ExplosionEvent extends ApplicationEvent {
+public class ExplosionEvent extends ApplicationEvent implements GameEvent {
     private Long gameId;
     private String invokingPlayerUserName;
 
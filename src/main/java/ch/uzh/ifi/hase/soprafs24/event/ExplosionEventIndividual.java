@@ -6,7 +6,7 @@ import org.springframework.context.ApplicationEvent;
 
 @Setter
 @Getter
-public class ExplosionEventIndividual extends ApplicationEvent {
+public class ExplosionEventIndividual extends ApplicationEvent implements GameEvent {
     private Long gameId;
     private Long userId;
 
@@ -6,7 +6,7 @@ import org.springframework.context.ApplicationEvent;
 
 @Setter
 @Getter
-public class ExplosionReturnedToDeckEvent extends ApplicationEvent {
+public class ExplosionReturnedToDeckEvent extends ApplicationEvent implements GameEvent {
     private Long gameId;
     private String invokingPlayerUserName;
 
@@ -0,0 +1,9 @@
+package ch.uzh.ifi.hase.soprafs24.event;
+
+/**
+ * Event raised by the engine while a game is played, recorded in the log of the game
+ */
+public interface GameEvent {
+
+    Long getGameId();
+}
@@ -9,7 +9,7 @@ import java.util.List;
 
 @Setter
 @Getter
-public class GameStartEvent extends ApplicationEvent {
+public class GameStartEvent extends ApplicationEvent implements GameEvent {
 
     private Long gameId;
 
@@ -19,6 +19,8 @@ public class GameStateEvent extends ApplicationEvent {
     private List<Long> playerIds;
     private List<String> playerAvatars;
     private String activePlayer;
+    // Whether the state is sent to the players as full snapshot instead of the changes since the last state
+    private boolean fullSnapshot;
 
     public GameStateEvent(Object source, Long gameId, Card topMostCardPlayPile, Map<String, Integer> remainingCardStats, Integer numberOfPlayers, List<String> playerNames, List<Long> playerIds, List<String> playerAvatars, String activePlayer) {
         super(source);
@@ -6,7 +6,7 @@ import org.springframework.context.ApplicationEvent;
 
 @Setter
 @Getter
-public class LossEvent extends ApplicationEvent {
+public class LossEvent extends ApplicationEvent implements GameEvent {
     private Long gameId;
     private String looserPlayer;
 
@@ -9,7 +9,7 @@ import java.util.List;
 
 @Setter
 @Getter
-public class LuckyEvent extends ApplicationEvent {
+public class LuckyEvent extends ApplicationEvent implements GameEvent {
     private Long userId;
     private Long gameId;
     private Card randomCard;
@@ -9,7 +9,7 @@ import java.util.List;
 
 @Setter
 @Getter
-public class PeekIntoDeckEvent extends ApplicationEvent {
+public class PeekIntoDeckEvent extends ApplicationEvent implements GameEvent {
     private Long gameId;
     private String invokingPlayerUserName;
     private Long userId;
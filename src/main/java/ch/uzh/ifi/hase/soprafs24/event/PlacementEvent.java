@@ -6,7 +6,7 @@ import org.springframework.context.ApplicationEvent;
 
 @Setter
 @Getter
-public class PlacementEvent extends ApplicationEvent {
+public class PlacementEvent extends ApplicationEvent implements GameEvent {
     private Long gameId;
     private Long userId;
 
@@ -6,7 +6,7 @@ import org.springframework.context.ApplicationEvent;
 
 @Setter
 @Getter
-public class ShufflingEvent extends ApplicationEvent {
+public class ShufflingEvent extends ApplicationEvent implements GameEvent {
     private Long gameId;
     private String invokingPlayerUserName;
 
@@ -9,7 +9,7 @@ import java.util.List;
 
 @Setter
 @Getter
-public class StealCardEvent extends ApplicationEvent {
+public class StealCardEvent extends ApplicationEvent implements GameEvent {
     private Long userId;
     private Long gameId;
     private List<Card> stolenCards;
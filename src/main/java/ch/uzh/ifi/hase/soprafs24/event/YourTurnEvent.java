@@ -6,7 +6,7 @@ import org.springframework.context.ApplicationEvent;
 
 @Setter
 @Getter
-public class YourTurnEvent extends ApplicationEvent {
+public class YourTurnEvent extends ApplicationEvent implements GameEvent {
 
     private Long userId;
 
@@ -119,6 +119,9 @@ public class GameEngineEventListener {
     @EventListener
     public void provideGameStats(GameStateEvent event) {
         log.info("Game Stats for {} dispatched", event.getGameId());
+        if (event.isFullSnapshot()) {
+            webSocketService.resetGameState(event.getGameId());
+        }
         webSocketService.sendGameState(event.getGameId(), event.getTopMostCardPlayPile(), event.getRemainingCardStats(), event.getNumberOfPlayers(), event.getPlayerNames(), event.getPlayerIds(), event.getPlayerAvatars(), event.getActivePlayer());
     }
 
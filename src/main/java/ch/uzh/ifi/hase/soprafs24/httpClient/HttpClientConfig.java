@@ -1,13 +1,34 @@
 package ch.uzh.ifi.hase.soprafs24.httpClient;
 import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+/**
+ * Http client used for the deck api. Connections are established with a timeout and the responses are handled
+ * by a bounded pool of daemon threads, such that a stalling api can't occupy an unbounded number of threads.
+ * Request timeouts, retries and circuit breaking are applied per request (see RemoteDeckProvider).
+ */
 @Configuration
 public class HttpClientConfig {
 
     @Bean
-    public HttpClient httpClient() {
-        return HttpClient.newHttpClient();
+    public HttpClient httpClient(@Value("${deck.api.connect-timeout-ms:2000}") long connectTimeoutMillis,
+                                 @Value("${deck.api.client-threads:8}") int clientThreads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(Executors.newFixedThreadPool(clientThreads, runnable -> {
+                    Thread thread = new Thread(runnable, "deck-api-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .build();
     }
-}
\ No newline at end of file
+}
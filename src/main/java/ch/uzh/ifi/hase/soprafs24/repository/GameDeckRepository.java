@@ -3,9 +3,11 @@ package ch.uzh.ifi.hase.soprafs24.repository;
 import ch.uzh.ifi.hase.soprafs24.entity.Game;
 import ch.uzh.ifi.hase.soprafs24.entity.GameDeck;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -15,4 +17,11 @@ public interface GameDeckRepository extends JpaRepository<GameDeck, Long> {
     @Query("SELECT g FROM Game g LEFT JOIN FETCH g.gameDeck WHERE g.gameId = :gameId")
     Optional<Game> findByIdWithGameDeck(@Param("gameId") Long gameId);
 
+    @Modifying
+    @Transactional
+    @Query("UPDATE GameDeck d SET d.remainingCardsDeck = :remainingCardsDeck, d.remainingCardsDealerStack = :remainingCardsDealerStack WHERE d.deckID = :deckId")
+    int updateCounters(@Param("deckId") String deckId,
+                       @Param("remainingCardsDeck") Integer remainingCardsDeck,
+                       @Param("remainingCardsDealerStack") Integer remainingCardsDealerStack);
+
 }
@@ -0,0 +1,20 @@
+package ch.uzh.ifi.hase.soprafs24.repository;
+
+import ch.uzh.ifi.hase.soprafs24.constant.GameLogEntryType;
+import ch.uzh.ifi.hase.soprafs24.entity.GameLogEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository("gameLogRepository")
+public interface GameLogRepository extends JpaRepository<GameLogEntry, Long> {
+
+    List<GameLogEntry> findByGameIdOrderBySequence(Long gameId);
+
+    List<GameLogEntry> findByGameIdAndSequenceGreaterThanOrderBySequence(Long gameId, Long sequence);
+
+    Optional<GameLogEntry> findFirstByGameIdAndTypeOrderBySequenceDesc(Long gameId, GameLogEntryType type);
+
+}
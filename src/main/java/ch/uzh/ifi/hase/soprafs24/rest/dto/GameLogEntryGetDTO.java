@@ -0,0 +1,31 @@
+package ch.uzh.ifi.hase.soprafs24.rest.dto;
+
+import ch.uzh.ifi.hase.soprafs24.constant.GameLogEntryType;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+@Setter
+@Getter
+public class GameLogEntryGetDTO {
+
+    private Long sequence;
+
+    private GameLogEntryType type;
+
+    private Long userId;
+
+    private String name;
+
+    private String pileName;
+
+    private String cardCodes;
+
+    private Integer position;
+
+    private String payload;
+
+    private Date creationdate;
+
+}
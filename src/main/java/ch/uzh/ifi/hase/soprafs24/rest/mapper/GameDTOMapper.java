@@ -1,7 +1,9 @@
 package ch.uzh.ifi.hase.soprafs24.rest.mapper;
 
 import ch.uzh.ifi.hase.soprafs24.entity.Game;
+import ch.uzh.ifi.hase.soprafs24.entity.GameLogEntry;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.GameGetDTO;
+import ch.uzh.ifi.hase.soprafs24.rest.dto.GameLogEntryGetDTO;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.GamePostDTO;
 import org.mapstruct.Mapper;
 import org.mapstruct.MapperConfig;
@@ -39,4 +41,7 @@ public interface GameDTOMapper {
     @Mapping(target = "mode", source = "mode")
     @Mapping(target = "maxPlayers", source = "maxPlayers")
     Game convertGamePostDTOToEntity(GamePostDTO gamePostDTO);
+
+    // Mapping for GameLogEntry to GameLogEntryGetDTO
+    GameLogEntryGetDTO convertEntityToGameLogEntryGetDTO(GameLogEntry gameLogEntry);
 }
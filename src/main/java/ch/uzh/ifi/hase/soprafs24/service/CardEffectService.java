@@ -0,0 +1,112 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.CardCombo;
+import ch.uzh.ifi.hase.soprafs24.constant.CardType;
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+import ch.uzh.ifi.hase.soprafs24.entity.Game;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rules of the game: which effect the cards played in a move have. The effects are held in a table per combo,
+ * keyed by the type of the cards, such that a move is looked up instead of compared against every rule.
+ * Moves without an effect (e.g. a single cat card or a pair of different cats) only place the cards on the play pile.
+ * The table is built once on construction and read-only afterwards, since the workers of all games read it at once.
+ *
+ * Shared by every way of playing cards, i.e. the websocket controller and future callers such as bots.
+ */
+@Service
+@Slf4j
+public class CardEffectService {
+
+    /**
+     * Effect of the cards played in a move
+     */
+    @FunctionalInterface
+    public interface CardEffect {
+        void apply(Game game, Long userId, String targetUsername) throws IOException, InterruptedException;
+    }
+
+    private final Map<CardCombo, Map<CardType, CardEffect>> effects;
+
+    @Autowired
+    public CardEffectService(GameEngineService gameEngineService) {
+        Map<CardCombo, Map<CardType, CardEffect>> table = new EnumMap<>(CardCombo.class);
+        for (CardCombo combo : CardCombo.values()) {
+            table.put(combo, new EnumMap<>(CardType.class));
+        }
+
+        register(table, CardCombo.SINGLE, CardType.SHUFFLE, (game, userId, targetUsername) -> gameEngineService.handleShuffleCard(game, userId));
+        register(table, CardCombo.SINGLE, CardType.FUTURE, (game, userId, targetUsername) -> gameEngineService.handleFutureCard(game, userId));
+        register(table, CardCombo.SINGLE, CardType.SKIP, (game, userId, targetUsername) -> gameEngineService.handleSkipCard(game, userId));
+        register(table, CardCombo.SINGLE, CardType.FAVOR, gameEngineService::handleFavorCard);
+        register(table, CardCombo.SINGLE, CardType.ATTACK, (game, userId, targetUsername) -> gameEngineService.handleAttackCard(game, userId));
+        register(table, CardCombo.SINGLE, CardType.LUCKY, (game, userId, targetUsername) -> gameEngineService.handleLuckyCard(game, userId));
+
+        // A pair of cat cards acts like the action card of that cat
+        register(table, CardCombo.PAIR, CardType.TACOCAT, (game, userId, targetUsername) -> gameEngineService.handleFutureCard(game, userId));
+        register(table, CardCombo.PAIR, CardType.CATTERMELON, (game, userId, targetUsername) -> gameEngineService.handleAttackCard(game, userId));
+        register(table, CardCombo.PAIR, CardType.HAIRYPOTATOCAT, (game, userId, targetUsername) -> gameEngineService.handleSkipCard(game, userId));
+        register(table, CardCombo.PAIR, CardType.BEARDCAT, (game, userId, targetUsername) -> gameEngineService.handleShuffleCard(game, userId));
+
+        for (Map.Entry<CardCombo, Map<CardType, CardEffect>> entry : table.entrySet()) {
+            entry.setValue(Collections.unmodifiableMap(entry.getValue()));
+        }
+        this.effects = Collections.unmodifiableMap(table);
+    }
+
+    /**
+     * Adds a rule to the table being built
+     * @param table of the effects per combo
+     * @param combo of the played cards
+     * @param type of the played cards
+     * @param effect applied once the cards are played
+     */
+    private static void register(Map<CardCombo, Map<CardType, CardEffect>> table, CardCombo combo, CardType type, CardEffect effect) {
+        table.get(combo).put(type, effect);
+    }
+
+    /**
+     * Looks up the effect of the cards played in a move
+     * @param cards played in the move
+     * @return the effect of the cards, null if they have none
+     */
+    public CardEffect effectOf(List<Card> cards) {
+        CardCombo combo = CardCombo.ofSize(cards.size());
+        if (combo == null) {
+            return null;
+        }
+        CardType type = CardType.fromInternalCode(cards.get(0).getInternalCode());
+        for (int i = 1; i < cards.size(); i++) {
+            if (CardType.fromInternalCode(cards.get(i).getInternalCode()) != type) {
+                return null;
+            }
+        }
+        return effects.get(combo).get(type);
+    }
+
+    /**
+     * Applies the effect of the cards played in a move, if any
+     * @param game currently active game
+     * @param userId referencing the user that played the cards
+     * @param cards played in the move, already placed on the play pile
+     * @param targetUsername of the player targeted by the move, if any
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void play(Game game, Long userId, List<Card> cards, String targetUsername) throws IOException, InterruptedException {
+        CardEffect effect = effectOf(cards);
+        if (effect == null) {
+            log.debug("Cards {} played in game {} have no effect", cards.stream().map(Card::getCode).toList(), game.getGameId());
+            return;
+        }
+        effect.apply(game, userId, targetUsername);
+    }
+}
@@ -0,0 +1,51 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.engine.OptimisticRetry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Logs the version conflicts periodically, such that the conflict rate under load can be observed: the conflicts of
+ * the retried lobby actions and the flushes of game sessions rejected or superseded because another writer changed
+ * the game. Nothing is logged while the counters are unchanged.
+ */
+@Service
+@Slf4j
+public class ConflictMetricsService {
+
+    private final OptimisticRetry lobbyRetry;
+
+    private final GameSessionService gameSessionService;
+
+    // Runs are scheduled with a fixed delay, i.e. never overlap
+    private String lastReport;
+
+    @Autowired
+    public ConflictMetricsService(@Qualifier("lobbyRetry") OptimisticRetry lobbyRetry,
+                                  GameSessionService gameSessionService) {
+        this.lobbyRetry = lobbyRetry;
+        this.gameSessionService = gameSessionService;
+    }
+
+    @Scheduled(fixedDelayString = "${game.metrics.log-interval-ms:60000}")
+    public void logMetrics() {
+        String report = report();
+        if (!report.equals(lastReport)) {
+            lastReport = report;
+            log.info("Version conflicts since start: {}", report);
+        }
+    }
+
+    /**
+     * @return the current counters as text
+     */
+    String report() {
+        OptimisticRetry.Metrics lobby = lobbyRetry.metrics();
+        return String.format("lobby %s executions, %s conflicts (rate %.4f), %s given up; session flushes %s conflicts, %s superseded",
+                lobby.executions(), lobby.conflicts(), lobby.conflictRate(), lobby.exhausted(),
+                gameSessionService.flushConflicts(), gameSessionService.supersededSessions());
+    }
+}
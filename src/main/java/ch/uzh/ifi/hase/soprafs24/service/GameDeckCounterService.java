@@ -0,0 +1,114 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.entity.GameDeck;
+import ch.uzh.ifi.hase.soprafs24.repository.GameDeckRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind buffer for the pile counters of a {@link GameDeck} (remaining cards of the deck and the dealer pile).
+ * A single move alters the counters several times; instead of flushing the row after every change, the latest
+ * values are kept in memory and written with one UPDATE at the end of the move, or by a periodic flush for moves
+ * that don't end with an explicit flush.
+ *
+ * Crash semantics: the counters are a cache of state held by the deck provider. If the server stops between an
+ * update and the next flush, the row keeps the counters of the last flush. Pending counters are flushed on an
+ * orderly shutdown; after a crash they are restored on the next game state dispatch, which re-reads the pile counts
+ * from the deck provider. The cards themselves are never affected, since they are held by the deck provider only.
+ */
+@Service
+@Slf4j
+public class GameDeckCounterService {
+
+    private final GameDeckRepository gameDeckRepository;
+
+    private final Map<String, PendingCounters> pendingCounters = new ConcurrentHashMap<>();
+
+    /**
+     * Counter values of a deck at the time of the last update, copied such that a flush never reads an entity
+     * that is being altered by a move
+     */
+    private record PendingCounters(Integer remainingCardsDeck, Integer remainingCardsDealerStack) {
+    }
+
+    @Autowired
+    public GameDeckCounterService(GameDeckRepository gameDeckRepository) {
+        this.gameDeckRepository = gameDeckRepository;
+    }
+
+    /**
+     * Records the current counters of a deck to be written with the next flush
+     * @param gameDeck whose counters changed
+     */
+    public void update(GameDeck gameDeck) {
+        pendingCounters.put(gameDeck.getDeckID(), new PendingCounters(gameDeck.getRemainingCardsDeck(), gameDeck.getRemainingCardsDealerStack()));
+    }
+
+    /**
+     * Records the current counters of a deck and writes them immediately, e.g. at the end of a move
+     * @param gameDeck whose counters shall be persisted
+     */
+    public void flush(GameDeck gameDeck) {
+        update(gameDeck);
+        flush(gameDeck.getDeckID());
+    }
+
+    /**
+     * Saves the whole deck, e.g. after altering columns other than the counters.
+     * Pending counters of the deck are dropped since the saved row holds the latest values.
+     * @param gameDeck to be saved
+     * @return the saved deck
+     */
+    public GameDeck save(GameDeck gameDeck) {
+        pendingCounters.remove(gameDeck.getDeckID());
+        return gameDeckRepository.saveAndFlush(gameDeck);
+    }
+
+    /**
+     * Overwrites the counters of a freshly loaded deck with the values not yet written to the database
+     * @param gameDeck loaded from the database, may be null if the game has no deck yet
+     */
+    public void applyPending(@Nullable GameDeck gameDeck) {
+        if (gameDeck == null) {
+            return;
+        }
+        PendingCounters counters = pendingCounters.get(gameDeck.getDeckID());
+        if (counters != null) {
+            gameDeck.setRemainingCardsDeck(counters.remainingCardsDeck());
+            gameDeck.setRemainingCardsDealerStack(counters.remainingCardsDealerStack());
+        }
+    }
+
+    /**
+     * Writes the counters of all decks changed since their last flush.
+     * Runs periodically and once on shutdown.
+     */
+    @Scheduled(fixedDelayString = "${deck.counters.flush-interval-ms:1000}")
+    @PreDestroy
+    public void flushAll() {
+        for (String deckId : pendingCounters.keySet()) {
+            flush(deckId);
+        }
+    }
+
+    private void flush(String deckId) {
+        PendingCounters counters = pendingCounters.remove(deckId);
+        if (counters == null) {
+            return;
+        }
+        try {
+            gameDeckRepository.updateCounters(deckId, counters.remainingCardsDeck(), counters.remainingCardsDealerStack());
+        } catch (RuntimeException e) {
+            // Keep the counters for the next flush unless a newer update arrived in the meantime
+            pendingCounters.putIfAbsent(deckId, counters);
+            log.warn("Failed to flush counters of deck {}: {}", deckId, e.getMessage());
+        }
+    }
+}
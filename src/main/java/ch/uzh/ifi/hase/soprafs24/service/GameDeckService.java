@@ -1,5 +1,10 @@
 package ch.uzh.ifi.hase.soprafs24.service;
 
+import ch.uzh.ifi.hase.soprafs24.constant.CardType;
+import ch.uzh.ifi.hase.soprafs24.deck.CardCatalog;
+import ch.uzh.ifi.hase.soprafs24.deck.CardCodes;
+import ch.uzh.ifi.hase.soprafs24.deck.CardMask;
+import ch.uzh.ifi.hase.soprafs24.deck.DeckProvider;
 import ch.uzh.ifi.hase.soprafs24.entity.Card;
 import ch.uzh.ifi.hase.soprafs24.entity.Game;
 import ch.uzh.ifi.hase.soprafs24.entity.GameDeck;
@@ -7,22 +12,20 @@ import ch.uzh.ifi.hase.soprafs24.entity.User;
 import ch.uzh.ifi.hase.soprafs24.event.*;
 import ch.uzh.ifi.hase.soprafs24.repository.CardRepository;
 import ch.uzh.ifi.hase.soprafs24.repository.GameDeckRepository;
-import com.fasterxml.jackson.databind.JsonNode;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.io.IOException;
-import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.annotation.Nullable;
@@ -32,9 +35,7 @@ import javax.annotation.Nullable;
 @Slf4j
 public class GameDeckService {
 
-    private final HttpClient httpClient;
-
-    ObjectMapper objectMapper;
+    private final DeckProvider deckProvider;
 
     private GameDeckRepository gameDeckRepository;
 
@@ -42,26 +43,45 @@ public class GameDeckService {
 
     private UserService userService;
 
+    private GameDeckCounterService gameDeckCounterService;
+
+    private GameLogService gameLogService;
+
     @Autowired
     private ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public GameDeckService(GameDeckRepository gameDeckRepository, CardRepository cardRepository, UserService userService ,ApplicationEventPublisher eventPublisher, HttpClient httpClient) {
-        this.objectMapper = new ObjectMapper();
+    public GameDeckService(GameDeckRepository gameDeckRepository, CardRepository cardRepository, UserService userService ,ApplicationEventPublisher eventPublisher, DeckProvider deckProvider, GameDeckCounterService gameDeckCounterService, GameLogService gameLogService) {
         this.gameDeckRepository = gameDeckRepository;
         this.cardRepository = cardRepository;
         this.userService = userService;
         this.eventPublisher = eventPublisher;
-        this.httpClient = httpClient;
+        this.deckProvider = deckProvider;
+        this.gameDeckCounterService = gameDeckCounterService;
+        this.gameLogService = gameLogService;
     }
 
     /**
-     * Helper method to build an http request given an input url
-     * @param url
-     * @return
+     * Helper method that splits a comma-separated string of card codes
+     * @param cards a string of cards, like "AS,KS,X1"
+     * @return List of card codes
      */
-    public HttpRequest buildGetRequest(String url) {
-        return HttpRequest.newBuilder().GET().uri(URI.create(url)).build();
+    private List<String> splitCardCodes(String cards) {
+        if (cards == null || cards.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(cards.split(","));
+    }
+
+    /**
+     * Writes the cards of the card catalog to the card table once at startup.
+     * All other card lookups are served by the {@link CardCatalog} without database access.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedCardTable() {
+        if (cardRepository.count() < CardCodes.DECK_SIZE) {
+            saveCards(new ArrayList<>(CardCatalog.all()));
+        }
     }
 
     /**
@@ -80,7 +100,7 @@ public class GameDeckService {
     }
 
     /**
-     * Fetches a card deck of 54 cards from the external deckofcards api
+     * Fetches a new card deck of 54 cards from the deck provider
      * @param game object which the deck will be assigned to
      * @return a gameDeck object
      * @throws IOException
@@ -88,20 +108,12 @@ public class GameDeckService {
      */
     public GameDeck fetchDeck(Game game, boolean init) throws IOException, InterruptedException {
 
-        String newDeckUri = "https://deckofcardsapi.com/api/deck/new/shuffle/?deck_count=1&jokers_enabled=true";
-        HttpRequest newDeckRequest = buildGetRequest(newDeckUri);
-
-        HttpResponse<String> newDeckResponse = httpClient.send(newDeckRequest, HttpResponse.BodyHandlers.ofString());
-
-        // Conversion of response to format suitable for extraction
-        JsonNode rootNode = objectMapper.readTree(newDeckResponse.body());
         GameDeck gameDeck = new GameDeck();
-
-        // Extraction of necessary variables
-        gameDeck.setDeckID(rootNode.get("deck_id").asText());
-        gameDeck.setRemainingCardsDeck(rootNode.get("remaining").asInt());
+        gameDeck.setDeckID(deckProvider.newDeck());
+        gameDeck.setRemainingCardsDeck(CardCodes.DECK_SIZE);
         gameDeck.setGame(game);
         gameDeck = gameDeckRepository.saveAndFlush(gameDeck);
+        gameLogService.bind(game.getGameId(), gameDeck.getDeckID());
 
         log.info(gameDeck.getDeckID());
 
@@ -118,18 +130,12 @@ public class GameDeckService {
      */
     public List<Card> drawCardsFromDeck(GameDeck gameDeck) throws IOException, InterruptedException {
 
-        String drawCardsFromDeckUri = String.format("https://deckofcardsapi.com/api/deck/%s/draw/?count=%s", gameDeck.getDeckID(), gameDeck.getRemainingCardsDeck());
-        HttpRequest drawCardsFromDeckRequest = buildGetRequest(drawCardsFromDeckUri);
-        HttpResponse<String> drawCardsFromDeckResponse = httpClient.send(drawCardsFromDeckRequest, HttpResponse.BodyHandlers.ofString());
-
-        List<String> cardsPath = Arrays.asList("cards");
-        List<String> additionalInfo = null;
-        List<Card> cards = parseCards(gameDeck,drawCardsFromDeckResponse.body(), "deck_id", cardsPath, additionalInfo);
+        List<Card> cards = deckProvider.drawFromDeck(gameDeck.getDeckID(), gameDeck.getRemainingCardsDeck());
 
         gameDeck.setRemainingCardsDeck(0);
-        gameDeckRepository.saveAndFlush(gameDeck);
+        gameDeckCounterService.update(gameDeck);
 
-        return saveCards(cards);
+        return cards;
     }
 
     public List<Card> drawCardsFromDealerPile(GameDeck gameDeck, Integer numberOfCards) throws IOException, InterruptedException {
@@ -147,26 +153,21 @@ public class GameDeckService {
      */
     public List<Card> drawCardsFromDealerPile(GameDeck gameDeck, Integer numberOfCards, Boolean random) throws IOException, InterruptedException {
 
-        String jsonResponse = getRemainingPileStats(gameDeck, 1L);
-        Map<String, Integer> parsedPileCardCounts = parsePileCardCounts(jsonResponse);
-        Integer dealerCount = parsedPileCardCounts.get("dealer");
+        Map<String, Integer> parsedPileCardCounts = getPileCardCounts(gameDeck);
+        Integer dealerCount = parsedPileCardCounts.getOrDefault(DeckProvider.DEALER_PILE, 0);
 
         if (numberOfCards > dealerCount) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Number of cards to be drawn exceeds available cards");
         }
-        String baseUri;
+        List<Card> cards;
         if (random) {
-
-            baseUri = String.format("https://www.deckofcardsapi.com/api/deck/%s/pile/%s/draw/random/", gameDeck.getDeckID(), gameDeck.getDealerPileId());
+            cards = deckProvider.drawRandomFromPile(gameDeck.getDeckID(), DeckProvider.DEALER_PILE);
         } else {
-            baseUri = String.format("https://www.deckofcardsapi.com/api/deck/%s/pile/%s/draw/?count=%s", gameDeck.getDeckID(), gameDeck.getDealerPileId(), numberOfCards);
+            cards = deckProvider.drawFromPile(gameDeck.getDeckID(), DeckProvider.DEALER_PILE, numberOfCards);
         }
-        HttpRequest drawCardsFromPileRequest = buildGetRequest(baseUri);
-        HttpResponse<String> drawCardsFromPileResponse = httpClient.send(drawCardsFromPileRequest, HttpResponse.BodyHandlers.ofString());
 
-        List<String> cardsPath = List.of("cards");
-        List<String> additionalInfo = Arrays.asList("piles", "dealer");
-        List<Card> cards = parseCards(gameDeck,drawCardsFromPileResponse.body(), "deck_id", cardsPath, additionalInfo);
+        gameDeck.setRemainingCardsDealerStack(dealerCount - cards.size());
+        gameDeckCounterService.update(gameDeck);
 
         String playerName = "dealer";
 
@@ -193,9 +194,7 @@ public class GameDeckService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Shuffle doesn't alter the state of the remaining pile");
         }
 
-        String shuffleCardsUri = String.format("https://www.deckofcardsapi.com/api/deck/%s/pile/%s/shuffle/", gameDeck.getDeckID(), gameDeck.getDealerPileId());
-        HttpRequest shuffleCardsRequest = buildGetRequest(shuffleCardsUri);
-        HttpResponse<String> shuffleCardsResponse = httpClient.send(shuffleCardsRequest, HttpResponse.BodyHandlers.ofString());
+        deckProvider.shufflePile(gameDeck.getDeckID(), DeckProvider.DEALER_PILE);
 
         Game currentGame = gameDeck.getGame();
 
@@ -219,10 +218,60 @@ public class GameDeckService {
      */
     public void createPlayerPile(GameDeck gameDeck, Long userId, String cardsToBeAdded) throws IOException, InterruptedException {
 
-        String createPlayerPile = String.format("https://www.deckofcardsapi.com/api/deck/%s/pile/%s/add/?cards=%s", gameDeck.getDeckID(), userId, cardsToBeAdded);
-        HttpRequest createPlayerPileRequest = buildGetRequest(createPlayerPile);
+        deckProvider.addToPile(gameDeck.getDeckID(), userId.toString(), splitCardCodes(cardsToBeAdded));
+    }
+
+    /**
+     * Deals the hands of all players at the start of a game. All cards are drawn from the dealer pile at once
+     * and dealt in turns locally, afterwards the player piles are created concurrently. Hence dealing takes two
+     * round trips to the deck provider regardless of the number of players.
+     * @param gameDeck of the game
+     * @param userIds of the players, naming their piles
+     * @param cardsPerHand drawn from the dealer pile for every player
+     * @param extraCards handed out in addition to the drawn cards, one per player as long as available (e.g. the defuse cards).
+     *                   Handed out cards are removed from the list.
+     * @return map from userId to the cards in the pile of the player
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public Map<Long, List<Card>> dealHands(GameDeck gameDeck, List<Long> userIds, int cardsPerHand, List<Card> extraCards) throws IOException, InterruptedException {
+
+        int totalCards = cardsPerHand * userIds.size();
+        if (totalCards > gameDeck.getRemainingCardsDealerStack()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Number of cards to be drawn exceeds available cards");
+        }
+
+        String deckId = gameDeck.getDeckID();
+        List<Card> drawnCards = deckProvider.drawFromPile(deckId, DeckProvider.DEALER_PILE, totalCards);
+
+        int[] cardsTopFirst = drawnCards.stream().mapToInt(card -> CardCodes.indexOf(card.getCode())).toArray();
+        long[] hands = CardMask.deal(cardsTopFirst, userIds.size(), cardsPerHand);
+
+        Map<Long, List<Card>> playerPiles = new LinkedHashMap<>();
+        List<CompletableFuture<Void>> pendingPiles = new ArrayList<>();
+
+        for (int i = 0; i < userIds.size(); i++) {
+            List<Card> playerCards = CardMask.cards(hands[i]);
+            if (!extraCards.isEmpty()) {
+                playerCards.add(extraCards.remove(0));
+            }
+            List<String> cardValues = playerCards.stream().map(Card::getCode).collect(Collectors.toList());
+
+            playerPiles.put(userIds.get(i), playerCards);
+            pendingPiles.add(deckProvider.addToPileAsync(deckId, userIds.get(i).toString(), cardValues));
+        }
+        for (CompletableFuture<Void> pendingPile : pendingPiles) {
+            DeckProvider.await(pendingPile);
+        }
 
-        HttpResponse<String> createPlayerPileResponse = httpClient.send(createPlayerPileRequest, HttpResponse.BodyHandlers.ofString());
+        gameDeck.setRemainingCardsDealerStack(gameDeck.getRemainingCardsDealerStack() - totalCards);
+        gameDeckCounterService.update(gameDeck);
+
+        // Publish a single draw cards event for all dealt hands
+        DrawCardsEvent drawCardsEvent = new DrawCardsEvent(this, totalCards, gameDeck.getGame().getGameId(), "dealer");
+        eventPublisher.publishEvent(drawCardsEvent);
+
+        return playerPiles;
     }
 
     /**
@@ -243,42 +292,24 @@ public class GameDeckService {
             cardValues.add(card.getCode());
         }
 
-        // Concatenates all drawn cards and adds them to the dealer pile. Note: order gets reverted as such.
-        String joinedCardValues = String.join(",", cardValues);
-
-        String createDealerPileUri = String.format("https://www.deckofcardsapi.com/api/deck/%s/pile/dealer/add/?cards=%s", game.getGameDeck().getDeckID(), joinedCardValues);
-        HttpRequest createDealerPileRequest = buildGetRequest(createDealerPileUri);
-        HttpResponse<String> createDealerPileResponse = httpClient.send(createDealerPileRequest, HttpResponse.BodyHandlers.ofString());
+        // Adds all drawn cards to the dealer pile. Note: order gets reverted as such.
+        deckProvider.addToPile(game.getGameDeck().getDeckID(), DeckProvider.DEALER_PILE, cardValues);
 
-        game.getGameDeck().setDealerPileId("dealer");
-        gameDeckRepository.saveAndFlush(game.getGameDeck());
+        game.getGameDeck().setDealerPileId(DeckProvider.DEALER_PILE);
+        game.getGameDeck().setRemainingCardsDealerStack(cardValues.size());
+        gameDeckCounterService.save(game.getGameDeck());
     }
 
     /**
      * This method shall be called dynamically to update the top three cards in the dealer pile.
+     * The cards are only read, hence the dealer pile and its counters remain untouched.
      * @param game
      * @throws IOException
      * @throws InterruptedException
      */
     public List<Card> peekIntoDealerPile(Game game) throws IOException, InterruptedException {
 
-        GameDeck deck = game.getGameDeck();
-        Integer remainingCards = deck.getRemainingCardsDealerStack();
-        Integer cardNum = 3;
-        if(remainingCards<cardNum)
-            cardNum = remainingCards;
-
-        List<Card> topThreeCards = drawCardsFromDealerPile(deck, cardNum);
-
-        List<String> cardsToBePlacedBackOnDealerPile = new ArrayList<>();
-
-        for (Card card : topThreeCards) {
-            cardsToBePlacedBackOnDealerPile.add(card.getCode());
-        }
-
-        // Place cards back to the dealer pile
-        String returnCards = String.join(",", cardsToBePlacedBackOnDealerPile);
-        returnCardsToPile(game.getGameDeck(), "dealer", returnCards);
+        List<Card> topThreeCards = deckProvider.peekPile(game.getGameDeck().getDeckID(), DeckProvider.DEALER_PILE, 3);
 
         // Publish event for peeking into deck
         PeekIntoDeckEvent peekIntoDeckEvent = new PeekIntoDeckEvent(this, game.getGameId(), game.getCurrentTurn().getUsername(), game.getCurrentTurn().getId(), topThreeCards);
@@ -296,16 +327,17 @@ public class GameDeckService {
      * @throws InterruptedException
      */
     public void returnCardsToPile(GameDeck gameDeck, String pileIdentifier, String cardsToBeReturned) throws IOException, InterruptedException {
-        String returnCardsToPileUri = String.format("https://www.deckofcardsapi.com/api/deck/%s/pile/%s/add/?cards=%s", gameDeck.getDeckID(), pileIdentifier, cardsToBeReturned);
-        HttpRequest returnCardsToPileRequest = buildGetRequest(returnCardsToPileUri);
-        HttpResponse<String> returnCardsToPileResponse = httpClient.send(returnCardsToPileRequest, HttpResponse.BodyHandlers.ofString());
-
-        // Calculate the number of cards to be returned
-        int numCardsToBeReturned = cardsToBeReturned.isEmpty() ? 0 : cardsToBeReturned.split(",").length;
+        List<String> cardCodes = splitCardCodes(cardsToBeReturned);
+        if (cardCodes.isEmpty()) {
+            return;
+        }
+        deckProvider.addToPile(gameDeck.getDeckID(), pileIdentifier, cardCodes);
 
         // Update the remaining dealer cards count
-        gameDeck.setRemainingCardsDealerStack(gameDeck.getRemainingCardsDealerStack() + numCardsToBeReturned);
-        gameDeckRepository.saveAndFlush(gameDeck);
+        if (DeckProvider.DEALER_PILE.equals(pileIdentifier)) {
+            gameDeck.setRemainingCardsDealerStack(gameDeck.getRemainingCardsDealerStack() + cardCodes.size());
+            gameDeckCounterService.update(gameDeck);
+        }
     }
 
     /**
@@ -318,22 +350,17 @@ public class GameDeckService {
      */
     public void removeCardsFromPlayerPile(Game game, Long userId, String cardsToBeRemoved) throws IOException, InterruptedException {
 
-        String removeCardsFromPlayerPileUri = String.format("https://www.deckofcardsapi.com/api/deck/%s/pile/%s/draw/?cards=%s", game.getGameDeck().getDeckID(), userId, cardsToBeRemoved);
-        HttpRequest removeCardsFromPlayerPileRequest = buildGetRequest(removeCardsFromPlayerPileUri);
-
         try {
-            HttpResponse<String> removeCardsFromPlayerPileResponse = httpClient.send(removeCardsFromPlayerPileRequest, HttpResponse.BodyHandlers.ofString());
-
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode rootNode = objectMapper.readTree(removeCardsFromPlayerPileResponse.body());
-
             // Assert that the user held possessed the cards he played
-            if (rootNode.has("success") && !rootNode.get("success").asBoolean()) {
-                String errorMessage = rootNode.has("error") ? rootNode.get("error").asText() : "Unknown error";
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Move is invalid, user doesn't poses the card(s) played");
+            deckProvider.drawSpecificFromPile(game.getGameDeck().getDeckID(), userId.toString(), splitCardCodes(cardsToBeRemoved));
+        } catch (ResponseStatusException e) {
+            if (e.getStatus() != HttpStatus.BAD_REQUEST) {
+                throw e;
             }
-        } catch (IOException | InterruptedException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Move is invalid, user doesn't poses the card(s) played");
+        } catch (IOException e) {
+            // A failure of the deck doesn't tell anything about the validity of the move
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Deck service unavailable, please retry the move");
         }
     }
 
@@ -348,9 +375,7 @@ public class GameDeckService {
 
         User player = userService.getUserById(userId);
 
-        String placeCardsOnPlayPileUri = String.format("https://www.deckofcardsapi.com/api/deck/%s/pile/play/add/?cards=%s", game.getGameDeck().getDeckID(), cardsPlayed);
-        HttpRequest placeCardsOnPlayPileRequest = buildGetRequest(placeCardsOnPlayPileUri);
-        HttpResponse<String> placeCardsOnPlayPileResponse = httpClient.send(placeCardsOnPlayPileRequest, HttpResponse.BodyHandlers.ofString());
+        deckProvider.addToPile(game.getGameDeck().getDeckID(), DeckProvider.PLAY_PILE, splitCardCodes(cardsPlayed));
 
         // Publish event(s)
         for (Card card: cards) {
@@ -360,7 +385,8 @@ public class GameDeckService {
     }
 
     /**
-     * Allows returning of an explosion card to the dealer pile at an arbitrary location
+     * Allows returning of an explosion card to the dealer pile at an arbitrary location.
+     * The card is inserted directly at its position, no other card of the pile is moved.
      * @param game object in which the card is to be returned
      * @param location at which the returned explosion card is to be placed
      * 69 or an integer smaller than -1 -> random location
@@ -373,41 +399,29 @@ public class GameDeckService {
      */
     public void returnExplosionCardToDealerPile(Game game, Integer location, Card cardToBeReturned) throws IOException, InterruptedException {
 
-        String jsonResponse = getRemainingPileStats(game.getGameDeck(), 1L);
-        Map<String, Integer> parsedPileCardCounts = parsePileCardCounts(jsonResponse);
+        GameDeck gameDeck = game.getGameDeck();
+        Map<String, Integer> parsedPileCardCounts = getPileCardCounts(gameDeck);
 
-        Integer dealerCount = parsedPileCardCounts.get("dealer");
+        Integer dealerCount = parsedPileCardCounts.getOrDefault(DeckProvider.DEALER_PILE, 0);
 
+        // Number of cards remaining above the explosion card
+        int depth;
         // Random placement in the pile
         if (location == 69 || location < -1) {
-            returnCardsToPile(game.getGameDeck(), "dealer", cardToBeReturned.getCode());
-            shuffleCardsInDealerPile(game.getGameDeck());
-        }
-        // Return to Top of Stack
-        else if (location == 0) {
-            returnCardsToPile(game.getGameDeck(), "dealer", cardToBeReturned.getCode());
+            depth = ThreadLocalRandom.current().nextInt(dealerCount + 1);
         }
         // Return to Bottom of Stack
         else if (location == -1 || dealerCount <= location) {
-            if (dealerCount == 0) {
-                returnCardsToPile(game.getGameDeck(), "dealer", cardToBeReturned.getCode());
-            } else {
-                List<Card> drawnDeck = drawCardsFromDealerPile(game.getGameDeck(), dealerCount);
-                Collections.reverse(drawnDeck);
-                List<String> cardsToBePlacedBackOnDealerPile = drawnDeck.stream().map(Card::getCode).collect(Collectors.toList());
-
-                String returnCards = cardToBeReturned.getCode() + "," + String.join(",", cardsToBePlacedBackOnDealerPile);
-                returnCardsToPile(game.getGameDeck(), "dealer", returnCards);
-            }
+            depth = dealerCount;
         }
+        // Return to Top of Stack (0) or an exact placement
         else {
-            List<Card> drawnCards = drawCardsFromDealerPile(game.getGameDeck(), location);
-            Collections.reverse(drawnCards);
-            List<String> cardsToBePlacedBackOnDealerPile = drawnCards.stream().map(Card::getCode).collect(Collectors.toList());
-
-            String returnCards = cardToBeReturned.getCode() + "," + String.join(",", cardsToBePlacedBackOnDealerPile);
-            returnCardsToPile(game.getGameDeck(),"dealer", returnCards);
+            depth = location;
         }
+        deckProvider.insertIntoPile(gameDeck.getDeckID(), DeckProvider.DEALER_PILE, cardToBeReturned.getCode(), depth);
+
+        gameDeck.setRemainingCardsDealerStack(dealerCount + 1);
+        gameDeckCounterService.update(gameDeck);
 
         // Publish event for returning explosion card
         ExplosionReturnedToDeckEvent explosionReturnedToDeckEvent = new ExplosionReturnedToDeckEvent(this, game.getGameId(), game.getCurrentTurn().getUsername());
@@ -424,15 +438,14 @@ public class GameDeckService {
      * @throws InterruptedException
      */
     public List<Card> removeSpecificCardsFromPile(GameDeck gameDeck, String cardsToRemove, String pileType) throws IOException, InterruptedException {
-        String uri = String.format("https://deckofcardsapi.com/api/deck/%s/pile/%s/draw/?cards=%s", gameDeck.getDeckID(), pileType, cardsToRemove);
-        HttpRequest request = buildGetRequest(uri);
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        List<Card> cards = deckProvider.drawSpecificFromPile(gameDeck.getDeckID(), pileType, splitCardCodes(cardsToRemove));
 
-        List<String> cardsPath = List.of("cards");
-        List<String> additionalInfo = Arrays.asList("piles", pileType);
-        List<Card> cards = parseCards(gameDeck, response.body(), "deck_id", cardsPath, additionalInfo);
+        if (DeckProvider.DEALER_PILE.equals(pileType)) {
+            gameDeck.setRemainingCardsDealerStack(gameDeck.getRemainingCardsDealerStack() - cards.size());
+            gameDeckCounterService.update(gameDeck);
+        }
 
-        return saveCards(cards);
+        return cards;
     }
 
 
@@ -446,23 +459,29 @@ public class GameDeckService {
      * @throws InterruptedException
      */
     public Card drawCardFromPlayerPile(GameDeck gameDeck, Long userId, @Nullable String cardId) throws IOException, InterruptedException {
-        String baseUri = "https://www.deckofcardsapi.com/api/deck/%s/pile/%s/draw/";
-        String uri;
+        List<Card> cards;
 
         if (cardId != null && !cardId.isEmpty()) {
-            uri = String.format(baseUri + "?cards=%s", gameDeck.getDeckID(), userId, cardId);
+            cards = deckProvider.drawSpecificFromPile(gameDeck.getDeckID(), userId.toString(), List.of(cardId));
         } else {
-            uri = String.format(baseUri + "random/", gameDeck.getDeckID(), userId);
+            cards = deckProvider.drawRandomFromPile(gameDeck.getDeckID(), userId.toString());
         }
-
-        HttpRequest request = buildGetRequest(uri);
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        List<String> cardsPath = List.of("cards");
-        List<Card> cards = parseCards(gameDeck, response.body(), "deck_id", cardsPath, null);
         return cards.get(0);
     }
 
+    /**
+     * Moves a random card from the pile of one player to the pile of another player (stealing mechanism)
+     * @param gameDeck indicating the playing deck
+     * @param fromUserId indicating the user pile the card is taken from
+     * @param toUserId indicating the user pile the card is placed on
+     * @return the stolen card
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public Card stealRandomCard(GameDeck gameDeck, Long fromUserId, Long toUserId) throws IOException, InterruptedException {
+        return deckProvider.moveRandomCard(gameDeck.getDeckID(), fromUserId.toString(), toUserId.toString());
+    }
+
     /**
      * Helper method that validates if the player is in posesion of a defuse card
      * @param gameDeck indicating the playing deck
@@ -473,149 +492,131 @@ public class GameDeckService {
      */
     public String exploreDefuseCardInPlayerPile(GameDeck gameDeck, Long userId) throws IOException, InterruptedException {
 
-        String listCardInPlayerPileUri = String.format("https://www.deckofcardsapi.com/api/deck/%s/pile/%s/list/", gameDeck.getDeckID(), userId);
-        HttpRequest listCardInPlayerPileRequest = buildGetRequest(listCardInPlayerPileUri);
-        HttpResponse<String> drawCardFromPlayerResponse = httpClient.send(listCardInPlayerPileRequest, HttpResponse.BodyHandlers.ofString());
+        long defuseCards = deckProvider.pileMask(gameDeck.getDeckID(), userId.toString()) & CardMask.ofType(CardType.DEFUSE);
 
-        List<String> cardsPath = Arrays.asList("piles", userId.toString(), "cards");
-        List<Card> cards = parseCards(gameDeck,drawCardFromPlayerResponse.body(), "deck_id", cardsPath, null);
-
-        for (Card card : cards) {
-            if ("defuse".equals(card.getInternalCode())) {
-                return card.getCode();
-            }
+        if (defuseCards == CardMask.EMPTY) {
+            return null;
         }
-
-        return null;
+        return CardCodes.code(CardMask.first(defuseCards));
     }
 
 
     /**
-     * Helper method to obtain statistics about a pile
+     * Helper method to obtain the number of remaining cards of all piles.
+     * The counts are tracked by the deck provider itself, hence no request to a remote deck is needed.
      * @param gameDeck indicating the playing deck
-     * @param userId indicating the user the pile belongs to
-     * @return Response body of api request
+     * @return map from pile name ('dealer', 'play' or a userId) to remaining cards
      * @throws IOException
      * @throws InterruptedException
      */
-    public String getRemainingPileStats(GameDeck gameDeck, Long userId) throws IOException, InterruptedException {
-        String remainingCardStatsUri = String.format("https://www.deckofcardsapi.com/api/deck/%s/pile/%s/list/", gameDeck.getDeckID(), userId);
-        HttpRequest remainingCardsStatsRequest = buildGetRequest(remainingCardStatsUri);
-        HttpResponse<String> remainingCardsStatsResponse = httpClient.send(remainingCardsStatsRequest, HttpResponse.BodyHandlers.ofString());
-
-        return remainingCardsStatsResponse.body();
+    public Map<String, Integer> getPileCardCounts(GameDeck gameDeck) throws IOException, InterruptedException {
+        return deckProvider.countPiles(gameDeck.getDeckID());
     }
 
-
     /**
-     * Returns top card in the played cards pile
+     * Re-reads the number of remaining cards of all piles from the deck and corrects the locally tracked counts
+     * as well as the dealer counter of the deck
      * @param gameDeck indicating the playing deck
-     * @return List of cards objects
+     * @return map from pile name ('dealer', 'play' or a userId) to remaining cards
      * @throws IOException
      * @throws InterruptedException
      */
-    public List<Card> exploreTopCardPlayPile(GameDeck gameDeck) throws IOException, InterruptedException{
-        String remainingPlayPileCards = String.format("https://www.deckofcardsapi.com/api/deck/%s/pile/play/list/", gameDeck.getDeckID());
-        HttpRequest remainingCardsStatsRequest = buildGetRequest(remainingPlayPileCards);
-        HttpResponse<String> remainingPlayCardsResponse = httpClient.send(remainingCardsStatsRequest, HttpResponse.BodyHandlers.ofString());
+    public Map<String, Integer> reconcilePileCardCounts(GameDeck gameDeck) throws IOException, InterruptedException {
+        Map<String, Integer> pileCardCounts = deckProvider.reconcilePiles(gameDeck.getDeckID());
 
-        List<String> cardsPath = Arrays.asList("piles", "play", "cards");
-        List<Card> cards = parseCards(gameDeck, remainingPlayCardsResponse.body(), "deck_id", cardsPath, null);
+        gameDeck.setRemainingCardsDealerStack(pileCardCounts.getOrDefault(DeckProvider.DEALER_PILE, 0));
+        gameDeckCounterService.update(gameDeck);
 
-        if (cards.isEmpty()){
-            return null;
-        }
-        return saveCards(cards);
+        return pileCardCounts;
     }
 
-
     /**
-     * Helper method to obtain remaining cards of a pile
-     * @param jsonResponse response body of a request to the cards api
-     * @return Integer - Remaining cards
-     * @throws IOException
+     * Releases the piles of a deck once its game is over
+     * @param gameDeck indicating the playing deck
      */
-    public Map<String, Integer> parsePileCardCounts(String jsonResponse) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode rootNode = objectMapper.readTree(jsonResponse);
+    public void discardDeck(@Nullable GameDeck gameDeck) {
+        if (gameDeck != null) {
+            gameDeckCounterService.flush(gameDeck);
+            deckProvider.discardDeck(gameDeck.getDeckID());
+        }
+    }
 
-        JsonNode pilesNode = rootNode.path("piles");
-        Map<String, Integer> pileCardCounts = new HashMap<>();
 
-        if (pilesNode.isMissingNode()) {
-            throw new IllegalStateException("The 'piles' node is missing");
+    /**
+     * Assigns the deck of a game loaded from the database to the log of the game and recreates its piles from the log
+     * if the deck provider no longer holds them, e.g. after a restart of the server with decks kept in memory
+     * @param game whose deck shall be recovered
+     */
+    public void recoverDeck(Game game) {
+        GameDeck gameDeck = game.getGameDeck();
+        if (gameDeck == null) {
+            return;
+        }
+        gameLogService.bind(game.getGameId(), gameDeck.getDeckID());
+        Map<String, List<String>> piles = gameLogService.getPiles(game.getGameId());
+        if (!piles.isEmpty() && deckProvider.restoreDeck(gameDeck.getDeckID(), piles)) {
+            log.info("Restored deck {} of game {} from its log", gameDeck.getDeckID(), game.getGameId());
         }
+    }
 
-        pilesNode.fields().forEachRemaining(pile -> {
-            String pileName = pile.getKey();
-            JsonNode pileDetails = pile.getValue();
-            int remainingCards = pileDetails.path("remaining").asInt();
-            pileCardCounts.put(pileName, remainingCards);
-        });
+    /**
+     * Opens a scope for the duration of a move, in which a pile that is listed several times
+     * (e.g. the play pile for the game state and the explosion handling) is only read once
+     * @return the scope, to be closed at the end of the move
+     */
+    public DeckProvider.ReadScope openMoveScope() {
+        return deckProvider.openReadScope();
+    }
 
-        return pileCardCounts;
+    /**
+     * Writes the pile counters of a deck altered during a move with a single update
+     * @param gameDeck whose counters shall be persisted
+     */
+    public void flushCounters(GameDeck gameDeck) {
+        gameDeckCounterService.flush(gameDeck);
     }
 
     /**
-     * Method that reloads a designated player pile, used to reload the state of a game after connectivity issues.
-     * @param gameDeck
-     * @param userId
+     * Restores counters of a freshly loaded deck that were altered by a previous move but not yet persisted
+     * @param gameDeck loaded from the database, may be null if the game has no deck yet
+     */
+    public void applyPendingCounters(@Nullable GameDeck gameDeck) {
+        gameDeckCounterService.applyPending(gameDeck);
+    }
+
+    /**
+     * Returns top card in the played cards pile. Only the top card is read, hence the cost doesn't grow
+     * with the number of cards played so far.
+     * @param gameDeck indicating the playing deck
+     * @return List containing the top card, null if no card was played yet
      * @throws IOException
      * @throws InterruptedException
      */
-    public void reloadPlayerPile(GameDeck gameDeck, Long userId) throws IOException, InterruptedException {
-        String listCardInPlayerPileUri = String.format("https://www.deckofcardsapi.com/api/deck/%s/pile/%s/list/", gameDeck.getDeckID(), userId);
-        HttpRequest listCardInPlayerPileRequest = buildGetRequest(listCardInPlayerPileUri);
-        HttpResponse<String> drawCardFromPlayerResponse = httpClient.send(listCardInPlayerPileRequest, HttpResponse.BodyHandlers.ofString());
-
-        List<String> cardsPath = Arrays.asList("piles", userId.toString(), "cards");
-        List<Card> cards = parseCards(gameDeck,drawCardFromPlayerResponse.body(), "deck_id", cardsPath, null);
+    public List<Card> exploreTopCardPlayPile(GameDeck gameDeck) throws IOException, InterruptedException{
+        List<Card> cards = deckProvider.peekPile(gameDeck.getDeckID(), DeckProvider.PLAY_PILE, 1);
 
-        PlayerCardEvent playerCardEvent = new PlayerCardEvent(this, userId, gameDeck.getGame().getGameId(), cards);
-        eventPublisher.publishEvent(playerCardEvent);
+        if (cards.isEmpty()){
+            return null;
+        }
+        return cards;
     }
 
 
     /**
-     * General method to parse card data from different types of JSON responses.
-     * @param gameDeck the card deck object that is used for the game session
-     * @param jsonResponse the JSON response string.
-     * @param deckIdKey the JSON key to fetch deck ID.
-     * @param cardsKeyPath the JSON path to the cards array.
-     * @param additionalPileInfo optional additional JSON path for pile-specific information.
-     * @return List of Card objects.
+     * Method that reloads a designated player pile, used to reload the state of a game after connectivity issues.
+     * The pile is read from the log of the game, the deck provider is only asked for games without recorded piles.
+     * @param gameDeck
+     * @param userId
      * @throws IOException
+     * @throws InterruptedException
      */
-    public List<Card> parseCards(GameDeck gameDeck, String jsonResponse, String deckIdKey, List<String> cardsKeyPath, @Nullable List<String> additionalPileInfo) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode rootNode = objectMapper.readTree(jsonResponse);
-
-        String deckId = rootNode.get(deckIdKey).asText();
-        JsonNode cardsNode = rootNode;
-        for (String key : cardsKeyPath) {
-            cardsNode = cardsNode.path(key);
-        }
-        List<Card> cards = new ArrayList<>();
-
-        for (JsonNode cardNode : cardsNode) {
-            Card card = new Card();
-            card.setCode(cardNode.get("code").asText());
-            card.setSuit(cardNode.get("suit").asText());
-            card.setImage(cardNode.get("image").asText());
-            card.setDeckId(deckId);
-            cards.add(card);
-        }
-
-        if (additionalPileInfo != null) {
-            JsonNode additionalNode = rootNode;
-            for (String key : additionalPileInfo) {
-                additionalNode = additionalNode.path(key);
-            }
-            int remainingCards = additionalNode.path("remaining").asInt();
-            gameDeck.setRemainingCardsDealerStack(remainingCards);
-            gameDeckRepository.saveAndFlush(gameDeck);
-        }
+    public void reloadPlayerPile(GameDeck gameDeck, Long userId) throws IOException, InterruptedException {
+        Map<String, List<String>> piles = gameLogService.getPiles(gameDeck.getGame().getGameId());
+        List<Card> cards = piles.isEmpty()
+                ? deckProvider.listPile(gameDeck.getDeckID(), userId.toString())
+                : CardCatalog.resolve(piles.getOrDefault(userId.toString(), List.of()));
 
-        return saveCards(cards);
+        PlayerCardEvent playerCardEvent = new PlayerCardEvent(this, userId, gameDeck.getGame().getGameId(), cards);
+        eventPublisher.publishEvent(playerCardEvent);
     }
-}
+}
\ No newline at end of file
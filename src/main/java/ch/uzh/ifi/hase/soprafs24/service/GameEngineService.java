@@ -1,6 +1,8 @@
 package ch.uzh.ifi.hase.soprafs24.service;
 
 import ch.uzh.ifi.hase.soprafs24.constant.GameState;
+import ch.uzh.ifi.hase.soprafs24.deck.CardCatalog;
+import ch.uzh.ifi.hase.soprafs24.engine.TurnRing;
 import ch.uzh.ifi.hase.soprafs24.entity.Card;
 import ch.uzh.ifi.hase.soprafs24.entity.Game;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
@@ -42,6 +44,7 @@ public class GameEngineService {
 
     private GameService gameService;
 
+    private GameSessionService gameSessionService;
 
     @Autowired
     private ApplicationEventPublisher eventPublisher;
@@ -54,7 +57,8 @@ public class GameEngineService {
                              GameDeckService gameDeckService,
                              UserService userService,
                              ApplicationEventPublisher eventPublisher,
-                                GameService gameService) {
+                                GameService gameService,
+                             GameSessionService gameSessionService) {
 
         this.gameRepository = gameRepository;
         this.gameDeckRepository = gameDeckRepository;
@@ -64,14 +68,22 @@ public class GameEngineService {
         this.userService = userService;
         this.eventPublisher = eventPublisher;
         this.gameService = gameService;
+        this.gameSessionService = gameSessionService;
     }
 
     /**
-     * Returns a game instance based on an id
+     * Returns a game instance based on an id, an ongoing game is served from its session without accessing the database
      * @param gameId referencing a Game
      * @return Game object
      */
     public Game findGameById(Long gameId) {
+        Optional<Game> session = gameSessionService.find(gameId);
+        if (session.isPresent()) {
+            return session.get();
+        }
+
+        // A snapshot of an ended session may not be flushed yet
+        gameSessionService.flush(gameId);
         Optional<Game> optionalGame = this.gameRepository.findByGameId(gameId);
 
         // Ensure that the gameId is valid
@@ -79,22 +91,28 @@ public class GameEngineService {
             log.info("Invalid GameId provided");
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid GameId provided");
         }
-        return optionalGame.get();
+        Game game = optionalGame.get();
+
+        // Counters of the previous move may not be flushed yet
+        gameDeckService.applyPendingCounters(game.getGameDeck());
+        if (game.getState() == GameState.ONGOING) {
+            // The deck may have been lost on a restart of the server
+            gameDeckService.recoverDeck(game);
+            gameSessionService.register(game);
+        }
+        return game;
     }
 
     /**
-     * Helper method to get the next player whose turn it is
-     * @param currentUser, a user object of the user terminating his move
-     * @param players a linked hash set of the players that are participating in a game
-     * @return
+     * Helper method to get the turn order of a game, built once the game is loaded and kept with it afterwards
+     * @param game an ongoing game
+     * @return TurnRing of the game
      */
-    private User getNextPlayer(User currentUser, List<User> players) {
-        if (players.isEmpty() || (players.size() == 1 && players.contains(currentUser))) {
-            return null;
+    private TurnRing getTurnRing(Game game) {
+        if (game.getTurnRing() == null) {
+            game.setTurnRing(new TurnRing(game.getPlayers(), game.getCurrentTurn(), game.isAttacked(), game.isRepeatTurn()));
         }
-        int currentIndex = players.indexOf(currentUser);
-        int nextIndex = (currentIndex + 1) % players.size();
-        return players.get(nextIndex);
+        return game.getTurnRing();
     }
 
     /**
@@ -128,6 +146,10 @@ public class GameEngineService {
         // Fetch all active players
         List<User> players = currentGame.getPlayers();
 
+        // Create individual player piles, each with 5 cards and one defusion card
+        List<Long> playerIds = players.stream().map(User::getId).toList();
+        Map<Long, List<Card>> playerPiles = gameDeckService.dealHands(currentGame.getGameDeck(), playerIds, 5, defusions);
+
         for (User player: players) {
 
             GameStartEvent gameStartEvent = new GameStartEvent(this, currentGame.getGameId(), player.getId());
@@ -138,22 +160,8 @@ public class GameEngineService {
 
             stats.setLastPlayed(new Date());
 
-            // Create individual player piles
-            List<Card> playerCards = gameDeckService.drawCardsFromDealerPile(currentGame.getGameDeck(), 5);
-            List<String> cardValues = new ArrayList<>();
-
-            for (Card card : playerCards) {
-                cardValues.add(card.getCode());
-            }
-            // Add one defusion card to the player pile
-            if (!defusions.isEmpty()) {
-                Card defusionCard = defusions.remove(0);
-                cardValues.add(defusionCard.getCode());
-                playerCards.add(defusionCard);
-            }
-            gameDeckService.createPlayerPile(currentGame.getGameDeck(), player.getId(), String.join(",", cardValues));
-
             // Publish cards to user through websocket
+            List<Card> playerCards = playerPiles.getOrDefault(player.getId(), new ArrayList<>());
             PlayerCardEvent playerCardEvent = new PlayerCardEvent(this, player.getId(), gameId, playerCards);
             eventPublisher.publishEvent(playerCardEvent);
         }
@@ -180,6 +188,9 @@ public class GameEngineService {
             gameRepository.saveAndFlush(currentGame);
         }
 
+        // Keep the started game in memory for the upcoming moves
+        gameSessionService.register(currentGame);
+
         // Publish event whose turn it is
         YourTurnEvent yourTurnEvent = new YourTurnEvent(this, currentGame.getCurrentTurn().getId(), currentGame.getGameId(), currentGame.getCurrentTurn().getUsername());
         eventPublisher.publishEvent(yourTurnEvent);
@@ -209,23 +220,15 @@ public class GameEngineService {
         EndTurnEvent endTurnEvent = new EndTurnEvent(this, terminatingUser.getUsername(), gameId, userId);
         eventPublisher.publishEvent(endTurnEvent);
 
-        User nextPlayer = getNextPlayer(terminatingUser, currentGame.getPlayers());
-
-        if (currentGame.isRepeatTurn()) {
-            nextPlayer = terminatingUser;
-            currentGame.setRepeatTurn(false);
-            gameRepository.saveAndFlush(currentGame);
-        }
-
-        if (currentGame.isAttacked()) {
-            currentGame.setRepeatTurn(true);
-            currentGame.setAttacked(false);
-            gameRepository.saveAndFlush(currentGame);
-        }
+        // An attacked player keeps the turn once more, the counters are mirrored to the game to be written with it
+        TurnRing turnRing = getTurnRing(currentGame);
+        User nextPlayer = turnRing.endTurn();
+        currentGame.setAttacked(turnRing.isAttacked());
+        currentGame.setRepeatTurn(turnRing.isRepeatTurn());
 
         if (nextPlayer != null) {
             currentGame.setCurrentTurn(nextPlayer);
-            gameRepository.saveAndFlush(currentGame);
+            gameSessionService.update(currentGame);
         } else {
             terminatingGame(gameId); // Just one user left, initiate end of game and evaluation
         }
@@ -279,9 +282,9 @@ public class GameEngineService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User can only leave ongoing games");
         }
 
-        List<User> players = currentGame.getPlayers();
+        TurnRing turnRing = getTurnRing(currentGame);
 
-        if (!players.contains(terminatingUser)) {
+        if (!turnRing.contains(userId)) {
             log.info("User is not part of the game");
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User is not part of the game");
         }
@@ -294,10 +297,11 @@ public class GameEngineService {
         // Add loosing user to the leaderboard
         gameService.addPlayerLeaderboard(currentGame, terminatingUser.getUsername());
 
-        // Remove from the player list for the game
-        players.remove(terminatingUser);
-        gameRepository.saveAndFlush(currentGame);
-        if (players.size() <= 1) {
+        // Remove from the turn order and the player list for the game
+        turnRing.remove(userId);
+        currentGame.getPlayers().removeIf(player -> userId.equals(player.getId()));
+        gameSessionService.update(currentGame);
+        if (turnRing.size() <= 1) {
             // terminate game
             terminatingGame(gameId);
         }
@@ -323,20 +327,30 @@ public class GameEngineService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Still more than one active player in the game session found");
         }
 
-        // Set game state to finished
-        gameToBeTerminated.setState(GameState.FINISHED);
-
         // Determine winning player
         User winningUser = players.iterator().next();
-        gameToBeTerminated.setWinningPlayer(winningUser);
-        winningUser.getUserStats().setGamesWon(winningUser.getUserStats().getGamesWon()+1);
 
         // Retrieve leaderboard
         List<String> leaderboard = gameToBeTerminated.getLeaderboard();
         leaderboard.add(winningUser.getUsername());
+
+        // A finished game is written immediately. The game and its players may have been loaded at the start of the
+        // game, hence the game and the winner's statistics are written onto rows read anew.
+        if (gameSessionService.finish(gameToBeTerminated, winningUser.getId()).isEmpty()) {
+            return;
+        }
         log.info(String.format("Game %s finished with following leaderboard %s", gameId, String.join(",", leaderboard)));
 
-        gameRepository.saveAndFlush(gameToBeTerminated);
+        // Set game state to finished
+        gameToBeTerminated.setState(GameState.FINISHED);
+        gameToBeTerminated.setWinningPlayer(winningUser);
+
+        User winner = userRepository.findUserById(winningUser.getId());
+        winner.getUserStats().setGamesWon(winner.getUserStats().getGamesWon() + 1);
+        userRepository.save(winner);
+
+        // Release the piles of the finished game
+        gameDeckService.discardDeck(gameToBeTerminated.getGameDeck());
 
         // Publish end game event
         EndGameEvent endGameEvent = new EndGameEvent(this, winningUser.getUsername(), gameId, leaderboard);
@@ -353,7 +367,10 @@ public class GameEngineService {
         List<Card> cardsPlayed = new ArrayList<>();
 
         for (String cardId : cardsToBeTransformed) {
-            Card transformedCard = this.cardRepository.findByCode(cardId);
+            Card transformedCard = CardCatalog.get(cardId);
+            if (transformedCard == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Card %s is not part of the deck", cardId));
+            }
             cardsPlayed.add(transformedCard);
         }
         return cardsPlayed;
@@ -426,8 +443,8 @@ public class GameEngineService {
      * @throws InterruptedException
      */
     public void handleAttackCard(Game game, Long userId) throws IOException, InterruptedException {
-        User currentUser = userRepository.findUserById(userId);
-        User nextUser = getNextPlayer(currentUser, game.getPlayers());
+        TurnRing turnRing = getTurnRing(game);
+        User nextUser = turnRing.nextPlayer();
 
         String nextUserUserName = "placeholder";
 
@@ -435,9 +452,10 @@ public class GameEngineService {
             nextUserUserName = nextUser.getUsername();
         }
         // Make the next user to grab two cards from pile
-        game.setAttacked(true);
-        game.setRepeatTurn(false);
-        gameRepository.saveAndFlush(game);
+        turnRing.attack();
+        game.setAttacked(turnRing.isAttacked());
+        game.setRepeatTurn(turnRing.isRepeatTurn());
+        gameSessionService.update(game);
 
         // To Do - Trigger Attack Event but on next user channel.
         AttackEvent attackEvent = new AttackEvent(this, game.getGameId(), game.getCurrentTurn().getUsername(), nextUserUserName);
@@ -466,17 +484,14 @@ public class GameEngineService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Targeted User is not part of the game");
         }
 
-        // Grab a random card
-        Card randomCard = gameDeckService.drawCardFromPlayerPile(game.getGameDeck(), targetUserId, null);
+        // Grab a random card and give it to triggering user
+        Card randomCard = gameDeckService.stealRandomCard(game.getGameDeck(), targetUserId, userId);
         List<Card> randomCards = new ArrayList<>(List.of(randomCard));
 
         // Publish a steal card event
         StealCardEvent stealCardEvent = new StealCardEvent(this, targetUserId, game.getGameId(), randomCards);
         eventPublisher.publishEvent(stealCardEvent);
 
-        // Give it to triggering user
-        gameDeckService.returnCardsToPile(game.getGameDeck(), userId.toString(), randomCard.getCode());
-
         // Publish a draw cards event
         PlayerCardEvent playerCardEvent = new PlayerCardEvent(this, userId, game.getGameId(), randomCards);
         eventPublisher.publishEvent(playerCardEvent);
@@ -539,7 +554,8 @@ public class GameEngineService {
         if (defuseCard != null) {
             // send placementRequestEvent to client
 
-            // put explosion card to playPile
+            // put explosion card to playPile, taking it from the pile of the player it was drawn to
+            gameDeckService.removeCardsFromPlayerPile(game, userId, explosionId);
             Card explosionCard = new Card();
             explosionCard.setCode(explosionId);
             explosionCard.setInternalCode("explosion");
@@ -570,13 +586,26 @@ public class GameEngineService {
      * @throws InterruptedException
      */
     public void dispatchGameState(Long gameId, Long userId) throws IOException, InterruptedException {
+        dispatchGameState(gameId, userId, false);
+    }
+
+    /**
+     * Returns current game state
+     * @param gameId referencing a game instance
+     * @param userId referencing the user that triggered the action
+     * @param fullSnapshot whether the players receive the whole state instead of the changes since the last state
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void dispatchGameState(Long gameId, Long userId, boolean fullSnapshot) throws IOException, InterruptedException {
         Game game = findGameById(gameId);
-        String jsonResponse = gameDeckService.getRemainingPileStats(game.getGameDeck(), userId);
-        Map<String, Integer> parsedPileCardCounts = gameDeckService.parsePileCardCounts(jsonResponse);
+        Map<String, Integer> parsedPileCardCounts = gameDeckService.getPileCardCounts(game.getGameDeck());
 
         Integer dealerCount = parsedPileCardCounts.get("dealer");
         game.getGameDeck().setRemainingCardsDealerStack(dealerCount);
-        gameDeckRepository.saveAndFlush(game.getGameDeck());
+
+        // The game state concludes a move, hence all counter changes of the move are written at once
+        gameDeckService.flushCounters(game.getGameDeck());
 
         String activePlayer = game.getCurrentTurn().getUsername();
 
@@ -599,6 +628,7 @@ public class GameEngineService {
 
         // Publish Event
         GameStateEvent gameStateEvent = new GameStateEvent(this, gameId,topCardPlayPile, parsedPileCardCounts, numberPlayers, usernames, userIds, avatars, activePlayer);
+        gameStateEvent.setFullSnapshot(fullSnapshot);
         eventPublisher.publishEvent(gameStateEvent);
     }
 
@@ -623,8 +653,11 @@ public class GameEngineService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Targeted User is not part of the game");
         }
 
+        // A reload indicates that the client lost track of the game, hence the pile counts are verified against the deck
+        gameDeckService.reconcilePileCardCounts(game.getGameDeck());
         gameDeckService.reloadPlayerPile(game.getGameDeck(), userId);
-        dispatchGameState(gameId,userId);
+        // The reloading client lost track of the state, hence it is sent as a whole
+        dispatchGameState(gameId, userId, true);
 
         YourTurnEvent yourTurnEvent = new YourTurnEvent(this, game.getCurrentTurn().getId(), game.getGameId(), game.getCurrentTurn().getUsername());
         eventPublisher.publishEvent(yourTurnEvent);
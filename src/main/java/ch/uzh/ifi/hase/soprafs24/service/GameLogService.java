@@ -0,0 +1,379 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.GameLogEntryType;
+import ch.uzh.ifi.hase.soprafs24.deck.PileRecorder;
+import ch.uzh.ifi.hase.soprafs24.entity.GameLogEntry;
+import ch.uzh.ifi.hase.soprafs24.event.GameEvent;
+import ch.uzh.ifi.hase.soprafs24.repository.GameLogRepository;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Append-only log of every game: the commands of the players, the events raised by the engine and every change of
+ * a pile, numbered per game. Every few pile changes a snapshot of all piles is appended, such that the piles of a game
+ * are rebuilt from the last snapshot and the changes after it. Reloading a game, restoring a deck lost on a restart
+ * and analysing a finished game read the log instead of the deck provider.
+ *
+ * The piles of the games being played are kept in memory; entries are written in batches by a periodic flush. The log
+ * of a finished game is removed from memory once all its entries are written, hence a log read from the repository
+ * is complete without writing the entries of other games first.
+ * Crash semantics: entries appended after the last flush are lost, i.e. a deck restored after a crash may lack the
+ * changes of the last flush interval. Pending entries are flushed on an orderly shutdown.
+ */
+@Service
+@Slf4j
+public class GameLogService implements PileRecorder {
+
+    private final GameLogRepository gameLogRepository;
+
+    private final int snapshotInterval;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .addMixIn(ApplicationEvent.class, EventMixIn.class);
+
+    private final Map<Long, GameLog> logs = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> gamesByDeck = new ConcurrentHashMap<>();
+
+    // Entries appended since the last flush, per game
+    private final Map<Long, Queue<GameLogEntry>> pendingEntries = new ConcurrentHashMap<>();
+
+    private final Set<Long> discardedGames = ConcurrentHashMap.newKeySet();
+
+    // Games discarded before the previous flush, removed from memory by the next one
+    private Set<Long> closingGames = Set.of();
+
+    /**
+     * Leaves out the service that raised an event
+     */
+    @JsonIgnoreProperties({"source", "timestamp"})
+    private abstract static class EventMixIn {
+    }
+
+    /**
+     * Tail of the log of a game held in memory: the last sequence number and the piles after the last entry
+     */
+    private static class GameLog {
+
+        private long sequence;
+
+        private int changesSinceSnapshot;
+
+        // Removed from memory, entries are appended to the log opened anew
+        private boolean closed;
+
+        private final Map<String, List<String>> piles = new LinkedHashMap<>();
+    }
+
+    @Autowired
+    public GameLogService(GameLogRepository gameLogRepository, @Value("${game.log.snapshot-interval:50}") int snapshotInterval) {
+        this.gameLogRepository = gameLogRepository;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Assigns the changes of the piles of a deck to the log of a game
+     * @param gameId referencing a Game
+     * @param deckId of the deck of the game
+     */
+    public void bind(Long gameId, String deckId) {
+        gamesByDeck.put(deckId, gameId);
+    }
+
+    /**
+     * Records a command received from a player
+     * @param gameId of the game the command alters
+     * @param userId of the user issuing the command
+     * @param description of the command
+     */
+    public void recordCommand(Long gameId, Long userId, String description) {
+        GameLogEntry entry = newEntry(GameLogEntryType.COMMAND);
+        entry.setUserId(userId);
+        entry.setName(description);
+        append(gameId, entry);
+    }
+
+    /**
+     * Records that a command was rejected, e.g. since it was not the turn of the player
+     * @param gameId of the game the command was issued for
+     * @param userId of the user issuing the command
+     * @param description of the command
+     * @param reason of the rejection
+     */
+    public void recordRejected(Long gameId, Long userId, String description, String reason) {
+        GameLogEntry entry = newEntry(GameLogEntryType.REJECTED);
+        entry.setUserId(userId);
+        entry.setName(description);
+        entry.setPayload(reason);
+        append(gameId, entry);
+    }
+
+    @EventListener
+    public void onGameEvent(GameEvent event) {
+        GameLogEntry entry = newEntry(GameLogEntryType.EVENT);
+        entry.setName(event.getClass().getSimpleName());
+        try {
+            entry.setPayload(objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize {} of game {}: {}", entry.getName(), event.getGameId(), e.getMessage());
+        }
+        append(event.getGameId(), entry);
+    }
+
+    @Override
+    public void added(String deckId, String pileName, List<String> cardCodes) {
+        recordPileChange(deckId, GameLogEntryType.PILE_ADD, pileName, cardCodes, null);
+    }
+
+    @Override
+    public void inserted(String deckId, String pileName, String cardCode, int depth) {
+        recordPileChange(deckId, GameLogEntryType.PILE_INSERT, pileName, List.of(cardCode), depth);
+    }
+
+    @Override
+    public void removed(String deckId, String pileName, List<String> cardCodes) {
+        recordPileChange(deckId, GameLogEntryType.PILE_REMOVE, pileName, cardCodes, null);
+    }
+
+    @Override
+    public void replaced(String deckId, String pileName, List<String> cardCodes) {
+        recordPileChange(deckId, GameLogEntryType.PILE_REPLACE, pileName, cardCodes, null);
+    }
+
+    @Override
+    public void discarded(String deckId) {
+        Long gameId = gamesByDeck.remove(deckId);
+        if (gameId != null) {
+            discardedGames.add(gameId);
+        }
+    }
+
+    /**
+     * Returns the piles of a game as recorded in its log
+     * @param gameId referencing a Game
+     * @return map from pile name to the codes of its cards, from bottom to top; empty if no pile change was recorded
+     */
+    public Map<String, List<String>> getPiles(Long gameId) {
+        GameLog gameLog = gameLog(gameId);
+        synchronized (gameLog) {
+            Map<String, List<String>> piles = new LinkedHashMap<>();
+            gameLog.piles.forEach((pileName, cardCodes) -> piles.put(pileName, List.copyOf(cardCodes)));
+            return piles;
+        }
+    }
+
+    /**
+     * Returns all entries of the log of a game, e.g. to analyse a finished game
+     * @param gameId referencing a Game
+     * @return the entries in the order they were appended
+     */
+    public List<GameLogEntry> getEntries(Long gameId) {
+        flushAll();
+        return gameLogRepository.findByGameIdOrderBySequence(gameId);
+    }
+
+    /**
+     * Writes all entries appended since the last flush and removes the logs of finished games from memory.
+     * Runs periodically and once on shutdown.
+     */
+    @Scheduled(fixedDelayString = "${game.log.flush-interval-ms:1000}")
+    @PreDestroy
+    public synchronized void flushAll() {
+        List<GameLogEntry> batch = new ArrayList<>();
+        for (Queue<GameLogEntry> entries : pendingEntries.values()) {
+            drain(entries, batch);
+        }
+        write(batch);
+
+        // A finished game still raises events after its deck was discarded, hence its log is kept for one more flush
+        closingGames.forEach(this::close);
+        closingGames = Set.copyOf(discardedGames);
+        discardedGames.removeAll(closingGames);
+    }
+
+    /**
+     * Removes the log of a finished game from memory, unless some of its entries are not written yet
+     */
+    private void close(Long gameId) {
+        GameLog gameLog = logs.get(gameId);
+        if (gameLog == null) {
+            return;
+        }
+        synchronized (gameLog) {
+            Queue<GameLogEntry> entries = pendingEntries.get(gameId);
+            if (entries != null && !entries.isEmpty()) {
+                // Retried with the next flush
+                discardedGames.add(gameId);
+                return;
+            }
+            gameLog.closed = true;
+            logs.remove(gameId);
+            pendingEntries.remove(gameId);
+        }
+    }
+
+    private void drain(Queue<GameLogEntry> entries, List<GameLogEntry> batch) {
+        for (GameLogEntry entry = entries.poll(); entry != null; entry = entries.poll()) {
+            batch.add(entry);
+        }
+    }
+
+    private void write(List<GameLogEntry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            gameLogRepository.saveAll(batch);
+        } catch (RuntimeException e) {
+            // Entries are ordered by their sequence number, hence they may be written after newer ones
+            for (GameLogEntry entry : batch) {
+                pendingEntries(entry.getGameId()).add(entry);
+            }
+            log.warn("Failed to flush {} log entries: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private Queue<GameLogEntry> pendingEntries(Long gameId) {
+        return pendingEntries.computeIfAbsent(gameId, id -> new ConcurrentLinkedQueue<>());
+    }
+
+    private GameLogEntry newEntry(GameLogEntryType type) {
+        GameLogEntry entry = new GameLogEntry();
+        entry.setType(type);
+        return entry;
+    }
+
+    private void recordPileChange(String deckId, GameLogEntryType type, String pileName, List<String> cardCodes, Integer position) {
+        Long gameId = gamesByDeck.get(deckId);
+        if (gameId == null) {
+            return;
+        }
+        GameLogEntry entry = newEntry(type);
+        entry.setPileName(pileName);
+        entry.setCardCodes(String.join(",", cardCodes));
+        entry.setPosition(position);
+        append(gameId, entry);
+    }
+
+    private void append(Long gameId, GameLogEntry entry) {
+        while (true) {
+            GameLog gameLog = gameLog(gameId);
+            // Pile changes of a game may complete on several threads, e.g. while dealing the hands
+            synchronized (gameLog) {
+                if (gameLog.closed) {
+                    continue;
+                }
+                entry.setGameId(gameId);
+                entry.setSequence(++gameLog.sequence);
+                Queue<GameLogEntry> entries = pendingEntries(gameId);
+                entries.add(entry);
+
+                if (entry.getPileName() == null) {
+                    return;
+                }
+                apply(gameLog.piles, entry);
+                if (++gameLog.changesSinceSnapshot >= snapshotInterval) {
+                    GameLogEntry snapshot = newEntry(GameLogEntryType.SNAPSHOT);
+                    snapshot.setGameId(gameId);
+                    snapshot.setSequence(++gameLog.sequence);
+                    snapshot.setPayload(writePiles(gameLog.piles));
+                    entries.add(snapshot);
+                    gameLog.changesSinceSnapshot = 0;
+                }
+                return;
+            }
+        }
+    }
+
+    private GameLog gameLog(Long gameId) {
+        GameLog gameLog = logs.get(gameId);
+        if (gameLog != null) {
+            return gameLog;
+        }
+        // A log is removed from memory only once its entries are written, the entries of other games are not waited for
+        Queue<GameLogEntry> entries = pendingEntries.get(gameId);
+        if (entries != null) {
+            List<GameLogEntry> batch = new ArrayList<>();
+            drain(entries, batch);
+            write(batch);
+        }
+        GameLog opened = openLog(gameId);
+        GameLog existing = logs.putIfAbsent(gameId, opened);
+        return existing != null ? existing : opened;
+    }
+
+    /**
+     * Rebuilds the tail of a log from the last snapshot and the entries after it
+     */
+    private GameLog openLog(Long gameId) {
+        GameLog gameLog = new GameLog();
+        Optional<GameLogEntry> snapshot = gameLogRepository.findFirstByGameIdAndTypeOrderBySequenceDesc(gameId, GameLogEntryType.SNAPSHOT);
+        if (snapshot.isPresent()) {
+            gameLog.piles.putAll(readPiles(snapshot.get().getPayload()));
+            gameLog.sequence = snapshot.get().getSequence();
+        }
+        for (GameLogEntry entry : gameLogRepository.findByGameIdAndSequenceGreaterThanOrderBySequence(gameId, gameLog.sequence)) {
+            if (entry.getPileName() != null) {
+                apply(gameLog.piles, entry);
+                gameLog.changesSinceSnapshot++;
+            }
+            gameLog.sequence = entry.getSequence();
+        }
+        return gameLog;
+    }
+
+    private static void apply(Map<String, List<String>> piles, GameLogEntry entry) {
+        List<String> cardCodes = entry.getCardCodes() == null || entry.getCardCodes().isEmpty()
+                ? List.of() : Arrays.asList(entry.getCardCodes().split(","));
+        List<String> pile = piles.computeIfAbsent(entry.getPileName(), pileName -> new ArrayList<>());
+
+        switch (entry.getType()) {
+            case PILE_ADD:
+                pile.addAll(cardCodes);
+                break;
+            case PILE_INSERT:
+                pile.add(Math.max(0, pile.size() - Math.max(0, entry.getPosition())), cardCodes.get(0));
+                break;
+            case PILE_REMOVE:
+                pile.removeAll(cardCodes);
+                break;
+            case PILE_REPLACE:
+                pile.clear();
+                pile.addAll(cardCodes);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private String writePiles(Map<String, List<String>> piles) {
+        try {
+            return objectMapper.writeValueAsString(piles);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize piles", e);
+        }
+    }
+
+    private Map<String, List<String>> readPiles(String payload) {
+        try {
+            return objectMapper.readValue(payload, new TypeReference<LinkedHashMap<String, List<String>>>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read snapshot", e);
+        }
+    }
+}
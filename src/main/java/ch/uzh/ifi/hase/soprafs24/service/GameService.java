@@ -4,6 +4,7 @@ import ch.uzh.ifi.hase.soprafs24.constant.GameMode;
 import ch.uzh.ifi.hase.soprafs24.constant.GameState;
 import ch.uzh.ifi.hase.soprafs24.entity.Game;
 import ch.uzh.ifi.hase.soprafs24.entity.GameDeck;
+import ch.uzh.ifi.hase.soprafs24.entity.GameLogEntry;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
 import ch.uzh.ifi.hase.soprafs24.event.GameCreationEvent;
 import ch.uzh.ifi.hase.soprafs24.event.GameJoinEvent;
@@ -44,15 +45,18 @@ public class GameService {
 
     private final GameDeckService gameDeckService;
 
+    private final GameLogService gameLogService;
+
     @Autowired
     private ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public GameService(@Qualifier("gameRepository") GameRepository gameRepository, UserService userService, GameDeckService gameDeckService, ApplicationEventPublisher eventPublisher) {
+    public GameService(@Qualifier("gameRepository") GameRepository gameRepository, UserService userService, GameDeckService gameDeckService, ApplicationEventPublisher eventPublisher, GameLogService gameLogService) {
         this.gameRepository = gameRepository;
         this.userService = userService;
         this.gameDeckService = gameDeckService;
         this.eventPublisher = eventPublisher;
+        this.gameLogService = gameLogService;
     }
 
     /**
@@ -199,6 +203,33 @@ public class GameService {
         return new ArrayList<>(combinedGames);
     }
 
+    /**
+     * Returns the log of a finished game to one of its players, e.g. to analyse the moves of the game
+     * @param token of the user requesting the log
+     * @param gameId of the finished game
+     * @return the entries of the log in the order they were appended
+     */
+    public List<GameLogEntry> getGameLog(String token, Long gameId) {
+        User verifiedUser = userService.verifyUserByToken(token);
+
+        Optional<Game> optionalGame = gameRepository.findByGameId(gameId);
+
+        if (!optionalGame.isPresent()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid GameId provided");
+        }
+
+        Game game = optionalGame.get();
+
+        if (!game.getState().equals(GameState.FINISHED)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The log is only available for finished games");
+        }
+        // Every player of a finished game is on its leaderboard
+        if (!game.getLeaderboard().contains(verifiedUser.getUsername())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "User was not part of the game");
+        }
+        return gameLogService.getEntries(gameId);
+    }
+
     /**
      * Generates a unique, six digit gameId
      * @return a unique, six digit gameId
@@ -212,10 +243,16 @@ public class GameService {
         return gameId;
     }
 
+    /**
+     * Adds a player that left an ongoing game to its leaderboard.
+     * The game is held in memory by its session and written with its next snapshot, saving it here would
+     * leave the game in memory with an outdated version.
+     * @param game an ongoing game
+     * @param username of the player that left
+     */
     public void addPlayerLeaderboard(Game game, String username){
         List<String> leaderboard = game.getLeaderboard();
         leaderboard.add(username);
-        gameRepository.save(game);
     }
 
     /**
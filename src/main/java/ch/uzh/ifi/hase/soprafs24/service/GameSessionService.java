@@ -0,0 +1,272 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.GameState;
+import ch.uzh.ifi.hase.soprafs24.entity.Game;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.GameRepository;
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds the games in state ONGOING in memory. The engine reads an ongoing game from here instead of loading it
+ * (with its players, current turn and deck) from the database for every move, and records its changes as snapshots
+ * that are written in the background. A game that changes several times between two flushes is written once.
+ *
+ * A session is only altered by the commands of its game, which are executed one after the other
+ * (see {@link ch.uzh.ifi.hase.soprafs24.engine.GameCommandExecutor}), hence the sessions need no locking.
+ * Snapshots are copied such that a flush never reads a game that is being altered by a move.
+ *
+ * Concurrent writers: while a game is ONGOING, the session is the only writer of the columns the engine alters
+ * (state, current turn, turn flags, players and leaderboard); a flush writes these columns only, onto the row read
+ * anew, hence columns written by others are kept. A flush rejected because the row was written concurrently is
+ * repeated with the next flush on the row read anew. If the row read is no longer ONGOING (e.g. the game was
+ * aborted), the other writer wins: the snapshot is dropped and the session ended.
+ *
+ * Crash semantics: if the server stops between a move and the next flush, the row keeps the state of the last
+ * flush, i.e. the game resumes at most one flush interval back in time. Pending snapshots are flushed on an
+ * orderly shutdown. Finishing a game is written immediately and ends its session (see {@link #finish(Game, Long)}).
+ */
+@Service
+@Slf4j
+public class GameSessionService {
+
+    private final GameRepository gameRepository;
+
+    private final UserRepository userRepository;
+
+    private final long idleTimeoutMillis;
+
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+
+    private final Map<Long, GameSnapshot> pendingSnapshots = new ConcurrentHashMap<>();
+
+    private final LongAdder conflicts = new LongAdder();
+
+    private final LongAdder superseded = new LongAdder();
+
+    private static class Session {
+
+        private final Game game;
+
+        private volatile long lastAccessMillis = System.currentTimeMillis();
+
+        private Session(Game game) {
+            this.game = game;
+        }
+    }
+
+    /**
+     * Columns of a game altered by the engine at the time of the last update
+     */
+    private record GameSnapshot(GameState state, Long currentTurnId, boolean attacked, boolean repeatTurn,
+                                boolean skipDraw, List<Long> playerIds, List<String> leaderboard) {
+    }
+
+    @Autowired
+    public GameSessionService(@Qualifier("gameRepository") GameRepository gameRepository,
+                              UserRepository userRepository,
+                              @Value("${game.sessions.idle-timeout-ms:3600000}") long idleTimeoutMillis) {
+        this.gameRepository = gameRepository;
+        this.userRepository = userRepository;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * @param gameId referencing a Game
+     * @return the ongoing game held in memory, empty if the game has no session
+     */
+    public Optional<Game> find(Long gameId) {
+        Session session = sessions.get(gameId);
+        if (session == null) {
+            return Optional.empty();
+        }
+        session.lastAccessMillis = System.currentTimeMillis();
+        return Optional.of(session.game);
+    }
+
+    /**
+     * Keeps an ongoing game in memory. Lazy associations read by the engine are loaded beforehand,
+     * since the game outlives the transaction it was loaded in.
+     * @param game in state ONGOING, loaded within the current transaction
+     */
+    public void register(Game game) {
+        Hibernate.initialize(game.getLeaderboard());
+        Hibernate.initialize(game.getGameDeck());
+        for (User player : game.getPlayers()) {
+            Hibernate.initialize(player.getUserStats());
+        }
+        sessions.put(game.getGameId(), new Session(game));
+    }
+
+    /**
+     * Records the current state of a game to be written with the next flush
+     * @param game whose state changed
+     */
+    public void update(Game game) {
+        pendingSnapshots.put(game.getGameId(), snapshotOf(game));
+    }
+
+    /**
+     * Ends the session of a game, e.g. once it is finished and saved as a whole.
+     * A pending snapshot is dropped since the saved row holds the latest state, waiting for a flush in progress
+     * such that it can't overwrite the saved row.
+     * @param gameId referencing a Game
+     */
+    public synchronized void close(Long gameId) {
+        sessions.remove(gameId);
+        pendingSnapshots.remove(gameId);
+    }
+
+    /**
+     * Ends the session of a game with a winner and writes it as finished immediately. Like a flush, the columns owned
+     * by the session, the state and the winner are written onto the row read anew, since the game held in memory and
+     * its players were loaded when the game started. If the row read is no longer ONGOING, the other writer wins and
+     * nothing is written.
+     * @param game ongoing game whose last player left is the winner, e.g. held in memory
+     * @param winnerId referencing the user who won the game
+     * @return the game as written, empty if the game was ended by another writer
+     */
+    public synchronized Optional<Game> finish(Game game, Long winnerId) {
+        Long gameId = game.getGameId();
+        GameSnapshot snapshot = snapshotOf(game);
+        close(gameId);
+        Optional<Game> storedGame = gameRepository.findByGameId(gameId);
+        if (storedGame.isEmpty() || !GameState.ONGOING.equals(storedGame.get().getState())) {
+            superseded.increment();
+            log.info("Game {} was ended by another writer, not writing its finish", gameId);
+            return Optional.empty();
+        }
+        Game finishedGame = storedGame.get();
+        apply(finishedGame, snapshot);
+        finishedGame.setState(GameState.FINISHED);
+        finishedGame.setWinningPlayer(finishedGame.getPlayers().stream()
+                .filter(player -> winnerId.equals(player.getId()))
+                .findFirst()
+                .orElseGet(() -> userRepository.findUserById(winnerId)));
+        return Optional.of(gameRepository.saveAndFlush(finishedGame));
+    }
+
+    /**
+     * Writes the snapshots of all games changed since their last flush and ends the sessions of games without
+     * a move within the idle timeout. Runs periodically and once on shutdown.
+     */
+    @Scheduled(fixedDelayString = "${game.sessions.flush-interval-ms:1000}")
+    @PreDestroy
+    public void flushAll() {
+        for (Long gameId : pendingSnapshots.keySet()) {
+            flush(gameId);
+        }
+        long idleSince = System.currentTimeMillis() - idleTimeoutMillis;
+        sessions.entrySet().removeIf(entry -> entry.getValue().lastAccessMillis < idleSince
+                && !pendingSnapshots.containsKey(entry.getKey()));
+    }
+
+    /**
+     * Writes the pending snapshot of a game, if any
+     * @param gameId referencing a Game
+     */
+    public synchronized void flush(Long gameId) {
+        GameSnapshot snapshot = pendingSnapshots.remove(gameId);
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            gameRepository.findByGameId(gameId).ifPresent(game -> {
+                if (!GameState.ONGOING.equals(game.getState())) {
+                    // Ended by another writer, whose state wins over the one of the session
+                    sessions.remove(gameId);
+                    pendingSnapshots.remove(gameId);
+                    superseded.increment();
+                    log.info("Game {} is {} in the database, dropping its session", gameId, game.getState());
+                    return;
+                }
+                apply(game, snapshot);
+                Game savedGame = gameRepository.saveAndFlush(game);
+                // The game held in memory is written as a whole once it finishes, hence it has to carry the version
+                // of this write. Read by the command finishing the game only after closing the session.
+                Session session = sessions.get(gameId);
+                if (session != null && savedGame != null) {
+                    session.game.setVersion(savedGame.getVersion());
+                }
+            });
+        } catch (OptimisticLockingFailureException e) {
+            // The row was written concurrently, the next flush writes the columns of the session onto the row read
+            // anew, keeping the other columns of the concurrent write, or drops the snapshot if the game was ended
+            pendingSnapshots.putIfAbsent(gameId, snapshot);
+            conflicts.increment();
+            log.info("Game {} was changed concurrently, flushing it again with the next flush", gameId);
+        } catch (RuntimeException e) {
+            // Keep the snapshot for the next flush unless a newer update arrived in the meantime
+            pendingSnapshots.putIfAbsent(gameId, snapshot);
+            log.warn("Failed to flush game {}: {}", gameId, e.getMessage());
+        }
+    }
+
+    private static GameSnapshot snapshotOf(Game game) {
+        return new GameSnapshot(game.getState(),
+                game.getCurrentTurn() != null ? game.getCurrentTurn().getId() : null,
+                game.isAttacked(), game.isRepeatTurn(), game.isSkipDraw(),
+                game.getPlayers().stream().map(User::getId).toList(), List.copyOf(game.getLeaderboard()));
+    }
+
+    /**
+     * Writes the columns owned by the session onto a row read anew, the other columns are left as read
+     */
+    private void apply(Game game, GameSnapshot snapshot) {
+        // Players only leave an ongoing game, hence all users of the snapshot are among the loaded players
+        Map<Long, User> users = new HashMap<>();
+        for (User player : game.getPlayers()) {
+            users.put(player.getId(), player);
+        }
+        List<User> players = new ArrayList<>();
+        for (Long playerId : snapshot.playerIds()) {
+            players.add(users.computeIfAbsent(playerId, userRepository::findUserById));
+        }
+
+        game.setState(snapshot.state());
+        game.setCurrentTurn(snapshot.currentTurnId() != null
+                ? users.computeIfAbsent(snapshot.currentTurnId(), userRepository::findUserById) : null);
+        game.setAttacked(snapshot.attacked());
+        game.setRepeatTurn(snapshot.repeatTurn());
+        game.setSkipDraw(snapshot.skipDraw());
+        game.setPlayers(players);
+        game.setLeaderboard(new ArrayList<>(snapshot.leaderboard()));
+    }
+
+    /**
+     * @return number of flushes rejected because the row of the game was changed concurrently
+     */
+    public long flushConflicts() {
+        return conflicts.sum();
+    }
+
+    /**
+     * @return number of sessions ended because another writer ended their game
+     */
+    public long supersededSessions() {
+        return superseded.sum();
+    }
+
+    /**
+     * @return number of games held in memory
+     */
+    int activeSessions() {
+        return sessions.size();
+    }
+}
@@ -0,0 +1,283 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.GameState;
+import ch.uzh.ifi.hase.soprafs24.deck.DeckProvider;
+import ch.uzh.ifi.hase.soprafs24.engine.GameCommandExecutor;
+import ch.uzh.ifi.hase.soprafs24.engine.HashedTimingWheel;
+import ch.uzh.ifi.hase.soprafs24.entity.Game;
+import ch.uzh.ifi.hase.soprafs24.event.EndGameEvent;
+import ch.uzh.ifi.hase.soprafs24.event.EndTurnEvent;
+import ch.uzh.ifi.hase.soprafs24.event.PlacementEvent;
+import ch.uzh.ifi.hase.soprafs24.event.YourTurnEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadlines of the turns in ongoing games. A timer is armed once a player is announced with a YourTurnEvent and
+ * cancelled once the turn ends in turnValidation (EndTurnEvent) or the game ends. If a player lets the timer expire,
+ * the turn is terminated on its behalf: the player draws (and an explosion card drawn with a defuse card is returned
+ * to a random position), or it is removed from the game after missing several turns in a row.
+ *
+ * The timers of all games share one hashed timing wheel, advanced by a tick on a thread of its own, such that
+ * the deadlines don't wait for the scheduled flushes writing to the database. An expired timer only queues
+ * a command of its game, i.e. the turn is terminated by the same worker as the moves of the players and a move
+ * queued just before the deadline is still executed first.
+ */
+@Service
+@Slf4j
+public class TurnTimerService {
+
+    private static final String TIMEOUT_COMMAND = "turn timeout";
+
+    // Placement position of the engine for returning an explosion card to a random position of the dealer pile
+    private static final int RANDOM_PLACEMENT = 69;
+
+    private final GameEngineService gameEngineService;
+
+    private final GameDeckService gameDeckService;
+
+    private final GameLogService gameLogService;
+
+    private final GameCommandExecutor gameCommandExecutor;
+
+    private final long timeoutMillis;
+
+    private final int maxMissedTurns;
+
+    private final long tickMillis;
+
+    private final HashedTimingWheel timingWheel;
+
+    private ScheduledExecutorService ticker;
+
+    private final Map<Long, TurnTimer> timers = new ConcurrentHashMap<>();
+
+    // Turns missed in a row, per game and player
+    private final Map<Long, Map<Long, Integer>> missedTurns = new ConcurrentHashMap<>();
+
+    // Games whose current command terminates a turn on behalf of the player
+    private final Set<Long> autoMoves = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Timer of the turn of a player
+     */
+    private static class TurnTimer {
+
+        private final Long userId;
+
+        private HashedTimingWheel.Timeout timeout;
+
+        private volatile boolean awaitingPlacement;
+
+        private TurnTimer(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    @Autowired
+    public TurnTimerService(GameEngineService gameEngineService,
+                            GameDeckService gameDeckService,
+                            GameLogService gameLogService,
+                            GameCommandExecutor gameCommandExecutor,
+                            @Value("${game.turn.timeout-ms:60000}") long timeoutMillis,
+                            @Value("${game.turn.max-missed-turns:2}") int maxMissedTurns,
+                            @Value("${game.turn.tick-ms:100}") long tickMillis,
+                            @Value("${game.turn.wheel-size:512}") int wheelSize) {
+        this.gameEngineService = gameEngineService;
+        this.gameDeckService = gameDeckService;
+        this.gameLogService = gameLogService;
+        this.gameCommandExecutor = gameCommandExecutor;
+        this.timeoutMillis = timeoutMillis;
+        this.maxMissedTurns = maxMissedTurns;
+        this.tickMillis = tickMillis;
+        this.timingWheel = new HashedTimingWheel(tickMillis, wheelSize, monotonicMillis());
+    }
+
+    /**
+     * Arms the timer of the announced player. Announcing the same turn again (e.g. after a reload of the game state)
+     * keeps the running deadline.
+     * @param event announcing whose turn it is
+     */
+    @EventListener
+    public void onYourTurn(YourTurnEvent event) {
+        arm(event.getGameId(), event.getUserId(), false);
+    }
+
+    /**
+     * Cancels the timer of a turn that was terminated. A player terminating its turn itself no longer counts as absent.
+     * @param event published by turnValidation
+     */
+    @EventListener
+    public void onEndTurn(EndTurnEvent event) {
+        cancel(event.getGameId());
+        if (!autoMoves.contains(event.getGameId())) {
+            Map<Long, Integer> missed = missedTurns.get(event.getGameId());
+            if (missed != null) {
+                missed.remove(event.getUserId());
+            }
+        }
+    }
+
+    /**
+     * Remembers that the current player has to place an explosion card, which is done on its behalf on expiry.
+     * If the explosion card was drawn on behalf of the player, the placement gets a deadline of its own.
+     * @param event requesting the placement
+     */
+    @EventListener
+    public void onPlacement(PlacementEvent event) {
+        arm(event.getGameId(), event.getUserId(), true);
+    }
+
+    @EventListener
+    public void onEndGame(EndGameEvent event) {
+        cancel(event.getGameId());
+        missedTurns.remove(event.getGameId());
+    }
+
+    /**
+     * Starts ticking the timing wheel on a dedicated thread
+     */
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "turn-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    public void tick() {
+        // A failing tick must not end the periodic execution
+        try {
+            advance(monotonicMillis());
+        } catch (RuntimeException e) {
+            log.warn("Turn timer tick failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Time driving the timing wheel. Unlike the system clock it is not corrected backward or forward, which would
+     * freeze or expire all deadlines at once.
+     * @return milliseconds since an arbitrary origin
+     */
+    static long monotonicMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * Processes the ticks of the timing wheel that ended until the given time
+     * @param nowMillis current time, see {@link #monotonicMillis()}
+     * @return number of expired timers
+     */
+    int advance(long nowMillis) {
+        return timingWheel.advance(nowMillis);
+    }
+
+    /**
+     * @return number of armed timers
+     */
+    public int pendingTimers() {
+        return timingWheel.size();
+    }
+
+    /**
+     * Arms the timer of a player unless its turn already has a running deadline
+     * @param gameId of the game the player is playing
+     * @param userId of the player whose turn it is
+     * @param awaitingPlacement whether the player has to place an explosion card
+     */
+    private void arm(Long gameId, Long userId, boolean awaitingPlacement) {
+        if (timeoutMillis <= 0) {
+            return;
+        }
+        timers.compute(gameId, (id, current) -> {
+            if (current != null) {
+                if (current.userId.equals(userId) && current.timeout.isPending()) {
+                    current.awaitingPlacement |= awaitingPlacement;
+                    return current;
+                }
+                current.timeout.cancel();
+            }
+            TurnTimer turnTimer = new TurnTimer(userId);
+            turnTimer.awaitingPlacement = awaitingPlacement;
+            turnTimer.timeout = timingWheel.schedule(() -> expired(gameId, turnTimer), timeoutMillis);
+            return turnTimer;
+        });
+    }
+
+    private void cancel(Long gameId) {
+        TurnTimer turnTimer = timers.remove(gameId);
+        if (turnTimer != null) {
+            turnTimer.timeout.cancel();
+        }
+    }
+
+    private void expired(Long gameId, TurnTimer turnTimer) {
+        gameCommandExecutor.submit(gameId, TIMEOUT_COMMAND, () -> {
+            // A turn terminated or announced anew since the expiry replaced the timer
+            if (!timers.remove(gameId, turnTimer)) {
+                return;
+            }
+            Game game = gameEngineService.findGameById(gameId);
+            if (!GameState.ONGOING.equals(game.getState()) || game.getCurrentTurn() == null
+                    || !turnTimer.userId.equals(game.getCurrentTurn().getId())) {
+                return;
+            }
+
+            Long userId = turnTimer.userId;
+            int missed = missedTurns.computeIfAbsent(gameId, id -> new ConcurrentHashMap<>()).merge(userId, 1, Integer::sum);
+            log.info("Turn of user {} in game {} timed out ({} in a row)", userId, gameId, missed);
+
+            gameLogService.recordCommand(gameId, userId, TIMEOUT_COMMAND);
+            autoMoves.add(gameId);
+            try (DeckProvider.ReadScope moveScope = gameDeckService.openMoveScope()) {
+                if (missed >= maxMissedTurns) {
+                    gameEngineService.removeUserFromGame(gameId, userId);
+                } else if (turnTimer.awaitingPlacement) {
+                    gameEngineService.handleExplosionPlacement(gameId, userId, RANDOM_PLACEMENT);
+                } else {
+                    terminateMove(gameId, userId);
+                }
+            } catch (IOException | RuntimeException e) {
+                gameLogService.recordRejected(gameId, userId, TIMEOUT_COMMAND, e.getMessage());
+                throw e;
+            } finally {
+                autoMoves.remove(gameId);
+            }
+        });
+    }
+
+    /**
+     * Same sequence as a player terminating its move
+     */
+    private void terminateMove(Long gameId, Long userId) throws IOException, InterruptedException {
+        String explosionCard = gameEngineService.drawCardMoveTermination(gameId, userId, false);
+        if (explosionCard != null) {
+            gameEngineService.handleExplosionCard(gameId, userId, explosionCard);
+        } else {
+            gameEngineService.turnValidation(gameId, userId);
+            gameEngineService.dispatchGameState(gameId, userId);
+        }
+    }
+}
@@ -1,32 +1,152 @@
 package ch.uzh.ifi.hase.soprafs24.service;
 
+import ch.uzh.ifi.hase.soprafs24.engine.GameCommandExecutor;
 import ch.uzh.ifi.hase.soprafs24.entity.Card;
 import ch.uzh.ifi.hase.soprafs24.event.GameStartEvent;
 import ch.uzh.ifi.hase.soprafs24.eventlistener.GameCreationEventListener;
+import ch.uzh.ifi.hase.soprafs24.websocket.MessageEncoder;
 import ch.uzh.ifi.hase.soprafs24.websocket.dto.CardGetDTO;
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Sends the websocket messages of the server. Within a command of a game (see {@link #openCommandScope()}), the
+ * messages are collected and sent once the command completed: one frame per destination, holding its messages in
+ * the order they were sent. Of the game states broadcast during a command only the last one is sent.
+ *
+ * The messages of the games are written by the {@link MessageEncoder}, whose templates of the message types are
+ * kept in constants below.
+ */
 @Service
 @Transactional
-public class WebSocketService {
+public class WebSocketService implements GameCommandExecutor.CommandScope {
+
+    private static final String GAME_STATE = "gameState";
+
+    private static final MessageEncoder.Template JOIN = MessageEncoder.template("join");
+    private static final MessageEncoder.Template LEAVE = MessageEncoder.template("leave");
+    private static final MessageEncoder.Template DRAWING = MessageEncoder.template("drawing");
+    private static final MessageEncoder.Template SHUFFLING = MessageEncoder.template("shuffling");
+    private static final MessageEncoder.Template PEEK_INTO_DECK = MessageEncoder.template("peekIntoDeck");
+    private static final MessageEncoder.Template PLACED_BACK_TO_DECK = MessageEncoder.template("placedBackToDeck");
+    private static final MessageEncoder.Template START = MessageEncoder.template("start");
+    private static final MessageEncoder.Template START_TURN = MessageEncoder.template("startTurn");
+    private static final MessageEncoder.Template END_TURN = MessageEncoder.template("endTurn");
+    private static final MessageEncoder.Template END_GAME = MessageEncoder.template("endGame");
+    private static final MessageEncoder.Template CARDS = MessageEncoder.template("cards");
+    private static final MessageEncoder.Template CARD_PLAYED = MessageEncoder.template("cardPlayed");
+    private static final MessageEncoder.Template CARD_STOLEN = MessageEncoder.template("cardStolen");
+    private static final MessageEncoder.Template DEFUSE_CARD = MessageEncoder.template("defuseCard");
+    private static final MessageEncoder.Template EXPLOSION = MessageEncoder.template("explosion");
+    private static final MessageEncoder.Template LOSS = MessageEncoder.template("loss");
+    private static final MessageEncoder.Template FULL_GAME_STATE = MessageEncoder.template(GAME_STATE);
+    private static final MessageEncoder.Template GAME_STATE_DELTA = MessageEncoder.template("gameStateDelta");
+    private static final MessageEncoder.Template PLACEMENT_REQUEST = MessageEncoder.template("placementRequest");
+    private static final MessageEncoder.Template BATCH = MessageEncoder.template("batch");
 
     @Autowired
     protected SimpMessagingTemplate sendMessage;
 
-    private void sendWebSocketMessage(String destination, Map<String, Object> params) {
-        JSONObject message = new JSONObject();
-        params.forEach(message::put);
-        this.sendMessage.convertAndSend(destination, message.toString());
+    /**
+     * State of a game as last broadcast to its players
+     */
+    private record BroadcastGameState(long version, String topCardCode, String topCardInternalCode,
+                                      Map<String, Integer> piles, Integer numberOfPlayers, List<String> playerNames,
+                                      List<Long> playerIds, List<String> playerAvatars, String activePlayer) {
+
+        private BroadcastGameState withVersion(long version) {
+            return new BroadcastGameState(version, topCardCode, topCardInternalCode, piles, numberOfPlayers,
+                    playerNames, playerIds, playerAvatars, activePlayer);
+        }
+    }
+
+    /**
+     * Message collected during a command, rendered once the command completed
+     * @param kind of the message, a later message of the same kind replaces it, null if never replaced
+     * @param message rendering the message, returning null if there is nothing to send anymore
+     */
+    private record OutboundMessage(String kind, Supplier<String> message) {
+    }
+
+    // Written by the commands of a game only, read by requests for a full snapshot
+    private final Map<Long, BroadcastGameState> broadcastStates = new ConcurrentHashMap<>();
+
+    // Messages of the command running on the current thread, by destination in the order of their first message
+    private final ThreadLocal<Map<String, List<OutboundMessage>>> batch = new ThreadLocal<>();
+
+    /**
+     * Collects the messages sent on the calling thread until the scope is closed, and then sends them as one frame
+     * per destination. Nested scopes are part of the outermost one.
+     * @return the scope, to be closed once the command completed
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public GameCommandExecutor.CommandScope.Scope openCommandScope() {
+        if (batch.get() != null) {
+            return () -> {
+            };
+        }
+        batch.set(new LinkedHashMap<>());
+        return this::flushBatch;
+    }
+
+    private void flushBatch() {
+        Map<String, List<OutboundMessage>> messages = batch.get();
+        batch.remove();
+        messages.forEach((destination, outboundMessages) -> {
+            List<String> frames = new ArrayList<>(outboundMessages.size());
+            for (OutboundMessage outboundMessage : outboundMessages) {
+                String message = outboundMessage.message().get();
+                if (message != null) {
+                    frames.add(message);
+                }
+            }
+            if (frames.size() == 1) {
+                this.sendMessage.convertAndSend(destination, frames.get(0));
+            } else if (frames.size() > 1) {
+                this.sendMessage.convertAndSend(destination, MessageEncoder.message(BATCH).messages("messages", frames).end());
+            }
+        });
+    }
+
+    /**
+     * Sends a message right away, or adds it to the messages of the running command
+     * @param destination of the message
+     * @param kind of the message, replacing the message of the same kind collected before, null to keep every message
+     * @param message rendering the message, returning null if there is nothing to send
+     */
+    private void send(String destination, String kind, Supplier<String> message) {
+        Map<String, List<OutboundMessage>> messages = batch.get();
+        if (messages == null) {
+            String rendered = message.get();
+            if (rendered != null) {
+                this.sendMessage.convertAndSend(destination, rendered);
+            }
+            return;
+        }
+        List<OutboundMessage> outboundMessages = messages.computeIfAbsent(destination, d -> new ArrayList<>());
+        if (kind != null) {
+            outboundMessages.removeIf(outboundMessage -> kind.equals(outboundMessage.kind()));
+        }
+        outboundMessages.add(new OutboundMessage(kind, message));
+    }
+
+    private void sendWebSocketMessage(String destination, String message) {
+        send(destination, null, () -> message);
     }
 
     public void sendMessageToClients(String destination, Object dto) {
@@ -34,25 +154,23 @@ public class WebSocketService {
     }
 
     public void sendMessageJoinedUser(String userName, Long gameId, Integer maxPlayers, Integer currentPlayers) {
-        Map<String, Object> params = Map.of(
-                "type", "join",
-                "userName", userName,
-                "gameId", gameId,
-                "maxPlayers", maxPlayers,
-                "currentPlayers", currentPlayers
-        );
-        sendWebSocketMessage("/game/" + gameId, params);
+        String message = MessageEncoder.message(JOIN)
+                .field("userName", userName)
+                .field("gameId", gameId)
+                .field("maxPlayers", maxPlayers)
+                .field("currentPlayers", currentPlayers)
+                .end();
+        sendWebSocketMessage("/game/" + gameId, message);
     }
 
     public void sendMessageLeftUser(String userName, Long gameId, Integer maxPlayers, Integer currentPlayers) {
-        Map<String, Object> params = Map.of(
-                "type", "leave",
-                "userName", userName,
-                "gameId", gameId,
-                "maxPlayers", maxPlayers,
-                "currentPlayers", currentPlayers
-        );
-        sendWebSocketMessage("/game/" + gameId, params);
+        String message = MessageEncoder.message(LEAVE)
+                .field("userName", userName)
+                .field("gameId", gameId)
+                .field("maxPlayers", maxPlayers)
+                .field("currentPlayers", currentPlayers)
+                .end();
+        sendWebSocketMessage("/game/" + gameId, message);
     }
 
     public void sendMessageFriendLogin(String userName, Long userId) {
@@ -72,226 +190,279 @@ public class WebSocketService {
     }
 
     public void sendMessageCardsDrawn(Long gameId, String invokingPlayerUserName, Integer numberOfCards) {
-        Map<String, Object> params = Map.of(
-                "type", "drawing",
-                "gameId", gameId,
-                "user", invokingPlayerUserName,
-                "numberOfCards", numberOfCards
-        );
-        sendWebSocketMessage("/game/" + gameId, params);
+        String message = MessageEncoder.message(DRAWING)
+                .field("gameId", gameId)
+                .field("user", invokingPlayerUserName)
+                .field("numberOfCards", numberOfCards)
+                .end();
+        sendWebSocketMessage("/game/" + gameId, message);
     }
 
     public void sendMessageShuffling(Long gameId, String invokingPlayerUserName) {
-        Map<String, Object> params = Map.of(
-                "type", "shuffling",
-                "gameId", gameId,
-                "user", invokingPlayerUserName
-        );
-        sendWebSocketMessage("/game/" + gameId, params);
+        String message = MessageEncoder.message(SHUFFLING)
+                .field("gameId", gameId)
+                .field("user", invokingPlayerUserName)
+                .end();
+        sendWebSocketMessage("/game/" + gameId, message);
     }
 
     public void sendMessagePeekIntoDeck(Long gameId, String invokingPlayerUserName, Long userId, List<Card> futureCards) {
-        JSONArray cardsArray = new JSONArray();
-        futureCards.forEach(card -> {
-            JSONObject cardJson = new JSONObject();
-            cardJson.put("code", card.getCode());
-            cardJson.put("internalCode", card.getInternalCode());
-            cardsArray.put(cardJson);
-        });
-        Map<String, Object> params = Map.of(
-                "type", "peekIntoDeck",
-                "gameId", gameId,
-                "user", invokingPlayerUserName,
-                "cards", cardsArray
-        );
-        sendWebSocketMessage("/game/" + gameId + "/" + userId, params);
+        String message = MessageEncoder.message(PEEK_INTO_DECK)
+                .field("gameId", gameId)
+                .field("user", invokingPlayerUserName)
+                .cards("cards", futureCards)
+                .end();
+        sendWebSocketMessage("/game/" + gameId + "/" + userId, message);
     }
 
     public void sendMessageExplosionReturnedToDeck(Long gameId, String invokingPlayerUserName) {
-        Map<String, Object> params = Map.of(
-                "type", "placedBackToDeck",
-                "gameId", gameId,
-                "user", invokingPlayerUserName
-        );
-        sendWebSocketMessage("/game/" + gameId, params);
+        String message = MessageEncoder.message(PLACED_BACK_TO_DECK)
+                .field("gameId", gameId)
+                .field("user", invokingPlayerUserName)
+                .end();
+        sendWebSocketMessage("/game/" + gameId, message);
     }
 
     public void sendMessageGameStarted(Long gameId, Long userId) {
-        Map<String, Object> params = Map.of(
-                "type", "start",
-                "gameId", gameId
-        );
-        sendWebSocketMessage("/game/" + gameId + "/" + userId, params);
+        String message = MessageEncoder.message(START)
+                .field("gameId", gameId)
+                .end();
+        sendWebSocketMessage("/game/" + gameId + "/" + userId, message);
     }
 
     public void sendMessageYourTurn(Long userId, Long gameId, String userName) {
-        Map<String, Object> params = Map.of(
-                "type", "startTurn",
-                "userId", userId,
-                "userName", userName
-        );
-        sendWebSocketMessage("/game/" + gameId + "/" + userId, params);
+        String message = MessageEncoder.message(START_TURN)
+                .field("userId", userId)
+                .field("userName", userName)
+                .end();
+        sendWebSocketMessage("/game/" + gameId + "/" + userId, message);
     }
 
     public void setSendMessageEndTurn(Long userId, Long gameId, String userName) {
-        Map<String, Object> params = Map.of(
-                "type", "endTurn",
-                "userId", userId,
-                "terminatingUser", userName
-        );
-        sendWebSocketMessage("/game/" + gameId + "/" + userId, params);
+        String message = MessageEncoder.message(END_TURN)
+                .field("userId", userId)
+                .field("terminatingUser", userName)
+                .end();
+        sendWebSocketMessage("/game/" + gameId + "/" + userId, message);
     }
 
     public void sendMessageEndGame(Long gameId, String userName, List<String> leaderboard) {
-        JSONArray leaderboardArray = new JSONArray();
         Collections.reverse(leaderboard);
+        MessageEncoder encoder = MessageEncoder.message(END_GAME)
+                .field("winningUser", userName)
+                .beginArray("leaderboard");
         int place = 1;
         for (String s : leaderboard) {
-            JSONObject position = new JSONObject();
-            position.put("username", s);
-            position.put("position", place);
-            leaderboardArray.put(position);
+            encoder.beginObject()
+                    .field("username", s)
+                    .field("position", place)
+                    .endObject();
             place++;
         }
-        Map<String, Object> params = Map.of(
-                "type", "endGame",
-                "winningUser", userName,
-                "leaderboard", leaderboardArray
-        );
-        sendWebSocketMessage("/game/" + gameId, params);
+        String message = encoder.endArray().end();
+        send("/game/" + gameId, null, () -> {
+            broadcastStates.remove(gameId);
+            return message;
+        });
     }
 
     public void sendMessagePlayerCards(Long gameId, Long userId, List<Card> playerCards) {
-        JSONArray cardsArray = new JSONArray();
-        playerCards.forEach(card -> {
-            JSONObject cardJson = new JSONObject();
-            cardJson.put("code", card.getCode());
-            cardJson.put("internalCode", card.getInternalCode());
-            cardsArray.put(cardJson);
-        });
-        Map<String, Object> params = Map.of(
-                "type", "cards",
-                "cards", cardsArray
-        );
-        sendWebSocketMessage("/game/" + gameId + "/" + userId, params);
+        String message = MessageEncoder.message(CARDS)
+                .cards("cards", playerCards)
+                .end();
+        sendWebSocketMessage("/game/" + gameId + "/" + userId, message);
     }
 
     public void sendMessageCardPlayed(Long gameId, String userName, String internalCode, String externalCode) {
-        Map<String, Object> params = Map.of(
-                "type", "cardPlayed",
-                "userName", userName,
-                "cardPlayed", internalCode,
-                "externalCode", externalCode
-        );
-        sendWebSocketMessage("/game/" + gameId, params);
+        String message = MessageEncoder.message(CARD_PLAYED)
+                .field("userName", userName)
+                .field("cardPlayed", internalCode)
+                .field("externalCode", externalCode)
+                .end();
+        sendWebSocketMessage("/game/" + gameId, message);
     }
 
     public void sendMessageStolenCard(Long gameId, Long userId, List<Card> stolenCards) {
-        JSONArray cardsArray = new JSONArray();
-        stolenCards.forEach(card -> {
-            JSONObject cardJson = new JSONObject();
-            cardJson.put("code", card.getCode());
-            cardJson.put("internalCode", card.getInternalCode());
-            cardsArray.put(cardJson);
-        });
-        Map<String, Object> params = Map.of(
-                "type", "cardStolen",
-                "cards", cardsArray
-        );
-        sendWebSocketMessage("/game/" + gameId + "/" + userId, params);
+        String message = MessageEncoder.message(CARD_STOLEN)
+                .cards("cards", stolenCards)
+                .end();
+        sendWebSocketMessage("/game/" + gameId + "/" + userId, message);
     }
 
     public void sendMessageDefuseCardPlayed(Long gameId, Long userId, List<Card> defuseCard) {
-        JSONArray cardsArray = new JSONArray();
-        defuseCard.forEach(card -> {
-            JSONObject cardJson = new JSONObject();
-            cardJson.put("code", card.getCode());
-            cardJson.put("internalCode", card.getInternalCode());
-            cardsArray.put(cardJson);
-        });
-        Map<String, Object> params = Map.of(
-                "type", "defuseCard",
-                "cards", cardsArray
-        );
-        sendWebSocketMessage("/game/" + gameId + "/" + userId, params);
+        String message = MessageEncoder.message(DEFUSE_CARD)
+                .cards("cards", defuseCard)
+                .end();
+        sendWebSocketMessage("/game/" + gameId + "/" + userId, message);
     }
 
     public void sendMessageExplosion(Long gameId, String userName) {
-        Map<String, Object> params = Map.of(
-                "type", "explosion",
-                "terminatingUser", userName
-        );
-        sendWebSocketMessage("/game/" + gameId, params);
+        String message = MessageEncoder.message(EXPLOSION)
+                .field("terminatingUser", userName)
+                .end();
+        sendWebSocketMessage("/game/" + gameId, message);
     }
 
     public void sendMessageExplosionIndividual(Long gameId, Long userId) {
-        Map<String, Object> params = Map.of(
-                "type", "explosion"
-        );
-        sendWebSocketMessage("/game/" + gameId + "/" + userId, params);
+        String message = MessageEncoder.message(EXPLOSION).end();
+        sendWebSocketMessage("/game/" + gameId + "/" + userId, message);
     }
 
     public void lossEvent(Long gameId, String userName) {
-        Map<String, Object> params = Map.of(
-                "type", "loss",
-                "looserUser", userName
-        );
-        sendWebSocketMessage("/game/" + gameId, params);
+        String message = MessageEncoder.message(LOSS)
+                .field("looserUser", userName)
+                .end();
+        sendWebSocketMessage("/game/" + gameId, message);
     }
 
+    /**
+     * Broadcasts the state of a game. The players receive a full snapshot with the first state of a game and
+     * afterwards only the fields changed since the state last broadcast, tagged with consecutive versions.
+     * A client missing a version requests a full snapshot, see {@link #sendFullGameState(Long, Long)}.
+     * States equal to the last broadcast one are not sent at all.
+     */
     public void sendGameState(Long gameId, Card topCard, Map<String, Integer> remainingCardStats, Integer numberOfPlayers, List<String> playerNames, List<Long> playerIds, List<String> playerAvatars, String activePlayer) {
-        JSONObject pilesJson = new JSONObject();
-        JSONArray playerNamesJson = new JSONArray(playerNames);
-        JSONObject playersJson = new JSONObject();
-
-        // Populate pilesJson
-        remainingCardStats.forEach(pilesJson::put);
-
-        for (int i = 0; i < playerNames.size(); i++) {
-            JSONObject playerInfo = new JSONObject();
-            playerInfo.put("name", playerNames.get(i));
-            playerInfo.put("avatar", playerAvatars.get(i));
-            playersJson.put(playerIds.get(i).toString(), playerInfo);
+        BroadcastGameState state = new BroadcastGameState(0, topCard.getCode(), topCard.getInternalCode(),
+                new HashMap<>(remainingCardStats), numberOfPlayers, new ArrayList<>(playerNames),
+                new ArrayList<>(playerIds), new ArrayList<>(playerAvatars), activePlayer);
+
+        // Compared to the last broadcast state only once sent, a state replaced within the same command is skipped
+        send("/game/" + gameId, GAME_STATE, () -> nextGameState(gameId, state));
+    }
+
+    /**
+     * Tags a state with the next version of its game and renders the message broadcasting it
+     * @return full snapshot or delta to the last broadcast state, null if the state equals the last broadcast one
+     */
+    private String nextGameState(Long gameId, BroadcastGameState state) {
+        BroadcastGameState previous = broadcastStates.get(gameId);
+        BroadcastGameState current = state.withVersion(previous != null ? previous.version() + 1 : 1);
+
+        String message = previous != null ? gameStateDelta(previous, current) : fullGameState(current);
+        if (message != null) {
+            broadcastStates.put(gameId, current);
         }
+        return message;
+    }
+
+    /**
+     * Sends the full snapshot of the state last broadcast for a game to a single player, e.g. after its client
+     * noticed a gap in the versions of the received states
+     * @param gameId of the game
+     * @param userId of the player
+     */
+    public void sendFullGameState(Long gameId, Long userId) {
+        send("/game/" + gameId + "/" + userId, null, () -> {
+            BroadcastGameState state = broadcastStates.get(gameId);
+            return state != null ? fullGameState(state) : null;
+        });
+    }
 
-        // Create the params map
-        Map<String, Object> params = Map.of(
-                "type", "gameState",
-                "topCardCode", topCard.getCode(),
-                "topCardInternalCode", topCard.getInternalCode(),
-                "piles", pilesJson,
-                "numberOfPlayers", numberOfPlayers,
-                "playerNames", playerNamesJson,  // Keeping this in case you still need it
-                "players", playersJson,            // Adding the new playersJson object with names and avatars
-                "activePlayer", activePlayer
-        );
+    /**
+     * Forgets the state last broadcast for a game, hence the next state is sent as full snapshot, e.g. on a reload
+     * @param gameId of the game
+     */
+    public void resetGameState(Long gameId) {
+        broadcastStates.remove(gameId);
+    }
+
+    private String fullGameState(BroadcastGameState state) {
+        MessageEncoder encoder = MessageEncoder.message(FULL_GAME_STATE)
+                .field("version", state.version())
+                .field("topCardCode", state.topCardCode())
+                .field("topCardInternalCode", state.topCardInternalCode())
+                .beginObject("piles");
+        state.piles().forEach(encoder::field);
+        encoder.endObject()
+                .field("numberOfPlayers", state.numberOfPlayers());
+        putPlayers(encoder, state);
+        return encoder.field("activePlayer", state.activePlayer()).end();
+    }
+
+    /**
+     * @return message with the fields of the current state that differ from the previous one, null if none differs
+     */
+    private String gameStateDelta(BroadcastGameState previous, BroadcastGameState current) {
+        boolean topCardChanged = !Objects.equals(previous.topCardCode(), current.topCardCode())
+                || !Objects.equals(previous.topCardInternalCode(), current.topCardInternalCode());
+
+        // Changed piles only, a pile that no longer exists (e.g. of a player that lost) is sent as null
+        List<String> changedPiles = new ArrayList<>();
+        current.piles().forEach((pile, count) -> {
+            if (!Objects.equals(count, previous.piles().get(pile))) {
+                changedPiles.add(pile);
+            }
+        });
+        for (String pile : previous.piles().keySet()) {
+            if (!current.piles().containsKey(pile)) {
+                changedPiles.add(pile);
+            }
+        }
 
-        // Send the WebSocket message
-        sendWebSocketMessage("/game/" + gameId, params);
+        boolean numberOfPlayersChanged = !Objects.equals(previous.numberOfPlayers(), current.numberOfPlayers());
+        boolean playersChanged = !previous.playerIds().equals(current.playerIds())
+                || !previous.playerNames().equals(current.playerNames())
+                || !previous.playerAvatars().equals(current.playerAvatars());
+        boolean activePlayerChanged = !Objects.equals(previous.activePlayer(), current.activePlayer());
+
+        if (!topCardChanged && changedPiles.isEmpty() && !numberOfPlayersChanged && !playersChanged && !activePlayerChanged) {
+            return null;
+        }
+
+        MessageEncoder encoder = MessageEncoder.message(GAME_STATE_DELTA)
+                .field("version", current.version())
+                .field("baseVersion", previous.version());
+        if (topCardChanged) {
+            encoder.field("topCardCode", current.topCardCode())
+                    .field("topCardInternalCode", current.topCardInternalCode());
+        }
+        if (!changedPiles.isEmpty()) {
+            encoder.beginObject("piles");
+            for (String pile : changedPiles) {
+                encoder.field(pile, current.piles().get(pile));
+            }
+            encoder.endObject();
+        }
+        if (numberOfPlayersChanged) {
+            encoder.field("numberOfPlayers", current.numberOfPlayers());
+        }
+        if (playersChanged) {
+            putPlayers(encoder, current);
+        }
+        if (activePlayerChanged) {
+            encoder.field("activePlayer", current.activePlayer());
+        }
+        return encoder.end();
+    }
+
+    private void putPlayers(MessageEncoder encoder, BroadcastGameState state) {
+        encoder.beginArray("playerNames");
+        state.playerNames().forEach(encoder::value);
+        encoder.endArray()
+                .beginObject("players");
+        for (int i = 0; i < state.playerNames().size(); i++) {
+            encoder.beginObject(state.playerIds().get(i).toString())
+                    .field("name", state.playerNames().get(i))
+                    .field("avatar", state.playerAvatars().get(i))
+                    .endObject();
+        }
+        encoder.endObject();
     }
 
     public void sendPlacementRequest(Long gameId, Long userId) {
-        Map<String, Object> params = Map.of(
-                "type", "placementRequest",
-                "userId", userId
-        );
-        sendWebSocketMessage("/game/" + gameId + "/" + userId, params);
+        String message = MessageEncoder.message(PLACEMENT_REQUEST)
+                .field("userId", userId)
+                .end();
+        sendWebSocketMessage("/game/" + gameId + "/" + userId, message);
     }
 
     public void sendMessageGetLucky(Long gameId, Long userId, Card randomCard) {
-        JSONArray cardsArray = new JSONArray();
-        JSONObject cardJson = new JSONObject();
-        cardJson.put("code", randomCard.getCode());
-        cardJson.put("internalCode", randomCard.getInternalCode());
-        cardsArray.put(cardJson);
-
-        Map<String, Object> params = Map.of(
-                "type", "cards",
-                "gameId", gameId,
-                "user", userId,
-                "cards", cardsArray
-        );
-        sendWebSocketMessage("/game/" + gameId + "/" + userId, params);
+        String message = MessageEncoder.message(CARDS)
+                .field("gameId", gameId)
+                .field("user", userId)
+                .cards("cards", List.of(randomCard))
+                .end();
+        sendWebSocketMessage("/game/" + gameId + "/" + userId, message);
     }
 
     public void sendMessageGameCreated(Long gameId) {
@@ -0,0 +1,273 @@
+package ch.uzh.ifi.hase.soprafs24.websocket;
+
+import ch.uzh.ifi.hase.soprafs24.deck.CardCatalog;
+import ch.uzh.ifi.hase.soprafs24.deck.CardCodes;
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+
+import java.util.List;
+
+/**
+ * Writes the JSON messages sent to the players field by field into a buffer reused by the calling thread, without
+ * building maps or JSON objects first. The fragments that only depend on constants are encoded once: the beginning
+ * of a message of a type (see {@link #template(String)}) and each of the 54 cards.
+ *
+ * A thread encodes one message at a time: a message is started with {@link #message(Template)} and its text is
+ * returned by {@link #end()}. Starting a message discards whatever the thread encoded before, hence a message must
+ * be ended before the next one is started.
+ */
+public final class MessageEncoder {
+
+    // A buffer grown beyond this size by an unusually large message is not kept for the next ones
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final int INITIAL_CAPACITY = 512;
+
+    private static final String[] CARD_FRAGMENTS = new String[CardCodes.DECK_SIZE];
+
+    private static final ThreadLocal<MessageEncoder> ENCODERS = ThreadLocal.withInitial(MessageEncoder::new);
+
+    static {
+        for (int index = 0; index < CardCodes.DECK_SIZE; index++) {
+            Card card = CardCatalog.get(index);
+            CARD_FRAGMENTS[index] = cardFragment(card.getCode(), card.getInternalCode());
+        }
+    }
+
+    /**
+     * Beginning of the messages of a type, i.e. the opening brace and the type field
+     */
+    public static final class Template {
+
+        private final String prefix;
+
+        private Template(String type) {
+            this.prefix = "{" + quote("type") + ":" + quote(type);
+        }
+    }
+
+    private StringBuilder buffer = new StringBuilder(INITIAL_CAPACITY);
+
+    // Whether a member was written to the innermost object or array, i.e. the next one is preceded by a comma
+    private boolean separate;
+
+    private MessageEncoder() {
+    }
+
+    /**
+     * @param type of the messages, e.g. "startTurn"
+     * @return template to be kept in a constant
+     */
+    public static Template template(String type) {
+        return new Template(type);
+    }
+
+    /**
+     * Starts a message on the calling thread
+     * @param template of the message type
+     * @return encoder to write the fields of the message to
+     */
+    public static MessageEncoder message(Template template) {
+        MessageEncoder encoder = ENCODERS.get();
+        if (encoder.buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            encoder.buffer = new StringBuilder(INITIAL_CAPACITY);
+        }
+        encoder.buffer.setLength(0);
+        encoder.buffer.append(template.prefix);
+        encoder.separate = true;
+        return encoder;
+    }
+
+    public MessageEncoder field(String name, String value) {
+        name(name);
+        if (value == null) {
+            buffer.append("null");
+        } else {
+            appendQuoted(value);
+        }
+        return this;
+    }
+
+    public MessageEncoder field(String name, long value) {
+        name(name);
+        buffer.append(value);
+        return this;
+    }
+
+    public MessageEncoder field(String name, Integer value) {
+        name(name);
+        if (value == null) {
+            buffer.append("null");
+        } else {
+            buffer.append(value.intValue());
+        }
+        return this;
+    }
+
+    /**
+     * Writes an array of cards, each as object with its code and internal code
+     */
+    public MessageEncoder cards(String name, List<Card> cards) {
+        beginArray(name);
+        for (Card card : cards) {
+            separate();
+            String code = card.getCode();
+            if (code != null && CardCodes.isValid(code)) {
+                int index = CardCodes.indexOf(code);
+                if (CardCatalog.get(index).getInternalCode().equals(card.getInternalCode())) {
+                    buffer.append(CARD_FRAGMENTS[index]);
+                    continue;
+                }
+            }
+            // A card whose internal code differs from the one of the catalog
+            buffer.append('{');
+            appendQuoted("code");
+            buffer.append(':');
+            appendNullable(code);
+            buffer.append(',');
+            appendQuoted("internalCode");
+            buffer.append(':');
+            appendNullable(card.getInternalCode());
+            buffer.append('}');
+        }
+        return endArray();
+    }
+
+    /**
+     * Writes an array of messages encoded before, e.g. to send several messages in one frame
+     */
+    public MessageEncoder messages(String name, List<String> messages) {
+        beginArray(name);
+        for (String message : messages) {
+            separate();
+            buffer.append(message);
+        }
+        return endArray();
+    }
+
+    public MessageEncoder beginObject(String name) {
+        name(name);
+        buffer.append('{');
+        separate = false;
+        return this;
+    }
+
+    /**
+     * Begins an object element of the array begun last
+     */
+    public MessageEncoder beginObject() {
+        separate();
+        buffer.append('{');
+        separate = false;
+        return this;
+    }
+
+    public MessageEncoder endObject() {
+        buffer.append('}');
+        separate = true;
+        return this;
+    }
+
+    public MessageEncoder beginArray(String name) {
+        name(name);
+        buffer.append('[');
+        separate = false;
+        return this;
+    }
+
+    public MessageEncoder endArray() {
+        buffer.append(']');
+        separate = true;
+        return this;
+    }
+
+    /**
+     * Writes a string element of the array begun last
+     */
+    public MessageEncoder value(String value) {
+        separate();
+        appendNullable(value);
+        return this;
+    }
+
+    /**
+     * Ends the message, the buffer is reused by the next message of the thread
+     * @return text of the message
+     */
+    public String end() {
+        buffer.append('}');
+        return buffer.toString();
+    }
+
+    private void name(String name) {
+        separate();
+        appendQuoted(name);
+        buffer.append(':');
+    }
+
+    private void separate() {
+        if (separate) {
+            buffer.append(',');
+        }
+        separate = true;
+    }
+
+    private void appendNullable(String value) {
+        if (value == null) {
+            buffer.append("null");
+        } else {
+            appendQuoted(value);
+        }
+    }
+
+    private void appendQuoted(String value) {
+        buffer.append('"');
+        appendEscaped(buffer, value);
+        buffer.append('"');
+    }
+
+    private static String cardFragment(String code, String internalCode) {
+        return "{" + quote("code") + ":" + quote(code) + "," + quote("internalCode") + ":" + quote(internalCode) + "}";
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2);
+        quoted.append('"');
+        appendEscaped(quoted, value);
+        return quoted.append('"').toString();
+    }
+
+    private static void appendEscaped(StringBuilder target, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    target.append("\\\"");
+                    break;
+                case '\\':
+                    target.append("\\\\");
+                    break;
+                case '\n':
+                    target.append("\\n");
+                    break;
+                case '\r':
+                    target.append("\\r");
+                    break;
+                case '\t':
+                    target.append("\\t");
+                    break;
+                case '\b':
+                    target.append("\\b");
+                    break;
+                case '\f':
+                    target.append("\\f");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        target.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        target.append(c);
+                    }
+            }
+        }
+    }
+}
@@ -1,21 +1,27 @@
 package ch.uzh.ifi.hase.soprafs24.controller;
 
+import ch.uzh.ifi.hase.soprafs24.engine.GameCommandExecutor;
 import ch.uzh.ifi.hase.soprafs24.entity.Card;
 import ch.uzh.ifi.hase.soprafs24.entity.Game;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.service.CardEffectService;
 import ch.uzh.ifi.hase.soprafs24.service.GameDeckService;
 import ch.uzh.ifi.hase.soprafs24.service.GameEngineService;
+import ch.uzh.ifi.hase.soprafs24.service.GameLogService;
 import ch.uzh.ifi.hase.soprafs24.service.WebSocketService;
 import ch.uzh.ifi.hase.soprafs24.websocket.dto.CardMoveRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.RequestBuilder;
 import org.springframework.test.web.servlet.ResultMatcher;
@@ -45,12 +51,21 @@ class GameEngineControllerTest {
     @Mock
     private WebSocketService webSocketService;
 
+    @Mock
+    private GameLogService gameLogService;
+
+    // Commands are executed on the calling thread, such that their effects can be verified right away
+    @Spy
+    private GameCommandExecutor gameCommandExecutor = new GameCommandExecutor(Runnable::run);
+
     @InjectMocks
     private GameEngineController gameEngineController;
 
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
+        // The rules are applied for real, such that the handlers called for the played cards can be verified
+        ReflectionTestUtils.setField(gameEngineController, "cardEffectService", new CardEffectService(gameEngineService));
     }
 
     @Autowired
@@ -445,12 +460,50 @@ class GameEngineControllerTest {
         doThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Targeted User is not part of the game"))
                 .when(gameEngineService).reloadGameState(gameId, userId);
 
-        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
-            gameEngineController.loadCachedGame(gameId, userId);
-        });
+        // The failure is confined to the command of the game, the inbound thread is not affected
+        assertDoesNotThrow(() -> gameEngineController.loadCachedGame(gameId, userId));
+
+        verify(gameEngineService, times(1)).reloadGameState(gameId, userId);
+    }
+
+    @Test
+    public void testResendGameState_fullSnapshotToPlayer() {
+        gameEngineController.resendGameState(1L, 2L);
+
+        verify(webSocketService, times(1)).sendFullGameState(1L, 2L);
+        verifyNoInteractions(gameEngineService, gameLogService);
+    }
+
+    @Test
+    public void testCommandsOfGame_executedInOrder() throws IOException, InterruptedException {
+        Long gameId = 1L;
+        Long userId = 2L;
+
+        gameEngineController.loadCachedGame(gameId, userId);
+        gameEngineController.handleLeavingUser(gameId, userId);
+
+        InOrder inOrder = inOrder(gameEngineService);
+        inOrder.verify(gameEngineService).reloadGameState(gameId, userId);
+        inOrder.verify(gameEngineService).removeUserFromGame(gameId, userId);
+        verify(gameCommandExecutor, times(2)).submit(eq(gameId), anyString(), any());
+    }
+
+    @Test
+    public void testCommands_recordedInLog() throws IOException, InterruptedException {
+        Long gameId = 1L;
+        Long userId = 2L;
+
+        doThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "User is not part of the game"))
+                .when(gameEngineService).removeUserFromGame(gameId, userId);
+
+        gameEngineController.handleExplosionPlacement(gameId, userId, "1");
+        gameEngineController.handleLeavingUser(gameId, userId);
 
-        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
-        assertEquals("Targeted User is not part of the game", exception.getReason());
+        InOrder inOrder = inOrder(gameLogService);
+        inOrder.verify(gameLogService).recordCommand(gameId, userId, "explosion placement");
+        inOrder.verify(gameLogService).recordCommand(gameId, userId, "leave");
+        inOrder.verify(gameLogService).recordRejected(eq(gameId), eq(userId), eq("leave"), contains("User is not part of the game"));
+        verifyNoMoreInteractions(gameLogService);
     }
 
     @Test
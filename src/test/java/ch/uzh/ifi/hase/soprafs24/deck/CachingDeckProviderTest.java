@@ -0,0 +1,124 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("dev")
+public class CachingDeckProviderTest {
+
+    private final AtomicInteger listings = new AtomicInteger();
+
+    private CachingDeckProvider deckProvider;
+
+    private String deckId;
+
+    private List<String> drawn;
+
+    @BeforeEach
+    public void setup() throws IOException, InterruptedException {
+        InMemoryDeckProvider inMemoryDeckProvider = new InMemoryDeckProvider(new Random(17)) {
+            @Override
+            public List<Card> listPile(String deckId, String pileName) {
+                listings.incrementAndGet();
+                return super.listPile(deckId, pileName);
+            }
+        };
+        deckProvider = new CachingDeckProvider(inMemoryDeckProvider);
+        deckId = deckProvider.newDeck();
+        drawn = codes(deckProvider.drawFromDeck(deckId, 6));
+        deckProvider.addToPile(deckId, DeckProvider.PLAY_PILE, drawn.subList(0, 2));
+        deckProvider.addToPile(deckId, "1", drawn.subList(2, 4));
+    }
+
+    private List<String> codes(List<Card> cards) {
+        return cards.stream().map(Card::getCode).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testListPile_cachedWithinScope() throws IOException, InterruptedException {
+        try (DeckProvider.ReadScope scope = deckProvider.openReadScope()) {
+            assertEquals(drawn.subList(0, 2), codes(deckProvider.listPile(deckId, DeckProvider.PLAY_PILE)));
+            assertEquals(drawn.subList(0, 2), codes(deckProvider.listPile(deckId, DeckProvider.PLAY_PILE)));
+            assertEquals(List.of(drawn.get(1)), codes(deckProvider.peekPile(deckId, DeckProvider.PLAY_PILE, 1)));
+        }
+        assertEquals(1, listings.get());
+    }
+
+    @Test
+    public void testListPile_notCachedOutsideScope() throws IOException, InterruptedException {
+        deckProvider.listPile(deckId, DeckProvider.PLAY_PILE);
+        deckProvider.listPile(deckId, DeckProvider.PLAY_PILE);
+
+        assertEquals(2, listings.get());
+    }
+
+    @Test
+    public void testWrite_invalidatesOnlyItsPile() throws IOException, InterruptedException {
+        try (DeckProvider.ReadScope scope = deckProvider.openReadScope()) {
+            deckProvider.listPile(deckId, DeckProvider.PLAY_PILE);
+            deckProvider.pileMask(deckId, "1");
+
+            deckProvider.addToPile(deckId, DeckProvider.PLAY_PILE, drawn.subList(4, 5));
+
+            assertEquals(3, deckProvider.listPile(deckId, DeckProvider.PLAY_PILE).size());
+            assertEquals(drawn.get(4), deckProvider.peekPile(deckId, DeckProvider.PLAY_PILE, 1).get(0).getCode());
+            assertEquals(CardMask.of(drawn.subList(2, 4)), deckProvider.pileMask(deckId, "1"));
+        }
+        assertEquals(3, listings.get());
+    }
+
+    @Test
+    public void testMoveRandomCard_invalidatesBothPiles() throws IOException, InterruptedException {
+        try (DeckProvider.ReadScope scope = deckProvider.openReadScope()) {
+            deckProvider.listPile(deckId, DeckProvider.PLAY_PILE);
+            deckProvider.listPile(deckId, "1");
+
+            deckProvider.moveRandomCard(deckId, "1", DeckProvider.PLAY_PILE);
+
+            assertEquals(3, deckProvider.listPile(deckId, DeckProvider.PLAY_PILE).size());
+            assertEquals(1, deckProvider.listPile(deckId, "1").size());
+        }
+        assertEquals(4, listings.get());
+    }
+
+    @Test
+    public void testWriteOnOtherThread_invalidatesScope() throws Exception {
+        try (DeckProvider.ReadScope scope = deckProvider.openReadScope()) {
+            deckProvider.listPile(deckId, "1");
+
+            CompletableFuture.runAsync(() -> {
+                try {
+                    deckProvider.drawFromPile(deckId, "1", 1);
+                } catch (IOException | InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }).get();
+
+            assertEquals(List.of(drawn.get(2)), codes(deckProvider.listPile(deckId, "1")));
+        }
+    }
+
+    @Test
+    public void testNestedScope_closedByOutermost() throws IOException, InterruptedException {
+        try (DeckProvider.ReadScope scope = deckProvider.openReadScope()) {
+            try (DeckProvider.ReadScope nested = deckProvider.openReadScope()) {
+                deckProvider.listPile(deckId, DeckProvider.PLAY_PILE);
+            }
+            deckProvider.listPile(deckId, DeckProvider.PLAY_PILE);
+        }
+        deckProvider.listPile(deckId, DeckProvider.PLAY_PILE);
+
+        assertEquals(2, listings.get());
+    }
+}
@@ -0,0 +1,73 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.constant.CardType;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("dev")
+public class CardMaskTest {
+
+    @Test
+    public void testOf_roundTrip() {
+        long mask = CardMask.of(List.of("X1", "AS", "KH"));
+
+        assertEquals(3, CardMask.count(mask));
+        assertEquals(List.of("AS", "KH", "X1"), CardMask.codes(mask));
+        assertEquals(mask, CardMask.ofCards(CardMask.cards(mask)));
+    }
+
+    @Test
+    public void testFullDeck() {
+        assertEquals(CardCodes.DECK_SIZE, CardMask.count(CardMask.FULL_DECK));
+        assertEquals(CardMask.FULL_DECK, CardMask.of(CardMask.codes(CardMask.FULL_DECK)));
+    }
+
+    @Test
+    public void testOfType() {
+        assertEquals(6, CardMask.count(CardMask.ofType(CardType.DEFUSE)));
+        assertEquals(4, CardMask.count(CardMask.ofType(CardType.EXPLOSION)));
+        assertEquals(8, CardMask.count(CardMask.ofType(CardType.FUTURE)));
+        assertEquals(CardMask.EMPTY, CardMask.ofType(CardType.UNKNOWN));
+    }
+
+    @Test
+    public void testContainsAll() {
+        long hand = CardMask.of(List.of("AS", "KH", "5C"));
+
+        assertTrue(CardMask.containsAll(hand, CardMask.of(List.of("AS", "5C"))));
+        assertFalse(CardMask.containsAll(hand, CardMask.of(List.of("AS", "5D"))));
+        assertTrue(CardMask.contains(hand, CardCodes.indexOf("KH")));
+    }
+
+    @Test
+    public void testSelectAndRandom() {
+        long hand = CardMask.of(List.of("AS", "KH", "X2"));
+
+        assertEquals(CardCodes.indexOf("AS"), CardMask.first(hand));
+        assertEquals(CardCodes.indexOf("X2"), CardMask.select(hand, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> CardMask.select(hand, 3));
+        assertEquals(-1, CardMask.first(CardMask.EMPTY));
+
+        Random random = new Random(17);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(CardMask.contains(hand, CardMask.random(hand, random)));
+        }
+    }
+
+    @Test
+    public void testDeal() {
+        int[] cards = {0, 1, 2, 3, 4, 5, 6};
+
+        long[] hands = CardMask.deal(cards, 3, 2);
+
+        assertEquals(CardMask.bit(0) | CardMask.bit(3), hands[0]);
+        assertEquals(CardMask.bit(1) | CardMask.bit(4), hands[1]);
+        assertEquals(CardMask.bit(2) | CardMask.bit(5), hands[2]);
+        assertThrows(IllegalArgumentException.class, () -> CardMask.deal(cards, 4, 2));
+    }
+}
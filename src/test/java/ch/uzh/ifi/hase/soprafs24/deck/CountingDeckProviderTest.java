@@ -0,0 +1,134 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("dev")
+@ExtendWith(MockitoExtension.class)
+public class CountingDeckProviderTest {
+
+    @Mock
+    private DeckProvider remoteDeckProvider;
+
+    private InMemoryDeckProvider deckStorage;
+
+    private CountingDeckProvider countingDeckProvider;
+
+    @BeforeEach
+    public void setup() {
+        deckStorage = spy(new InMemoryDeckProvider(new Random(17)));
+        countingDeckProvider = new CountingDeckProvider(deckStorage);
+    }
+
+    private List<String> codes(List<Card> cards) {
+        return cards.stream().map(Card::getCode).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testCountPiles_trackedLocally() throws IOException, InterruptedException {
+        String deckId = countingDeckProvider.newDeck();
+        List<String> drawn = codes(countingDeckProvider.drawFromDeck(deckId, CardCodes.DECK_SIZE));
+        countingDeckProvider.addToPile(deckId, DeckProvider.DEALER_PILE, drawn);
+
+        List<Card> hand = countingDeckProvider.drawFromPile(deckId, DeckProvider.DEALER_PILE, 5);
+        countingDeckProvider.addToPile(deckId, "1", codes(hand));
+        countingDeckProvider.drawSpecificFromPile(deckId, "1", List.of(hand.get(0).getCode()));
+        countingDeckProvider.moveRandomCard(deckId, "1", "2");
+        CompletableFuture<Void> pending = countingDeckProvider.drawFromPileAsync(deckId, DeckProvider.DEALER_PILE, 2)
+                .thenCompose(cards -> countingDeckProvider.addToPileAsync(deckId, DeckProvider.PLAY_PILE, codes(cards)));
+        DeckProvider.await(pending);
+
+        Map<String, Integer> counts = countingDeckProvider.countPiles(deckId);
+
+        assertEquals(deckStorage.countPiles(deckId), counts);
+        assertEquals(47, counts.get(DeckProvider.DEALER_PILE));
+        assertEquals(3, counts.get("1"));
+        // Only the comparison above reads the counts of the storage
+        verify(deckStorage, times(1)).countPiles(deckId);
+    }
+
+    @Test
+    public void testCountPiles_unknownDeckIsReadOnce() throws IOException, InterruptedException {
+        countingDeckProvider = new CountingDeckProvider(remoteDeckProvider);
+        when(remoteDeckProvider.countPiles("testId")).thenReturn(Map.of(DeckProvider.DEALER_PILE, 40));
+        when(remoteDeckProvider.drawFromPile("testId", DeckProvider.DEALER_PILE, 1)).thenReturn(List.of(CardCatalog.get("AS")));
+
+        assertEquals(40, countingDeckProvider.countPiles("testId").get(DeckProvider.DEALER_PILE));
+        countingDeckProvider.drawFromPile("testId", DeckProvider.DEALER_PILE, 1);
+        assertEquals(39, countingDeckProvider.countPiles("testId").get(DeckProvider.DEALER_PILE));
+
+        verify(remoteDeckProvider, times(1)).countPiles("testId");
+    }
+
+    @Test
+    public void testReconcilePiles_correctsDrift() throws IOException, InterruptedException {
+        String deckId = countingDeckProvider.newDeck();
+        List<String> drawn = codes(countingDeckProvider.drawFromDeck(deckId, 10));
+        countingDeckProvider.addToPile(deckId, DeckProvider.DEALER_PILE, drawn);
+
+        // A card is removed bypassing the counting provider
+        deckStorage.drawFromPile(deckId, DeckProvider.DEALER_PILE, 1);
+        assertEquals(10, countingDeckProvider.countPiles(deckId).get(DeckProvider.DEALER_PILE));
+
+        assertEquals(9, countingDeckProvider.reconcilePiles(deckId).get(DeckProvider.DEALER_PILE));
+        assertEquals(9, countingDeckProvider.countPiles(deckId).get(DeckProvider.DEALER_PILE));
+    }
+
+    @Test
+    public void testPeekPile_topTrackedLocally() throws IOException, InterruptedException {
+        String deckId = countingDeckProvider.newDeck();
+        List<String> drawn = codes(countingDeckProvider.drawFromDeck(deckId, 20));
+        for (int i = 0; i < 12; i++) {
+            countingDeckProvider.addToPile(deckId, DeckProvider.PLAY_PILE, drawn.subList(i, i + 1));
+        }
+        countingDeckProvider.drawSpecificFromPile(deckId, DeckProvider.PLAY_PILE, List.of(drawn.get(10)));
+        countingDeckProvider.insertIntoPile(deckId, DeckProvider.PLAY_PILE, drawn.get(12), 1);
+
+        assertEquals(List.of(drawn.get(11), drawn.get(12), drawn.get(9)), codes(countingDeckProvider.peekPile(deckId, DeckProvider.PLAY_PILE, 3)));
+        assertEquals(List.of(), countingDeckProvider.peekPile(deckId, "1", 1));
+        verify(deckStorage, never()).peekPile(anyString(), anyString(), anyInt());
+
+        // More cards than tracked are read from the storage
+        assertEquals(codes(deckStorage.peekPile(deckId, DeckProvider.PLAY_PILE, 12)), codes(countingDeckProvider.peekPile(deckId, DeckProvider.PLAY_PILE, 12)));
+    }
+
+    @Test
+    public void testPeekPile_afterShuffleReadOnce() throws IOException, InterruptedException {
+        String deckId = countingDeckProvider.newDeck();
+        List<String> drawn = codes(countingDeckProvider.drawFromDeck(deckId, 10));
+        countingDeckProvider.addToPile(deckId, DeckProvider.DEALER_PILE, drawn);
+
+        countingDeckProvider.shufflePile(deckId, DeckProvider.DEALER_PILE);
+        List<Card> peeked = countingDeckProvider.peekPile(deckId, DeckProvider.DEALER_PILE, 3);
+        List<Card> drawnFromTop = countingDeckProvider.drawFromPile(deckId, DeckProvider.DEALER_PILE, 1);
+
+        assertEquals(peeked.get(0).getCode(), drawnFromTop.get(0).getCode());
+        assertEquals(codes(peeked.subList(1, 3)), codes(countingDeckProvider.peekPile(deckId, DeckProvider.DEALER_PILE, 2)));
+        verify(deckStorage, times(1)).peekPile(deckId, DeckProvider.DEALER_PILE, 3);
+    }
+
+    @Test
+    public void testDiscardDeck_forgetsCounts() throws IOException, InterruptedException {
+        String deckId = countingDeckProvider.newDeck();
+
+        countingDeckProvider.discardDeck(deckId);
+
+        verify(deckStorage).discardDeck(deckId);
+        assertThrows(RuntimeException.class, () -> countingDeckProvider.countPiles(deckId));
+    }
+}
@@ -0,0 +1,130 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("dev")
+public class DeckApiStubServerTest {
+
+    private DeckApiStubServer stubServer;
+
+    private RemoteDeckProvider remoteDeckProvider;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        stubServer = new DeckApiStubServer();
+        stubServer.start();
+        remoteDeckProvider = new RemoteDeckProvider(HttpClient.newHttpClient(), stubServer.getBaseUrl());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        stubServer.stop();
+    }
+
+    private List<String> codes(List<Card> cards) {
+        return cards.stream().map(Card::getCode).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testDealerPileRoundTrip_success() throws IOException, InterruptedException {
+        String deckId = remoteDeckProvider.newDeck();
+        List<String> drawn = codes(remoteDeckProvider.drawFromDeck(deckId, CardCodes.DECK_SIZE));
+        assertEquals(CardCodes.DECK_SIZE, drawn.size());
+
+        remoteDeckProvider.addToPile(deckId, DeckProvider.DEALER_PILE, drawn);
+        assertEquals(CardCodes.DECK_SIZE, remoteDeckProvider.countPiles(deckId).get(DeckProvider.DEALER_PILE));
+
+        List<Card> top = remoteDeckProvider.drawFromPile(deckId, DeckProvider.DEALER_PILE, 2);
+        assertEquals(List.of(drawn.get(53), drawn.get(52)), codes(top));
+
+        remoteDeckProvider.addToPile(deckId, "1", codes(top));
+        assertEquals(codes(top), codes(remoteDeckProvider.listPile(deckId, "1")));
+        assertEquals(1, remoteDeckProvider.drawRandomFromPile(deckId, "1").size());
+    }
+
+    @Test
+    public void testConcurrentPlayerPiles_success() throws IOException, InterruptedException {
+        String deckId = remoteDeckProvider.newDeck();
+        List<String> drawn = codes(remoteDeckProvider.drawFromDeck(deckId, CardCodes.DECK_SIZE));
+        remoteDeckProvider.addToPile(deckId, DeckProvider.DEALER_PILE, drawn);
+        stubServer.setLatencyMillis(20);
+
+        List<CompletableFuture<Void>> pendingPiles = new ArrayList<>();
+        for (int player = 1; player <= 5; player++) {
+            String pileName = String.valueOf(player);
+            pendingPiles.add(remoteDeckProvider.drawFromPileAsync(deckId, DeckProvider.DEALER_PILE, 5)
+                    .thenCompose(cards -> remoteDeckProvider.addToPileAsync(deckId, pileName, codes(cards))));
+        }
+        for (CompletableFuture<Void> pendingPile : pendingPiles) {
+            DeckProvider.await(pendingPile);
+        }
+
+        Set<String> dealt = new HashSet<>();
+        for (int player = 1; player <= 5; player++) {
+            List<String> pile = codes(remoteDeckProvider.listPile(deckId, String.valueOf(player)));
+            assertEquals(5, pile.size());
+            dealt.addAll(pile);
+        }
+        assertEquals(25, dealt.size());
+        assertEquals(CardCodes.DECK_SIZE - 25, remoteDeckProvider.countPiles(deckId).get(DeckProvider.DEALER_PILE));
+    }
+
+    @Test
+    public void testInsertIntoPile_keepsOrderOfLiftedCards() throws IOException, InterruptedException {
+        String deckId = remoteDeckProvider.newDeck();
+        List<String> drawn = codes(remoteDeckProvider.drawFromDeck(deckId, 5));
+        remoteDeckProvider.addToPile(deckId, DeckProvider.DEALER_PILE, drawn.subList(0, 4));
+
+        remoteDeckProvider.insertIntoPile(deckId, DeckProvider.DEALER_PILE, drawn.get(4), 2);
+
+        assertEquals(List.of(drawn.get(0), drawn.get(1), drawn.get(4), drawn.get(2), drawn.get(3)),
+                codes(remoteDeckProvider.listPile(deckId, DeckProvider.DEALER_PILE)));
+    }
+
+    @Test
+    public void testDrawSpecificFromPile_missingCard() throws IOException, InterruptedException {
+        String deckId = remoteDeckProvider.newDeck();
+        List<String> drawn = codes(remoteDeckProvider.drawFromDeck(deckId, 2));
+        remoteDeckProvider.addToPile(deckId, "1", drawn.subList(0, 1));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> remoteDeckProvider.drawSpecificFromPile(deckId, "1", drawn.subList(1, 2)));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    public void testFailureInjection() throws IOException, InterruptedException {
+        String deckId = remoteDeckProvider.newDeck();
+        stubServer.setFailureRate(1.0);
+
+        assertThrows(IOException.class, () -> remoteDeckProvider.countPiles(deckId));
+    }
+
+    @Test
+    public void testLatencyInjection() throws IOException, InterruptedException {
+        stubServer.setLatencyMillis(50);
+
+        long start = System.nanoTime();
+        remoteDeckProvider.newDeck();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis >= 50, "Request took " + elapsedMillis + "ms");
+    }
+}
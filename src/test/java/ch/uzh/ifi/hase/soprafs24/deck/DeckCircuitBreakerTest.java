@@ -0,0 +1,89 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("dev")
+public class DeckCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private DeckCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    public void setup() {
+        circuitBreaker = new DeckCircuitBreaker(3, 1000, now::get);
+    }
+
+    private void failRequests(int times) {
+        for (int i = 0; i < times; i++) {
+            circuitBreaker.acquire();
+            circuitBreaker.onFailure();
+        }
+    }
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        failRequests(2);
+        circuitBreaker.acquire();
+        circuitBreaker.onSuccess();
+        failRequests(2);
+        assertEquals(DeckCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        failRequests(1);
+
+        assertEquals(DeckCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> circuitBreaker.acquire());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+    }
+
+    @Test
+    public void testHalfOpen_successCloses() {
+        failRequests(3);
+        now.addAndGet(1000);
+
+        circuitBreaker.acquire();
+        // Only a single trial request passes while half open
+        assertThrows(ResponseStatusException.class, () -> circuitBreaker.acquire());
+        circuitBreaker.onSuccess();
+
+        assertEquals(DeckCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.acquire();
+    }
+
+    @Test
+    public void testHalfOpen_failureReopens() {
+        failRequests(3);
+        now.addAndGet(1000);
+
+        circuitBreaker.acquire();
+        circuitBreaker.onFailure();
+
+        assertEquals(DeckCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertThrows(ResponseStatusException.class, () -> circuitBreaker.acquire());
+    }
+
+    @Test
+    public void testHalfOpen_trialWithoutOutcomeGivenUp() {
+        failRequests(3);
+        now.addAndGet(1000);
+
+        // The trial request is interrupted and never reports its outcome
+        circuitBreaker.acquire();
+        now.addAndGet(999);
+        assertThrows(ResponseStatusException.class, () -> circuitBreaker.acquire());
+
+        now.addAndGet(1);
+        circuitBreaker.acquire();
+        circuitBreaker.onSuccess();
+
+        assertEquals(DeckCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+}
@@ -0,0 +1,260 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("dev")
+public class InMemoryDeckProviderTest {
+
+    private InMemoryDeckProvider deckProvider;
+
+    private String deckId;
+
+    @BeforeEach
+    public void setup() {
+        deckProvider = new InMemoryDeckProvider(new Random(17));
+        deckId = deckProvider.newDeck();
+    }
+
+    private List<String> codes(List<Card> cards) {
+        return cards.stream().map(Card::getCode).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testDrawFromDeck_allCardsUnique() {
+        List<Card> cards = deckProvider.drawFromDeck(deckId, CardCodes.DECK_SIZE);
+
+        assertEquals(CardCodes.DECK_SIZE, new HashSet<>(codes(cards)).size());
+        assertTrue(codes(cards).contains("X1"));
+        assertTrue(codes(cards).contains("X2"));
+        // Cards are the shared instances of the catalog, already carrying their internal representation
+        assertSame(CardCatalog.get(cards.get(0).getCode()), cards.get(0));
+        assertNotNull(cards.get(0).getInternalCode());
+    }
+
+    @Test
+    public void testDrawFromDeck_notEnoughCards() {
+        deckProvider.drawFromDeck(deckId, 50);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> deckProvider.drawFromDeck(deckId, 5));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    public void testUnknownDeck_notFound() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> deckProvider.countPiles("unknown"));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+    }
+
+    @Test
+    public void testAddToPile_drawFromTop() {
+        List<String> drawn = codes(deckProvider.drawFromDeck(deckId, 3));
+        deckProvider.addToPile(deckId, DeckProvider.DEALER_PILE, drawn);
+
+        // The last added card lies on top, listings are bottom first
+        assertEquals(drawn, codes(deckProvider.listPile(deckId, DeckProvider.DEALER_PILE)));
+
+        List<Card> top = deckProvider.drawFromPile(deckId, DeckProvider.DEALER_PILE, 2);
+        assertEquals(List.of(drawn.get(2), drawn.get(1)), codes(top));
+        assertEquals(1, deckProvider.countPiles(deckId).get(DeckProvider.DEALER_PILE));
+    }
+
+    @Test
+    public void testAddToPile_cardNotDrawn() {
+        List<String> drawn = codes(deckProvider.drawFromDeck(deckId, 2));
+        deckProvider.addToPile(deckId, "1", drawn);
+
+        // The cards already lie in pile 1, hence they can't be added a second time
+        assertThrows(ResponseStatusException.class, () -> deckProvider.addToPile(deckId, "2", drawn));
+        assertEquals(2, deckProvider.countPiles(deckId).get("1"));
+        assertNull(deckProvider.countPiles(deckId).get("2"));
+    }
+
+    @Test
+    public void testDrawSpecificFromPile_success() {
+        List<String> drawn = codes(deckProvider.drawFromDeck(deckId, 4));
+        deckProvider.addToPile(deckId, "1", drawn);
+
+        List<Card> cards = deckProvider.drawSpecificFromPile(deckId, "1", List.of(drawn.get(1), drawn.get(3)));
+
+        assertEquals(List.of(drawn.get(1), drawn.get(3)), codes(cards));
+        assertEquals(List.of(drawn.get(0), drawn.get(2)), codes(deckProvider.listPile(deckId, "1")));
+    }
+
+    @Test
+    public void testDrawSpecificFromPile_missingCardLeavesPileUntouched() {
+        List<String> drawn = codes(deckProvider.drawFromDeck(deckId, 3));
+        deckProvider.addToPile(deckId, "1", drawn.subList(0, 2));
+
+        assertThrows(ResponseStatusException.class, () -> deckProvider.drawSpecificFromPile(deckId, "1", List.of(drawn.get(0), drawn.get(2))));
+        assertEquals(drawn.subList(0, 2), codes(deckProvider.listPile(deckId, "1")));
+    }
+
+    @Test
+    public void testDrawSpecificFromPile_duplicateCardLeavesPileUntouched() {
+        List<String> drawn = codes(deckProvider.drawFromDeck(deckId, 2));
+        deckProvider.addToPile(deckId, "1", drawn);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> deckProvider.drawSpecificFromPile(deckId, "1", List.of(drawn.get(0), drawn.get(0))));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        assertEquals(drawn, codes(deckProvider.listPile(deckId, "1")));
+    }
+
+    @Test
+    public void testDrawRandomFromPile_success() {
+        List<String> drawn = codes(deckProvider.drawFromDeck(deckId, 5));
+        deckProvider.addToPile(deckId, "1", drawn);
+
+        List<Card> cards = deckProvider.drawRandomFromPile(deckId, "1");
+
+        assertEquals(1, cards.size());
+        assertTrue(drawn.contains(cards.get(0).getCode()));
+        assertEquals(4, deckProvider.countPiles(deckId).get("1"));
+    }
+
+    @Test
+    public void testShufflePile_keepsCards() {
+        List<String> drawn = codes(deckProvider.drawFromDeck(deckId, CardCodes.DECK_SIZE));
+        deckProvider.addToPile(deckId, DeckProvider.DEALER_PILE, drawn);
+
+        deckProvider.shufflePile(deckId, DeckProvider.DEALER_PILE);
+
+        List<String> shuffled = codes(deckProvider.listPile(deckId, DeckProvider.DEALER_PILE));
+        assertEquals(new HashSet<>(drawn), new HashSet<>(shuffled));
+        assertNotEquals(drawn, shuffled);
+    }
+
+    @Test
+    public void testInsertIntoPile_atDepth() {
+        List<String> drawn = codes(deckProvider.drawFromDeck(deckId, 5));
+        deckProvider.addToPile(deckId, DeckProvider.DEALER_PILE, drawn.subList(0, 4));
+
+        deckProvider.insertIntoPile(deckId, DeckProvider.DEALER_PILE, drawn.get(4), 1);
+
+        // One card remains above the inserted card, the order of all other cards is kept
+        assertEquals(List.of(drawn.get(0), drawn.get(1), drawn.get(2), drawn.get(4), drawn.get(3)),
+                codes(deckProvider.listPile(deckId, DeckProvider.DEALER_PILE)));
+    }
+
+    @Test
+    public void testInsertIntoPile_topAndBottom() {
+        List<String> drawn = codes(deckProvider.drawFromDeck(deckId, 4));
+        deckProvider.addToPile(deckId, DeckProvider.DEALER_PILE, drawn.subList(0, 2));
+
+        deckProvider.insertIntoPile(deckId, DeckProvider.DEALER_PILE, drawn.get(2), 0);
+        deckProvider.insertIntoPile(deckId, DeckProvider.DEALER_PILE, drawn.get(3), 99);
+
+        assertEquals(List.of(drawn.get(3), drawn.get(0), drawn.get(1), drawn.get(2)),
+                codes(deckProvider.listPile(deckId, DeckProvider.DEALER_PILE)));
+        assertThrows(ResponseStatusException.class, () -> deckProvider.insertIntoPile(deckId, DeckProvider.DEALER_PILE, drawn.get(0), 0));
+    }
+
+    @Test
+    public void testPeekPile_doesNotAlterPile() {
+        List<String> drawn = codes(deckProvider.drawFromDeck(deckId, 5));
+        deckProvider.addToPile(deckId, DeckProvider.DEALER_PILE, drawn);
+
+        List<Card> peeked = deckProvider.peekPile(deckId, DeckProvider.DEALER_PILE, 3);
+
+        assertEquals(List.of(drawn.get(4), drawn.get(3), drawn.get(2)), codes(peeked));
+        assertEquals(drawn, codes(deckProvider.listPile(deckId, DeckProvider.DEALER_PILE)));
+        assertEquals(5, deckProvider.peekPile(deckId, DeckProvider.DEALER_PILE, 7).size());
+        assertTrue(deckProvider.peekPile(deckId, "1", 2).isEmpty());
+    }
+
+    @Test
+    public void testPileMask_success() {
+        List<String> drawn = codes(deckProvider.drawFromDeck(deckId, 5));
+        deckProvider.addToPile(deckId, "1", drawn);
+        deckProvider.drawSpecificFromPile(deckId, "1", List.of(drawn.get(2)));
+
+        long mask = deckProvider.pileMask(deckId, "1");
+
+        assertEquals(4, CardMask.count(mask));
+        assertFalse(CardMask.contains(mask, CardCodes.indexOf(drawn.get(2))));
+        assertEquals(CardMask.EMPTY, deckProvider.pileMask(deckId, "2"));
+    }
+
+    @Test
+    public void testMoveRandomCard_success() {
+        List<String> drawn = codes(deckProvider.drawFromDeck(deckId, 4));
+        deckProvider.addToPile(deckId, "1", drawn.subList(0, 3));
+        deckProvider.addToPile(deckId, "2", drawn.subList(3, 4));
+
+        Card stolen = deckProvider.moveRandomCard(deckId, "1", "2");
+
+        assertTrue(drawn.subList(0, 3).contains(stolen.getCode()));
+        assertEquals(2, deckProvider.countPiles(deckId).get("1"));
+        assertEquals(List.of(drawn.get(3), stolen.getCode()), codes(deckProvider.listPile(deckId, "2")));
+    }
+
+    @Test
+    public void testMoveRandomCard_emptyPile() {
+        List<String> drawn = codes(deckProvider.drawFromDeck(deckId, 1));
+        deckProvider.addToPile(deckId, "1", drawn);
+        deckProvider.drawFromPile(deckId, "1", 1);
+
+        assertThrows(ResponseStatusException.class, () -> deckProvider.moveRandomCard(deckId, "1", "2"));
+    }
+
+    @Test
+    public void testListPile_unknownPile() {
+        assertTrue(deckProvider.listPile(deckId, DeckProvider.PLAY_PILE).isEmpty());
+    }
+
+    @Test
+    public void testRestoreDeck_recreatesPiles() {
+        Map<String, List<String>> piles = Map.of(DeckProvider.DEALER_PILE, List.of("2S", "3S", "4S"), "1", List.of("AS", "X1"));
+
+        assertTrue(deckProvider.restoreDeck("restored", piles));
+
+        assertEquals(List.of("2S", "3S", "4S"), codes(deckProvider.listPile("restored", DeckProvider.DEALER_PILE)));
+        assertEquals(List.of("X1", "AS"), codes(deckProvider.drawFromPile("restored", "1", 2)));
+        // Cards that are in none of the piles remain in the deck
+        assertEquals(CardCodes.DECK_SIZE - 5, deckProvider.remainingInDeck("restored"));
+        assertFalse(deckProvider.restoreDeck(deckId, piles));
+    }
+
+    @Test
+    public void testRestoreDeck_cardInSeveralPiles() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> deckProvider.restoreDeck("restored", Map.of("1", List.of("AS"), "2", List.of("AS"))));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    public void testDiscardDeck_success() {
+        deckProvider.discardDeck(deckId);
+
+        assertThrows(ResponseStatusException.class, () -> deckProvider.drawFromDeck(deckId, 1));
+    }
+
+    @Test
+    public void testCardCatalog_internalRepresentation() {
+        assertEquals("defuse", CardCatalog.get("X2").getInternalCode());
+        assertEquals("explosion", CardCatalog.get("AH").getInternalCode());
+        assertEquals("future", CardCatalog.get("6C").getInternalCode());
+        assertEquals("HEARTS", CardCatalog.get("QH").getSuit());
+        assertNull(CardCatalog.get("ZZ"));
+        assertEquals(CardCodes.DECK_SIZE, CardCatalog.all().size());
+    }
+
+    @Test
+    public void testCardCodes_roundTrip() {
+        for (int card = 0; card < CardCodes.DECK_SIZE; card++) {
+            assertEquals(card, CardCodes.indexOf(CardCodes.code(card)));
+        }
+        assertEquals("X1", CardCodes.code(52));
+        assertFalse(CardCodes.isValid("ZZ"));
+    }
+}
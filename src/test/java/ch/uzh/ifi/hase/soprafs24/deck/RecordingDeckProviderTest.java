@@ -0,0 +1,122 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("dev")
+public class RecordingDeckProviderTest {
+
+    /**
+     * Rebuilds the piles from the recorded changes only
+     */
+    private static class ReplayingRecorder implements PileRecorder {
+
+        private final Map<String, List<String>> piles = new HashMap<>();
+
+        private final List<String> discarded = new ArrayList<>();
+
+        private List<String> pile(String pileName) {
+            return piles.computeIfAbsent(pileName, name -> new ArrayList<>());
+        }
+
+        @Override
+        public synchronized void added(String deckId, String pileName, List<String> cardCodes) {
+            pile(pileName).addAll(cardCodes);
+        }
+
+        @Override
+        public synchronized void inserted(String deckId, String pileName, String cardCode, int depth) {
+            pile(pileName).add(Math.max(0, pile(pileName).size() - depth), cardCode);
+        }
+
+        @Override
+        public synchronized void removed(String deckId, String pileName, List<String> cardCodes) {
+            pile(pileName).removeAll(cardCodes);
+        }
+
+        @Override
+        public synchronized void replaced(String deckId, String pileName, List<String> cardCodes) {
+            piles.put(pileName, new ArrayList<>(cardCodes));
+        }
+
+        @Override
+        public void discarded(String deckId) {
+            discarded.add(deckId);
+        }
+    }
+
+    private ReplayingRecorder recorder;
+
+    private RecordingDeckProvider deckProvider;
+
+    private String deckId;
+
+    @BeforeEach
+    public void setup() throws IOException, InterruptedException {
+        recorder = new ReplayingRecorder();
+        deckProvider = new RecordingDeckProvider(new InMemoryDeckProvider(new Random(17)), recorder);
+        deckId = deckProvider.newDeck();
+        deckProvider.addToPile(deckId, DeckProvider.DEALER_PILE, codes(deckProvider.drawFromDeck(deckId, CardCodes.DECK_SIZE)));
+    }
+
+    private List<String> codes(List<Card> cards) {
+        return cards.stream().map(Card::getCode).collect(Collectors.toList());
+    }
+
+    private void assertReplayed(String pileName) throws IOException, InterruptedException {
+        assertEquals(codes(deckProvider.listPile(deckId, pileName)), recorder.piles.getOrDefault(pileName, List.of()));
+    }
+
+    @Test
+    public void testRecordedChanges_replayToSamePiles() throws IOException, InterruptedException {
+        // Deal the hands concurrently, as the game start does
+        List<CompletableFuture<Void>> hands = new ArrayList<>();
+        for (int player = 1; player <= 3; player++) {
+            String pileName = String.valueOf(player);
+            hands.add(deckProvider.drawFromPileAsync(deckId, DeckProvider.DEALER_PILE, 5)
+                    .thenCompose(cards -> deckProvider.addToPileAsync(deckId, pileName, codes(cards))));
+        }
+        for (CompletableFuture<Void> hand : hands) {
+            DeckProvider.await(hand);
+        }
+
+        List<Card> played = deckProvider.drawRandomFromPile(deckId, "1");
+        deckProvider.addToPile(deckId, DeckProvider.PLAY_PILE, codes(played));
+        deckProvider.moveRandomCard(deckId, "2", "3");
+        deckProvider.shufflePile(deckId, DeckProvider.DEALER_PILE);
+        List<Card> explosion = deckProvider.drawFromPile(deckId, DeckProvider.DEALER_PILE, 1);
+        deckProvider.insertIntoPile(deckId, DeckProvider.DEALER_PILE, explosion.get(0).getCode(), 4);
+
+        for (String pileName : List.of(DeckProvider.DEALER_PILE, DeckProvider.PLAY_PILE, "1", "2", "3")) {
+            assertReplayed(pileName);
+        }
+    }
+
+    @Test
+    public void testFailedChange_notRecorded() throws IOException, InterruptedException {
+        assertThrows(ResponseStatusException.class, () -> deckProvider.drawSpecificFromPile(deckId, "1", List.of("AS")));
+
+        assertFalse(recorder.piles.containsKey("1"));
+        assertReplayed(DeckProvider.DEALER_PILE);
+    }
+
+    @Test
+    public void testDiscardDeck_reported() {
+        deckProvider.discardDeck(deckId);
+
+        assertEquals(List.of(deckId), recorder.discarded);
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> deckProvider.countPiles(deckId));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+    }
+}
@@ -0,0 +1,257 @@
+package ch.uzh.ifi.hase.soprafs24.deck;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("dev")
+@ExtendWith(MockitoExtension.class)
+public class RemoteDeckProviderTest {
+
+    @Mock
+    private HttpClient httpClient;
+
+    @Mock
+    private HttpResponse<String> mockResponse;
+
+    private RemoteDeckProvider remoteDeckProvider;
+
+    @BeforeEach
+    public void setup() {
+        remoteDeckProvider = new RemoteDeckProvider(httpClient, "https://deckofcardsapi.com/");
+    }
+
+    private void mockResponseBody(String body) throws IOException, InterruptedException {
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(mockResponse);
+        when(mockResponse.body()).thenReturn(body);
+    }
+
+    private String sentUri() throws IOException, InterruptedException {
+        ArgumentCaptor<HttpRequest> requestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient).send(requestCaptor.capture(), any(HttpResponse.BodyHandler.class));
+        return requestCaptor.getValue().uri().toString();
+    }
+
+    @Test
+    public void testNewDeck_success() throws IOException, InterruptedException {
+        mockResponseBody("{\"deck_id\":\"testId\", \"remaining\": 54}");
+
+        String deckId = remoteDeckProvider.newDeck();
+
+        assertEquals("testId", deckId);
+        assertEquals("https://deckofcardsapi.com/api/deck/new/shuffle/?deck_count=1&jokers_enabled=true", sentUri());
+    }
+
+    @Test
+    public void testDrawFromDeck_success() throws IOException, InterruptedException {
+        mockResponseBody("{ \"deck_id\": \"testDeckId\", \"cards\": [{\"code\": \"AS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"}, {\"code\": \"AC\", \"suit\": \"CLUBS\", \"image\": \"http://image2.com\"}] }");
+
+        List<Card> cards = remoteDeckProvider.drawFromDeck("testDeckId", 2);
+
+        assertEquals(2, cards.size());
+        assertEquals("https://deckofcardsapi.com/api/deck/testDeckId/draw/?count=2", sentUri());
+    }
+
+    @Test
+    public void testAddToPile_success() throws IOException, InterruptedException {
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(mockResponse);
+
+        remoteDeckProvider.addToPile("testId", "dealer", List.of("AS", "X1"));
+
+        assertEquals("https://deckofcardsapi.com/api/deck/testId/pile/dealer/add/?cards=AS,X1", sentUri());
+    }
+
+    @Test
+    public void testDrawSpecificFromPile_apiFailure() throws IOException, InterruptedException {
+        mockResponseBody("{\"success\":false, \"error\":\"Not enough cards remaining to draw 1 additional\"}");
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
+            remoteDeckProvider.drawSpecificFromPile("testId", "1", List.of("AS"));
+        });
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        assertEquals("Not enough cards remaining to draw 1 additional", exception.getReason());
+    }
+
+    @Test
+    public void testDrawFromPileAsync_success() throws IOException, InterruptedException {
+        when(httpClient.<String>sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(CompletableFuture.completedFuture(mockResponse));
+        when(mockResponse.statusCode()).thenReturn(200);
+        when(mockResponse.body()).thenReturn("{\"success\": true, \"cards\": [{\"code\": \"KS\"}, {\"code\": \"X1\"}]}");
+
+        List<Card> cards = DeckProvider.await(remoteDeckProvider.drawFromPileAsync("testId", "dealer", 2));
+
+        assertEquals(List.of(CardCatalog.get("KS"), CardCatalog.get("X1")), cards);
+        verify(httpClient, never()).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    public void testDrawSpecificFromPileAsync_apiFailure() {
+        when(httpClient.<String>sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(CompletableFuture.completedFuture(mockResponse));
+        when(mockResponse.statusCode()).thenReturn(200);
+        when(mockResponse.body()).thenReturn("{\"success\":false, \"error\":\"Card AS is not in pile 1\"}");
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> DeckProvider.await(remoteDeckProvider.drawSpecificFromPileAsync("testId", "1", List.of("AS"))));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    public void testAddToPileAsync_serverError() {
+        when(httpClient.<String>sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(CompletableFuture.completedFuture(mockResponse));
+        when(mockResponse.statusCode()).thenReturn(503);
+
+        assertThrows(IOException.class, () -> DeckProvider.await(remoteDeckProvider.addToPileAsync("testId", "1", List.of("AS"))));
+    }
+
+    @Test
+    public void testListPile_success() throws IOException, InterruptedException {
+        mockResponseBody("{\"deck_id\": \"testId\", \"piles\": {\"play\": {\"remaining\": 1, \"cards\": [{\"code\": \"KS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"}]}}}");
+
+        List<Card> cards = remoteDeckProvider.listPile("testId", "play");
+
+        assertEquals(1, cards.size());
+        assertEquals("KS", cards.get(0).getCode());
+        assertEquals("https://deckofcardsapi.com/api/deck/testId/pile/play/list/", sentUri());
+    }
+
+    @Test
+    public void testPeekPile_readsTopOfListing() throws IOException, InterruptedException {
+        mockResponseBody("{\"deck_id\": \"testId\", \"piles\": {\"dealer\": {\"remaining\": 3, \"cards\": [{\"code\": \"KS\"}, {\"code\": \"5D\"}, {\"code\": \"X2\"}]}}}");
+
+        List<Card> cards = remoteDeckProvider.peekPile("testId", "dealer", 2);
+
+        assertEquals(List.of(CardCatalog.get("X2"), CardCatalog.get("5D")), cards);
+        assertEquals("https://deckofcardsapi.com/api/deck/testId/pile/dealer/list/", sentUri());
+    }
+
+    @Test
+    public void testListPile_retriedAfterFailure() throws IOException, InterruptedException {
+        remoteDeckProvider = new RemoteDeckProvider(httpClient, "https://deckofcardsapi.com/", Duration.ofSeconds(1), 3, 1, new DeckCircuitBreaker(5, 1000));
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenThrow(new HttpTimeoutException("request timed out"))
+                .thenReturn(mockResponse);
+        when(mockResponse.body()).thenReturn("{\"piles\": {\"play\": {\"remaining\": 1, \"cards\": [{\"code\": \"KS\"}]}}}");
+
+        List<Card> cards = remoteDeckProvider.listPile("testId", "play");
+
+        assertEquals(1, cards.size());
+        verify(httpClient, times(2)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    public void testDrawFromPile_notRetried() throws IOException, InterruptedException {
+        remoteDeckProvider = new RemoteDeckProvider(httpClient, "https://deckofcardsapi.com/", Duration.ofSeconds(1), 3, 1, new DeckCircuitBreaker(5, 1000));
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenThrow(new HttpTimeoutException("request timed out"));
+
+        assertThrows(IOException.class, () -> remoteDeckProvider.drawFromPile("testId", "dealer", 1));
+        verify(httpClient, times(1)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    public void testOpenCircuit_failsFast() throws IOException, InterruptedException {
+        remoteDeckProvider = new RemoteDeckProvider(httpClient, "https://deckofcardsapi.com/", Duration.ofSeconds(1), 1, 1, new DeckCircuitBreaker(2, 60000));
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenThrow(new HttpTimeoutException("request timed out"));
+
+        assertThrows(IOException.class, () -> remoteDeckProvider.drawFromPile("testId", "dealer", 1));
+        assertThrows(IOException.class, () -> remoteDeckProvider.drawFromPile("testId", "dealer", 1));
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> remoteDeckProvider.drawFromPile("testId", "dealer", 1));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+        verify(httpClient, times(2)).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+        assertTrue(DeckProvider.await(remoteDeckProvider.drawFromPileAsync("testId", "dealer", 1).handle((cards, failure) -> failure instanceof ResponseStatusException)));
+    }
+
+    @Test
+    public void testHalfOpenCircuit_interruptedTrialReported() throws IOException, InterruptedException {
+        AtomicLong now = new AtomicLong();
+        DeckCircuitBreaker circuitBreaker = new DeckCircuitBreaker(1, 1000, now::get);
+        remoteDeckProvider = new RemoteDeckProvider(httpClient, "https://deckofcardsapi.com/", Duration.ofSeconds(1), 1, 1, circuitBreaker);
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenThrow(new HttpTimeoutException("request timed out"))
+                .thenThrow(new InterruptedException());
+
+        assertThrows(IOException.class, () -> remoteDeckProvider.drawFromPile("testId", "dealer", 1));
+        now.addAndGet(1000);
+        assertThrows(InterruptedException.class, () -> remoteDeckProvider.drawFromPile("testId", "dealer", 1));
+
+        assertEquals(DeckCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testBuildGetRequest_hasTimeout() {
+        assertTrue(remoteDeckProvider.buildGetRequest("https://deckofcardsapi.com/api/deck/new/").timeout().isPresent());
+    }
+
+    @Test
+    public void testCountPiles_success() throws IOException, InterruptedException {
+        mockResponseBody("{\"success\":\"true\", \"deck_id\":\"testId\", \"remaining\": 0, \"piles\": {\"dealer\":{\"remaining\":40}, \"play\":{\"remaining\":2}}}");
+
+        Map<String, Integer> counts = remoteDeckProvider.countPiles("testId");
+
+        assertEquals(40, counts.get("dealer"));
+        assertEquals(2, counts.get("play"));
+    }
+
+    @Test
+    public void testParsePileCardCounts_success() throws IOException {
+        String jsonRes = "{\"success\":\"true\", \"deck_id\":\"testId\", \"remaining\": 54, \"piles\": {\"discard\":{\"remaining\":2}}}";
+
+        Map<String, Integer> response = remoteDeckProvider.parsePileCardCounts(jsonRes);
+
+        assertNotNull(response);
+        assertEquals(2, response.get("discard"));
+    }
+
+    @Test
+    public void testParsePileCardCounts_noPiles() {
+        String jsonRes = "{\"success\":\"true\"}";
+
+        assertThrows(IllegalStateException.class, () -> {
+            remoteDeckProvider.parsePileCardCounts(jsonRes);
+        });
+    }
+
+    @Test
+    public void testParseCards_unknownCard() {
+        String jsonResponse = "{ \"deck_id\": \"testDeckId\", \"cards\": [{\"code\": \"ZZ\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"}] }";
+
+        assertThrows(IOException.class, () -> remoteDeckProvider.parseCards(jsonResponse, List.of("cards")));
+    }
+
+    @Test
+    public void testParseCards_success() throws IOException {
+        String jsonResponse = "{ \"deck_id\": \"testDeckId\", \"cards\": [{\"code\": \"AS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"}, {\"code\": \"AC\", \"suit\": \"CLUBS\", \"image\": \"http://image2.com\"}] }";
+
+        List<Card> result = remoteDeckProvider.parseCards(jsonResponse, List.of("cards"));
+
+        assertNotNull(result);
+        assertEquals(2, result.size());
+        assertSame(CardCatalog.get("AS"), result.get(0));
+        assertEquals("explosion", result.get(0).getInternalCode());
+        assertSame(CardCatalog.get("AC"), result.get(1));
+        assertEquals("CLUBS", result.get(1).getSuit());
+    }
+}
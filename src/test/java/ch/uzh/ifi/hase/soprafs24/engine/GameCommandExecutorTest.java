@@ -0,0 +1,141 @@
+package ch.uzh.ifi.hase.soprafs24.engine;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Game;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("dev")
+public class GameCommandExecutorTest {
+
+    private GameCommandExecutor gameCommandExecutor;
+
+    @BeforeEach
+    public void setup() {
+        gameCommandExecutor = new GameCommandExecutor(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        gameCommandExecutor.shutdown();
+    }
+
+    @Test
+    public void testCommandsOfGame_runOneAfterTheOther() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        List<Integer> order = new ArrayList<>();
+
+        List<CompletableFuture<Void>> commands = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int command = i;
+            commands.add(gameCommandExecutor.submit(1L, "command " + i, () -> {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                order.add(command);
+                running.decrementAndGet();
+            }));
+        }
+        CompletableFuture.allOf(commands.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        assertEquals(0, overlaps.get());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    public void testCommandsOfDifferentGames_runInParallel() throws Exception {
+        CountDownLatch otherGameRan = new CountDownLatch(1);
+
+        // The command of game 1 only completes once the command of game 2 ran next to it
+        CompletableFuture<Void> blocked = gameCommandExecutor.submit(1L, "waiting", () -> {
+            if (!otherGameRan.await(5, TimeUnit.SECONDS)) {
+                throw new IOException("Game 2 did not run in parallel");
+            }
+        });
+        gameCommandExecutor.submit(2L, "other game", otherGameRan::countDown).get(5, TimeUnit.SECONDS);
+
+        blocked.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testFailingCommand_doesNotBlockMailbox() throws Exception {
+        CompletableFuture<Void> failed = gameCommandExecutor.submit(1L, "invalid move", () -> {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Move is invalid");
+        });
+        CompletableFuture<Void> next = gameCommandExecutor.submit(1L, "next move", () -> {
+        });
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof ResponseStatusException);
+        next.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testVersionConflict_commandNotExecutedAgain() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Executing the command again would repeat its effects on the deck, e.g. draw a second card
+        CompletableFuture<Void> conflicting = gameCommandExecutor.submit(1L, "terminate move", () -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException(Game.class, 1L);
+        });
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> conflicting.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof ObjectOptimisticLockingFailureException);
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testIdleMailbox_removed() throws Exception {
+        GameCommandExecutor directExecutor = new GameCommandExecutor(Runnable::run);
+        AtomicInteger executed = new AtomicInteger();
+
+        // A command submitted by a running command of the same game is executed after it
+        directExecutor.submit(1L, "outer", () -> {
+            directExecutor.submit(1L, "inner", () -> executed.compareAndSet(1, 2));
+            executed.compareAndSet(0, 1);
+        }).get();
+
+        assertEquals(2, executed.get());
+        assertEquals(0, directExecutor.activeGames());
+    }
+
+    @Test
+    public void testCommandScope_closedBeforeCommandCompletes() throws Exception {
+        List<String> order = new ArrayList<>();
+        gameCommandExecutor.setCommandScope(() -> {
+            order.add("open");
+            return () -> order.add("close");
+        });
+
+        CompletableFuture<Void> succeeded = gameCommandExecutor.submit(1L, "command", () -> order.add("command"));
+        succeeded.get(10, TimeUnit.SECONDS);
+        assertEquals(List.of("open", "command", "close"), order);
+
+        // Closed as well if the command fails
+        order.clear();
+        CompletableFuture<Void> failed = gameCommandExecutor.submit(1L, "failing command", () -> {
+            throw new IOException("deck unavailable");
+        });
+        assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+        assertEquals(List.of("open", "close"), order);
+    }
+}
@@ -0,0 +1,363 @@
+package ch.uzh.ifi.hase.soprafs24.engine;
+
+import ch.uzh.ifi.hase.soprafs24.constant.GameState;
+import ch.uzh.ifi.hase.soprafs24.deck.InMemoryDeckProvider;
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+import ch.uzh.ifi.hase.soprafs24.entity.Game;
+import ch.uzh.ifi.hase.soprafs24.entity.GameDeck;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.entity.UserStats;
+import ch.uzh.ifi.hase.soprafs24.event.PlacementEvent;
+import ch.uzh.ifi.hase.soprafs24.repository.CardRepository;
+import ch.uzh.ifi.hase.soprafs24.repository.GameDeckRepository;
+import ch.uzh.ifi.hase.soprafs24.repository.GameRepository;
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs24.service.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Plays games from start to finish through the engine without clients: bots take the turns, issuing the same
+ * sequence of engine calls as the websocket controller does for their commands. The games are played in parallel on
+ * a ForkJoinPool, every game by a single task, such that like in production a game is only altered by one thread.
+ *
+ * The engine runs on a local deck; repositories and the log are stubs holding the games and players in memory.
+ * A rejected move (e.g. a favor targeting a player without cards) is counted and the bot carries on, as a client
+ * would after an error message.
+ */
+public class GameSimulator {
+
+    /**
+     * Moves issued by the bots, the latencies are recorded per kind of move
+     */
+    public enum Operation {
+        START, CARD_MOVE, TERMINATE_MOVE, EXPLOSION_PLACEMENT
+    }
+
+    /**
+     * Decides which cards a bot plays next
+     */
+    @FunctionalInterface
+    public interface Bot {
+        /**
+         * @param hand cards held by the bot
+         * @param rules deciding which cards have an effect
+         * @param random of the game being played
+         * @return codes of the cards to play, empty to end the turn by drawing a card
+         */
+        List<String> nextMove(List<Card> hand, CardEffectService rules, Random random);
+    }
+
+    /**
+     * Plays a random single card or pair with an effect in half of its moves, ends its turn otherwise
+     */
+    public static final Bot RANDOM_BOT = (hand, rules, random) -> {
+        if (random.nextBoolean()) {
+            return List.of();
+        }
+        List<List<Card>> moves = new ArrayList<>();
+        for (int i = 0; i < hand.size(); i++) {
+            moves.add(List.of(hand.get(i)));
+            for (int j = i + 1; j < hand.size(); j++) {
+                moves.add(List.of(hand.get(i), hand.get(j)));
+            }
+        }
+        moves.removeIf(move -> rules.effectOf(move) == null);
+        if (moves.isEmpty()) {
+            return List.of();
+        }
+        return moves.get(random.nextInt(moves.size())).stream().map(Card::getCode).toList();
+    };
+
+    /**
+     * Never plays a card, i.e. the game is decided by the draws alone
+     */
+    public static final Bot DRAWING_BOT = (hand, rules, random) -> List.of();
+
+    /**
+     * Upper bound of moves per game, a game exceeding it is considered stuck
+     */
+    private static final int MAX_MOVES = 5_000;
+
+    /**
+     * Cards a bot plays at most before ending its turn
+     */
+    private static final int MAX_CARD_MOVES_PER_TURN = 3;
+
+    private final InMemoryDeckProvider deckProvider;
+
+    private final GameDeckService gameDeckService;
+
+    private final GameEngineService gameEngineService;
+
+    private final CardEffectService cardEffectService;
+
+    private final Map<Long, Game> games = new ConcurrentHashMap<>();
+
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+
+    private final Map<String, User> usersByName = new ConcurrentHashMap<>();
+
+    // Player expected to place the explosion card of a game, announced by the engine with a PlacementEvent
+    private final Map<Long, Long> pendingPlacements = new ConcurrentHashMap<>();
+
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+
+    private final AtomicLong rejectedMoves = new AtomicLong();
+
+    public GameSimulator(long seed) {
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+        }
+        deckProvider = new InMemoryDeckProvider(new Random(seed));
+
+        // Invocations are not recorded (stubOnly), otherwise the mocks would keep every call of the simulation
+        GameRepository gameRepository = mock(GameRepository.class, withSettings().stubOnly());
+        when(gameRepository.findByGameId(anyLong())).thenAnswer(invocation -> Optional.ofNullable(games.get(invocation.<Long>getArgument(0))));
+        when(gameRepository.saveAndFlush(any(Game.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        GameDeckRepository gameDeckRepository = mock(GameDeckRepository.class, withSettings().stubOnly());
+        when(gameDeckRepository.saveAndFlush(any(GameDeck.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        UserRepository userRepository = mock(UserRepository.class, withSettings().stubOnly());
+        when(userRepository.findUserById(anyLong())).thenAnswer(invocation -> users.get(invocation.<Long>getArgument(0)));
+        when(userRepository.findByUsername(anyString())).thenAnswer(invocation -> usersByName.get(invocation.<String>getArgument(0)));
+        UserService userService = mock(UserService.class, withSettings().stubOnly());
+        when(userService.getUserById(anyLong())).thenAnswer(invocation -> users.get(invocation.<Long>getArgument(0)));
+        GameService gameService = mock(GameService.class, withSettings().stubOnly());
+        doAnswer(invocation -> invocation.<Game>getArgument(0).getLeaderboard().add(invocation.getArgument(1)))
+                .when(gameService).addPlayerLeaderboard(any(Game.class), anyString());
+
+        ApplicationEventPublisher eventPublisher = event -> {
+            if (event instanceof PlacementEvent placementEvent) {
+                pendingPlacements.put(placementEvent.getGameId(), placementEvent.getUserId());
+            }
+        };
+
+        gameDeckService = new GameDeckService(gameDeckRepository, mock(CardRepository.class, withSettings().stubOnly()),
+                userService, eventPublisher, deckProvider, mock(GameDeckCounterService.class, withSettings().stubOnly()),
+                mock(GameLogService.class, withSettings().stubOnly()));
+        gameEngineService = new GameEngineService(gameRepository, gameDeckRepository, mock(CardRepository.class, withSettings().stubOnly()),
+                userRepository, gameDeckService, userService, eventPublisher, gameService,
+                new GameSessionService(gameRepository, userRepository, Long.MAX_VALUE));
+        cardEffectService = new CardEffectService(gameEngineService);
+    }
+
+    /**
+     * Plays games in parallel until all of them are finished
+     * @param numberOfGames to be played
+     * @param playersPerGame number of bots in every game, between 2 and 5
+     * @param bot deciding the moves of all players
+     * @param parallelism number of games played at the same time
+     * @return Report of the simulation
+     */
+    public Report run(int numberOfGames, int playersPerGame, Bot bot, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long start = System.nanoTime();
+            List<ForkJoinTask<Integer>> tasks = new ArrayList<>();
+            for (long gameId = 1; gameId <= numberOfGames; gameId++) {
+                long id = gameId;
+                tasks.add(pool.submit(() -> playGame(id, playersPerGame, bot)));
+            }
+            long moves = 0;
+            for (ForkJoinTask<Integer> task : tasks) {
+                moves += task.join();
+            }
+            return new Report(numberOfGames, moves, rejectedMoves.get(), System.nanoTime() - start, latencies);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @param gameId referencing a simulated Game
+     * @return the game, null if no game with that id was played
+     */
+    public Game getGame(Long gameId) {
+        return games.get(gameId);
+    }
+
+    private int playGame(long gameId, int playersPerGame, Bot bot) throws Exception {
+        Random random = new Random(gameId);
+        Game game = createGame(gameId, playersPerGame);
+
+        timed(Operation.START, () -> gameEngineService.startGame(gameId));
+        int moves = 1;
+        int cardMoves = 0;
+
+        while (game.getState() == GameState.ONGOING) {
+            if (moves++ > MAX_MOVES) {
+                throw new IllegalStateException(String.format("Game %s did not finish within %s moves", gameId, MAX_MOVES));
+            }
+
+            // An explosion drawn by a player holding a defuse card has to be placed first
+            Long placingUserId = pendingPlacements.remove(gameId);
+            if (placingUserId != null) {
+                timed(Operation.EXPLOSION_PLACEMENT, () -> gameEngineService.handleExplosionPlacement(gameId, placingUserId, 69));
+                continue;
+            }
+
+            Long userId = game.getCurrentTurn().getId();
+            List<String> cardIds = cardMoves < MAX_CARD_MOVES_PER_TURN
+                    ? bot.nextMove(deckProvider.listPile(game.getGameDeck().getDeckID(), userId.toString()), cardEffectService, random)
+                    : List.of();
+
+            if (cardIds.isEmpty()) {
+                cardMoves = 0;
+                timed(Operation.TERMINATE_MOVE, () -> terminateMove(gameId, userId));
+            } else {
+                cardMoves++;
+                String targetUsername = randomOpponent(game, userId, random);
+                timed(Operation.CARD_MOVE, () -> playCards(gameId, userId, cardIds, targetUsername));
+                if (!userId.equals(game.getCurrentTurn().getId())) {
+                    // The played card ended the turn, e.g. skip or attack
+                    cardMoves = 0;
+                }
+            }
+        }
+        return moves;
+    }
+
+    private Game createGame(long gameId, int playersPerGame) throws Exception {
+        Game game = new Game();
+        game.setGameId(gameId);
+        game.setMaxPlayers(playersPerGame);
+        List<User> players = new ArrayList<>();
+        for (int i = 1; i <= playersPerGame; i++) {
+            User user = new User();
+            user.setId(gameId * 10 + i);
+            user.setUsername("bot" + user.getId());
+            user.setUserStats(new UserStats());
+            users.put(user.getId(), user);
+            usersByName.put(user.getUsername(), user);
+            players.add(user);
+        }
+        game.setPlayers(players);
+        game.setGameDeck(gameDeckService.fetchDeck(game, true));
+        games.put(gameId, game);
+        return game;
+    }
+
+    /**
+     * Same engine calls as a card move received by the websocket controller
+     */
+    private void playCards(Long gameId, Long userId, List<String> cardIds, String targetUsername) throws Exception {
+        List<Card> transformedCards = gameEngineService.transformCardsToInternalRepresentation(cardIds);
+        Game game = gameEngineService.findGameById(gameId);
+        gameDeckService.removeCardsFromPlayerPile(game, userId, String.join(",", cardIds));
+        gameDeckService.placeCardsToPlayPile(game, userId, transformedCards, String.join(",", cardIds));
+        cardEffectService.play(game, userId, transformedCards, targetUsername);
+        gameEngineService.dispatchGameState(gameId, userId);
+    }
+
+    /**
+     * Same engine calls as a terminated move received by the websocket controller
+     */
+    private void terminateMove(Long gameId, Long userId) throws Exception {
+        String explosionCard = gameEngineService.drawCardMoveTermination(gameId, userId, false);
+        if (explosionCard != null) {
+            gameEngineService.handleExplosionCard(gameId, userId, explosionCard);
+        } else {
+            gameEngineService.turnValidation(gameId, userId);
+            gameEngineService.dispatchGameState(gameId, userId);
+        }
+    }
+
+    private String randomOpponent(Game game, Long userId, Random random) {
+        List<User> opponents = game.getPlayers().stream().filter(player -> !userId.equals(player.getId())).toList();
+        return opponents.isEmpty() ? null : opponents.get(random.nextInt(opponents.size())).getUsername();
+    }
+
+    private void timed(Operation operation, GameCommandExecutor.GameCommand command) throws Exception {
+        long start = System.nanoTime();
+        try {
+            command.execute();
+        } catch (ResponseStatusException e) {
+            rejectedMoves.incrementAndGet();
+        } finally {
+            latencies.get(operation).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Histogram of latencies with buckets of powers of two nanoseconds, safe to be recorded into concurrently
+     */
+    public static class LatencyHistogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final AtomicLong totalNanos = new AtomicLong();
+
+        public void record(long nanos) {
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(1, nanos)) - 1);
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long meanNanos() {
+            return totalNanos.get() / Math.max(1, count.get());
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return upper bound of the bucket holding the percentile, in nanoseconds
+         */
+        public long percentileNanos(double percentile) {
+            long rank = (long) Math.ceil(count.get() * percentile / 100);
+            long seen = 0;
+            for (int bucket = 0; bucket < buckets.length(); bucket++) {
+                seen += buckets.get(bucket);
+                if (seen >= rank && seen > 0) {
+                    return bucket >= 62 ? Long.MAX_VALUE : (2L << bucket) - 1;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d mean=%dus p50<=%dus p90<=%dus p99<=%dus", getCount(), meanNanos() / 1000,
+                    percentileNanos(50) / 1000, percentileNanos(90) / 1000, percentileNanos(99) / 1000);
+        }
+    }
+
+    /**
+     * Result of a simulation: throughput and the latencies per kind of move
+     */
+    public record Report(int games, long moves, long rejectedMoves, long elapsedNanos,
+                         Map<Operation, LatencyHistogram> latencies) {
+
+        public double gamesPerSecond() {
+            return games * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        public double movesPerSecond() {
+            return moves * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder(String.format("%d games, %d moves (%d rejected) in %d ms: %.1f games/s, %.1f moves/s",
+                    games, moves, rejectedMoves, elapsedNanos / 1_000_000, gamesPerSecond(), movesPerSecond()));
+            latencies.forEach((operation, histogram) -> report.append(String.format("%n  %-20s %s", operation, histogram)));
+            return report.toString();
+        }
+    }
+}
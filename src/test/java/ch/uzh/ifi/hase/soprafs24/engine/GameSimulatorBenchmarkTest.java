@@ -0,0 +1,35 @@
+package ch.uzh.ifi.hase.soprafs24.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the number of complete games and moves per second the engine handles with many games played in parallel.
+ * Excluded from the regular test run, execute it with './gradlew benchmark'.
+ */
+@Slf4j
+@Tag("benchmark")
+@ActiveProfiles("dev")
+public class GameSimulatorBenchmarkTest {
+
+    private static final int GAMES = 2000;
+
+    private static final int PLAYERS = 5;
+
+    private static final int PARALLELISM = 16;
+
+    @Test
+    public void simulatedGames_throughput() {
+        // Warm up
+        new GameSimulator(1).run(100, PLAYERS, GameSimulator.RANDOM_BOT, PARALLELISM);
+
+        GameSimulator.Report report = new GameSimulator(2).run(GAMES, PLAYERS, GameSimulator.RANDOM_BOT, PARALLELISM);
+
+        log.info("{} players per game, {} games in parallel: {}", PLAYERS, PARALLELISM, report);
+        assertTrue(report.moves() > GAMES);
+    }
+}
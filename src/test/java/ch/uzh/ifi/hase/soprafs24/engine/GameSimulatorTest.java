@@ -0,0 +1,58 @@
+package ch.uzh.ifi.hase.soprafs24.engine;
+
+import ch.uzh.ifi.hase.soprafs24.constant.GameState;
+import ch.uzh.ifi.hase.soprafs24.entity.Game;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Plays a few complete games through the engine, such that a rule change that leaves games stuck or fails
+ * a regular move is caught by the regular test run
+ */
+@ActiveProfiles("dev")
+public class GameSimulatorTest {
+
+    private void assertFinished(Game game, int players) {
+        assertEquals(GameState.FINISHED, game.getState());
+        assertEquals(1, game.getPlayers().size());
+        User winner = game.getWinningPlayer();
+        assertNotNull(winner);
+        // Every player ends up on the leaderboard exactly once, the winner last
+        assertEquals(players, game.getLeaderboard().size());
+        assertEquals(players, new HashSet<>(game.getLeaderboard()).size());
+        assertEquals(winner.getUsername(), game.getLeaderboard().get(players - 1));
+    }
+
+    @Test
+    public void testRandomBots_playGamesToTheEnd() {
+        GameSimulator simulator = new GameSimulator(17);
+
+        GameSimulator.Report report = simulator.run(20, 4, GameSimulator.RANDOM_BOT, 4);
+
+        assertEquals(20, report.games());
+        for (long gameId = 1; gameId <= 20; gameId++) {
+            assertFinished(simulator.getGame(gameId), 4);
+        }
+        assertEquals(20, report.latencies().get(GameSimulator.Operation.START).getCount());
+        assertTrue(report.latencies().get(GameSimulator.Operation.CARD_MOVE).getCount() > 0);
+    }
+
+    @Test
+    public void testDrawingBots_playGamesToTheEnd() {
+        GameSimulator simulator = new GameSimulator(17);
+
+        GameSimulator.Report report = simulator.run(5, 2, GameSimulator.DRAWING_BOT, 1);
+
+        for (long gameId = 1; gameId <= 5; gameId++) {
+            assertFinished(simulator.getGame(gameId), 2);
+        }
+        // Only drawing never plays a card nor targets another player
+        assertEquals(0, report.latencies().get(GameSimulator.Operation.CARD_MOVE).getCount());
+        assertEquals(0, report.rejectedMoves());
+    }
+}
@@ -0,0 +1,87 @@
+package ch.uzh.ifi.hase.soprafs24.engine;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("dev")
+public class HashedTimingWheelTest {
+
+    private HashedTimingWheel timingWheel;
+
+    private List<String> expired;
+
+    @BeforeEach
+    public void setup() {
+        timingWheel = new HashedTimingWheel(10, 8, 0);
+        expired = new ArrayList<>();
+    }
+
+    @Test
+    public void testAdvance_expiresOnceDeadlinePassed() {
+        timingWheel.schedule(() -> expired.add("first"), 30);
+        timingWheel.schedule(() -> expired.add("second"), 25);
+
+        assertEquals(0, timingWheel.advance(29));
+        assertEquals(2, timingWheel.advance(30));
+        assertEquals(List.of("second", "first"), expired);
+        assertEquals(0, timingWheel.size());
+    }
+
+    @Test
+    public void testAdvance_deadlineBeyondOneRevolution() {
+        // 8 buckets of 10ms, the deadline lies two and a half revolutions ahead
+        timingWheel.schedule(() -> expired.add("late"), 200);
+
+        assertEquals(0, timingWheel.advance(199));
+        assertEquals(1, timingWheel.advance(200));
+        assertEquals(List.of("late"), expired);
+    }
+
+    @Test
+    public void testCancel_timeoutNeverExpires() {
+        HashedTimingWheel.Timeout cancelled = timingWheel.schedule(() -> expired.add("cancelled"), 20);
+        timingWheel.schedule(() -> expired.add("kept"), 20);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertFalse(cancelled.isPending());
+        assertEquals(1, timingWheel.size());
+
+        timingWheel.advance(100);
+        assertEquals(List.of("kept"), expired);
+    }
+
+    @Test
+    public void testSchedule_fromExpiredTask() {
+        timingWheel.schedule(() -> {
+            expired.add("first");
+            timingWheel.schedule(() -> expired.add("second"), 10);
+        }, 10);
+
+        timingWheel.advance(10);
+        assertEquals(1, timingWheel.size());
+        timingWheel.advance(20);
+        assertEquals(List.of("first", "second"), expired);
+    }
+
+    @Test
+    public void testSchedule_manyTimeouts() {
+        List<HashedTimingWheel.Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            timeouts.add(timingWheel.schedule(() -> {}, 10 + i % 500));
+        }
+        for (int i = 0; i < timeouts.size(); i += 2) {
+            timeouts.get(i).cancel();
+        }
+
+        assertEquals(5000, timingWheel.size());
+        assertEquals(5000, timingWheel.advance(510));
+        assertEquals(0, timingWheel.size());
+    }
+}
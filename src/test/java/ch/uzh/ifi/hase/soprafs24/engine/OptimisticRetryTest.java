@@ -0,0 +1,86 @@
+package ch.uzh.ifi.hase.soprafs24.engine;
+
+import ch.uzh.ifi.hase.soprafs24.entity.Game;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("dev")
+public class OptimisticRetryTest {
+
+    private OptimisticRetry optimisticRetry;
+
+    private AtomicInteger attempts;
+
+    @BeforeEach
+    public void setup() {
+        optimisticRetry = new OptimisticRetry("test", 3);
+        attempts = new AtomicInteger();
+    }
+
+    private void conflictTimes(int conflicts) {
+        if (attempts.incrementAndGet() <= conflicts) {
+            throw new ObjectOptimisticLockingFailureException(Game.class, 1L);
+        }
+    }
+
+    @Test
+    public void testCall_executedAgainAfterConflict() {
+        optimisticRetry.call(() -> {
+            conflictTimes(2);
+            return null;
+        });
+
+        assertEquals(3, attempts.get());
+        OptimisticRetry.Metrics metrics = optimisticRetry.metrics();
+        assertEquals(1, metrics.executions());
+        assertEquals(2, metrics.conflicts());
+        assertEquals(0, metrics.exhausted());
+    }
+
+    @Test
+    public void testCall_allAttemptsConflict() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> optimisticRetry.call(() -> {
+                    conflictTimes(Integer.MAX_VALUE);
+                    return "never";
+                }));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+        assertEquals(3, attempts.get());
+        assertEquals(1, optimisticRetry.metrics().exhausted());
+    }
+
+    @Test
+    public void testCall_otherFailuresNotRetried() {
+        assertThrows(IllegalStateException.class, () -> optimisticRetry.call(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("Connection lost");
+        }));
+
+        assertEquals(1, attempts.get());
+        assertEquals(0, optimisticRetry.metrics().conflicts());
+    }
+
+    @Test
+    public void testMetrics_conflictRate() {
+        for (int i = 0; i < 4; i++) {
+            attempts.set(0);
+            optimisticRetry.call(() -> {
+                conflictTimes(1);
+                return null;
+            });
+        }
+        optimisticRetry.call(() -> "no conflict");
+
+        assertEquals(5, optimisticRetry.metrics().executions());
+        assertEquals(0.8, optimisticRetry.metrics().conflictRate(), 1e-9);
+    }
+}
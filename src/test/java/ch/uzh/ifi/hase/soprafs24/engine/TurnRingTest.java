@@ -0,0 +1,96 @@
+package ch.uzh.ifi.hase.soprafs24.engine;
+
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("dev")
+public class TurnRingTest {
+
+    private List<User> players;
+
+    private User createUser(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("player" + id);
+        return user;
+    }
+
+    @BeforeEach
+    public void setup() {
+        players = new ArrayList<>();
+        for (long id = 1; id <= 4; id++) {
+            players.add(createUser(id));
+        }
+    }
+
+    @Test
+    public void testEndTurn_followsSeatingOrder() {
+        TurnRing turnRing = new TurnRing(players, players.get(2), false, false);
+
+        assertEquals(players.get(3), turnRing.endTurn());
+        assertEquals(players.get(0), turnRing.endTurn());
+        assertEquals(players.get(1), turnRing.endTurn());
+        assertEquals(players.get(1), turnRing.currentPlayer());
+    }
+
+    @Test
+    public void testRemove_skipsEliminatedPlayers() {
+        TurnRing turnRing = new TurnRing(players, players.get(0), false, false);
+
+        assertTrue(turnRing.remove(2L));
+        assertTrue(turnRing.remove(4L));
+        assertFalse(turnRing.remove(4L));
+
+        assertEquals(2, turnRing.size());
+        assertFalse(turnRing.contains(2L));
+        assertEquals(players.get(2), turnRing.endTurn());
+        assertEquals(players.get(0), turnRing.endTurn());
+    }
+
+    @Test
+    public void testEndTurn_lastPlayerLeft() {
+        TurnRing turnRing = new TurnRing(players, players.get(0), false, false);
+        turnRing.endTurn();
+        turnRing.remove(1L);
+        turnRing.remove(3L);
+        turnRing.remove(4L);
+
+        assertNull(turnRing.nextPlayer());
+        assertNull(turnRing.endTurn());
+        assertEquals(players.get(1), turnRing.currentPlayer());
+    }
+
+    @Test
+    public void testAttack_nextPlayerTakesTwoTurns() {
+        TurnRing turnRing = new TurnRing(players, players.get(0), false, false);
+
+        turnRing.attack();
+        assertTrue(turnRing.isAttacked());
+
+        assertEquals(players.get(1), turnRing.endTurn());
+        assertFalse(turnRing.isAttacked());
+        assertTrue(turnRing.isRepeatTurn());
+
+        assertEquals(players.get(1), turnRing.endTurn());
+        assertFalse(turnRing.isRepeatTurn());
+        assertEquals(players.get(2), turnRing.endTurn());
+    }
+
+    @Test
+    public void testAttack_byAttackedPlayerPassesTurnsOn() {
+        TurnRing turnRing = new TurnRing(players, players.get(1), false, true);
+
+        turnRing.attack();
+
+        assertEquals(players.get(2), turnRing.endTurn());
+        assertEquals(players.get(2), turnRing.endTurn());
+        assertEquals(players.get(3), turnRing.endTurn());
+    }
+}
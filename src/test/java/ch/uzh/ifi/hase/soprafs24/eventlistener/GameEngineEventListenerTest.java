@@ -242,6 +242,26 @@ public class GameEngineEventListenerTest {
         verify(webSocketService).sendGameState(eq(gameId), eq(topCard), eq(remainingCardStats), eq(numberOfPlayers), eq(usernames), eq(playerIds), eq(playerAvatars), eq("user2"));
     }
 
+    @Test
+    public void testProvideGameStats_fullSnapshot() {
+        Long gameId = 12345L;
+        Card topCard = new Card();
+        topCard.setCode("KH");
+        topCard.setInternalCode("defuse");
+        Map<String, Integer> remainingCardStats = Map.of("dealer", 30);
+        List<String> usernames = List.of("user1");
+        List<Long> playerIds = List.of(1L);
+        List<String> playerAvatars = List.of("avatar1");
+
+        GameStateEvent event = new GameStateEvent(this, gameId, topCard, remainingCardStats, 1, usernames, playerIds, playerAvatars, "user1");
+        event.setFullSnapshot(true);
+        listener.provideGameStats(event);
+
+        InOrder inOrder = inOrder(webSocketService);
+        inOrder.verify(webSocketService).resetGameState(gameId);
+        inOrder.verify(webSocketService).sendGameState(gameId, topCard, remainingCardStats, 1, usernames, playerIds, playerAvatars, "user1");
+    }
+
     @Test
     public void testExplosionIndividual() {
         Long gameId = 12345L;
@@ -0,0 +1,74 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.deck.CardCatalog;
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+import ch.uzh.ifi.hase.soprafs24.entity.Game;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("dev")
+@ExtendWith(MockitoExtension.class)
+public class CardEffectServiceTest {
+
+    @Mock
+    private GameEngineService gameEngineService;
+
+    private CardEffectService cardEffectService;
+
+    private Game game;
+
+    @BeforeEach
+    public void setup() {
+        cardEffectService = new CardEffectService(gameEngineService);
+        game = new Game();
+        game.setGameId(1L);
+    }
+
+    @Test
+    public void testPlay_singleActionCard() throws IOException, InterruptedException {
+        cardEffectService.play(game, 2L, CardCatalog.resolve(List.of("8S")), "target");
+        cardEffectService.play(game, 2L, CardCatalog.resolve(List.of("JH")), null);
+
+        verify(gameEngineService).handleFavorCard(game, 2L, "target");
+        verify(gameEngineService).handleAttackCard(game, 2L);
+        verifyNoMoreInteractions(gameEngineService);
+    }
+
+    @Test
+    public void testPlay_pairOfCats() throws IOException, InterruptedException {
+        cardEffectService.play(game, 2L, CardCatalog.resolve(List.of("3S", "3D")), null);
+
+        verify(gameEngineService).handleSkipCard(game, 2L);
+        verifyNoMoreInteractions(gameEngineService);
+    }
+
+    @Test
+    public void testEffectOf_cardsWithoutEffect() {
+        // A single cat, two different cats, a pair of action cards and more cards than any combo
+        assertNull(cardEffectService.effectOf(CardCatalog.resolve(List.of("5S"))));
+        assertNull(cardEffectService.effectOf(CardCatalog.resolve(List.of("5S", "4S"))));
+        assertNull(cardEffectService.effectOf(CardCatalog.resolve(List.of("7S", "7D"))));
+        assertNull(cardEffectService.effectOf(CardCatalog.resolve(List.of("2S", "2D", "2C", "2H"))));
+        assertNull(cardEffectService.effectOf(List.of()));
+    }
+
+    @Test
+    public void testPlay_tripleWithoutEffect() throws IOException, InterruptedException {
+        List<Card> triple = CardCatalog.resolve(List.of("2S", "2D", "2C"));
+        assertNull(cardEffectService.effectOf(triple));
+
+        cardEffectService.play(game, 2L, triple, "target");
+
+        verifyNoInteractions(gameEngineService);
+    }
+}
@@ -0,0 +1,61 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.engine.OptimisticRetry;
+import ch.uzh.ifi.hase.soprafs24.entity.Game;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("dev")
+@ExtendWith(MockitoExtension.class)
+public class ConflictMetricsServiceTest {
+
+    @Mock
+    private GameSessionService gameSessionService;
+
+    private OptimisticRetry lobbyRetry;
+
+    private ConflictMetricsService conflictMetricsService;
+
+    @BeforeEach
+    public void setup() {
+        lobbyRetry = new OptimisticRetry("lobby", 3);
+        conflictMetricsService = new ConflictMetricsService(lobbyRetry, gameSessionService);
+    }
+
+    @Test
+    public void testReport_containsCountersOfRetryAndSessions() {
+        AtomicInteger attempts = new AtomicInteger();
+        lobbyRetry.call(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ObjectOptimisticLockingFailureException(Game.class, 1L);
+            }
+            return null;
+        });
+        when(gameSessionService.flushConflicts()).thenReturn(4L);
+        when(gameSessionService.supersededSessions()).thenReturn(2L);
+
+        String report = conflictMetricsService.report();
+
+        assertTrue(report.contains("lobby 1 executions, 1 conflicts"), report);
+        assertTrue(report.contains("session flushes 4 conflicts, 2 superseded"), report);
+    }
+
+    @Test
+    public void testLogMetrics_countersReadEveryRun() {
+        conflictMetricsService.logMetrics();
+        conflictMetricsService.logMetrics();
+
+        verify(gameSessionService, times(2)).flushConflicts();
+        verify(gameSessionService, times(2)).supersededSessions();
+    }
+}
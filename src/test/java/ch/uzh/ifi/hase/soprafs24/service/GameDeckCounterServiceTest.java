@@ -0,0 +1,95 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.entity.GameDeck;
+import ch.uzh.ifi.hase.soprafs24.repository.GameDeckRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("dev")
+@ExtendWith(MockitoExtension.class)
+public class GameDeckCounterServiceTest {
+
+    @Mock
+    private GameDeckRepository gameDeckRepository;
+
+    private GameDeckCounterService gameDeckCounterService;
+
+    private GameDeck testDeck;
+
+    @BeforeEach
+    public void setup() {
+        gameDeckCounterService = new GameDeckCounterService(gameDeckRepository);
+
+        testDeck = new GameDeck();
+        testDeck.setDeckID("testId");
+        testDeck.setRemainingCardsDeck(0);
+        testDeck.setRemainingCardsDealerStack(54);
+    }
+
+    @Test
+    public void testUpdate_coalescedIntoSingleFlush() {
+        gameDeckCounterService.update(testDeck);
+        testDeck.setRemainingCardsDealerStack(49);
+        gameDeckCounterService.update(testDeck);
+        testDeck.setRemainingCardsDealerStack(48);
+        gameDeckCounterService.update(testDeck);
+
+        verifyNoInteractions(gameDeckRepository);
+
+        gameDeckCounterService.flushAll();
+        gameDeckCounterService.flushAll();
+
+        verify(gameDeckRepository, times(1)).updateCounters("testId", 0, 48);
+    }
+
+    @Test
+    public void testFlush_writesImmediately() {
+        gameDeckCounterService.flush(testDeck);
+
+        verify(gameDeckRepository, times(1)).updateCounters("testId", 0, 54);
+    }
+
+    @Test
+    public void testApplyPending_restoresUnflushedCounters() {
+        testDeck.setRemainingCardsDealerStack(30);
+        gameDeckCounterService.update(testDeck);
+
+        GameDeck loadedDeck = new GameDeck();
+        loadedDeck.setDeckID("testId");
+        loadedDeck.setRemainingCardsDealerStack(54);
+        gameDeckCounterService.applyPending(loadedDeck);
+        gameDeckCounterService.applyPending(null);
+
+        assertEquals(30, loadedDeck.getRemainingCardsDealerStack());
+    }
+
+    @Test
+    public void testSave_dropsPendingCounters() {
+        gameDeckCounterService.update(testDeck);
+
+        gameDeckCounterService.save(testDeck);
+        gameDeckCounterService.flushAll();
+
+        verify(gameDeckRepository).saveAndFlush(testDeck);
+        verify(gameDeckRepository, never()).updateCounters(any(), any(), any());
+    }
+
+    @Test
+    public void testFlushAll_failureKeepsCounters() {
+        gameDeckCounterService.update(testDeck);
+        when(gameDeckRepository.updateCounters("testId", 0, 54)).thenThrow(new RuntimeException("connection lost")).thenReturn(1);
+
+        gameDeckCounterService.flushAll();
+        gameDeckCounterService.flushAll();
+
+        verify(gameDeckRepository, times(2)).updateCounters("testId", 0, 54);
+    }
+}
@@ -0,0 +1,135 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.GameState;
+import ch.uzh.ifi.hase.soprafs24.deck.InMemoryDeckProvider;
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+import ch.uzh.ifi.hase.soprafs24.entity.Game;
+import ch.uzh.ifi.hase.soprafs24.entity.GameDeck;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.CardRepository;
+import ch.uzh.ifi.hase.soprafs24.repository.GameDeckRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Measures the number of card moves per second with many games running concurrently.
+ * Excluded from the regular test run, execute it with './gradlew benchmark'.
+ */
+@Slf4j
+@Tag("benchmark")
+@ActiveProfiles("dev")
+public class GameDeckServiceBenchmarkTest {
+
+    private static final int GAMES = 200;
+
+    private static final int PLAYERS = 5;
+
+    private static final int THREADS = 16;
+
+    private CardRepository cardRepository;
+
+    private GameDeckService gameDeckService;
+
+    @BeforeEach
+    public void setup() {
+        // Invocations are not recorded (stubOnly), otherwise the mocks would keep every call of the benchmark
+        GameDeckRepository gameDeckRepository = mock(GameDeckRepository.class, withSettings().stubOnly());
+        when(gameDeckRepository.saveAndFlush(any(GameDeck.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        cardRepository = mock(CardRepository.class);
+        UserService userService = mock(UserService.class, withSettings().stubOnly());
+        when(userService.getUserById(anyLong())).thenAnswer(invocation -> {
+            User user = new User();
+            user.setId(invocation.getArgument(0));
+            user.setUsername("player" + user.getId());
+            return user;
+        });
+
+        gameDeckService = new GameDeckService(gameDeckRepository, cardRepository, userService,
+                mock(ApplicationEventPublisher.class, withSettings().stubOnly()), new InMemoryDeckProvider(),
+                mock(GameDeckCounterService.class, withSettings().stubOnly()), mock(GameLogService.class, withSettings().stubOnly()));
+    }
+
+    /**
+     * Plays a game until the dealer pile is empty: every player in turn draws a card and plays it
+     * @return number of card moves
+     */
+    private int playGame(long gameId) throws Exception {
+        Game game = new Game();
+        game.setGameId(gameId);
+        game.setState(GameState.ONGOING);
+        List<User> players = new ArrayList<>();
+        List<Long> userIds = new ArrayList<>();
+        for (long i = 1; i <= PLAYERS; i++) {
+            User user = new User();
+            user.setId(gameId * PLAYERS + i);
+            user.setUsername("player" + user.getId());
+            players.add(user);
+            userIds.add(user.getId());
+        }
+        game.setPlayers(players);
+        game.setGameDeck(gameDeckService.fetchDeck(game, true));
+
+        gameDeckService.createDealerPile(game);
+        gameDeckService.dealHands(game.getGameDeck(), userIds, 5, List.of());
+
+        int moves = 0;
+        for (int turn = 0; game.getGameDeck().getRemainingCardsDealerStack() > 0; turn++) {
+            User player = players.get(turn % PLAYERS);
+            game.setCurrentTurn(player);
+            Card card = gameDeckService.drawCardsFromDealerPile(game.getGameDeck(), 1).get(0);
+            gameDeckService.returnCardsToPile(game.getGameDeck(), player.getId().toString(), card.getCode());
+            gameDeckService.removeCardsFromPlayerPile(game, player.getId(), card.getCode());
+            gameDeckService.placeCardsToPlayPile(game, player.getId(), List.of(card), card.getCode());
+            gameDeckService.exploreTopCardPlayPile(game.getGameDeck());
+            moves++;
+        }
+        gameDeckService.discardDeck(game.getGameDeck());
+        return moves;
+    }
+
+    @Test
+    public void concurrentGames_throughput() throws Exception {
+        // Warm up
+        for (long gameId = 0; gameId < 20; gameId++) {
+            playGame(-gameId - 1);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        List<Future<Integer>> games = new ArrayList<>();
+        for (long gameId = 1; gameId <= GAMES; gameId++) {
+            long id = gameId;
+            games.add(executor.submit(() -> playGame(id)));
+        }
+        long moves = 0;
+        for (Future<Integer> game : games) {
+            moves += game.get();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        log.info("{} games on {} threads: {} moves in {} ms, {} moves/s", GAMES, THREADS, moves,
+                elapsedNanos / 1_000_000, moves * 1_000_000_000L / Math.max(1, elapsedNanos));
+
+        assertTrue(moves > 0);
+        // No game writes to the shared card table while playing
+        verifyNoInteractions(cardRepository);
+    }
+}
@@ -1,60 +1,39 @@
 package ch.uzh.ifi.hase.soprafs24.service;
 
 import ch.uzh.ifi.hase.soprafs24.constant.GameState;
+import ch.uzh.ifi.hase.soprafs24.deck.CardMask;
+import ch.uzh.ifi.hase.soprafs24.deck.DeckProvider;
 import ch.uzh.ifi.hase.soprafs24.entity.Card;
 import ch.uzh.ifi.hase.soprafs24.entity.Game;
 import ch.uzh.ifi.hase.soprafs24.entity.GameDeck;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
-import ch.uzh.ifi.hase.soprafs24.event.DrawCardsEvent;
 import ch.uzh.ifi.hase.soprafs24.event.ExplosionReturnedToDeckEvent;
 import ch.uzh.ifi.hase.soprafs24.event.PeekIntoDeckEvent;
 import ch.uzh.ifi.hase.soprafs24.event.PlayerCardEvent;
 import ch.uzh.ifi.hase.soprafs24.repository.CardRepository;
 import ch.uzh.ifi.hase.soprafs24.repository.GameDeckRepository;
-import ch.uzh.ifi.hase.soprafs24.repository.GameRepository;
-import ch.uzh.ifi.hase.soprafs24.rest.dto.GamePostDTO;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.JsonSerializer;
-import org.checkerframework.checker.units.qual.C;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.junit.jupiter.api.function.Executable;
 import org.mockito.*;
-import org.mockito.internal.matchers.Null;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
-import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.web.server.ResponseStatusException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URI;
-import java.net.http.HttpResponse;
 import java.util.*;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.util.stream.Collectors;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.Mockito.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.junit.jupiter.api.Assertions.*;
-import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 
 @ActiveProfiles("dev")
 @ExtendWith(MockitoExtension.class)
 public class GameDeckServiceTest {
 
-    @Mock
-    private GameRepository gameRepository;
-
     @Mock
     private GameDeckRepository gameDeckRepository;
 
@@ -68,24 +47,19 @@ public class GameDeckServiceTest {
     private ApplicationEventPublisher eventPublisher;
 
     @Mock
-    private GameEngineService gameEngineService;
-
-    @Mock
-    private ObjectMapper objectMapper;
+    private DeckProvider deckProvider;
 
     @Mock
-    private HttpClient httpClient;
+    private GameDeckCounterService gameDeckCounterService;
 
     @Mock
-    HttpResponse<InputStream> mockResponse;
+    private GameLogService gameLogService;
 
-    @InjectMocks
     private GameDeckService gameDeckService;
 
     private GameDeckService spyGameDeckService;
 
     private User mockUser;
-    private GamePostDTO gamePostDTO;
 
     private Game game;
 
@@ -98,7 +72,6 @@ public class GameDeckServiceTest {
         mockUser = new User();
         mockUser.setUsername("TestUser");
         mockUser.setId(1L);
-        gamePostDTO = new GamePostDTO();
 
         game = new Game();
         game.setGameId(gameId);
@@ -114,24 +87,27 @@ public class GameDeckServiceTest {
         testDeck.setGame(game);
 
         // Manually create the spy object
-        gameDeckService = new GameDeckService(gameDeckRepository, cardRepository, userService, eventPublisher, httpClient);
+        gameDeckService = new GameDeckService(gameDeckRepository, cardRepository, userService, eventPublisher, deckProvider, gameDeckCounterService, gameLogService);
         spyGameDeckService = spy(gameDeckService);
     }
 
+    private Card createCard(String code, String internalCode) {
+        Card card = new Card();
+        card.setCode(code);
+        card.setInternalCode(internalCode);
+        return card;
+    }
+
     // fetch deck
     @Test
     public void testFetchDeck_success() throws IOException, InterruptedException {
-        String jsonRes = "{\"deck_id\":\"testId\", \"remaining\": 54}";
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-        when(mockResponse.body()).thenReturn(jsonRes);
+        when(deckProvider.newDeck()).thenReturn("testId");
         when(gameDeckRepository.saveAndFlush(any(GameDeck.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         GameDeck deck = gameDeckService.fetchDeck(game, false);
         assertNotNull(deck);
         assertEquals(54, deck.getRemainingCardsDeck());
-        assertNotNull(deck.getDeckID());
+        assertEquals("testId", deck.getDeckID());
         assertNotNull(deck.getGame());
     }
 
@@ -150,193 +126,191 @@ public class GameDeckServiceTest {
         assertEquals(mockCards.size(), savedCards.size());
     }
 
-    // TODO: Solve issue when mocking save cards
+    @Test
+    public void testSaveCards_emptyList(){
+        List<Card> mockCards = new ArrayList<>();
+
+        List<Card> savedCards = gameDeckService.saveCards(mockCards);
+
+        assertNotNull(savedCards);
+        assertEquals(savedCards.size(), 0);
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    public void testSeedCardTable_emptyTable() {
+        when(cardRepository.count()).thenReturn(0L);
+        when(cardRepository.saveAll(any(List.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        gameDeckService.seedCardTable();
+
+        verify(cardRepository).saveAll(argThat(cards -> ((List<?>) cards).size() == 54));
+        verify(cardRepository).flush();
+    }
+
+    @Test
+    public void testSeedCardTable_alreadySeeded() {
+        when(cardRepository.count()).thenReturn(54L);
+
+        gameDeckService.seedCardTable();
+
+        verify(cardRepository, never()).saveAll(any(List.class));
+    }
 
     @Test
     public void drawCardsFromDeckTest_success() throws IOException, InterruptedException {
-        String responseBody = "{\n" +
-                "  \"deck_id\": \"testDeckId\",\n" +
-                "  \"cards\": [\n" +
-                "    {\"code\": \"AS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"},\n" +
-                "    {\"code\": \"AC\", \"suit\": \"CLUBS\", \"image\": \"http://image2.com\"}\n" +
-                "  ]\n" +
-                "}";
-
-        // Mock the saveCards method to return the list of cards
-        doAnswer(invocation -> invocation.getArgument(0)).when(spyGameDeckService).saveCards(any(List.class));
-        // Mock the HTTP response
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(mockResponse.body()).thenReturn(responseBody);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-
-        // Perform the method under test
-        List<Card> result = spyGameDeckService.drawCardsFromDeck(testDeck);
-
-        // Verify interactions
-        verify(httpClient).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
-        verify(gameDeckRepository).saveAndFlush(testDeck);
-
-        // Assertions
+        testDeck.setRemainingCardsDeck(2);
+        List<Card> mockCards = Arrays.asList(createCard("AS", "attack"), createCard("AC", "attack"));
+
+        when(deckProvider.drawFromDeck("testId", 2)).thenReturn(mockCards);
+
+        List<Card> result = gameDeckService.drawCardsFromDeck(testDeck);
+
+        verify(deckProvider).drawFromDeck("testId", 2);
+        verify(gameDeckCounterService).update(testDeck);
+
+        assertEquals(0, testDeck.getRemainingCardsDeck());
         assertNotNull(result);
         assertEquals(2, result.size());
         assertEquals("AS", result.get(0).getCode());
-        assertEquals("SPADES", result.get(0).getSuit());
-        assertEquals("http://image1.com", result.get(0).getImage());
-        assertEquals("testDeckId", result.get(0).getDeckId());
-
         assertEquals("AC", result.get(1).getCode());
-        assertEquals("CLUBS", result.get(1).getSuit());
-        assertEquals("http://image2.com", result.get(1).getImage());
-        assertEquals("testDeckId", result.get(1).getDeckId());
-
     }
 
     @Test
     public void drawCardsFromDealerPileTest_Success() throws IOException, InterruptedException {
-        List<Card> mockCards = new ArrayList<>();
-        Card card1 = new Card();
-        card1.setCode("AS");
-        mockCards.add(card1);
-        Card card2 = new Card();
-        card2.setCode("AC");
-        mockCards.add(card2);
-
-        String responseBody = "{\n" +
-                "  \"deck_id\": \"testDeckId\",\n" +
-                "  \"cards\": [\n" +
-                "    {\"code\": \"AS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"},\n" +
-                "    {\"code\": \"AC\", \"suit\": \"CLUBS\", \"image\": \"http://image2.com\"}\n" +
-                "  ]\n" +
-                "}";
-
-        Map<String, Integer> mockRemaining = new HashMap<>();
-        mockRemaining.put("dealer", 55);
+        List<Card> mockCards = Arrays.asList(createCard("AS", "attack"), createCard("AC", "attack"));
         game.setCurrentTurn(mockUser);
 
-        // Mock the saveCards method to return the list of cards
-        doReturn(responseBody).when(spyGameDeckService).getRemainingPileStats(any(GameDeck.class), any(Long.class));
-        doReturn(mockRemaining).when(spyGameDeckService).parsePileCardCounts(any(String.class));
-        // Mock the HTTP response
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(mockResponse.body()).thenReturn(responseBody);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-        // Mock event publishing to avoid NullPointerException
-        doNothing().when(eventPublisher).publishEvent(any());
-        doReturn(mockCards).when(spyGameDeckService).parseCards(any(GameDeck.class), any(String.class), any(String.class),anyList(), anyList());
-
-        // Perform the method under test
-        List<Card> result = spyGameDeckService.drawCardsFromDealerPile(testDeck,2);
-
-        // Verify interactions
-        verify(httpClient).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
-        //verify(gameDeckRepository).saveAndFlush(testDeck);
-
-        // Assertions
+        when(deckProvider.countPiles("testId")).thenReturn(Map.of(DeckProvider.DEALER_PILE, 55));
+        when(deckProvider.drawFromPile("testId", DeckProvider.DEALER_PILE, 2)).thenReturn(mockCards);
+
+        List<Card> result = gameDeckService.drawCardsFromDealerPile(testDeck,2);
+
+        verify(deckProvider).drawFromPile("testId", DeckProvider.DEALER_PILE, 2);
+        verify(gameDeckCounterService).update(testDeck);
+        verifyNoInteractions(cardRepository);
+        verify(eventPublisher).publishEvent(any());
+
         assertNotNull(result);
         assertEquals(2, result.size());
+        assertEquals(53, testDeck.getRemainingCardsDealerStack());
     }
 
+    @Test
+    public void drawCardsFromDealerPileTest_random() throws IOException, InterruptedException {
+        List<Card> mockCards = new ArrayList<>(List.of(createCard("AS", "attack")));
+
+        when(deckProvider.countPiles("testId")).thenReturn(Map.of(DeckProvider.DEALER_PILE, 10));
+        when(deckProvider.drawRandomFromPile("testId", DeckProvider.DEALER_PILE)).thenReturn(mockCards);
+
+        List<Card> result = gameDeckService.drawCardsFromDealerPile(testDeck, 1, true);
+
+        verify(deckProvider, never()).drawFromPile(anyString(), anyString(), anyInt());
+        assertEquals(1, result.size());
+        assertEquals(9, testDeck.getRemainingCardsDealerStack());
+    }
 
     @Test
-    public void testShuffleCardsInDealerPileTest_Success() throws IOException, InterruptedException {
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
+    public void testDrawCardsFromDealerPile_excesiveCards() throws IOException, InterruptedException {
+        when(deckProvider.countPiles("testId")).thenReturn(Map.of(DeckProvider.DEALER_PILE, 1));
+
+        assertThrows(ResponseStatusException.class, () -> {
+            gameDeckService.drawCardsFromDealerPile(testDeck, 2);
+        });
+        verify(deckProvider, never()).drawFromPile(anyString(), anyString(), anyInt());
+    }
 
+    @Test
+    public void testShuffleCardsInDealerPileTest_Success() throws IOException, InterruptedException {
         testDeck.setRemainingCardsDealerStack(20);
         game.setCurrentTurn(mockUser);
         testDeck.setGame(game);
 
-        // Mock event publishing to avoid NullPointerException
-        doNothing().when(eventPublisher).publishEvent(any());
-
         gameDeckService.shuffleCardsInDealerPile(testDeck);
 
-        verify(httpClient).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+        verify(deckProvider).shufflePile("testId", DeckProvider.DEALER_PILE);
         verify(eventPublisher).publishEvent(any());
     }
 
     @Test
-    public void testCreatePlayerPile_success() throws IOException, InterruptedException {
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
+    public void testShuffleCardsInDealerPile_singleCard() throws IOException, InterruptedException {
+        testDeck.setRemainingCardsDealerStack(1);
 
-        gameDeckService.createPlayerPile(testDeck, mockUser.getId(), "AS");
-
-        verify(httpClient).send(any(HttpRequest.class),any(HttpResponse.BodyHandler.class));
+        assertThrows(ResponseStatusException.class, () -> gameDeckService.shuffleCardsInDealerPile(testDeck));
+        verify(deckProvider, never()).shufflePile(anyString(), anyString());
     }
 
     @Test
-    public void testCreateDealerPile_success() throws IOException, InterruptedException {
-        List<Card> mockCards = new ArrayList<>();
-        Card card1 = new Card();
-        card1.setCode("AS");
-        mockCards.add(card1);
+    public void testCreatePlayerPile_success() throws IOException, InterruptedException {
+        gameDeckService.createPlayerPile(testDeck, mockUser.getId(), "AS,KS");
 
-        // Mock HTTP response for fetching deck
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        String jsonRes = "{\"deck_id\":\"testId\", \"remaining\": 54}";
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
+        verify(deckProvider).addToPile("testId", "1", Arrays.asList("AS", "KS"));
+    }
 
-        // Mock repository save and flush
-        when(gameDeckRepository.saveAndFlush(any(GameDeck.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    @Test
+    public void testDealHands_success() throws IOException, InterruptedException {
+        testDeck.setRemainingCardsDealerStack(10);
+        List<Card> defusions = new ArrayList<>(List.of(createCard("X1", "defuse")));
 
-        // Mock drawCardsFromDeck to return mock cards
-        doReturn(mockCards).when(spyGameDeckService).drawCardsFromDeck(any(GameDeck.class));
+        // Top card first, dealt in turns: player 1 receives 5S and 8C, player 2 receives 7H and QD
+        when(deckProvider.drawFromPile("testId", DeckProvider.DEALER_PILE, 4))
+                .thenReturn(List.of(createCard("5S", "tacocat"), createCard("7H", "shuffle"), createCard("8C", "favor"), createCard("QD", "lucky")));
+        when(deckProvider.addToPileAsync(eq("testId"), anyString(), anyList())).thenReturn(CompletableFuture.completedFuture(null));
 
-        // Ensure game deck is not null
-        assertNotNull(game.getGameDeck());
+        Map<Long, List<Card>> playerPiles = gameDeckService.dealHands(testDeck, List.of(1L, 2L), 2, defusions);
+
+        verify(deckProvider, times(1)).drawFromPile(anyString(), anyString(), anyInt());
+        verify(deckProvider).addToPileAsync("testId", "1", List.of("5S", "8C", "X1"));
+        verify(deckProvider).addToPileAsync("testId", "2", List.of("QD", "7H"));
+        assertEquals(3, playerPiles.get(1L).size());
+        assertEquals(2, playerPiles.get(2L).size());
+        assertTrue(defusions.isEmpty());
+        assertEquals(6, testDeck.getRemainingCardsDealerStack());
+        verify(gameDeckCounterService, times(1)).update(testDeck);
+        verify(eventPublisher, times(1)).publishEvent(any());
+    }
 
-        // Call the method under test
-        spyGameDeckService.createDealerPile(game);
+    @Test
+    public void testDealHands_excessiveCards() {
+        testDeck.setRemainingCardsDealerStack(9);
 
-        // Verify interactions
-        verify(httpClient).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+        assertThrows(ResponseStatusException.class, () -> gameDeckService.dealHands(testDeck, List.of(1L, 2L), 5, new ArrayList<>()));
+        verifyNoInteractions(deckProvider);
     }
 
     @Test
-    public void testPeekIntoDealerPile_success() throws IOException, InterruptedException {
-        List<Card> mockCards = new ArrayList<>();
-        Card card1 = new Card();
-        card1.setCode("AS");
-        mockCards.add(card1);
-        Card card2 = new Card();
-        card2.setCode("AC");
-        mockCards.add(card2);
-        Card card3 = new Card();
-        card3.setCode("AD");
-        mockCards.add(card3);
-
-        // Mock HTTP response for fetching deck
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        String jsonRes = "{\"deck_id\":\"testId\", \"remaining\": 54}";
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-
-        // Mock repository save and flush
-        when(gameDeckRepository.saveAndFlush(any(GameDeck.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    public void testCreateDealerPile_success() throws IOException, InterruptedException {
+        testDeck.setRemainingCardsDeck(2);
+        List<Card> mockCards = Arrays.asList(createCard("AS", "attack"), createCard("KS", "favor"));
 
-        // Ensure the method `drawCardsFromDealerPile` is properly mocked
-        doReturn(mockCards).when(spyGameDeckService).drawCardsFromDealerPile(any(GameDeck.class), eq(3));
+        when(deckProvider.drawFromDeck("testId", 2)).thenReturn(mockCards);
 
-        // Mock event publishing to avoid NullPointerException
-        doNothing().when(eventPublisher).publishEvent(any());
+        gameDeckService.createDealerPile(game);
+
+        verify(deckProvider).addToPile("testId", DeckProvider.DEALER_PILE, Arrays.asList("AS", "KS"));
+        verify(gameDeckCounterService).save(testDeck);
+        verify(gameDeckRepository, never()).saveAndFlush(any(GameDeck.class));
+        assertNotNull(game.getGameDeck());
+        assertEquals("dealer", game.getGameDeck().getDealerPileId());
+        assertEquals(2, game.getGameDeck().getRemainingCardsDealerStack());
+    }
+
+    @Test
+    public void testPeekIntoDealerPile_success() throws IOException, InterruptedException {
+        List<Card> mockCards = Arrays.asList(createCard("AS", "explosion"), createCard("AC", "explosion"), createCard("AD", "explosion"));
+        when(deckProvider.peekPile("testId", DeckProvider.DEALER_PILE, 3)).thenReturn(mockCards);
 
-        // Call the method under test
         testDeck.setRemainingCardsDealerStack(55);
         game.setCurrentTurn(mockUser);
-        List<Card> topCards = spyGameDeckService.peekIntoDealerPile(game);
+        List<Card> topCards = gameDeckService.peekIntoDealerPile(game);
 
-        // Verify the interactions
-        verify(spyGameDeckService).drawCardsFromDealerPile(any(GameDeck.class), eq(3));
-        verify(spyGameDeckService).returnCardsToPile(any(GameDeck.class), eq("dealer"), anyString());
-        verify(eventPublisher).publishEvent(any(PeekIntoDeckEvent.class));
+        // Peeking is a pure read: no cards are moved, no counters are written and only the peeking player is informed
+        verify(deckProvider, never()).drawFromPile(anyString(), anyString(), anyInt());
+        verify(deckProvider, never()).addToPile(anyString(), anyString(), anyList());
+        verifyNoInteractions(gameDeckCounterService);
+        verify(eventPublisher, times(1)).publishEvent(any(PeekIntoDeckEvent.class));
+        assertEquals(55, testDeck.getRemainingCardsDealerStack());
 
-        // Assertions
         assertNotNull(topCards);
         assertEquals(3, topCards.size());
         assertEquals("AS", topCards.get(0).getCode());
@@ -344,515 +318,277 @@ public class GameDeckServiceTest {
         assertEquals("AD", topCards.get(2).getCode());
     }
 
-
     @Test
     public void testReturnCardsToPile_success() throws IOException, InterruptedException {
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-
-        testDeck.setRemainingCardsDealerStack(55);
-
-        gameDeckService.returnCardsToPile(testDeck, mockUser.getUsername(), "AS");
-
-        verify(httpClient).send(any(HttpRequest.class),any(HttpResponse.BodyHandler.class));
-    }
-    @Test
-    public void testRemoveCardsFromPlayerPile_success() throws IOException, InterruptedException {
-        String jsonRes = "{\"success\":\"true\", \"deck_id\":\"testId\", \"remaining\": 54}";
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-        when(mockResponse.body()).thenReturn(jsonRes);
-
-        gameDeckService.removeCardsFromPlayerPile(game, mockUser.getId(), "AS");
-
-        verify(httpClient).send(any(HttpRequest.class),any(HttpResponse.BodyHandler.class));
-    }
-
-    @Test
-    public void testPlaceCardsToPlayPile_success() throws IOException, InterruptedException {
-        List<Card> mockCards = new ArrayList<>();
-        Card card1 = new Card();
-        card1.setCode("AS");
-        mockCards.add(card1);
-        Card card2 = new Card();
-        card2.setCode("AC");
-        mockCards.add(card2);
-        Card card3 = new Card();
-        card3.setCode("AD");
-        mockCards.add(card3);
-
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-        when(userService.getUserById(any(Long.class))).thenReturn(mockUser);
+        testDeck.setRemainingCardsDealerStack(10);
 
-        gameDeckService.placeCardsToPlayPile(game, mockUser.getId(), mockCards, "AS,AC,AD");
+        gameDeckService.returnCardsToPile(testDeck, "dealer", "AS,KS");
 
-        verify(httpClient).send(any(HttpRequest.class),any(HttpResponse.BodyHandler.class));
-        verify(userService).getUserById(any(Long.class));
+        verify(deckProvider).addToPile("testId", "dealer", Arrays.asList("AS", "KS"));
+        verify(gameDeckCounterService).update(testDeck);
+        assertEquals(12, testDeck.getRemainingCardsDealerStack());
     }
 
-
-
     @Test
-    public void testGetRemainingPileStats_success() throws IOException, InterruptedException {
-        String jsonRes = "{\"deck_id\":\"testId\", \"remaining\": 54}";
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-        when(mockResponse.body()).thenReturn(jsonRes);
-
-        String response = gameDeckService.getRemainingPileStats(testDeck, mockUser.getId());
+    public void testReturnCardsToPile_playerPile() throws IOException, InterruptedException {
+        testDeck.setRemainingCardsDealerStack(10);
 
-        assertNotNull(response);
-        verify(httpClient).send(any(HttpRequest.class),any(HttpResponse.BodyHandler.class));
-    }
-
-    @Test
-    public void testParsePileCardCounts_success() throws IOException {
-        String jsonRes = "{\"success\":\"true\", \"deck_id\":\"testId\", \"remaining\": 54, \"piles\": {\"discard\":{\"remaining\":2}}}";
+        gameDeckService.returnCardsToPile(testDeck, mockUser.getId().toString(), "AS");
 
-        Map<String, Integer> response = gameDeckService.parsePileCardCounts(jsonRes);
-
-        assertNotNull(response);
+        verify(deckProvider).addToPile("testId", "1", List.of("AS"));
+        verify(gameDeckCounterService, never()).update(any(GameDeck.class));
+        assertEquals(10, testDeck.getRemainingCardsDealerStack());
     }
 
     @Test
-    public void testParsePileCardCounts_noPiles() throws IOException {
-        String jsonRes = "{\"success\":\"true\"}";
+    public void testRemoveCardsFromPlayerPile_success() throws IOException, InterruptedException {
+        gameDeckService.removeCardsFromPlayerPile(game, mockUser.getId(), "AS");
 
-        assertThrows(IllegalStateException.class, () -> {
-            Map<String, Integer> response = gameDeckService.parsePileCardCounts(jsonRes);
-        });
+        verify(deckProvider).drawSpecificFromPile("testId", "1", List.of("AS"));
     }
 
     @Test
-    public void testParseCards_withAdditionalPileInfo() throws IOException {
-        String jsonResponse = "{ \"deck_id\": \"testDeckId\", \"cards\": [{\"code\": \"AS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"}, {\"code\": \"AC\", \"suit\": \"CLUBS\", \"image\": \"http://image2.com\"}], \"pile\": { \"remaining\": 10 } }";
-        List<String> cardsKeyPath = List.of("cards");
-        List<String> additionalPileInfo = List.of("pile");
-
-        // Mock repository save and flush
-        when(gameDeckRepository.saveAndFlush(any(GameDeck.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        doAnswer(invocation -> invocation.getArgument(0)).when(spyGameDeckService).saveCards(anyList());
-
-
-        List<Card> result = spyGameDeckService.parseCards(testDeck, jsonResponse, "deck_id", cardsKeyPath, additionalPileInfo);
-
-        // Verify the repository interaction
-        verify(gameDeckRepository).saveAndFlush(any(GameDeck.class));
+    public void testPlaceCardsToPlayPile_success() throws IOException, InterruptedException {
+        List<Card> mockCards = new ArrayList<>(List.of(createCard("AS", "attack")));
 
-        // Assertions
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals("AS", result.get(0).getCode());
-        assertEquals("SPADES", result.get(0).getSuit());
-        assertEquals("http://image1.com", result.get(0).getImage());
-        assertEquals("testDeckId", result.get(0).getDeckId());
+        when(userService.getUserById(any(Long.class))).thenReturn(mockUser);
 
-        assertEquals("AC", result.get(1).getCode());
-        assertEquals("CLUBS", result.get(1).getSuit());
-        assertEquals("http://image2.com", result.get(1).getImage());
-        assertEquals("testDeckId", result.get(1).getDeckId());
+        gameDeckService.placeCardsToPlayPile(game, mockUser.getId(), mockCards, "AS");
 
-        assertEquals(10, testDeck.getRemainingCardsDealerStack());
+        verify(deckProvider).addToPile("testId", DeckProvider.PLAY_PILE, List.of("AS"));
+        verify(userService).getUserById(any(Long.class));
+        verify(eventPublisher).publishEvent(any());
     }
 
     @Test
-    public void testParseCards_withoutAdditionalPileInfo() throws IOException {
-        String jsonResponse = "{ \"deck_id\": \"testDeckId\", \"cards\": [{\"code\": \"AS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"}, {\"code\": \"AC\", \"suit\": \"CLUBS\", \"image\": \"http://image2.com\"}] }";
-        List<String> cardsKeyPath = List.of("cards");
-
-        doAnswer(invocation -> invocation.getArgument(0)).when(spyGameDeckService).saveCards(anyList());
+    public void testGetPileCardCounts_success() throws IOException, InterruptedException {
+        Map<String, Integer> counts = Map.of("dealer", 30, "play", 4);
+        when(deckProvider.countPiles("testId")).thenReturn(counts);
 
-        List<Card> result = spyGameDeckService.parseCards(testDeck, jsonResponse, "deck_id", cardsKeyPath, null);
-
-        // Verify no repository interaction
-        verify(gameDeckRepository, never()).saveAndFlush(any(GameDeck.class));
+        Map<String, Integer> response = gameDeckService.getPileCardCounts(testDeck);
 
-        // Assertions
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals("AS", result.get(0).getCode());
-        assertEquals("SPADES", result.get(0).getSuit());
-        assertEquals("http://image1.com", result.get(0).getImage());
-        assertEquals("testDeckId", result.get(0).getDeckId());
-
-        assertEquals("AC", result.get(1).getCode());
-        assertEquals("CLUBS", result.get(1).getSuit());
-        assertEquals("http://image2.com", result.get(1).getImage());
-        assertEquals("testDeckId", result.get(1).getDeckId());
+        assertEquals(counts, response);
     }
 
     @Test
-    public void testSaveCards_emptyList(){
-        List<Card> cards = new ArrayList<>();
+    public void testDiscardDeck_success() {
+        gameDeckService.discardDeck(testDeck);
+        gameDeckService.discardDeck(null);
 
-        List<Card> savedCards = spyGameDeckService.saveCards(cards);
-
-        assertNotNull(savedCards);
-        assertEquals(savedCards.size(), 0);
+        verify(deckProvider, times(1)).discardDeck("testId");
+        verify(gameDeckCounterService, times(1)).flush(testDeck);
     }
 
     @Test
-    public void testDrawCardsFromDealerPile_excesiveCards() throws IOException, InterruptedException {
-        String responseBody = "{\n" +
-                "  \"deck_id\": \"testDeckId\",\n" +
-                "  \"cards\": [\n" +
-                "    {\"code\": \"AS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"},\n" +
-                "    {\"code\": \"AC\", \"suit\": \"CLUBS\", \"image\": \"http://image2.com\"}\n" +
-                "  ]\n" +
-                "}";
-
-        Map<String, Integer> mockRemaining = new HashMap<>();
-        mockRemaining.put("dealer", 0);
-        game.setCurrentTurn(mockUser);
+    public void testReconcilePileCardCounts_success() throws IOException, InterruptedException {
+        testDeck.setRemainingCardsDealerStack(20);
+        when(deckProvider.reconcilePiles("testId")).thenReturn(Map.of(DeckProvider.DEALER_PILE, 18, "1", 7));
 
-        // Mock the saveCards method to return the list of cards
-        doReturn(responseBody).when(spyGameDeckService).getRemainingPileStats(any(GameDeck.class), any(Long.class));
-        doReturn(mockRemaining).when(spyGameDeckService).parsePileCardCounts(any(String.class));
+        Map<String, Integer> counts = gameDeckService.reconcilePileCardCounts(testDeck);
 
-        // Perform the method under test
-        assertThrows(ResponseStatusException.class, () -> {
-            spyGameDeckService.drawCardsFromDealerPile(testDeck,2);
-        });
+        assertEquals(7, counts.get("1"));
+        assertEquals(18, testDeck.getRemainingCardsDealerStack());
+        verify(gameDeckCounterService).update(testDeck);
+        verify(deckProvider, never()).countPiles(anyString());
     }
 
     @Test
     public void testExploreTopCardPlayPile_success() throws IOException, InterruptedException {
-        List<Card> mockCards = new ArrayList<>();
-        Card card1 = new Card();
-        card1.setCode("AS");
-        mockCards.add(card1);
+        when(deckProvider.peekPile("testId", DeckProvider.PLAY_PILE, 1)).thenReturn(List.of(createCard("KS", "favor")));
 
-        String responseBody = "{\n" +
-                "  \"deck_id\": \"testDeckId\",\n" +
-                "  \"cards\": [\n" +
-                "    {\"code\": \"AS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"},\n" +
-                "  ]\n" +
-                "}";
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-        when(mockResponse.body()).thenReturn(responseBody);
-        doReturn(mockCards).when(spyGameDeckService).parseCards(any(GameDeck.class), eq(responseBody), eq("deck_id"),eq(Arrays.asList("piles", "play","cards")), eq(null));
-        doAnswer(invocation -> invocation.getArgument(0)).when(spyGameDeckService).saveCards(anyList());
-
-        List<Card> topCard = spyGameDeckService.exploreTopCardPlayPile(testDeck);
+        List<Card> topCard = gameDeckService.exploreTopCardPlayPile(testDeck);
 
         assertNotNull(topCard);
-        assertNotNull(topCard.get(0));
-        verify(httpClient).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
-        verify(spyGameDeckService).parseCards(any(GameDeck.class), eq(responseBody), eq("deck_id"), eq(Arrays.asList("piles", "play", "cards")), eq(null));
+        assertEquals("KS", topCard.get(topCard.size() - 1).getCode());
+        verify(deckProvider, never()).listPile(anyString(), anyString());
     }
 
     @Test
     public void testExploreTopCardPlayPile_noTopCard() throws IOException, InterruptedException {
-        List<Card> mockCards = new ArrayList<>();
+        when(deckProvider.peekPile("testId", DeckProvider.PLAY_PILE, 1)).thenReturn(new ArrayList<>());
 
-        String responseBody = "{\n" +
-                "  \"deck_id\": \"testDeckId\",\n" +
-                "  \"cards\": [\n" +
-                "    {\"code\": \"AS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"},\n" +
-                "  ]\n" +
-                "}";
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-        when(mockResponse.body()).thenReturn(responseBody);
-        doReturn(mockCards).when(spyGameDeckService).parseCards(any(GameDeck.class), eq(responseBody), eq("deck_id"),eq(Arrays.asList("piles", "play","cards")), eq(null));
-
-        List<Card> topCard = spyGameDeckService.exploreTopCardPlayPile(testDeck);
+        List<Card> topCard = gameDeckService.exploreTopCardPlayPile(testDeck);
 
         assertNull(topCard);
-        verify(httpClient).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
-        verify(spyGameDeckService).parseCards(any(GameDeck.class), eq(responseBody), eq("deck_id"), eq(Arrays.asList("piles", "play", "cards")), eq(null));
+        verifyNoInteractions(cardRepository);
     }
 
     @Test
     public void testExploreDefuseCardInPlayerPile_noDefuse() throws IOException, InterruptedException {
-        List<Card> mockCards = new ArrayList<>();
-        Card card1 = new Card();
-        card1.setCode("AS");
-        mockCards.add(card1);
-
-        String responseBody = "{\n" +
-                "  \"deck_id\": \"testDeckId\",\n" +
-                "  \"cards\": [\n" +
-                "    {\"code\": \"AS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"},\n" +
-                "  ]\n" +
-                "}";
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-        when(mockResponse.body()).thenReturn(responseBody);
-        doReturn(mockCards).when(spyGameDeckService).parseCards(any(GameDeck.class), eq(responseBody), eq("deck_id"),eq(Arrays.asList("piles", mockUser.getId().toString(),"cards")), eq(null));
+        when(deckProvider.pileMask("testId", "1")).thenReturn(CardMask.of(List.of("AS", "5H")));
 
-        String defuseCode = spyGameDeckService.exploreDefuseCardInPlayerPile(testDeck, mockUser.getId());
+        String defuseCode = gameDeckService.exploreDefuseCardInPlayerPile(testDeck, mockUser.getId());
 
         assertNull(defuseCode);
-        verify(httpClient).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
-        verify(spyGameDeckService).parseCards(any(GameDeck.class), eq(responseBody), eq("deck_id"), eq(Arrays.asList("piles", mockUser.getId().toString(), "cards")), eq(null));
+        verify(deckProvider, never()).listPile(anyString(), anyString());
     }
 
     @Test
     public void testExploreDefuseCardInPlayerPile_success() throws IOException, InterruptedException {
-        List<Card> mockCards = new ArrayList<>();
-        Card card1 = new Card();
-        card1.setCode("KS");
-        card1.setInternalCode("defuse");
-        mockCards.add(card1);
+        when(deckProvider.pileMask("testId", "1")).thenReturn(CardMask.of(List.of("AS", "KH")));
 
-        String responseBody = "{\n" +
-                "  \"deck_id\": \"testDeckId\",\n" +
-                "  \"cards\": [\n" +
-                "    {\"code\": \"KS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"},\n" +
-                "  ]\n" +
-                "}";
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-        when(mockResponse.body()).thenReturn(responseBody);
-        doReturn(mockCards).when(spyGameDeckService).parseCards(any(GameDeck.class), eq(responseBody), eq("deck_id"),eq(Arrays.asList("piles", mockUser.getId().toString(),"cards")), eq(null));
+        String defuseCode = gameDeckService.exploreDefuseCardInPlayerPile(testDeck, mockUser.getId());
 
-        String defuseCode = spyGameDeckService.exploreDefuseCardInPlayerPile(testDeck, mockUser.getId());
+        assertEquals("KH", defuseCode);
+    }
 
-        assertNotNull(defuseCode);
-        verify(httpClient).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
-        verify(spyGameDeckService).parseCards(any(GameDeck.class), eq(responseBody), eq("deck_id"), eq(Arrays.asList("piles", mockUser.getId().toString(), "cards")), eq(null));
+    @Test
+    public void testStealRandomCard_success() throws IOException, InterruptedException {
+        Card stolenCard = createCard("5H", "tacocat");
+        when(deckProvider.moveRandomCard("testId", "2", "1")).thenReturn(stolenCard);
+
+        Card result = gameDeckService.stealRandomCard(testDeck, 2L, mockUser.getId());
+
+        assertSame(stolenCard, result);
     }
 
     @Test
     public void testDrawCardFromPlayerPile_randomCard() throws IOException, InterruptedException {
-        List<Card> mockCards = new ArrayList<>();
-        Card card1 = new Card();
-        card1.setCode("KS");
-        card1.setInternalCode("defuse");
-        mockCards.add(card1);
+        List<Card> mockCards = new ArrayList<>(List.of(createCard("AS", "attack")));
 
-        String responseBody = "{\n" +
-                "  \"deck_id\": \"testDeckId\",\n" +
-                "  \"cards\": [\n" +
-                "    {\"code\": \"KS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"},\n" +
-                "  ]\n" +
-                "}";
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-        when(mockResponse.body()).thenReturn(responseBody);
-        doReturn(mockCards).when(spyGameDeckService).parseCards(any(GameDeck.class), eq(responseBody), eq("deck_id"),eq(Arrays.asList("cards")), eq(null));
+        when(deckProvider.drawRandomFromPile("testId", "1")).thenReturn(mockCards);
 
-        Card randomCard = spyGameDeckService.drawCardFromPlayerPile(testDeck, mockUser.getId(), null);
+        Card randomCard = gameDeckService.drawCardFromPlayerPile(testDeck, mockUser.getId(), null);
 
         assertNotNull(randomCard);
-        verify(httpClient).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
-        verify(spyGameDeckService).parseCards(any(GameDeck.class), eq(responseBody), eq("deck_id"), eq(Arrays.asList("cards")), eq(null));
+        assertEquals("AS", randomCard.getCode());
     }
 
     @Test
     public void testDrawCardFromPlayerPile_specificCard() throws IOException, InterruptedException {
-        List<Card> mockCards = new ArrayList<>();
-        Card card1 = new Card();
-        card1.setCode("KS");
-        card1.setInternalCode("defuse");
-        mockCards.add(card1);
+        List<Card> mockCards = new ArrayList<>(List.of(createCard("KS", "favor")));
 
-        String responseBody = "{\n" +
-                "  \"deck_id\": \"testDeckId\",\n" +
-                "  \"cards\": [\n" +
-                "    {\"code\": \"KS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"},\n" +
-                "  ]\n" +
-                "}";
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-        when(mockResponse.body()).thenReturn(responseBody);
-        doReturn(mockCards).when(spyGameDeckService).parseCards(any(GameDeck.class), eq(responseBody), eq("deck_id"),eq(Arrays.asList("cards")), eq(null));
+        when(deckProvider.drawSpecificFromPile("testId", "1", List.of("KS"))).thenReturn(mockCards);
 
-        Card randomCard = spyGameDeckService.drawCardFromPlayerPile(testDeck, mockUser.getId(), "KS");
+        Card specificCard = gameDeckService.drawCardFromPlayerPile(testDeck, mockUser.getId(), "KS");
 
-        assertNotNull(randomCard);
-        verify(httpClient).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
-        verify(spyGameDeckService).parseCards(any(GameDeck.class), eq(responseBody), eq("deck_id"), eq(Arrays.asList("cards")), eq(null));
+        assertNotNull(specificCard);
+        assertEquals("KS", specificCard.getCode());
+        verify(deckProvider, never()).drawRandomFromPile(anyString(), anyString());
     }
 
     @Test
     public void testRemoveSpecificCardsFromPile() throws IOException, InterruptedException {
-        List<Card> mockCards = new ArrayList<>();
-        Card card1 = new Card();
-        card1.setCode("KS");
-        card1.setInternalCode("defuse");
-        mockCards.add(card1);
+        testDeck.setDealerPileId("dealer");
+        testDeck.setRemainingCardsDealerStack(10);
+        List<Card> mockCards = new ArrayList<>(List.of(createCard("X1", "explosion")));
 
-        String responseBody = "{\n" +
-                "  \"deck_id\": \"testDeckId\",\n" +
-                "  \"cards\": [\n" +
-                "    {\"code\": \"KS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"},\n" +
-                "  ]\n" +
-                "}";
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-        when(mockResponse.body()).thenReturn(responseBody);
-        doReturn(mockCards).when(spyGameDeckService).parseCards(any(GameDeck.class), eq(responseBody), eq("deck_id"),eq(Arrays.asList("cards")), eq(Arrays.asList("piles", testDeck.getDealerPileId())));
+        when(deckProvider.drawSpecificFromPile("testId", "dealer", List.of("X1"))).thenReturn(mockCards);
 
-        List<Card> removedCard = spyGameDeckService.removeSpecificCardsFromPile(testDeck, "KS", testDeck.getDealerPileId());
+        List<Card> removedCard = gameDeckService.removeSpecificCardsFromPile(testDeck, "X1", testDeck.getDealerPileId());
 
         assertNotNull(removedCard);
-        verify(httpClient).send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
-        verify(spyGameDeckService).parseCards(any(GameDeck.class), eq(responseBody), eq("deck_id"), eq(Arrays.asList("cards")), eq(Arrays.asList("piles", testDeck.getDealerPileId())));
-
+        assertEquals(1, removedCard.size());
+        assertEquals(9, testDeck.getRemainingCardsDealerStack());
+        verify(gameDeckCounterService).update(testDeck);
     }
 
     @Test
     public void testReturnExplosionCardToDealerPile_random() throws IOException, InterruptedException {
-        Card returnedCard = new Card();
-        returnedCard.setCode("AS");
-        returnedCard.setInternalCode("bomb");
-
-        String responseBody = "{\n" +
-                "  \"deck_id\": \"testDeckId\",\n" +
-                "  \"cards\": [\n" +
-                "    {\"code\": \"AS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"},\n" +
-                "    {\"code\": \"AC\", \"suit\": \"CLUBS\", \"image\": \"http://image2.com\"}\n" +
-                "  ]\n" +
-                "}";
-
-        Map<String, Integer> mockRemaining = new HashMap<>();
-        mockRemaining.put("dealer", 55);
+        Card returnedCard = createCard("AS", "explosion");
         game.setCurrentTurn(mockUser);
 
-        // Mock the saveCards method to return the list of cards
-        doReturn(responseBody).when(spyGameDeckService).getRemainingPileStats(any(GameDeck.class), any(Long.class));
-        doReturn(mockRemaining).when(spyGameDeckService).parsePileCardCounts(any(String.class));
-        doNothing().when(spyGameDeckService).returnCardsToPile(testDeck, "dealer", returnedCard.getCode());
-        doNothing().when(spyGameDeckService).shuffleCardsInDealerPile(testDeck);
-        doNothing().when(eventPublisher).publishEvent(any());
+        when(deckProvider.countPiles("testId")).thenReturn(Map.of("dealer", 40));
 
-        spyGameDeckService.returnExplosionCardToDealerPile(game, -10, returnedCard);;
+        gameDeckService.returnExplosionCardToDealerPile(game, -10, returnedCard);
 
-        verify(spyGameDeckService).returnCardsToPile(testDeck, "dealer", returnedCard.getCode());
-        verify(spyGameDeckService).shuffleCardsInDealerPile(testDeck);
+        ArgumentCaptor<Integer> depthCaptor = ArgumentCaptor.forClass(Integer.class);
+        verify(deckProvider).insertIntoPile(eq("testId"), eq("dealer"), eq("AS"), depthCaptor.capture());
+        assertTrue(depthCaptor.getValue() >= 0 && depthCaptor.getValue() <= 40);
+        verify(deckProvider, never()).shufflePile(anyString(), anyString());
+        assertEquals(41, testDeck.getRemainingCardsDealerStack());
         verify(eventPublisher).publishEvent(any(ExplosionReturnedToDeckEvent.class));
     }
 
     @Test
     public void testReturnExplosionCardToDealerPile_topOfPile() throws IOException, InterruptedException {
-        Card returnedCard = new Card();
-        returnedCard.setCode("AS");
-        returnedCard.setInternalCode("bomb");
-
-        String responseBody = "{\n" +
-                "  \"deck_id\": \"testDeckId\",\n" +
-                "  \"cards\": [\n" +
-                "    {\"code\": \"AS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"},\n" +
-                "    {\"code\": \"AC\", \"suit\": \"CLUBS\", \"image\": \"http://image2.com\"}\n" +
-                "  ]\n" +
-                "}";
-
-        Map<String, Integer> mockRemaining = new HashMap<>();
-        mockRemaining.put("dealer", 55);
+        Card returnedCard = createCard("AS", "explosion");
         game.setCurrentTurn(mockUser);
 
-        // Mock the saveCards method to return the list of cards
-        doReturn(responseBody).when(spyGameDeckService).getRemainingPileStats(any(GameDeck.class), any(Long.class));
-        doReturn(mockRemaining).when(spyGameDeckService).parsePileCardCounts(any(String.class));
-        doNothing().when(spyGameDeckService).returnCardsToPile(testDeck, "dealer", returnedCard.getCode());
-        doNothing().when(eventPublisher).publishEvent(any());
+        when(deckProvider.countPiles("testId")).thenReturn(Map.of("dealer", 40));
 
-        spyGameDeckService.returnExplosionCardToDealerPile(game, 0, returnedCard);;
+        gameDeckService.returnExplosionCardToDealerPile(game, 0, returnedCard);
 
-        verify(spyGameDeckService).returnCardsToPile(testDeck, "dealer", returnedCard.getCode());
+        verify(deckProvider).insertIntoPile("testId", "dealer", "AS", 0);
+        verify(gameDeckCounterService).update(testDeck);
         verify(eventPublisher).publishEvent(any(ExplosionReturnedToDeckEvent.class));
     }
 
     @Test
     public void testReturnExplosionCardToDealerPile_bottomOfPile() throws IOException, InterruptedException {
-        Card returnedCard = new Card();
-        returnedCard.setCode("AS");
-        returnedCard.setInternalCode("bomb");
+        Card returnedCard = createCard("AS", "explosion");
+        game.setCurrentTurn(mockUser);
 
-        Card pileCard = new Card();
-        pileCard.setCode("5S");
-        pileCard.setInternalCode("shuffle");
-        List<Card> mockCards = new ArrayList<>();
+        when(deckProvider.countPiles("testId")).thenReturn(Map.of("dealer", 40));
 
-        mockCards.add(pileCard);
+        gameDeckService.returnExplosionCardToDealerPile(game, -1, returnedCard);
+        gameDeckService.returnExplosionCardToDealerPile(game, 45, returnedCard);
 
-        String responseBody = "{\n" +
-                "  \"deck_id\": \"testDeckId\",\n" +
-                "  \"cards\": [\n" +
-                "    {\"code\": \"AS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"},\n" +
-                "    {\"code\": \"AC\", \"suit\": \"CLUBS\", \"image\": \"http://image2.com\"}\n" +
-                "  ]\n" +
-                "}";
+        verify(deckProvider, times(2)).insertIntoPile("testId", "dealer", "AS", 40);
+        verify(deckProvider, never()).drawFromPile(anyString(), anyString(), anyInt());
+    }
 
-        Map<String, Integer> mockRemaining = new HashMap<>();
-        mockRemaining.put("dealer", 1);
+    @Test
+    public void testReturnExplosionCardToDealerPile_else() throws IOException, InterruptedException {
+        Card returnedCard = createCard("AS", "explosion");
         game.setCurrentTurn(mockUser);
 
-        // Mock the saveCards method to return the list of cards
-        doReturn(responseBody).when(spyGameDeckService).getRemainingPileStats(any(GameDeck.class), any(Long.class));
-        doReturn(mockRemaining).when(spyGameDeckService).parsePileCardCounts(any(String.class));
-        doReturn(mockCards).when(spyGameDeckService).drawCardsFromDealerPile(testDeck, 1);
-        doNothing().when(spyGameDeckService).returnCardsToPile(testDeck, "dealer", returnedCard.getCode()+","+pileCard.getCode());
-        doNothing().when(eventPublisher).publishEvent(any());
+        when(deckProvider.countPiles("testId")).thenReturn(Map.of("dealer", 5));
 
-        spyGameDeckService.returnExplosionCardToDealerPile(game, -1, returnedCard);;
+        gameDeckService.returnExplosionCardToDealerPile(game, 2, returnedCard);
 
-        verify(spyGameDeckService).returnCardsToPile(testDeck, "dealer", returnedCard.getCode()+","+pileCard.getCode());
-        verify(spyGameDeckService).drawCardsFromDealerPile(testDeck, 1);
+        verify(deckProvider).insertIntoPile("testId", "dealer", "AS", 2);
+        assertEquals(6, testDeck.getRemainingCardsDealerStack());
         verify(eventPublisher).publishEvent(any(ExplosionReturnedToDeckEvent.class));
     }
 
     @Test
-    public void testReturnExplosionCardToDealerPile_else() throws IOException, InterruptedException {
-        Card returnedCard = new Card();
-        returnedCard.setCode("AS");
-        returnedCard.setInternalCode("bomb");
+    public void testReloadPlayerPile_success() throws IOException, InterruptedException {
+        List<Card> mockCards = new ArrayList<>(List.of(createCard("AS", "attack")));
 
-        Card pileCard = new Card();
-        pileCard.setCode("5S");
-        pileCard.setInternalCode("shuffle");
-        List<Card> mockCards = new ArrayList<>();
+        when(deckProvider.listPile("testId", "1")).thenReturn(mockCards);
+
+        gameDeckService.reloadPlayerPile(testDeck, mockUser.getId());
 
-        mockCards.add(pileCard);
+        verify(eventPublisher).publishEvent(any(PlayerCardEvent.class));
+    }
 
-        String responseBody = "{\n" +
-                "  \"deck_id\": \"testDeckId\",\n" +
-                "  \"cards\": [\n" +
-                "    {\"code\": \"AS\", \"suit\": \"SPADES\", \"image\": \"http://image1.com\"},\n" +
-                "    {\"code\": \"AC\", \"suit\": \"CLUBS\", \"image\": \"http://image2.com\"}\n" +
-                "  ]\n" +
-                "}";
+    @Test
+    public void testReloadPlayerPile_fromLog() throws IOException, InterruptedException {
+        when(gameLogService.getPiles(gameId)).thenReturn(Map.of("dealer", List.of("2S", "3S"), "1", List.of("AS", "KH")));
 
-        Map<String, Integer> mockRemaining = new HashMap<>();
-        mockRemaining.put("dealer", 5);
-        game.setCurrentTurn(mockUser);
+        gameDeckService.reloadPlayerPile(testDeck, mockUser.getId());
 
-        // Mock the saveCards method to return the list of cards
-        doReturn(responseBody).when(spyGameDeckService).getRemainingPileStats(any(GameDeck.class), any(Long.class));
-        doReturn(mockRemaining).when(spyGameDeckService).parsePileCardCounts(any(String.class));
-        doReturn(mockCards).when(spyGameDeckService).drawCardsFromDealerPile(testDeck, 2);
-        doNothing().when(spyGameDeckService).returnCardsToPile(testDeck, "dealer", returnedCard.getCode()+","+pileCard.getCode());
-        doNothing().when(eventPublisher).publishEvent(any());
+        ArgumentCaptor<PlayerCardEvent> captor = ArgumentCaptor.forClass(PlayerCardEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(List.of("AS", "KH"), captor.getValue().getPlayerCards().stream().map(Card::getCode).toList());
+        verifyNoInteractions(deckProvider);
+    }
 
-        spyGameDeckService.returnExplosionCardToDealerPile(game, 2, returnedCard);;
+    @Test
+    public void testRecoverDeck_restoresPilesFromLog() {
+        Map<String, List<String>> piles = Map.of("dealer", List.of("2S", "3S"), "1", List.of("AS"));
+        when(gameLogService.getPiles(gameId)).thenReturn(piles);
+        when(deckProvider.restoreDeck("testId", piles)).thenReturn(true);
 
-        verify(spyGameDeckService).returnCardsToPile(testDeck, "dealer", returnedCard.getCode()+","+pileCard.getCode());
-        verify(spyGameDeckService).drawCardsFromDealerPile(testDeck, 2);
-        verify(eventPublisher).publishEvent(any(ExplosionReturnedToDeckEvent.class));
+        gameDeckService.recoverDeck(game);
+
+        verify(gameLogService).bind(gameId, "testId");
+        verify(deckProvider).restoreDeck("testId", piles);
+    }
+
+    @Test
+    public void testRecoverDeck_nothingRecorded() {
+        gameDeckService.recoverDeck(game);
+
+        verify(gameLogService).bind(gameId, "testId");
+        verifyNoInteractions(deckProvider);
     }
 
     @Test
     public void testRemoveCardsFromPlayerPile_apiFailure() throws IOException, InterruptedException {
-        String jsonRes = "{\"success\":false, \"error\":\"User doesn't possess the card(s)\"}";
-        HttpResponse<String> mockResponse = mock(HttpResponse.class);
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(mockResponse);
-        when(mockResponse.body()).thenReturn(jsonRes);
+        when(deckProvider.drawSpecificFromPile("testId", "1", List.of("AS")))
+                .thenThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Card AS is not in pile 1"));
 
         ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
             gameDeckService.removeCardsFromPlayerPile(game, mockUser.getId(), "AS");
@@ -864,14 +600,25 @@ public class GameDeckServiceTest {
 
     @Test
     public void testRemoveCardsFromPlayerPile_ioException() throws IOException, InterruptedException {
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+        when(deckProvider.drawSpecificFromPile("testId", "1", List.of("AS")))
                 .thenThrow(new IOException("Network error"));
 
         ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
             gameDeckService.removeCardsFromPlayerPile(game, mockUser.getId(), "AS");
         });
 
-        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
-        assertEquals("Move is invalid, user doesn't poses the card(s) played", exception.getReason());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+    }
+
+    @Test
+    public void testRemoveCardsFromPlayerPile_circuitOpen() throws IOException, InterruptedException {
+        when(deckProvider.drawSpecificFromPile("testId", "1", List.of("AS")))
+                .thenThrow(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Deck service unavailable, please retry shortly"));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
+            gameDeckService.removeCardsFromPlayerPile(game, mockUser.getId(), "AS");
+        });
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package ch.uzh.ifi.hase.soprafs24.service;
 
 import ch.uzh.ifi.hase.soprafs24.constant.GameState;
+import ch.uzh.ifi.hase.soprafs24.constant.UserStatus;
 import ch.uzh.ifi.hase.soprafs24.entity.*;
 import ch.uzh.ifi.hase.soprafs24.event.*;
 import ch.uzh.ifi.hase.soprafs24.repository.CardRepository;
@@ -52,6 +53,9 @@ public class GameEngineServiceTest {
     @Mock
     private GameService gameService;
 
+    @Mock
+    private GameSessionService gameSessionService;
+
     @InjectMocks
     private GameEngineService gameEngineService;
 
@@ -69,6 +73,33 @@ public class GameEngineServiceTest {
         });
     }
 
+    @Test
+    public void testFindGameById_ongoingGameServedFromSession() {
+        Game ongoingGame = new Game();
+        ongoingGame.setGameId(1L);
+        ongoingGame.setState(GameState.ONGOING);
+
+        when(gameSessionService.find(1L)).thenReturn(Optional.of(ongoingGame));
+
+        assertSame(ongoingGame, gameEngineService.findGameById(1L));
+        verifyNoInteractions(gameRepository);
+    }
+
+    @Test
+    public void testFindGameById_ongoingGameRegistered() {
+        Game ongoingGame = new Game();
+        ongoingGame.setGameId(1L);
+        ongoingGame.setState(GameState.ONGOING);
+
+        when(gameRepository.findByGameId(1L)).thenReturn(Optional.of(ongoingGame));
+
+        gameEngineService.findGameById(1L);
+
+        verify(gameSessionService, times(1)).flush(1L);
+        verify(gameDeckService, times(1)).recoverDeck(ongoingGame);
+        verify(gameSessionService, times(1)).register(ongoingGame);
+    }
+
     @Test
     public void testStartGame_Success() throws Exception {
         UserStats userStats = new UserStats();
@@ -174,15 +205,47 @@ public class GameEngineServiceTest {
         user.setId(1L);
         user.setUserStats(userStats);
 
+        // The winner as stored, e.g. logged out during the game
+        UserStats storedUserStats = new UserStats();
+        storedUserStats.setGamesWon(2);
+        User storedUser = new User();
+        storedUser.setId(1L);
+        storedUser.setStatus(UserStatus.OFFLINE);
+        storedUser.setUserStats(storedUserStats);
+
         Game mockGame = new Game();
         mockGame.setPlayers(new ArrayList<>(Collections.singletonList(user)));
 
         when(gameRepository.findByGameId(1L)).thenReturn(Optional.of(mockGame));
+        when(gameSessionService.finish(mockGame, 1L)).thenReturn(Optional.of(mockGame));
+        when(userRepository.findUserById(1L)).thenReturn(storedUser);
 
         gameEngineService.terminatingGame(1L);
 
         assertEquals(GameState.FINISHED, mockGame.getState());
-        verify(gameRepository, times(1)).saveAndFlush(mockGame);
+        verify(gameSessionService, times(1)).finish(mockGame, 1L);
+        verify(gameRepository, never()).saveAndFlush(Mockito.any());
+        // The win is counted on the user read anew, not on the one loaded with the game
+        verify(userRepository, times(1)).save(storedUser);
+        verify(userRepository, never()).save(user);
+        assertEquals(3, storedUserStats.getGamesWon());
+        assertEquals(UserStatus.OFFLINE, storedUser.getStatus());
+    }
+
+    @Test
+    public void testTerminatingGame_endedByAnotherWriter() {
+        User user = new User();
+        user.setId(1L);
+        Game mockGame = new Game();
+        mockGame.setPlayers(new ArrayList<>(Collections.singletonList(user)));
+
+        when(gameRepository.findByGameId(1L)).thenReturn(Optional.of(mockGame));
+        when(gameSessionService.finish(mockGame, 1L)).thenReturn(Optional.empty());
+
+        gameEngineService.terminatingGame(1L);
+
+        verify(userRepository, never()).save(Mockito.any());
+        verify(eventPublisher, never()).publishEvent(Mockito.any());
     }
 
     @Test
@@ -215,7 +278,9 @@ public class GameEngineServiceTest {
 
         assertFalse(mockGame.getPlayers().isEmpty());
         assertEquals(mockGame.getState(), GameState.FINISHED);
-        verify(gameRepository, times(3)).saveAndFlush(mockGame);
+        // Turn change and removal of the player are written with the next flush, the finished game immediately
+        verify(gameSessionService, times(2)).update(mockGame);
+        verify(gameRepository, times(1)).saveAndFlush(mockGame);
     }
 
 //    @Test
@@ -238,22 +303,25 @@ public class GameEngineServiceTest {
 
     @Test
     public void testTransformCardsToInternalRepresentation() {
-        List<String> cardIds = Arrays.asList("card1", "card2");
-        Card card1 = new Card();
-        card1.setCode("card1");
-        Card card2 = new Card();
-        card2.setCode("card2");
-
-        when(cardRepository.findByCode("card1")).thenReturn(card1);
-        when(cardRepository.findByCode("card2")).thenReturn(card2);
+        List<String> cardIds = Arrays.asList("KS", "7H");
 
         List<Card> result = gameEngineService.transformCardsToInternalRepresentation(cardIds);
 
         assertEquals(2, result.size());
-        assertTrue(result.contains(card1));
-        assertTrue(result.contains(card2));
-        verify(cardRepository, times(1)).findByCode("card1");
-        verify(cardRepository, times(1)).findByCode("card2");
+        assertEquals("KS", result.get(0).getCode());
+        assertEquals("defuse", result.get(0).getInternalCode());
+        assertEquals("7H", result.get(1).getCode());
+        assertEquals("shuffle", result.get(1).getInternalCode());
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    public void testTransformCardsToInternalRepresentation_unknownCard() {
+        List<String> cardIds = Arrays.asList("KS", "card2");
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> gameEngineService.transformCardsToInternalRepresentation(cardIds));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
     }
 
     @Test
@@ -288,19 +356,16 @@ public class GameEngineServiceTest {
 
         List<Card> topCards = Arrays.asList(topCard);
 
-        String jsonResponse = "{\"dealer\": {\"remaining\": 52}}";
         Map<String, Integer> pileCardCounts = Map.of("dealer", 52);
 
         when(gameRepository.findByGameId(gameId)).thenReturn(Optional.of(mockGame));
-        when(gameDeckService.getRemainingPileStats(mockDeck, userId)).thenReturn(jsonResponse);
-        when(gameDeckService.parsePileCardCounts(jsonResponse)).thenReturn(pileCardCounts);
+        when(gameDeckService.getPileCardCounts(mockDeck)).thenReturn(pileCardCounts);
         when(gameDeckService.exploreTopCardPlayPile(mockDeck)).thenReturn(topCards);
 
         gameEngineService.dispatchGameState(gameId, userId);
 
         verify(gameRepository).findByGameId(gameId);
-        verify(gameDeckService).getRemainingPileStats(mockDeck, userId);
-        verify(gameDeckService).parsePileCardCounts(jsonResponse);
+        verify(gameDeckService).getPileCardCounts(mockDeck);
         verify(gameDeckService).exploreTopCardPlayPile(mockDeck);
 
         ArgumentCaptor<GameStateEvent> eventCaptor = ArgumentCaptor.forClass(GameStateEvent.class);
@@ -337,14 +402,16 @@ public class GameEngineServiceTest {
         mockGame.setCurrentTurn(currentUser);
         mockGame.setAttacked(false);
 
-        when(userRepository.findUserById(1L)).thenReturn(currentUser);
         when(userService.getUserById(1L)).thenReturn(currentUser);
         when(gameRepository.findByGameId(1L)).thenReturn(Optional.of(mockGame));
-        when(gameRepository.saveAndFlush(Mockito.any())).thenReturn(mockGame);
 
         gameEngineService.handleAttackCard(mockGame, 1L);
 
         assertTrue(mockGame.isRepeatTurn());
+        assertFalse(mockGame.isAttacked());
+        assertEquals(nextUser, mockGame.getCurrentTurn());
+        verify(gameSessionService, atLeastOnce()).update(mockGame);
+        verify(gameRepository, never()).saveAndFlush(Mockito.any());
     }
 
     @Test
@@ -365,7 +432,6 @@ public class GameEngineServiceTest {
 
         when(userService.getUserById(1L)).thenReturn(currentUser);
         when(gameRepository.findByGameId(1L)).thenReturn(Optional.of(mockGame));
-        when(gameRepository.saveAndFlush(Mockito.any())).thenReturn(mockGame);
 
         gameEngineService.handleSkipCard(mockGame, 1L);
 
@@ -419,7 +485,6 @@ public class GameEngineServiceTest {
         topCard.setInternalCode("Ace of Hearts");
         List<Card> topCards = Arrays.asList(topCard);
 
-        String jsonResponse = "{\"dealer\": {\"remaining\": 52}}";
         Map<String, Integer> pileCardCounts = Map.of("dealer", 52);
 
         User player1 = new User();
@@ -433,8 +498,7 @@ public class GameEngineServiceTest {
         mockGame.setCurrentTurn(player2);
 
         when(gameRepository.findByGameId(gameId)).thenReturn(Optional.of(mockGame));
-        when(gameDeckService.getRemainingPileStats(mockDeck, userId)).thenReturn(jsonResponse);
-        when(gameDeckService.parsePileCardCounts(jsonResponse)).thenReturn(pileCardCounts);
+        when(gameDeckService.getPileCardCounts(mockDeck)).thenReturn(pileCardCounts);
         when(gameDeckService.exploreTopCardPlayPile(mockDeck)).thenReturn(topCards);
 
         ArgumentCaptor<GameStateEvent> eventCaptor = ArgumentCaptor.forClass(GameStateEvent.class);
@@ -458,7 +522,6 @@ public class GameEngineServiceTest {
         mockGame.setGameId(gameId);
         mockGame.setGameDeck(mockDeck);
 
-        String jsonResponse = "{\"dealer\": {\"remaining\": 52}}";
         Map<String, Integer> pileCardCounts = Map.of("dealer", 52);
 
         User player1 = new User();
@@ -472,8 +535,7 @@ public class GameEngineServiceTest {
         mockGame.setCurrentTurn(player2);
 
         when(gameRepository.findByGameId(gameId)).thenReturn(Optional.of(mockGame));
-        when(gameDeckService.getRemainingPileStats(mockDeck, userId)).thenReturn(jsonResponse);
-        when(gameDeckService.parsePileCardCounts(jsonResponse)).thenReturn(pileCardCounts);
+        when(gameDeckService.getPileCardCounts(mockDeck)).thenReturn(pileCardCounts);
         when(gameDeckService.exploreTopCardPlayPile(mockDeck)).thenReturn(null);  // Mock to return `null`
 
         ArgumentCaptor<GameStateEvent> eventCaptor = ArgumentCaptor.forClass(GameStateEvent.class);
@@ -619,18 +681,16 @@ public class GameEngineServiceTest {
         randomCard.setCode("RC1");
         randomCard.setInternalCode("randomCard");
 
-        when(gameDeckService.drawCardFromPlayerPile(mockDeck, targetUser.getId(), null)).thenReturn(randomCard);
+        when(gameDeckService.stealRandomCard(mockDeck, targetUser.getId(), userId)).thenReturn(randomCard);
 
         doNothing().when(eventPublisher).publishEvent(any(StealCardEvent.class));
-        doNothing().when(gameDeckService).returnCardsToPile(mockDeck, userId.toString(), randomCard.getCode());
         doNothing().when(eventPublisher).publishEvent(any(PlayerCardEvent.class));
 
         gameEngineService.handleFavorCard(mockGame, userId, targetUserName);
 
         verify(userRepository, times(1)).findByUsername(targetUserName);
-        verify(gameDeckService, times(1)).drawCardFromPlayerPile(mockDeck, targetUser.getId(), null);
+        verify(gameDeckService, times(1)).stealRandomCard(mockDeck, targetUser.getId(), userId);
         verify(eventPublisher, times(1)).publishEvent(any(StealCardEvent.class));
-        verify(gameDeckService, times(1)).returnCardsToPile(mockDeck, userId.toString(), randomCard.getCode());
         verify(eventPublisher, times(1)).publishEvent(any(PlayerCardEvent.class));
     }
 
@@ -661,7 +721,7 @@ public class GameEngineServiceTest {
         assertEquals("Targeted User is not part of the game", exception.getReason());
 
         verify(userRepository, times(1)).findByUsername(targetUserName);
-        verify(gameDeckService, times(0)).drawCardFromPlayerPile(any(GameDeck.class), anyLong(), anyString());
+        verify(gameDeckService, times(0)).stealRandomCard(any(GameDeck.class), anyLong(), anyLong());
         verify(eventPublisher, times(0)).publishEvent(any(StealCardEvent.class));
         verify(gameDeckService, times(0)).returnCardsToPile(any(GameDeck.class), anyString(), anyString());
         verify(eventPublisher, times(0)).publishEvent(any(PlayerCardEvent.class));
@@ -698,7 +758,9 @@ public class GameEngineServiceTest {
 
         when(gameDeckService.exploreTopCardPlayPile(mockDeck)).thenReturn(topCards);
         gameEngineService.handleExplosionCard(gameId, userId, explosionId);
-        verify(gameDeckService).placeCardsToPlayPile(any(Game.class), eq(userId), anyList(), eq(explosionId));
+        InOrder inOrder = inOrder(gameDeckService);
+        inOrder.verify(gameDeckService).removeCardsFromPlayerPile(mockGame, userId, explosionId);
+        inOrder.verify(gameDeckService).placeCardsToPlayPile(any(Game.class), eq(userId), anyList(), eq(explosionId));
     }
 
     @Test
@@ -725,12 +787,10 @@ public class GameEngineServiceTest {
         topCard.setInternalCode("Ace of Hearts");
         List<Card> topCards = Arrays.asList(topCard);
 
-        String jsonResponse = "{\"dealer\": {\"remaining\": 52}}";
         Map<String, Integer> pileCardCounts = Map.of("dealer", 52);
 
         when(gameRepository.findByGameId(gameId)).thenReturn(Optional.of(mockGame));
-        when(gameDeckService.getRemainingPileStats(mockDeck, userId)).thenReturn(jsonResponse);
-        when(gameDeckService.parsePileCardCounts(jsonResponse)).thenReturn(pileCardCounts);
+        when(gameDeckService.getPileCardCounts(mockDeck)).thenReturn(pileCardCounts);
         when(gameDeckService.exploreTopCardPlayPile(mockDeck)).thenReturn(topCards);
 
         gameEngineService.reloadGameState(gameId, userId);
@@ -0,0 +1,182 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.GameLogEntryType;
+import ch.uzh.ifi.hase.soprafs24.entity.GameLogEntry;
+import ch.uzh.ifi.hase.soprafs24.event.CardPlayedEvent;
+import ch.uzh.ifi.hase.soprafs24.repository.GameLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("dev")
+@ExtendWith(MockitoExtension.class)
+public class GameLogServiceTest {
+
+    @Mock
+    private GameLogRepository gameLogRepository;
+
+    private GameLogService gameLogService;
+
+    @BeforeEach
+    public void setup() {
+        gameLogService = new GameLogService(gameLogRepository, 3);
+        gameLogService.bind(1L, "testId");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<GameLogEntry> flushedEntries() {
+        ArgumentCaptor<List<GameLogEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(gameLogRepository, atLeastOnce()).saveAll(captor.capture());
+        List<GameLogEntry> entries = new ArrayList<>();
+        captor.getAllValues().forEach(entries::addAll);
+        return entries;
+    }
+
+    private GameLogEntry entry(long sequence, GameLogEntryType type, String pileName, String cardCodes) {
+        GameLogEntry entry = new GameLogEntry();
+        entry.setGameId(1L);
+        entry.setSequence(sequence);
+        entry.setType(type);
+        entry.setPileName(pileName);
+        entry.setCardCodes(cardCodes);
+        return entry;
+    }
+
+    @Test
+    public void testPileChanges_rebuildPiles() {
+        gameLogService.added("testId", "dealer", List.of("2S", "3S", "4S", "5S"));
+        gameLogService.removed("testId", "dealer", List.of("5S"));
+        gameLogService.added("testId", "1", List.of("5S"));
+        gameLogService.inserted("testId", "dealer", "AS", 1);
+        gameLogService.replaced("testId", "1", List.of("5S"));
+
+        assertEquals(Map.of("dealer", List.of("2S", "3S", "AS", "4S"), "1", List.of("5S")), gameLogService.getPiles(1L));
+    }
+
+    @Test
+    public void testEntries_numberedAndWrittenInBatches() {
+        gameLogService.recordCommand(1L, 2L, "card move");
+        gameLogService.onGameEvent(new CardPlayedEvent(this, "attack", 1L, "player", "2S"));
+        gameLogService.added("testId", "play", List.of("2S"));
+        gameLogService.added("unknownDeck", "play", List.of("3S"));
+
+        verify(gameLogRepository, never()).saveAll(anyList());
+        gameLogService.flushAll();
+
+        List<GameLogEntry> entries = flushedEntries();
+        assertEquals(List.of(1L, 2L, 3L), entries.stream().map(GameLogEntry::getSequence).toList());
+        assertEquals(List.of(GameLogEntryType.COMMAND, GameLogEntryType.EVENT, GameLogEntryType.PILE_ADD),
+                entries.stream().map(GameLogEntry::getType).toList());
+        assertEquals("CardPlayedEvent", entries.get(1).getName());
+        assertTrue(entries.get(1).getPayload().contains("\"externalCode\":\"2S\""));
+        assertFalse(entries.get(1).getPayload().contains("source"));
+    }
+
+    @Test
+    public void testSnapshot_appendedEveryInterval() {
+        gameLogService.added("testId", "dealer", List.of("2S", "3S"));
+        gameLogService.removed("testId", "dealer", List.of("3S"));
+        gameLogService.added("testId", "1", List.of("3S"));
+        gameLogService.flushAll();
+
+        GameLogEntry snapshot = flushedEntries().get(3);
+        assertEquals(GameLogEntryType.SNAPSHOT, snapshot.getType());
+        assertEquals(4L, snapshot.getSequence());
+        assertEquals("{\"dealer\":[\"2S\"],\"1\":[\"3S\"]}", snapshot.getPayload());
+    }
+
+    @Test
+    public void testOpenLog_replayedFromLastSnapshot() {
+        GameLogEntry snapshot = entry(4, GameLogEntryType.SNAPSHOT, null, null);
+        snapshot.setPayload("{\"dealer\":[\"2S\",\"4S\"],\"1\":[\"3S\"]}");
+        when(gameLogRepository.findFirstByGameIdAndTypeOrderBySequenceDesc(7L, GameLogEntryType.SNAPSHOT)).thenReturn(Optional.of(snapshot));
+        when(gameLogRepository.findByGameIdAndSequenceGreaterThanOrderBySequence(7L, 4L)).thenReturn(List.of(
+                entry(5, GameLogEntryType.PILE_REMOVE, "dealer", "4S"),
+                entry(6, GameLogEntryType.COMMAND, null, null),
+                entry(7, GameLogEntryType.PILE_ADD, "1", "4S")));
+
+        assertEquals(Map.of("dealer", List.of("2S"), "1", List.of("3S", "4S")), gameLogService.getPiles(7L));
+
+        // Numbering continues after the last written entry
+        gameLogService.recordCommand(7L, 2L, "terminate move");
+        gameLogService.flushAll();
+        assertEquals(8L, flushedEntries().get(0).getSequence());
+    }
+
+    @Test
+    public void testFlushAll_failureKeepsEntries() {
+        when(gameLogRepository.saveAll(anyList()))
+                .thenThrow(new IllegalStateException("Connection lost"))
+                .thenReturn(List.of());
+
+        gameLogService.recordCommand(1L, 2L, "card move");
+        gameLogService.flushAll();
+        gameLogService.flushAll();
+
+        List<GameLogEntry> entries = flushedEntries();
+        assertEquals(2, entries.size());
+        assertSame(entries.get(0), entries.get(1));
+    }
+
+    @Test
+    public void testDiscardedDeck_logKeptForOneMoreFlush() {
+        gameLogService.added("testId", "dealer", List.of("2S"));
+        gameLogService.discarded("testId");
+
+        gameLogService.flushAll();
+        // Events of the finished game raised after the deck was discarded
+        gameLogService.recordCommand(1L, 2L, "leave");
+        gameLogService.flushAll();
+        gameLogService.flushAll();
+
+        // Pile changes of the discarded deck are no longer assigned to the game
+        gameLogService.added("testId", "dealer", List.of("3S"));
+        assertEquals(List.of(1L, 2L), flushedEntries().stream().map(GameLogEntry::getSequence).toList());
+        verify(gameLogRepository, times(1)).findByGameIdAndSequenceGreaterThanOrderBySequence(1L, 0L);
+    }
+
+    @Test
+    public void testOpenLog_entriesOfOtherGamesNotWritten() {
+        gameLogService.recordCommand(1L, 2L, "card move");
+
+        // First entry of another game opens its log from the repository
+        gameLogService.recordCommand(7L, 3L, "card move");
+
+        verify(gameLogRepository, never()).saveAll(anyList());
+        gameLogService.flushAll();
+        assertEquals(List.of(1L, 7L), flushedEntries().stream().map(GameLogEntry::getGameId).sorted().toList());
+    }
+
+    @Test
+    public void testDiscardedDeck_logKeptUntilEntriesWritten() {
+        when(gameLogRepository.saveAll(anyList()))
+                .thenReturn(List.of())
+                .thenThrow(new IllegalStateException("Connection lost"))
+                .thenReturn(List.of());
+
+        gameLogService.recordCommand(1L, 2L, "card move");
+        gameLogService.discarded("testId");
+        gameLogService.flushAll();
+        gameLogService.recordCommand(1L, 2L, "leave");
+        // Writing the last entry fails, hence the log is kept in memory until the next flush writes it
+        gameLogService.flushAll();
+        gameLogService.recordCommand(1L, 2L, "late event");
+        gameLogService.flushAll();
+
+        assertEquals(List.of(1L, 2L, 2L, 3L), flushedEntries().stream().map(GameLogEntry::getSequence).toList());
+        verify(gameLogRepository, times(1)).findByGameIdAndSequenceGreaterThanOrderBySequence(1L, 0L);
+    }
+}
@@ -4,6 +4,7 @@ import ch.uzh.ifi.hase.soprafs24.constant.GameMode;
 import ch.uzh.ifi.hase.soprafs24.constant.GameState;
 import ch.uzh.ifi.hase.soprafs24.entity.Game;
 import ch.uzh.ifi.hase.soprafs24.entity.GameDeck;
+import ch.uzh.ifi.hase.soprafs24.entity.GameLogEntry;
 import ch.uzh.ifi.hase.soprafs24.entity.User;
 import ch.uzh.ifi.hase.soprafs24.repository.GameRepository;
 import ch.uzh.ifi.hase.soprafs24.rest.dto.GamePostDTO;
@@ -43,6 +44,9 @@ public class GameServiceTest {
     @Mock
     private GameDeckService gameDeckService;
 
+    @Mock
+    private GameLogService gameLogService;
+
     private User mockUser;
     private GamePostDTO gamePostDTO;
 
@@ -319,5 +323,49 @@ public class GameServiceTest {
         assertEquals("Game session full", exception.getReason());
     }
 
-}
+    @Test
+    public void getGameLog_FinishedGame_ReturnsEntries() {
+        game.setState(GameState.FINISHED);
+        game.getLeaderboard().add("TestUser");
+        List<GameLogEntry> entries = List.of(new GameLogEntry());
+
+        when(userService.verifyUserByToken("validToken")).thenReturn(mockUser);
+        when(gameRepository.findByGameId(gameId)).thenReturn(Optional.of(game));
+        when(gameLogService.getEntries(gameId)).thenReturn(entries);
+
+        assertEquals(entries, gameService.getGameLog("validToken", gameId));
+    }
+
+    @Test
+    public void getGameLog_OngoingGame_ThrowsResponseStatusException() {
+        game.setState(GameState.ONGOING);
+
+        when(userService.verifyUserByToken("validToken")).thenReturn(mockUser);
+        when(gameRepository.findByGameId(gameId)).thenReturn(Optional.of(game));
+
+        ResponseStatusException exception = assertThrows(
+                ResponseStatusException.class,
+                () -> gameService.getGameLog("validToken", gameId)
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        verifyNoInteractions(gameLogService);
+    }
 
+    @Test
+    public void getGameLog_NotAPlayer_ThrowsResponseStatusException() {
+        game.setState(GameState.FINISHED);
+        game.getLeaderboard().add("AnotherUser");
+
+        when(userService.verifyUserByToken("validToken")).thenReturn(mockUser);
+        when(gameRepository.findByGameId(gameId)).thenReturn(Optional.of(game));
+
+        ResponseStatusException exception = assertThrows(
+                ResponseStatusException.class,
+                () -> gameService.getGameLog("validToken", gameId)
+        );
+
+        assertEquals(HttpStatus.FORBIDDEN, exception.getStatus());
+    }
+
+}
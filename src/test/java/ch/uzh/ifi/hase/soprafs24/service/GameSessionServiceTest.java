@@ -0,0 +1,257 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.GameState;
+import ch.uzh.ifi.hase.soprafs24.entity.Game;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.repository.GameRepository;
+import ch.uzh.ifi.hase.soprafs24.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("dev")
+@ExtendWith(MockitoExtension.class)
+public class GameSessionServiceTest {
+
+    @Mock
+    private GameRepository gameRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private GameSessionService gameSessionService;
+
+    private Game testGame;
+
+    private User player1;
+
+    private User player2;
+
+    private Game createGame() {
+        player1 = new User();
+        player1.setId(1L);
+        player2 = new User();
+        player2.setId(2L);
+
+        Game game = new Game();
+        game.setGameId(1L);
+        game.setState(GameState.ONGOING);
+        game.setPlayers(new ArrayList<>(List.of(player1, player2)));
+        game.setCurrentTurn(player1);
+        return game;
+    }
+
+    @BeforeEach
+    public void setup() {
+        gameSessionService = new GameSessionService(gameRepository, userRepository, 3600000);
+        testGame = createGame();
+    }
+
+    @Test
+    public void testFind_registeredGame() {
+        assertTrue(gameSessionService.find(1L).isEmpty());
+
+        gameSessionService.register(testGame);
+
+        assertSame(testGame, gameSessionService.find(1L).orElseThrow());
+        verifyNoInteractions(gameRepository);
+    }
+
+    @Test
+    public void testUpdate_coalescedIntoSingleFlush() {
+        Game storedGame = createGame();
+        when(gameRepository.findByGameId(1L)).thenReturn(Optional.of(storedGame));
+
+        gameSessionService.register(testGame);
+        testGame.setAttacked(true);
+        gameSessionService.update(testGame);
+        testGame.setCurrentTurn(player2);
+        gameSessionService.update(testGame);
+        testGame.getLeaderboard().add("player1");
+        testGame.getPlayers().remove(player1);
+        gameSessionService.update(testGame);
+
+        verifyNoInteractions(gameRepository);
+
+        gameSessionService.flushAll();
+        gameSessionService.flushAll();
+
+        verify(gameRepository, times(1)).saveAndFlush(storedGame);
+        assertTrue(storedGame.isAttacked());
+        assertEquals(2L, storedGame.getCurrentTurn().getId());
+        assertEquals(List.of(2L), storedGame.getPlayers().stream().map(User::getId).toList());
+        assertEquals(List.of("player1"), storedGame.getLeaderboard());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void testUpdate_snapshotNotAlteredByLaterMove() {
+        Game storedGame = createGame();
+        when(gameRepository.findByGameId(1L)).thenReturn(Optional.of(storedGame));
+
+        gameSessionService.update(testGame);
+        // Changed without an update, e.g. by a move in progress
+        testGame.setCurrentTurn(player2);
+
+        gameSessionService.flushAll();
+
+        assertEquals(1L, storedGame.getCurrentTurn().getId());
+    }
+
+    @Test
+    public void testFlushAll_failureKeepsSnapshot() {
+        Game storedGame = createGame();
+        when(gameRepository.findByGameId(1L)).thenReturn(Optional.of(storedGame));
+        when(gameRepository.saveAndFlush(any(Game.class)))
+                .thenThrow(new IllegalStateException("Connection lost"))
+                .thenReturn(storedGame);
+
+        testGame.setRepeatTurn(true);
+        gameSessionService.update(testGame);
+
+        gameSessionService.flushAll();
+        gameSessionService.flushAll();
+
+        verify(gameRepository, times(2)).saveAndFlush(storedGame);
+        assertTrue(storedGame.isRepeatTurn());
+    }
+
+    @Test
+    public void testFlushAll_versionConflictRetriedWithRowReadAnew() {
+        Game storedGame = createGame();
+        // Concurrent write of a column the session does not own
+        Game concurrentlyChangedGame = createGame();
+        concurrentlyChangedGame.setMaxPlayers(5);
+        Game savedGame = createGame();
+        savedGame.setVersion(4L);
+        when(gameRepository.findByGameId(1L))
+                .thenReturn(Optional.of(storedGame))
+                .thenReturn(Optional.of(concurrentlyChangedGame));
+        when(gameRepository.saveAndFlush(any(Game.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Game.class, 1L))
+                .thenReturn(savedGame);
+
+        gameSessionService.register(testGame);
+        testGame.setCurrentTurn(player2);
+        testGame.setAttacked(true);
+        gameSessionService.update(testGame);
+
+        gameSessionService.flushAll();
+        assertEquals(1, gameSessionService.flushConflicts());
+        gameSessionService.flushAll();
+
+        verify(gameRepository, times(2)).findByGameId(1L);
+        // The columns of the session are written onto the row read anew, the concurrent write is kept
+        verify(gameRepository).saveAndFlush(concurrentlyChangedGame);
+        assertEquals(5, concurrentlyChangedGame.getMaxPlayers());
+        assertEquals(2L, concurrentlyChangedGame.getCurrentTurn().getId());
+        assertTrue(concurrentlyChangedGame.isAttacked());
+        // The game in memory carries the version of the last write
+        assertEquals(4L, testGame.getVersion());
+    }
+
+    @Test
+    public void testFlushAll_gameEndedConcurrently_sessionDropped() {
+        Game storedGame = createGame();
+        Game abortedGame = createGame();
+        abortedGame.setState(GameState.ABORTED);
+        when(gameRepository.findByGameId(1L))
+                .thenReturn(Optional.of(storedGame))
+                .thenReturn(Optional.of(abortedGame));
+        when(gameRepository.saveAndFlush(any(Game.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Game.class, 1L));
+
+        gameSessionService.register(testGame);
+        gameSessionService.update(testGame);
+
+        gameSessionService.flushAll();
+        gameSessionService.flushAll();
+
+        // The state written by the other writer wins
+        verify(gameRepository, times(1)).saveAndFlush(any(Game.class));
+        assertEquals(GameState.ABORTED, abortedGame.getState());
+        assertTrue(gameSessionService.find(1L).isEmpty());
+        assertEquals(1, gameSessionService.supersededSessions());
+    }
+
+    @Test
+    public void testFinish_writtenOntoRowReadAnew() {
+        Game storedGame = createGame();
+        storedGame.setMaxPlayers(5);
+        when(gameRepository.findByGameId(1L)).thenReturn(Optional.of(storedGame));
+        when(gameRepository.saveAndFlush(storedGame)).thenReturn(storedGame);
+
+        gameSessionService.register(testGame);
+        testGame.getPlayers().remove(player2);
+        testGame.getLeaderboard().add("player2");
+        gameSessionService.update(testGame);
+
+        Optional<Game> finishedGame = gameSessionService.finish(testGame, 1L);
+
+        // The game held in memory is not written as a whole, the columns of other writers are kept
+        assertEquals(Optional.of(storedGame), finishedGame);
+        verify(gameRepository, never()).saveAndFlush(testGame);
+        assertEquals(GameState.FINISHED, storedGame.getState());
+        assertEquals(5, storedGame.getMaxPlayers());
+        assertEquals(1, storedGame.getPlayers().size());
+        assertSame(storedGame.getPlayers().get(0), storedGame.getWinningPlayer());
+        assertEquals(List.of("player2"), storedGame.getLeaderboard());
+        // The session ended, its pending snapshot is not flushed anymore
+        assertTrue(gameSessionService.find(1L).isEmpty());
+        gameSessionService.flushAll();
+        verify(gameRepository, times(1)).saveAndFlush(any(Game.class));
+    }
+
+    @Test
+    public void testFinish_gameEndedConcurrently_notWritten() {
+        Game abortedGame = createGame();
+        abortedGame.setState(GameState.ABORTED);
+        when(gameRepository.findByGameId(1L)).thenReturn(Optional.of(abortedGame));
+
+        gameSessionService.register(testGame);
+
+        assertTrue(gameSessionService.finish(testGame, 1L).isEmpty());
+        verify(gameRepository, never()).saveAndFlush(any(Game.class));
+        assertEquals(GameState.ABORTED, abortedGame.getState());
+        assertEquals(1, gameSessionService.supersededSessions());
+    }
+
+    @Test
+    public void testClose_dropsSessionAndSnapshot() {
+        gameSessionService.register(testGame);
+        gameSessionService.update(testGame);
+
+        gameSessionService.close(1L);
+        gameSessionService.flushAll();
+
+        assertTrue(gameSessionService.find(1L).isEmpty());
+        verifyNoInteractions(gameRepository);
+    }
+
+    @Test
+    public void testFlushAll_idleSessionEnded() {
+        Game storedGame = createGame();
+        when(gameRepository.findByGameId(1L)).thenReturn(Optional.of(storedGame));
+        gameSessionService = new GameSessionService(gameRepository, userRepository, -1);
+
+        gameSessionService.register(testGame);
+        gameSessionService.update(testGame);
+        gameSessionService.flushAll();
+
+        // The pending snapshot is written before the session ends
+        verify(gameRepository, times(1)).saveAndFlush(storedGame);
+        assertEquals(0, gameSessionService.activeSessions());
+    }
+}
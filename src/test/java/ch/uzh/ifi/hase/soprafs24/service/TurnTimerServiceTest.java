@@ -0,0 +1,168 @@
+package ch.uzh.ifi.hase.soprafs24.service;
+
+import ch.uzh.ifi.hase.soprafs24.constant.GameState;
+import ch.uzh.ifi.hase.soprafs24.engine.GameCommandExecutor;
+import ch.uzh.ifi.hase.soprafs24.entity.Game;
+import ch.uzh.ifi.hase.soprafs24.entity.User;
+import ch.uzh.ifi.hase.soprafs24.event.EndGameEvent;
+import ch.uzh.ifi.hase.soprafs24.event.EndTurnEvent;
+import ch.uzh.ifi.hase.soprafs24.event.PlacementEvent;
+import ch.uzh.ifi.hase.soprafs24.event.YourTurnEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("dev")
+@ExtendWith(MockitoExtension.class)
+public class TurnTimerServiceTest {
+
+    private static final long TIMEOUT_MILLIS = 1000;
+
+    @Mock
+    private GameEngineService gameEngineService;
+
+    @Mock
+    private GameDeckService gameDeckService;
+
+    @Mock
+    private GameLogService gameLogService;
+
+    private TurnTimerService turnTimerService;
+
+    private Game game;
+
+    private User player;
+
+    private long now;
+
+    @BeforeEach
+    public void setup() {
+        now = TurnTimerService.monotonicMillis();
+        // Commands are executed on the thread advancing the timers
+        turnTimerService = new TurnTimerService(gameEngineService, gameDeckService, gameLogService,
+                new GameCommandExecutor(Runnable::run), TIMEOUT_MILLIS, 2, 100, 8);
+
+        player = new User();
+        player.setId(2L);
+        player.setUsername("player");
+
+        game = new Game();
+        game.setGameId(1L);
+        game.setState(GameState.ONGOING);
+        game.setCurrentTurn(player);
+    }
+
+    private int expireTimers() {
+        now += TIMEOUT_MILLIS + 200;
+        return turnTimerService.advance(now);
+    }
+
+    private void announceTurn() {
+        turnTimerService.onYourTurn(new YourTurnEvent(this, 2L, 1L, "player"));
+    }
+
+    @Test
+    public void testExpiredTurn_terminatedOnBehalfOfPlayer() throws Exception {
+        when(gameEngineService.findGameById(1L)).thenReturn(game);
+        announceTurn();
+
+        assertEquals(1, turnTimerService.pendingTimers());
+        assertEquals(0, turnTimerService.advance(now));
+        assertEquals(1, expireTimers());
+
+        verify(gameLogService).recordCommand(1L, 2L, "turn timeout");
+        verify(gameEngineService).drawCardMoveTermination(1L, 2L, false);
+        verify(gameEngineService).turnValidation(1L, 2L);
+        verify(gameEngineService).dispatchGameState(1L, 2L);
+        verify(gameEngineService, never()).removeUserFromGame(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testEndTurn_cancelsTimer() {
+        announceTurn();
+        turnTimerService.onEndTurn(new EndTurnEvent(this, "player", 1L, 2L));
+
+        assertEquals(0, turnTimerService.pendingTimers());
+        assertEquals(0, expireTimers());
+        verifyNoInteractions(gameEngineService);
+    }
+
+    @Test
+    public void testEndGame_cancelsTimer() {
+        announceTurn();
+        turnTimerService.onEndGame(new EndGameEvent(this, "winner", 1L, List.of("player", "winner")));
+
+        assertEquals(0, turnTimerService.pendingTimers());
+        assertEquals(0, expireTimers());
+        verifyNoInteractions(gameEngineService);
+    }
+
+    @Test
+    public void testTurnAnnouncedAgain_keepsDeadline() {
+        announceTurn();
+        announceTurn();
+
+        assertEquals(1, turnTimerService.pendingTimers());
+    }
+
+    @Test
+    public void testExpiredTurn_currentTurnChanged() throws Exception {
+        User otherPlayer = new User();
+        otherPlayer.setId(3L);
+        game.setCurrentTurn(otherPlayer);
+        when(gameEngineService.findGameById(1L)).thenReturn(game);
+        announceTurn();
+
+        expireTimers();
+
+        verify(gameEngineService, never()).drawCardMoveTermination(anyLong(), anyLong(), anyBoolean());
+        verifyNoInteractions(gameLogService);
+    }
+
+    @Test
+    public void testMissedTurnsInARow_playerRemoved() throws Exception {
+        when(gameEngineService.findGameById(1L)).thenReturn(game);
+
+        announceTurn();
+        expireTimers();
+        announceTurn();
+        expireTimers();
+
+        verify(gameEngineService, times(1)).drawCardMoveTermination(1L, 2L, false);
+        verify(gameEngineService, times(1)).removeUserFromGame(1L, 2L);
+    }
+
+    @Test
+    public void testTurnTerminatedByPlayer_resetsMissedTurns() throws Exception {
+        when(gameEngineService.findGameById(1L)).thenReturn(game);
+
+        announceTurn();
+        expireTimers();
+        announceTurn();
+        turnTimerService.onEndTurn(new EndTurnEvent(this, "player", 1L, 2L));
+        announceTurn();
+        expireTimers();
+
+        verify(gameEngineService, times(2)).drawCardMoveTermination(1L, 2L, false);
+        verify(gameEngineService, never()).removeUserFromGame(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testExpiredPlacement_explosionReturnedToRandomPosition() throws Exception {
+        when(gameEngineService.findGameById(1L)).thenReturn(game);
+        turnTimerService.onPlacement(new PlacementEvent(this, 1L, 2L));
+
+        expireTimers();
+
+        verify(gameEngineService).handleExplosionPlacement(1L, 2L, 69);
+        verify(gameEngineService, never()).drawCardMoveTermination(anyLong(), anyLong(), anyBoolean());
+    }
+}
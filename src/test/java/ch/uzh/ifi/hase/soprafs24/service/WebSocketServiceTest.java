@@ -1,9 +1,12 @@
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import ch.uzh.ifi.hase.soprafs24.engine.GameCommandExecutor;
 import ch.uzh.ifi.hase.soprafs24.service.WebSocketService;
 import org.json.JSONArray;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -31,6 +34,14 @@ public class WebSocketServiceTest {
         ReflectionTestUtils.setField(webSocketService, "sendMessage", messagingTemplate);
     }
 
+    /**
+     * Matches a message with the same fields as the expected one, regardless of their order
+     */
+    private static String jsonEq(JSONObject expected) {
+        JSONObject expectedMessage = new JSONObject(expected.toString());
+        return argThat(message -> expectedMessage.similar(new JSONObject(message)));
+    }
+
     @Test
     public void sendMessageToClientsTest() {
         String destination = "/test/destination";
@@ -97,7 +108,7 @@ public class WebSocketServiceTest {
         message.put("user", userName);
         message.put("numberOfCards", numberOfCards);
         webSocketService.sendMessageCardsDrawn(gameId, userName, numberOfCards);
-        verify(messagingTemplate).convertAndSend("/game/" + gameId, message.toString());
+        verify(messagingTemplate).convertAndSend(eq("/game/" + gameId), jsonEq(message));
     }
 
     @Test
@@ -109,7 +120,7 @@ public class WebSocketServiceTest {
         message.put("gameId", gameId);
         message.put("user", userName);
         webSocketService.sendMessageShuffling(gameId, userName);
-        verify(messagingTemplate).convertAndSend("/game/" + gameId, message.toString());
+        verify(messagingTemplate).convertAndSend(eq("/game/" + gameId), jsonEq(message));
     }
 
     @Test
@@ -143,7 +154,7 @@ public class WebSocketServiceTest {
         message.put("user", userName);
         message.put("cards", cardsArray);
         webSocketService.sendMessagePeekIntoDeck(gameId, userName, userId, futureCards);
-        verify(messagingTemplate).convertAndSend("/game/" + gameId + "/" + userId, message.toString());
+        verify(messagingTemplate).convertAndSend(eq("/game/" + gameId + "/" + userId), jsonEq(message));
     }
 
     @Test
@@ -155,7 +166,7 @@ public class WebSocketServiceTest {
         message.put("gameId", gameId);
         message.put("user", userName);
         webSocketService.sendMessageExplosionReturnedToDeck(gameId, userName);
-        verify(messagingTemplate).convertAndSend("/game/" + gameId, message.toString());
+        verify(messagingTemplate).convertAndSend(eq("/game/" + gameId), jsonEq(message));
     }
 
     @Test
@@ -166,7 +177,7 @@ public class WebSocketServiceTest {
         message.put("type", "start");
         message.put("gameId", gameId);
         webSocketService.sendMessageGameStarted(gameId, userId);
-        verify(messagingTemplate).convertAndSend("/game/" + gameId + "/" + userId, message.toString());
+        verify(messagingTemplate).convertAndSend(eq("/game/" + gameId + "/" + userId), jsonEq(message));
     }
 
     @Test
@@ -339,6 +350,150 @@ public class WebSocketServiceTest {
         verify(messagingTemplate).convertAndSend(eq("/game/" + gameId), any(String.class));
     }
 
+    private Card createTopCard(String code) {
+        Card topCard = new Card();
+        topCard.setCode(code);
+        topCard.setInternalCode("attack");
+        return topCard;
+    }
+
+    private void sendGameState(Map<String, Integer> piles, String activePlayer) {
+        webSocketService.sendGameState(100L, createTopCard("JH"), piles, 2, List.of("karl", "heinz"),
+                List.of(1L, 2L), List.of("avatar1", "avatar2"), activePlayer);
+    }
+
+    private List<JSONObject> sentMessages(String destination, int count) {
+        ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
+        verify(messagingTemplate, times(count)).convertAndSend(eq(destination), messageCaptor.capture());
+        return messageCaptor.getAllValues().stream().map(JSONObject::new).toList();
+    }
+
+    @Test
+    public void sendGameStateTest_changedFieldsOnly() {
+        sendGameState(Map.of("dealer", 30, "play", 2, "1", 5, "2", 5), "karl");
+        sendGameState(Map.of("dealer", 29, "play", 2, "1", 5, "2", 6), "heinz");
+
+        List<JSONObject> messages = sentMessages("/game/100", 2);
+
+        JSONObject full = messages.get(0);
+        assertEquals("gameState", full.getString("type"));
+        assertEquals(1, full.getLong("version"));
+        assertEquals(4, full.getJSONObject("piles").length());
+        assertEquals("avatar2", full.getJSONObject("players").getJSONObject("2").getString("avatar"));
+
+        JSONObject delta = messages.get(1);
+        assertEquals("gameStateDelta", delta.getString("type"));
+        assertEquals(2, delta.getLong("version"));
+        assertEquals(1, delta.getLong("baseVersion"));
+        assertEquals("heinz", delta.getString("activePlayer"));
+        assertEquals(Map.of("dealer", 29, "2", 6), delta.getJSONObject("piles").toMap());
+        assertFalse(delta.has("players"));
+        assertFalse(delta.has("topCardCode"));
+    }
+
+    @Test
+    public void sendGameStateTest_unchangedStateNotSent() {
+        sendGameState(Map.of("dealer", 30), "karl");
+        sendGameState(Map.of("dealer", 30), "karl");
+
+        sentMessages("/game/100", 1);
+    }
+
+    @Test
+    public void sendGameStateTest_removedPileSentAsNull() {
+        sendGameState(Map.of("dealer", 30, "1", 5), "karl");
+        sendGameState(Map.of("dealer", 30), "karl");
+
+        JSONObject delta = sentMessages("/game/100", 2).get(1);
+        assertTrue(delta.getJSONObject("piles").isNull("1"));
+    }
+
+    @Test
+    public void sendFullGameStateTest() {
+        // Nothing was broadcast so far
+        webSocketService.sendFullGameState(100L, 2L);
+        verifyNoInteractions(messagingTemplate);
+
+        sendGameState(Map.of("dealer", 30), "karl");
+        sendGameState(Map.of("dealer", 29), "karl");
+        webSocketService.sendFullGameState(100L, 2L);
+
+        JSONObject full = sentMessages("/game/100/2", 1).get(0);
+        assertEquals("gameState", full.getString("type"));
+        assertEquals(2, full.getLong("version"));
+        assertEquals(29, full.getJSONObject("piles").getInt("dealer"));
+    }
+
+    @Test
+    public void resetGameStateTest_nextStateSentAsFullSnapshot() {
+        sendGameState(Map.of("dealer", 30), "karl");
+        webSocketService.resetGameState(100L);
+        sendGameState(Map.of("dealer", 29), "karl");
+
+        JSONObject full = sentMessages("/game/100", 2).get(1);
+        assertEquals("gameState", full.getString("type"));
+        assertEquals(1, full.getLong("version"));
+    }
+
+    @Test
+    public void commandScopeTest_oneFramePerDestination() {
+        try (GameCommandExecutor.CommandScope.Scope scope = webSocketService.openCommandScope()) {
+            webSocketService.sendMessageCardPlayed(100L, "karl", "lucky", "QH");
+            sendGameState(Map.of("dealer", 30), "karl");
+            webSocketService.sendMessageYourTurn(2L, 100L, "heinz");
+            sendGameState(Map.of("dealer", 29), "heinz");
+            verifyNoInteractions(messagingTemplate);
+        }
+
+        JSONObject batch = sentMessages("/game/100", 1).get(0);
+        assertEquals("batch", batch.getString("type"));
+        JSONArray messages = batch.getJSONArray("messages");
+        assertEquals(2, messages.length());
+        assertEquals("cardPlayed", messages.getJSONObject(0).getString("type"));
+
+        // Only the last state of the command is broadcast, as first state of the game
+        JSONObject gameState = messages.getJSONObject(1);
+        assertEquals("gameState", gameState.getString("type"));
+        assertEquals(1, gameState.getLong("version"));
+        assertEquals(29, gameState.getJSONObject("piles").getInt("dealer"));
+        assertEquals("heinz", gameState.getString("activePlayer"));
+
+        // A single message of a destination is sent as it is
+        JSONObject yourTurn = sentMessages("/game/100/2", 1).get(0);
+        assertEquals("startTurn", yourTurn.getString("type"));
+    }
+
+    @Test
+    public void commandScopeTest_nestedScopePartOfOutermost() {
+        try (GameCommandExecutor.CommandScope.Scope scope = webSocketService.openCommandScope()) {
+            try (GameCommandExecutor.CommandScope.Scope nested = webSocketService.openCommandScope()) {
+                webSocketService.sendMessageExplosion(100L, "karl");
+            }
+            verifyNoInteractions(messagingTemplate);
+            webSocketService.lossEvent(100L, "karl");
+        }
+
+        JSONArray messages = sentMessages("/game/100", 1).get(0).getJSONArray("messages");
+        assertEquals("explosion", messages.getJSONObject(0).getString("type"));
+        assertEquals("loss", messages.getJSONObject(1).getString("type"));
+
+        // Sent right away once the scope is closed
+        webSocketService.sendMessageExplosion(100L, "heinz");
+        verify(messagingTemplate, times(2)).convertAndSend(eq("/game/100"), anyString());
+    }
+
+    @Test
+    public void commandScopeTest_unchangedStateNotSent() {
+        sendGameState(Map.of("dealer", 30), "karl");
+
+        try (GameCommandExecutor.CommandScope.Scope scope = webSocketService.openCommandScope()) {
+            sendGameState(Map.of("dealer", 29), "karl");
+            sendGameState(Map.of("dealer", 30), "karl");
+        }
+
+        sentMessages("/game/100", 1);
+    }
+
     @Test
     public void testSendPlacementRequest() {
         Long gameId = 1L;
@@ -350,7 +505,7 @@ public class WebSocketServiceTest {
         expectedMessage.put("type", "placementRequest");
         expectedMessage.put("userId", userId);
 
-        verify(messagingTemplate).convertAndSend(eq("/game/" + gameId + "/" + userId), eq(expectedMessage.toString()));
+        verify(messagingTemplate).convertAndSend(eq("/game/" + gameId + "/" + userId), jsonEq(expectedMessage));
     }
 
     @Test
@@ -376,6 +531,6 @@ public class WebSocketServiceTest {
         expectedMessage.put("user", userId);
         expectedMessage.put("cards", cardsArray);
 
-        verify(messagingTemplate).convertAndSend(eq("/game/" + gameId + "/" + userId), eq(expectedMessage.toString()));
+        verify(messagingTemplate).convertAndSend(eq("/game/" + gameId + "/" + userId), jsonEq(expectedMessage));
     }
 }
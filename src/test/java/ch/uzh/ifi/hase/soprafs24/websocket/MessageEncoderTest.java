@@ -0,0 +1,99 @@
+package ch.uzh.ifi.hase.soprafs24.websocket;
+
+import ch.uzh.ifi.hase.soprafs24.deck.CardCatalog;
+import ch.uzh.ifi.hase.soprafs24.entity.Card;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("dev")
+public class MessageEncoderTest {
+
+    private static final MessageEncoder.Template CARDS = MessageEncoder.template("cards");
+
+    @Test
+    public void testMessage_fieldsInOrder() {
+        String message = MessageEncoder.message(CARDS)
+                .field("gameId", 1L)
+                .field("user", "karl")
+                .field("numberOfCards", 3)
+                .field("missing", (String) null)
+                .end();
+
+        assertEquals("{\"type\":\"cards\",\"gameId\":1,\"user\":\"karl\",\"numberOfCards\":3,\"missing\":null}", message);
+    }
+
+    @Test
+    public void testCards_catalogAndModifiedCards() {
+        Card modified = new Card();
+        modified.setCode("KH");
+        modified.setInternalCode("explosion");
+        Card unknown = new Card();
+        unknown.setCode("ZZ");
+
+        JSONArray cards = new JSONObject(MessageEncoder.message(CARDS)
+                .cards("cards", List.of(CardCatalog.get("KH"), modified, unknown))
+                .end()).getJSONArray("cards");
+
+        assertEquals(3, cards.length());
+        assertEquals("KH", cards.getJSONObject(0).getString("code"));
+        assertEquals(CardCatalog.get("KH").getInternalCode(), cards.getJSONObject(0).getString("internalCode"));
+        assertEquals("explosion", cards.getJSONObject(1).getString("internalCode"));
+        assertEquals("ZZ", cards.getJSONObject(2).getString("code"));
+        assertTrue(cards.getJSONObject(2).isNull("internalCode"));
+    }
+
+    @Test
+    public void testNestedObjectsAndArrays() {
+        MessageEncoder encoder = MessageEncoder.message(CARDS)
+                .beginObject("piles")
+                .field("dealer", 30)
+                .field("1", (Integer) null)
+                .endObject()
+                .beginArray("leaderboard");
+        for (int place = 1; place <= 2; place++) {
+            encoder.beginObject()
+                    .field("username", "user" + place)
+                    .field("position", place)
+                    .endObject();
+        }
+        encoder.endArray()
+                .beginArray("playerNames")
+                .value("karl")
+                .value("heinz")
+                .endArray();
+
+        JSONObject message = new JSONObject(encoder.end());
+        assertEquals(30, message.getJSONObject("piles").getInt("dealer"));
+        assertTrue(message.getJSONObject("piles").isNull("1"));
+        assertEquals(2, message.getJSONArray("leaderboard").getJSONObject(1).getInt("position"));
+        assertEquals("heinz", message.getJSONArray("playerNames").getString(1));
+    }
+
+    @Test
+    public void testEscaping() {
+        String userName = "\"karl\"\\\n\t\u0001";
+
+        JSONObject message = new JSONObject(MessageEncoder.message(CARDS).field("user", userName).end());
+
+        assertEquals(userName, message.getString("user"));
+    }
+
+    @Test
+    public void testBufferReused_messagesIndependent() {
+        String first = MessageEncoder.message(CARDS).field("user", "a very long user name of the first message").end();
+        String second = MessageEncoder.message(MessageEncoder.template("batch"))
+                .messages("messages", List.of(first, first))
+                .end();
+
+        assertEquals("{\"type\":\"cards\",\"user\":\"a very long user name of the first message\"}", first);
+        JSONObject batch = new JSONObject(second);
+        assertEquals("batch", batch.getString("type"));
+        assertTrue(new JSONObject(first).similar(batch.getJSONArray("messages").getJSONObject(1)));
+    }
+}